@@ -0,0 +1,151 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop HTTP load test for comparing the classic Tomcat pool with virtual-thread execution.
+ * <p>
+ * Each of {@code concurrency} clients sends a request, reads the whole response and immediately
+ * sends the next one, holding its own connection. After a warm-up the test reports throughput,
+ * latency percentiles and errors. Run it against an instance started with
+ * {@code movies.threads.virtual=false} and then {@code true}, with a concurrency well above
+ * {@code server.tomcat.threads.max}:
+ * <pre>
+ * mvn -Pbenchmarks compile exec:exec@load-test -Dload.args="http://localhost:8080/movies 2000 30 5"
+ * </pre>
+ * Arguments: URL, concurrency (default 1000), measured seconds (default 30), warm-up seconds (default 5).
+ */
+public final class HttpLoadTest {
+
+    private HttpLoadTest() {}
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: HttpLoadTest <url> [concurrency] [seconds] [warmup seconds]");
+            System.exit(2);
+        }
+        URL url = toUrl(args[0]);
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int warmupSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        // keep one idle connection per client instead of the JDK default of five per host
+        System.setProperty("http.maxConnections", Integer.toString(concurrency));
+
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        List<Client> clients = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Client client = new Client(url, measureFrom, measureUntil, done);
+            clients.add(client);
+            Thread thread = new Thread(client, "load-client-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        long[] latencies = new long[clients.stream().mapToInt(client -> client.count).sum()];
+        int offset = 0;
+        long errors = 0;
+        for (Client client : clients) {
+            System.arraycopy(client.latencies, 0, latencies, offset, client.count);
+            offset += client.count;
+            errors += client.errors;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%s with %d clients for %d s%n", url, concurrency, seconds);
+        System.out.printf("requests   %d (%d errors)%n", latencies.length, errors);
+        System.out.printf("throughput %.1f req/s%n", latencies.length / (double) seconds);
+        System.out.printf("latency    p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0));
+    }
+
+    private static double percentile(long[] sortedNanos, double fraction) {
+        if (sortedNanos.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(fraction * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private static URL toUrl(String value) {
+        try {
+            return new URL(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid URL " + value, e);
+        }
+    }
+
+    /**
+     * One closed-loop client; records the latency of every successful request in the measured window.
+     */
+    private static final class Client implements Runnable {
+        private final URL url;
+        private final long measureFrom;
+        private final long measureUntil;
+        private final CountDownLatch done;
+        private final byte[] buffer = new byte[8192];
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        private Client(URL url, long measureFrom, long measureUntil, CountDownLatch done) {
+            this.url = url;
+            this.measureFrom = measureFrom;
+            this.measureUntil = measureUntil;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long now;
+                while ((now = System.nanoTime()) < measureUntil) {
+                    boolean ok = request();
+                    long elapsed = System.nanoTime() - now;
+                    if (now < measureFrom) {
+                        continue;
+                    }
+                    if (!ok) {
+                        errors++;
+                    } else {
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = elapsed;
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private boolean request() {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                connection.setConnectTimeout(30_000);
+                connection.setReadTimeout(60_000);
+                int status = connection.getResponseCode();
+                try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                    while (in != null && in.read(buffer) >= 0) {
+                        // drain the body so the connection can be reused
+                    }
+                }
+                return status == HttpURLConnection.HTTP_OK;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
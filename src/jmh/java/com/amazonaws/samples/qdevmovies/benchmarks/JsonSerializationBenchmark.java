@@ -0,0 +1,55 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.MovieQuery;
+import com.amazonaws.samples.qdevmovies.movies.MoviesController;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of serializing a search API response, with an object mapper configured the way Spring MVC
+ * configures the one behind {@code /movies/search/api}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"1", "50", "1000"})
+    public int pageSize;
+
+    private ObjectMapper objectMapper;
+    private MoviesController.MovieSearchResponse response;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        response = new MoviesController.MovieSearchResponse();
+        response.setMovies(SyntheticCatalog.movies(pageSize));
+        response.setTotalResults(pageSize * 10);
+        response.setNextCursor("YzE6cmF0aW5nOmQ6Mzoy");
+        response.setMessage("Ahoy! Found " + pageSize * 10 + " movies in our treasure chest!");
+        response.setSearchCriteria(new MovieQuery("harbor", null, "drama"));
+    }
+
+    @Benchmark
+    public byte[] serializeSearchResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,53 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.utils.MovieIconUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Icon lookup cost per movie name, for names with a dedicated icon and for the default.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieIconUtilsBenchmark {
+
+    private final String[] knownNames = {
+        "The Prison Escape", "The Family Boss", "The Masked Hero", "Urban Stories", "Life Journey", "Dream Heist",
+        "The Virtual World", "The Wise Guys", "The Quest for the Ring", "Space Wars: The Beginning",
+        "The Factory Owner", "Underground Club", "The Prison Escape", "Dream Heist", "Urban Stories", "Life Journey"
+    };
+    private String[] syntheticNames;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        syntheticNames = new String[16];
+        for (int i = 0; i < syntheticNames.length; i++) {
+            syntheticNames[i] = SyntheticCatalog.movie(i + 1).getMovieName();
+        }
+    }
+
+    @Benchmark
+    public String knownMovieIcon() {
+        return MovieIconUtils.getMovieIcon(knownNames[next++ & 15]);
+    }
+
+    @Benchmark
+    public String defaultMovieIcon() {
+        return MovieIconUtils.getMovieIcon(syntheticNames[next++ & 15]);
+    }
+}
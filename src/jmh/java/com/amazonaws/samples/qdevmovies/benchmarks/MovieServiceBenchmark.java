@@ -0,0 +1,123 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import com.amazonaws.samples.qdevmovies.movies.MoviePage;
+import com.amazonaws.samples.qdevmovies.movies.MovieQuery;
+import com.amazonaws.samples.qdevmovies.movies.MovieService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search and lookup latency of {@link MovieService} over synthetic catalogs, at selectivities
+ * from a single match to the whole catalog.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class MovieServiceBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private MovieService movieService;
+    private MovieQuery uniqueName;
+    private MovieQuery nounName;
+    private MovieQuery commonName;
+    private MovieQuery singleGenre;
+    private MovieQuery allGenres;
+    private MovieQuery rangeTopRated;
+    private MovieQuery firstPageByRating;
+    private long[] ids;
+    private int nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        movieService = new MovieService(SyntheticCatalog.catalogFile(catalogSize).toString());
+
+        uniqueName = new MovieQuery(SyntheticCatalog.uniqueNameQuery(catalogSize / 2), null, null);
+        nounName = new MovieQuery(SyntheticCatalog.NOUN_QUERY, null, null);
+        commonName = new MovieQuery(SyntheticCatalog.COMMON_QUERY, null, null);
+        singleGenre = new MovieQuery(null, null, "drama");
+        allGenres = new MovieQuery();
+        allGenres.setGenre(Arrays.asList("action", "sci-fi"));
+        allGenres.setGenreMatch(MovieQuery.MATCH_ALL);
+        rangeTopRated = new MovieQuery(null, null, "drama");
+        rangeTopRated.setYearFrom(1990);
+        rangeTopRated.setYearTo(2000);
+        rangeTopRated.setTop(10);
+        firstPageByRating = new MovieQuery();
+        firstPageByRating.setSort("rating");
+
+        ids = new long[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + (i * 7919L) % catalogSize;
+        }
+    }
+
+    @Benchmark
+    public MoviePage searchUniqueName() {
+        return movieService.searchPage(uniqueName);
+    }
+
+    @Benchmark
+    public MoviePage searchNounName() {
+        return movieService.searchPage(nounName);
+    }
+
+    @Benchmark
+    public MoviePage searchCommonName() {
+        return movieService.searchPage(commonName);
+    }
+
+    @Benchmark
+    public MoviePage searchSingleGenre() {
+        return movieService.searchPage(singleGenre);
+    }
+
+    @Benchmark
+    public MoviePage searchAllGenres() {
+        return movieService.searchPage(allGenres);
+    }
+
+    @Benchmark
+    public MoviePage searchRangeTopRated() {
+        return movieService.searchPage(rangeTopRated);
+    }
+
+    @Benchmark
+    public MoviePage firstPageByRating() {
+        return movieService.searchPage(firstPageByRating);
+    }
+
+    /**
+     * The unpaged search returns every match, so this measures the cost of materializing a
+     * result as large as the catalog.
+     */
+    @Benchmark
+    public List<Movie> searchCommonNameUnpaged() {
+        return movieService.searchMovies(commonName);
+    }
+
+    @Benchmark
+    public Optional<Movie> getMovieById() {
+        return movieService.getMovieById(ids[nextId++ & (ids.length - 1)]);
+    }
+}
@@ -0,0 +1,61 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.Review;
+import com.amazonaws.samples.qdevmovies.movies.ReviewService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Review lookup latency of {@link ReviewService}, for movies with and without reviews. The whole
+ * reviews file is held in memory, so the largest catalog here is smaller than for search.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ReviewServiceBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int catalogSize;
+
+    @Param({"3"})
+    public int reviewsPerMovie;
+
+    private ReviewService reviewService;
+    private long[] ids;
+    private int nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        reviewService = new ReviewService(SyntheticCatalog.reviewsFile(catalogSize, reviewsPerMovie).toString());
+        ids = new long[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + (i * 7919L) % catalogSize;
+        }
+    }
+
+    @Benchmark
+    public List<Review> getReviewsForMovie() {
+        return reviewService.getReviewsForMovie(ids[nextId++ & (ids.length - 1)]);
+    }
+
+    @Benchmark
+    public List<Review> getReviewsForUnknownMovie() {
+        return reviewService.getReviewsForMovie(-ids[nextId++ & (ids.length - 1)]);
+    }
+}
@@ -0,0 +1,158 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic catalogs for the benchmarks, from a hundred to millions of movies.
+ * <p>
+ * Movie {@code n} (ids start at 1) is always generated the same way, so a catalog of any size is
+ * a prefix of the larger ones. Names are "The &lt;adjective&gt; &lt;noun&gt; (&lt;id&gt;)", which gives
+ * the benchmarks predictable selectivities:
+ * <ul>
+ *   <li>{@link #uniqueNameQuery(int)} matches a single movie,</li>
+ *   <li>{@link #NOUN_QUERY} matches about one movie in {@value #NOUN_COUNT},</li>
+ *   <li>{@link #COMMON_QUERY} matches every movie.</li>
+ * </ul>
+ * Generated files are cached in the temp directory and reused by later runs.
+ */
+public final class SyntheticCatalog {
+    public static final String NOUN_QUERY = "harbor";
+    public static final String COMMON_QUERY = "the";
+    public static final int NOUN_COUNT = 20;
+
+    private static final String[] ADJECTIVES = {
+        "Silent", "Crimson", "Hidden", "Last", "Golden", "Broken", "Distant", "Electric", "Frozen", "Wild",
+        "Midnight", "Iron", "Lost", "Secret", "Burning", "Endless", "Hollow", "Savage", "Velvet", "Northern"
+    };
+    private static final String[] NOUNS = {
+        "Harbor", "Empire", "Voyage", "Garden", "Signal", "Kingdom", "Mirror", "Horizon", "Circuit", "Legacy",
+        "Island", "Frontier", "Shadow", "Compass", "Citadel", "Orchard", "Lantern", "Tide", "Summit", "Archive"
+    };
+    private static final String[] GENRES = {
+        "Drama", "Action", "Comedy", "Crime/Drama", "Action/Crime", "Sci-Fi", "Action/Sci-Fi", "Adventure/Fantasy",
+        "Drama/Romance", "Thriller", "Drama/Thriller", "Horror", "Animation/Family", "Documentary"
+    };
+    private static final String[] AVATARS = {"👨", "👩", "🧔", "👴", "🤓", "😎"};
+    private static final int DIRECTOR_COUNT = 5000;
+
+    private SyntheticCatalog() {}
+
+    /**
+     * @return the movie with the id, the same in every catalog that contains it
+     */
+    public static Movie movie(long id) {
+        Random random = new Random(id * 0x9E3779B97F4A7C15L);
+        String name = "The " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                + NOUNS[(int) (id % NOUN_COUNT)] + " (" + id + ")";
+        String director = "Director " + random.nextInt(DIRECTOR_COUNT);
+        int year = 1950 + random.nextInt(75);
+        String genre = GENRES[random.nextInt(GENRES.length)];
+        String description = "A " + genre.toLowerCase() + " about " + name.toLowerCase()
+                + ", told across " + (2 + random.nextInt(9)) + " acts with an unexpected ending.";
+        int duration = 80 + random.nextInt(121);
+        double rating = 1.0 + random.nextInt(9) * 0.5;
+        return new Movie(id, name, director, year, genre, description, duration, rating);
+    }
+
+    /**
+     * @return movies 1 to {@code size}
+     */
+    public static List<Movie> movies(int size) {
+        List<Movie> movies = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            movies.add(movie(id));
+        }
+        return movies;
+    }
+
+    /**
+     * @return a name query that matches only the movie with the id
+     */
+    public static String uniqueNameQuery(int id) {
+        return NOUNS[id % NOUN_COUNT] + " (" + id + ")";
+    }
+
+    /**
+     * @return a JSON catalog file of movies 1 to {@code size}, in the format of {@code movies.json}
+     */
+    public static Path catalogFile(int size) {
+        return cached("movies-" + size + ".json", target -> {
+            try (JsonGenerator json = new JsonFactory().createGenerator(target.toFile(), JsonEncoding.UTF8)) {
+                json.writeStartArray();
+                for (long id = 1; id <= size; id++) {
+                    Movie movie = movie(id);
+                    json.writeStartObject();
+                    json.writeNumberField("id", movie.getId());
+                    json.writeStringField("movieName", movie.getMovieName());
+                    json.writeStringField("director", movie.getDirector());
+                    json.writeNumberField("year", movie.getYear());
+                    json.writeStringField("genre", movie.getGenre());
+                    json.writeStringField("description", movie.getDescription());
+                    json.writeNumberField("duration", movie.getDuration());
+                    json.writeNumberField("imdbRating", movie.getImdbRating());
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+            }
+        });
+    }
+
+    /**
+     * @return a reviews file with {@code reviewsPerMovie} reviews for each of movies 1 to {@code size},
+     *         in the format of {@code mock-reviews.json}
+     */
+    public static Path reviewsFile(int size, int reviewsPerMovie) {
+        return cached("reviews-" + size + "x" + reviewsPerMovie + ".json", target -> {
+            try (JsonGenerator json = new JsonFactory().createGenerator(target.toFile(), JsonEncoding.UTF8)) {
+                json.writeStartObject();
+                for (long id = 1; id <= size; id++) {
+                    Random random = new Random(id);
+                    json.writeArrayFieldStart(Long.toString(id));
+                    for (int i = 0; i < reviewsPerMovie; i++) {
+                        json.writeStartObject();
+                        json.writeStringField("userName", "Viewer" + random.nextInt(100000));
+                        json.writeStringField("avatarEmoji", AVATARS[random.nextInt(AVATARS.length)]);
+                        json.writeNumberField("rating", 1.0 + random.nextInt(9) * 0.5);
+                        json.writeStringField("comment", "Review " + i + " of movie " + id + ": worth a watch on a rainy evening.");
+                        json.writeEndObject();
+                    }
+                    json.writeEndArray();
+                }
+                json.writeEndObject();
+            }
+        });
+    }
+
+    private interface FileWriter {
+        void write(Path target) throws IOException;
+    }
+
+    private static Path cached(String fileName, FileWriter writer) {
+        try {
+            Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "qdev-movies-benchmarks");
+            Files.createDirectories(directory);
+            Path file = directory.resolve(fileName);
+            if (!Files.exists(file)) {
+                Path temp = Files.createTempFile(directory, fileName, ".tmp");
+                writer.write(temp);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not generate " + fileName, e);
+        }
+    }
+}
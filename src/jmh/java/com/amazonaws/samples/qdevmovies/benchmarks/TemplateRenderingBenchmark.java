@@ -0,0 +1,96 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import com.amazonaws.samples.qdevmovies.movies.Review;
+import com.amazonaws.samples.qdevmovies.utils.MovieIconUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IExpressionContext;
+import org.thymeleaf.linkbuilder.StandardLinkBuilder;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thymeleaf rendering cost of the movie grid and the details page, using the application's
+ * templates with template caching on, as in production.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateRenderingBenchmark {
+
+    @Param({"12", "50", "1000"})
+    public int pageSize;
+
+    private SpringTemplateEngine templateEngine;
+    private Context gridContext;
+    private Context detailsContext;
+
+    @Setup
+    public void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        templateEngine.setLinkBuilder(new RootContextLinkBuilder());
+
+        gridContext = new Context();
+        gridContext.setVariable("movies", SyntheticCatalog.movies(pageSize));
+        gridContext.setVariable("searchSort", "rating");
+        gridContext.setVariable("nextPageUrl", "/movies?sort=rating&cursor=YzE6cmF0aW5nOmQ6Mzoy");
+
+        Movie movie = SyntheticCatalog.movie(1);
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            reviews.add(new Review("Viewer" + i, "👩", 4.5, "Review " + i + ": worth a watch on a rainy evening."));
+        }
+        detailsContext = new Context();
+        detailsContext.setVariable("movie", movie);
+        detailsContext.setVariable("movieIcon", MovieIconUtils.getMovieIcon(movie.getMovieName()));
+        detailsContext.setVariable("allReviews", reviews);
+    }
+
+    @Benchmark
+    public String renderMoviesGrid() {
+        return templateEngine.process("movies", gridContext);
+    }
+
+    @Benchmark
+    public String renderMovieDetails() {
+        return templateEngine.process("movie-details", detailsContext);
+    }
+
+    /**
+     * Resolves context-relative links such as {@code @{/movies}} as if the application were
+     * deployed at the root, since the benchmark renders outside a servlet request.
+     */
+    private static final class RootContextLinkBuilder extends StandardLinkBuilder {
+        @Override
+        protected String computeContextPath(IExpressionContext context, String base, Map<String, Object> parameters) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the whole catalog as JSON Lines: one object per movie, in catalog order, holding the
+ * movie's fields as served by the search API plus a {@code reviews} array.
+ * <p>
+ * Movies are created one at a time from the catalog and their reviews are looked up in the
+ * review index, and every line goes straight to the output stream, so the memory needed is the
+ * same for any catalog size. Records are assembled from the pre-serialized movie and review JSON
+ * kept by {@link MovieJsonModule}.
+ */
+public class CatalogExporter {
+    private static final ObjectWriter RECORD_WRITER = new ObjectMapper()
+            .registerModule(new MovieJsonModule())
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .writerFor(MovieWithReviews.class);
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final MovieService movieService;
+    private final ReviewService reviewService;
+
+    public CatalogExporter(MovieService movieService, ReviewService reviewService) {
+        this.movieService = movieService;
+        this.reviewService = reviewService;
+    }
+
+    /**
+     * Writes every movie to the stream, gzip-compressed if requested. The stream is not closed.
+     *
+     * @return the number of movies written
+     * @throws IOException if the stream cannot be written, for example because the client went away
+     */
+    public int export(OutputStream out, boolean gzip) throws IOException {
+        if (!gzip) {
+            return writeLines(out);
+        }
+        GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+        int count = writeLines(compressed);
+        compressed.finish();
+        return count;
+    }
+
+    private int writeLines(OutputStream out) throws IOException {
+        int count = 0;
+        try (JsonGenerator generator = RECORD_WRITER.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            generator.setRootValueSeparator(null);
+            for (Movie movie : movieService.getAllMovies()) {
+                RECORD_WRITER.writeValue(generator, new MovieWithReviews(movie, reviewService.getReviewsForMovie(movie.getId())));
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,16 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * Thrown when the movie catalog cannot be read or contains an invalid record.
+ */
+public class CatalogLoadException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public CatalogLoadException(String message) {
+        super(message);
+    }
+
+    public CatalogLoadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
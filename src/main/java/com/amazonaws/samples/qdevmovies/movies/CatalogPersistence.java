@@ -0,0 +1,199 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the catalog in a data directory so that movies created, updated and deleted through the
+ * write API survive a restart or a crash. The directory holds a {@link WriteAheadLog} of every
+ * applied batch of changes and checkpoints of the whole catalog as {@link MovieSnapshot} files.
+ * <p>
+ * A checkpoint is named after the sequence number of the last batch it contains
+ * ({@code catalog-00000000000000000042.snapshot}). Recovery maps the newest checkpoint and replays
+ * only the batches logged after it, so a restart reads at most the log written since the last
+ * checkpoint however many edits were ever made. Once a checkpoint is on disk, older checkpoints
+ * and the log segments it covers are deleted.
+ */
+final class CatalogPersistence implements Closeable {
+    private static final Logger logger = LogManager.getLogger(CatalogPersistence.class);
+    private static final String CHECKPOINT_PREFIX = "catalog-";
+    private static final String CHECKPOINT_SUFFIX = ".snapshot";
+
+    private final Path directory;
+    private final long checkpointBytes;
+    private WriteAheadLog log;
+    private long lastCheckpoint;
+
+    /**
+     * @param checkpointBytes size of the log after which {@link #needsCheckpoint} asks for a checkpoint
+     */
+    CatalogPersistence(Path directory, long checkpointBytes) {
+        this.directory = directory;
+        this.checkpointBytes = checkpointBytes;
+    }
+
+    /**
+     * Recovers the catalog: the newest checkpoint with every batch logged after it replayed as
+     * edits layered on top, as if they had just been written. An empty directory is initialized
+     * with the catalog at {@code initialLocation} as its first checkpoint; from then on that
+     * location is only read by a reload.
+     *
+     * @param reviewService the reviews to aggregate, or null for none
+     * @throws IOException if the directory cannot be read or written
+     * @throws CatalogLoadException if a checkpoint or the log is damaged, or the logged changes do
+     *                              not apply to the checkpoint
+     */
+    MovieCatalog recover(String initialLocation, ReviewService reviewService) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> checkpoints = checkpoints();
+        MovieCatalog catalog;
+        long checkpoint;
+        if (checkpoints.isEmpty()) {
+            logger.info("No checkpoint in {}; starting from {}", directory, initialLocation);
+            catalog = MovieCatalog.load(initialLocation, reviewService);
+            checkpoint = 0;
+        } else {
+            checkpoint = checkpoints.lastKey();
+            catalog = MovieCatalog.load(checkpoints.lastEntry().getValue().toString(), reviewService);
+        }
+
+        List<MovieChange> replayed = new ArrayList<>();
+        int[] batches = new int[1];
+        log = WriteAheadLog.open(directory, checkpoint, changes -> {
+            replayed.addAll(changes);
+            batches[0]++;
+        });
+        lastCheckpoint = checkpoint;
+        if (!replayed.isEmpty()) {
+            try {
+                catalog = catalog.withChanges(replayed, reviewService, new ArrayList<>());
+            } catch (IllegalArgumentException | NoSuchElementException e) {
+                log.close();
+                throw new CatalogLoadException("Write-ahead log in " + directory + " does not apply to checkpoint "
+                        + checkpoint + ": " + e.getMessage(), e);
+            }
+        }
+        if (checkpoints.isEmpty()) {
+            writeCheckpoint(catalog, roll());
+        }
+        logger.info("Recovered {} movies from checkpoint {} and {} logged batches ({} changes) in {} ms",
+                catalog.store.movieCount(), checkpoint, batches[0], replayed.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return catalog;
+    }
+
+    private TreeMap<Long, Path> checkpoints() throws IOException {
+        TreeMap<Long, Path> checkpoints = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, CHECKPOINT_PREFIX + "*" + CHECKPOINT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    checkpoints.put(Long.parseLong(name.substring(CHECKPOINT_PREFIX.length(),
+                            name.length() - CHECKPOINT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring {} in the catalog data directory", file);
+                }
+            }
+        }
+        return checkpoints;
+    }
+
+    /**
+     * Appends a batch to the log; see {@link WriteAheadLog#append}.
+     *
+     * @return the batch's sequence number
+     */
+    long log(List<MovieChange> changes) throws IOException {
+        return log.append(changes);
+    }
+
+    /**
+     * Waits until the batch with the sequence number is on disk; see {@link WriteAheadLog#awaitDurable}.
+     */
+    void awaitDurable(long sequence) throws IOException {
+        log.awaitDurable(sequence);
+    }
+
+    /**
+     * @return whether the log has grown past the size at which a checkpoint keeps recovery short
+     */
+    boolean needsCheckpoint() {
+        return log.size() > checkpointBytes;
+    }
+
+    /**
+     * Starts a new log segment for the batches after the current ones. Call it while no batch can
+     * be appended, then checkpoint the catalog as of the returned sequence number.
+     *
+     * @return the sequence number of the last batch logged
+     */
+    long roll() throws IOException {
+        return log.roll();
+    }
+
+    /**
+     * Writes a checkpoint of the catalog, which must contain exactly the batches up to the sequence
+     * number, then deletes the older checkpoints and the log segments it covers. A checkpoint
+     * older than the newest one written is skipped.
+     *
+     * @throws IOException if the checkpoint cannot be written
+     */
+    synchronized void writeCheckpoint(MovieCatalog catalog, long sequence) throws IOException {
+        if (sequence < lastCheckpoint) {
+            return;
+        }
+        long start = System.nanoTime();
+        CompactMovieStore store;
+        MovieSortIndex sortIndex;
+        if (catalog.store instanceof CompactMovieStore) {
+            store = (CompactMovieStore) catalog.store;
+            sortIndex = catalog.sortIndex;
+        } else {
+            // The snapshot format needs a store without gaps and with its dictionaries
+            MovieStore.Builder builder = new MovieStore.Builder();
+            for (int ordinal = 0; ordinal < catalog.store.size(); ordinal++) {
+                if (catalog.store.contains(ordinal)) {
+                    builder.add(catalog.store.movie(ordinal));
+                }
+            }
+            store = builder.build();
+            sortIndex = new MovieSortIndex(store);
+        }
+        Path target = directory.resolve(String.format("%s%020d%s", CHECKPOINT_PREFIX, sequence, CHECKPOINT_SUFFIX));
+        MovieSnapshotWriter.write(store, sortIndex, catalog.maxId, target);
+        lastCheckpoint = sequence;
+        logger.info("Checkpointed {} movies as of batch {} in {} ms", store.movieCount(), sequence,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        for (Path obsolete : checkpoints().headMap(sequence).values()) {
+            try {
+                Files.delete(obsolete);
+            } catch (IOException e) {
+                logger.warn("Could not delete old checkpoint {}: {}", obsolete, e.getMessage());
+            }
+        }
+        log.deleteThrough(sequence);
+    }
+
+    /**
+     * Forces the log to disk and closes it.
+     */
+    @Override
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches one file with an NIO {@link WatchService} and runs a callback once the file has changed
+ * and then stayed quiet for a moment, so a file that is still being written is not read half-way.
+ * <p>
+ * The file's directory is registered and events for other files are ignored; replacing the file
+ * by renaming a new one over it counts as a change, which is the safest way to publish a catalog.
+ * The watch runs on a single daemon thread until {@link #close()}. The callback runs on that
+ * thread, so changes that arrive while it runs are picked up afterwards rather than concurrently.
+ */
+public class CatalogWatcher implements Closeable {
+    private static final Logger logger = LogManager.getLogger(CatalogWatcher.class);
+    /** How long the file must stay unchanged after an event before the callback runs. */
+    public static final long DEFAULT_QUIET_PERIOD_MILLIS = 500;
+
+    private final Path file;
+    private final Runnable onChange;
+    private final long quietPeriodMillis;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Starts watching.
+     *
+     * @param onChange runs after each settled change; exceptions are logged and watching continues
+     * @throws IOException if the file's directory cannot be watched
+     */
+    public CatalogWatcher(Path file, Runnable onChange, long quietPeriodMillis) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.onChange = onChange;
+        this.quietPeriodMillis = quietPeriodMillis;
+        this.watchService = this.file.getFileSystem().newWatchService();
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "catalog-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Watching {} for changes", this.file);
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = touchesFile(key);
+                boolean valid = key.reset();
+                // Keep draining events until the directory has been quiet for the whole period
+                WatchKey next;
+                while (valid && (next = watchService.poll(quietPeriodMillis, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= touchesFile(next);
+                    valid = next.reset();
+                }
+                if (changed) {
+                    runCallback();
+                }
+                if (!valid) {
+                    logger.warn("Stopped watching {}: its directory is no longer accessible", file);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private boolean touchesFile(WatchKey key) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                touched = true;
+            }
+        }
+        return touched;
+    }
+
+    private void runCallback() {
+        try {
+            onChange.run();
+        } catch (RuntimeException e) {
+            logger.error("Handling a change of {} failed: {}", file, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,25 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * A {@link MovieStore} without gaps whose directors and genres are dictionary-encoded: the store
+ * built by {@link MovieStore.Builder} and the one mapped from a {@link MovieSnapshot}. Only such a
+ * store can be written as a snapshot, since the snapshot records hold the dictionary codes.
+ */
+public abstract class CompactMovieStore extends MovieStore {
+
+    CompactMovieStore() {}
+
+    /**
+     * @return the director with the dictionary code; codes run from 0 to {@link #directorCount()} - 1
+     */
+    abstract String directorByCode(int code);
+
+    /**
+     * @return the genre with the dictionary code; codes run from 0 to {@link #genreCount()} - 1
+     */
+    abstract String genreByCode(int code);
+
+    abstract int directorCode(int ordinal);
+
+    abstract int genreCode(int ordinal);
+}
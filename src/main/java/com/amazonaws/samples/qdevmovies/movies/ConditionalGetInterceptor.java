@@ -0,0 +1,55 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers conditional GETs for catalog pages before the controller runs.
+ * <p>
+ * Every response of the intercepted endpoints is a function of the request URL, the catalog and,
+ * for pages that show reviews, the review aggregates and the reviews. The entity tag is therefore
+ * built from those versions alone, and a request whose {@code If-None-Match} or
+ * {@code If-Modified-Since} still matches gets a {@code 304 Not Modified} without searching or
+ * rendering anything. Other requests proceed with {@code ETag} and {@code Last-Modified} set.
+ */
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+    private final MovieService movieService;
+    private final ReviewService reviewService;
+
+    /**
+     * @param reviewService the review service for pages that show reviews, or null for pages that do not
+     */
+    public ConditionalGetInterceptor(MovieService movieService, ReviewService reviewService) {
+        this.movieService = movieService;
+        this.reviewService = reviewService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+        return !new ServletWebRequest(request, response).checkNotModified(entityTag(), lastModified());
+    }
+
+    /**
+     * @return the current entity tag, a quoted strong tag. With reviews it covers the review
+     *         aggregates actually served, which lag behind changed reviews until they are
+     *         recomputed, and the reviews themselves.
+     */
+    String entityTag() {
+        if (reviewService == null) {
+            return '"' + Long.toHexString(movieService.getCatalogVersion()) + '"';
+        }
+        return '"' + Long.toHexString(movieService.getVersionWithReviewStats())
+                + '-' + Long.toHexString(reviewService.getVersion()) + '"';
+    }
+
+    private long lastModified() {
+        long lastModified = movieService.getLastModified();
+        return reviewService != null ? Math.max(lastModified, reviewService.getLastModified()) : lastModified;
+    }
+}
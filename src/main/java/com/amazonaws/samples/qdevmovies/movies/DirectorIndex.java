@@ -0,0 +1,97 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.IntArrayList;
+import com.amazonaws.samples.qdevmovies.utils.TrigramIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash index from director names to movie ordinals.
+ * <p>
+ * Each distinct director, compared case-insensitively, keeps the ascending ordinals of its movies,
+ * so an exact match is one hash lookup. A partial match finds the directors whose name contains
+ * the query through a {@link TrigramIndex} over the distinct names and merges their ordinals.
+ * Either way the cost follows the number of matching directors and movies, not the catalog size.
+ */
+public class DirectorIndex {
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private final Map<String, Integer> idsByName;
+    private final int[][] ordinalsById;
+    private final TrigramIndex nameIndex;
+
+    /**
+     * Builds the index; the ordinal of each director is its position in the list.
+     */
+    public DirectorIndex(List<String> directors) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        List<IntArrayList> ordinals = new ArrayList<>();
+        for (int ordinal = 0; ordinal < directors.size(); ordinal++) {
+            String name = TrigramIndex.fold(directors.get(ordinal));
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                ids.put(name, id);
+                names.add(name);
+                ordinals.add(new IntArrayList(4));
+            }
+            ordinals.get(id).add(ordinal);
+        }
+        this.idsByName = ids;
+        this.ordinalsById = new int[ordinals.size()][];
+        for (int id = 0; id < ordinalsById.length; id++) {
+            ordinalsById[id] = ordinals.get(id).toArray();
+        }
+        this.nameIndex = new TrigramIndex(names);
+    }
+
+    /**
+     * @param director the director's name, or part of it; case-insensitive
+     * @param exact true to match the whole name, false to match names containing it
+     * @return ordinals of the matching movies in ascending order, as a new array
+     */
+    public int[] match(String director, boolean exact) {
+        if (exact) {
+            Integer id = idsByName.get(TrigramIndex.fold(director));
+            return id != null ? ordinalsById[id].clone() : NO_ORDINALS;
+        }
+        int[] ids = nameIndex.search(director);
+        int total = 0;
+        for (int id : ids) {
+            total += ordinalsById[id].length;
+        }
+        int[] matches = new int[total];
+        int count = 0;
+        for (int id : ids) {
+            System.arraycopy(ordinalsById[id], 0, matches, count, ordinalsById[id].length);
+            count += ordinalsById[id].length;
+        }
+        // Each movie has one director, so the lists are disjoint and only need ordering
+        if (ids.length > 1) {
+            Arrays.sort(matches);
+        }
+        return matches;
+    }
+
+    /**
+     * @param foldedQuery the query as returned by {@link TrigramIndex#fold}, so that checking many
+     *                    directors folds it only once
+     * @return whether a director's name matches the query the way {@link #match} does
+     */
+    public static boolean matches(String director, String foldedQuery, boolean exact) {
+        String name = TrigramIndex.fold(director);
+        return exact ? name.equals(foldedQuery) : name.contains(foldedQuery);
+    }
+
+    /**
+     * @return the number of distinct directors, ignoring case
+     */
+    public int directorCount() {
+        return ordinalsById.length;
+    }
+}
@@ -0,0 +1,170 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.BkTree;
+import com.amazonaws.samples.qdevmovies.utils.IntArrayList;
+import com.amazonaws.samples.qdevmovies.utils.IntSorter;
+import com.amazonaws.samples.qdevmovies.utils.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Typo-tolerant index over the words of movie names.
+ * <p>
+ * Names are split into lower-cased words of letters and digits. The distinct words go into a
+ * {@link BkTree} and each keeps the ordinals of the movies whose name contains it. A query matches
+ * a movie when every word of the query is within the allowed number of edits of some word of the
+ * name, and matches are ranked by the sum of those edits, so "Dreem Heist" finds "The Dream Heist"
+ * one edit away. Short words tolerate fewer edits: none up to two characters and one up to five,
+ * so "the" cannot turn into every three-letter word in the catalog.
+ */
+public class FuzzyNameIndex {
+    /** Most edits a single query word may be away from a name word. */
+    public static final int MAX_DISTANCE = 2;
+
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private final BkTree words;
+    private final int[][] postings;
+
+    /**
+     * Builds the index; the ordinal of each name is its position in the list.
+     */
+    public FuzzyNameIndex(List<String> names) {
+        Map<String, Integer> wordIndexes = new HashMap<>();
+        List<String> distinctWords = new ArrayList<>();
+        List<IntArrayList> ordinalsByWord = new ArrayList<>();
+        for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+            for (String word : tokenize(names.get(ordinal))) {
+                Integer index = wordIndexes.get(word);
+                if (index == null) {
+                    index = distinctWords.size();
+                    wordIndexes.put(word, index);
+                    distinctWords.add(word);
+                    ordinalsByWord.add(new IntArrayList(2));
+                }
+                IntArrayList ordinals = ordinalsByWord.get(index);
+                if (ordinals.last() != ordinal) {
+                    ordinals.add(ordinal);
+                }
+            }
+        }
+        this.words = new BkTree(distinctWords);
+        this.postings = new int[ordinalsByWord.size()][];
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = ordinalsByWord.get(i).toArray();
+        }
+    }
+
+    /**
+     * Finds the movies whose names match every word of the query within {@code maxDistance} edits.
+     *
+     * @param query the words to look for; case-insensitive
+     * @param maxDistance edits allowed per word, from 0 to {@value #MAX_DISTANCE}
+     * @return matching ordinals, fewest total edits first and in catalog order among equals;
+     *         empty if the query has no words
+     */
+    public int[] search(String query, int maxDistance) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty()) {
+            return NO_ORDINALS;
+        }
+        LongIntHashMap totals = null;
+        for (String queryWord : queryWords) {
+            LongIntHashMap best = closestMatches(queryWord, maxDistance, totals);
+            if (best.size() == 0) {
+                return NO_ORDINALS;
+            }
+            totals = best;
+        }
+
+        LongIntHashMap ranked = totals;
+        int[] ordinals = new int[ranked.size()];
+        int[] count = {0};
+        ranked.forEach((ordinal, distance) -> ordinals[count[0]++] = (int) ordinal);
+        IntSorter.sort(ordinals, (a, b) -> {
+            int byDistance = Integer.compare(ranked.get(a), ranked.get(b));
+            return byDistance != 0 ? byDistance : Integer.compare(a, b);
+        });
+        return ordinals;
+    }
+
+    /**
+     * @return whether every word of the query is within {@code maxDistance} edits of a word of the name
+     */
+    public static boolean matches(String name, String query, int maxDistance) {
+        return distance(name, query, maxDistance) >= 0;
+    }
+
+    /**
+     * Scores one name the way {@link #search} ranks it.
+     *
+     * @return the edits from each word of the query to its closest word of the name, summed; -1 if
+     *         some query word has no name word within {@code maxDistance} edits
+     */
+    public static int distance(String name, String query, int maxDistance) {
+        List<String> nameWords = tokenize(name);
+        int total = 0;
+        for (String queryWord : tokenize(query)) {
+            int allowed = allowedDistance(queryWord, maxDistance);
+            int closest = -1;
+            for (String nameWord : nameWords) {
+                int distance = BkTree.distance(queryWord, nameWord);
+                if (distance <= allowed && (closest < 0 || distance < closest)) {
+                    closest = distance;
+                }
+            }
+            if (closest < 0) {
+                return -1;
+            }
+            total += closest;
+        }
+        return total;
+    }
+
+    /**
+     * Splits a name into distinct, lower-cased words of letters and digits.
+     */
+    public static List<String> tokenize(String name) {
+        List<String> tokens = new ArrayList<>(4);
+        if (name == null) {
+            return tokens;
+        }
+        for (String part : name.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!part.isEmpty() && !tokens.contains(part)) {
+                tokens.add(part);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @param totals edits summed over the previous query words, or null for the first word
+     * @return for each movie that has a name word close to the query word (and matched every
+     *         previous word), the fewest edits to that word plus the previous total
+     */
+    private LongIntHashMap closestMatches(String queryWord, int maxDistance, LongIntHashMap totals) {
+        LongIntHashMap best = new LongIntHashMap();
+        words.search(queryWord, allowedDistance(queryWord, maxDistance), (wordIndex, distance) -> {
+            for (int ordinal : postings[wordIndex]) {
+                int previous = totals == null ? 0 : totals.get(ordinal);
+                if (previous == LongIntHashMap.MISSING) {
+                    continue;
+                }
+                int current = best.get(ordinal);
+                if (current == LongIntHashMap.MISSING || previous + distance < current) {
+                    best.put(ordinal, previous + distance);
+                }
+            }
+        });
+        return best;
+    }
+
+    private static int allowedDistance(String word, int maxDistance) {
+        int byLength = word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2;
+        return Math.min(maxDistance, byLength);
+    }
+}
@@ -0,0 +1,230 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.CompressedBitmap;
+import com.amazonaws.samples.qdevmovies.utils.IntArrayList;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bitmap index from genre tokens to movie ordinals.
+ * <p>
+ * Compound genres such as "Crime/Drama" are split into their tokens ("crime", "drama") and
+ * each token keeps a {@link CompressedBitmap} of the ordinals that carry it, so genre filters
+ * and their AND/OR combinations are answered with bitmap operations instead of a scan.
+ * <p>
+ * The index can be saved with {@link #writeTo} as its token count followed by each token
+ * (UTF-8 byte length and bytes) and its bitmap, and read back with {@link #readFrom} without
+ * looking at the movies.
+ */
+public class GenreIndex {
+    private static final String TOKEN_SEPARATORS = "[/,|]";
+
+    private final Map<String, CompressedBitmap> bitmapsByToken;
+
+    /**
+     * Builds the index; the ordinal of each genre is its position in the list.
+     */
+    public GenreIndex(List<String> genres) {
+        Map<String, IntArrayList> ordinalsByToken = new TreeMap<>();
+        for (int ordinal = 0; ordinal < genres.size(); ordinal++) {
+            for (String token : tokenize(genres.get(ordinal))) {
+                IntArrayList ordinals = ordinalsByToken.get(token);
+                if (ordinals == null) {
+                    ordinals = new IntArrayList();
+                    ordinalsByToken.put(token, ordinals);
+                }
+                if (ordinals.last() != ordinal) {
+                    ordinals.add(ordinal);
+                }
+            }
+        }
+        Map<String, CompressedBitmap> bitmaps = new TreeMap<>();
+        for (Map.Entry<String, IntArrayList> entry : ordinalsByToken.entrySet()) {
+            IntArrayList ordinals = entry.getValue();
+            bitmaps.put(entry.getKey(), CompressedBitmap.fromSorted(ordinals.toArray(), ordinals.size()));
+        }
+        this.bitmapsByToken = Collections.unmodifiableMap(bitmaps);
+    }
+
+    private GenreIndex(Map<String, CompressedBitmap> bitmapsByToken) {
+        this.bitmapsByToken = Collections.unmodifiableMap(bitmapsByToken);
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo}, starting at the buffer's position and leaving
+     * the position after it.
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid index
+     * @throws java.nio.BufferUnderflowException if the buffer ends inside the index
+     */
+    public static GenreIndex readFrom(ByteBuffer buffer) {
+        int tokenCount = buffer.getInt();
+        if (tokenCount < 0) {
+            throw new IllegalArgumentException("Invalid genre token count " + tokenCount);
+        }
+        Map<String, CompressedBitmap> bitmaps = new TreeMap<>();
+        for (int i = 0; i < tokenCount; i++) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid genre token length " + length);
+            }
+            byte[] token = new byte[length];
+            buffer.get(token);
+            bitmaps.put(new String(token, StandardCharsets.UTF_8), CompressedBitmap.readFrom(buffer));
+        }
+        return new GenreIndex(bitmaps);
+    }
+
+    /**
+     * @return the number of bytes {@link #writeTo} writes
+     */
+    public int serializedSize() {
+        int bytes = 4;
+        for (Map.Entry<String, CompressedBitmap> entry : bitmapsByToken.entrySet()) {
+            bytes += 4 + entry.getKey().getBytes(StandardCharsets.UTF_8).length + entry.getValue().serializedSize();
+        }
+        return bytes;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(bitmapsByToken.size());
+        for (Map.Entry<String, CompressedBitmap> entry : bitmapsByToken.entrySet()) {
+            byte[] token = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(token.length);
+            out.write(token);
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    /**
+     * Combines the matches of several genre terms.
+     *
+     * @param terms genre terms; blank terms are ignored
+     * @param matchAll true to require every term (AND), false to accept any term (OR)
+     * @return ordinals of the matching movies
+     */
+    public CompressedBitmap match(List<String> terms, boolean matchAll) {
+        List<CompressedBitmap> matches = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            if (term != null && !term.trim().isEmpty()) {
+                matches.add(matchTerm(term));
+            }
+        }
+        return matchAll ? CompressedBitmap.and(matches) : CompressedBitmap.or(matches);
+    }
+
+    /**
+     * Matches one genre term. A term that names a token uses that token's bitmap directly;
+     * otherwise every token containing the term contributes, which keeps the case-insensitive
+     * partial matching of earlier releases. A compound term such as "crime/drama" requires
+     * all of its parts.
+     */
+    public CompressedBitmap matchTerm(String term) {
+        List<String> parts = tokenize(term);
+        if (parts.size() > 1) {
+            List<CompressedBitmap> partMatches = new ArrayList<>(parts.size());
+            for (String part : parts) {
+                partMatches.add(matchToken(part));
+            }
+            return CompressedBitmap.and(partMatches);
+        }
+        return parts.isEmpty() ? CompressedBitmap.empty() : matchToken(parts.get(0));
+    }
+
+    /**
+     * Checks one genre against the terms the way {@link #match} would if it were indexed; used for
+     * movies changed since the index was built. A part that names a token of this index matches
+     * only that token, as it does in {@link #matchTerm}.
+     *
+     * @return whether the genre matches every term (matchAll) or any term
+     */
+    public boolean matches(String genre, List<String> terms, boolean matchAll) {
+        List<String> tokens = tokenize(genre);
+        boolean matchedAny = false;
+        boolean checkedAny = false;
+        for (String term : terms) {
+            if (term == null || term.trim().isEmpty()) {
+                continue;
+            }
+            boolean matched = matchesTerm(tokens, term);
+            if (matchAll && !matched) {
+                return false;
+            }
+            matchedAny |= matched;
+            checkedAny = true;
+        }
+        return matchAll ? checkedAny : matchedAny;
+    }
+
+    private boolean matchesTerm(List<String> tokens, String term) {
+        List<String> parts = tokenize(term);
+        for (String part : parts) {
+            if (!matchesToken(tokens, part)) {
+                return false;
+            }
+        }
+        return !parts.isEmpty();
+    }
+
+    private boolean matchesToken(List<String> tokens, String token) {
+        if (tokens.contains(token)) {
+            return true;
+        }
+        if (bitmapsByToken.containsKey(token)) {
+            return false;
+        }
+        for (String candidate : tokens) {
+            if (candidate.contains(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the known genre tokens in alphabetical order
+     */
+    public List<String> getTokens() {
+        return new ArrayList<>(bitmapsByToken.keySet());
+    }
+
+    private CompressedBitmap matchToken(String token) {
+        CompressedBitmap exact = bitmapsByToken.get(token);
+        if (exact != null) {
+            return exact;
+        }
+        List<CompressedBitmap> partial = new ArrayList<>();
+        for (Map.Entry<String, CompressedBitmap> entry : bitmapsByToken.entrySet()) {
+            if (entry.getKey().contains(token)) {
+                partial.add(entry.getValue());
+            }
+        }
+        return CompressedBitmap.or(partial);
+    }
+
+    /**
+     * Splits a genre string into distinct, lower-cased tokens.
+     */
+    public static List<String> tokenize(String genre) {
+        List<String> tokens = new ArrayList<>(2);
+        if (genre == null) {
+            return tokens;
+        }
+        for (String part : genre.split(TOKEN_SEPARATORS)) {
+            String token = part.trim().toLowerCase(Locale.ROOT);
+            if (!token.isEmpty() && !tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,357 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.IntArrayList;
+import com.amazonaws.samples.qdevmovies.utils.LongIntHashMap;
+import com.amazonaws.samples.qdevmovies.utils.LongObjectHashMap;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A movie store with edits on top of an immutable base store: movies created after the base was
+ * built, base movies that were updated and movies that were deleted.
+ * <p>
+ * Created movies take the ordinals after the base's and an updated movie keeps its ordinal, so
+ * every ordinal known to the indexes built over the base still names the same slot and catalog
+ * order is kept. A deleted movie leaves a gap: {@link #contains} is false for it and
+ * {@link #ordinalOf} no longer finds its id. Only the changed slots are held here; every other
+ * read goes straight to the base. Instances are immutable; an {@link Editor} copies the changes
+ * of the store it starts from, in time proportional to the number of changes rather than to the
+ * size of the catalog, and builds the next store.
+ */
+final class LayeredMovieStore extends MovieStore {
+    private final MovieStore base;
+    private final int size;
+    private final int movieCount;
+    private final BitSet changed;
+    private final BitSet deleted;
+    private final LongObjectHashMap<Movie> moviesByOrdinal;
+    private final LongIntHashMap ordinalsById;
+    private final int[] changedOrdinals;
+    private volatile int[] liveOrdinals;
+    private volatile int[] dictionarySizes;
+
+    private LayeredMovieStore(Editor editor) {
+        this.base = editor.base;
+        this.size = editor.size;
+        this.movieCount = size - editor.deleted.cardinality();
+        this.changed = editor.changed;
+        this.deleted = editor.deleted;
+        this.moviesByOrdinal = editor.moviesByOrdinal;
+        this.ordinalsById = editor.ordinalsById;
+        IntArrayList ordinals = new IntArrayList(changed.cardinality());
+        for (int ordinal = changed.nextSetBit(0); ordinal >= 0; ordinal = changed.nextSetBit(ordinal + 1)) {
+            ordinals.add(ordinal);
+        }
+        this.changedOrdinals = ordinals.toArray();
+    }
+
+    /**
+     * @return the store the edits are layered on
+     */
+    MovieStore base() {
+        return base;
+    }
+
+    /**
+     * @return whether the movie at the ordinal was created, updated or deleted since the base was built
+     */
+    boolean isChanged(int ordinal) {
+        return changed.get(ordinal);
+    }
+
+    /**
+     * @return the ordinals of every movie created, updated or deleted since the base was built, ascending
+     */
+    int[] changedOrdinals() {
+        return changedOrdinals;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int movieCount() {
+        return movieCount;
+    }
+
+    @Override
+    public boolean contains(int ordinal) {
+        return ordinal >= 0 && ordinal < size && !deleted.get(ordinal);
+    }
+
+    @Override
+    public int ordinalOf(long id) {
+        int ordinal = ordinalsById.get(id);
+        if (ordinal == LongIntHashMap.MISSING) {
+            ordinal = base.ordinalOf(id);
+        }
+        return ordinal >= 0 && !deleted.get(ordinal) ? ordinal : -1;
+    }
+
+    private Movie changedMovie(int ordinal) {
+        return changed.get(ordinal) ? moviesByOrdinal.get(ordinal) : null;
+    }
+
+    @Override
+    public long id(int ordinal) {
+        Movie movie = changedMovie(ordinal);
+        return movie != null ? movie.getId() : base.id(ordinal);
+    }
+
+    @Override
+    public String movieName(int ordinal) {
+        Movie movie = changedMovie(ordinal);
+        return movie != null ? movie.getMovieName() : base.movieName(ordinal);
+    }
+
+    @Override
+    public String director(int ordinal) {
+        Movie movie = changedMovie(ordinal);
+        return movie != null ? movie.getDirector() : base.director(ordinal);
+    }
+
+    @Override
+    public int year(int ordinal) {
+        Movie movie = changedMovie(ordinal);
+        return movie != null ? movie.getYear() : base.year(ordinal);
+    }
+
+    @Override
+    public String genre(int ordinal) {
+        Movie movie = changedMovie(ordinal);
+        return movie != null ? movie.getGenre() : base.genre(ordinal);
+    }
+
+    @Override
+    public String description(int ordinal) {
+        Movie movie = changedMovie(ordinal);
+        return movie != null ? movie.getDescription() : base.description(ordinal);
+    }
+
+    @Override
+    public int duration(int ordinal) {
+        Movie movie = changedMovie(ordinal);
+        return movie != null ? movie.getDuration() : base.duration(ordinal);
+    }
+
+    @Override
+    public double imdbRating(int ordinal) {
+        Movie movie = changedMovie(ordinal);
+        return movie != null ? movie.getImdbRating() : base.imdbRating(ordinal);
+    }
+
+    /**
+     * @return every movie in catalog order, skipping deleted ones
+     */
+    @Override
+    public List<Movie> asList() {
+        if (movieCount == size) {
+            return super.asList();
+        }
+        int[] live = liveOrdinals();
+        return moviesView(live.length, index -> live[index]);
+    }
+
+    private int[] liveOrdinals() {
+        int[] live = liveOrdinals;
+        if (live == null) {
+            live = new int[movieCount];
+            int count = 0;
+            for (int ordinal = deleted.nextClearBit(0); ordinal < size; ordinal = deleted.nextClearBit(ordinal + 1)) {
+                live[count++] = ordinal;
+            }
+            liveOrdinals = live;
+        }
+        return live;
+    }
+
+    @Override
+    public int directorCount() {
+        return dictionarySizes()[0];
+    }
+
+    @Override
+    public int genreCount() {
+        return dictionarySizes()[1];
+    }
+
+    private int[] dictionarySizes() {
+        int[] sizes = dictionarySizes;
+        if (sizes == null) {
+            Set<String> directors = new HashSet<>();
+            Set<String> genres = new HashSet<>();
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                if (contains(ordinal)) {
+                    directors.add(director(ordinal));
+                    genres.add(genre(ordinal));
+                }
+            }
+            sizes = new int[] {directors.size(), genres.size()};
+            dictionarySizes = sizes;
+        }
+        return sizes;
+    }
+
+    /**
+     * Unchanged movies share the JSON cached by the base store, so an edit does not make every
+     * other movie serialize again.
+     */
+    @Override
+    byte[] serializedJson(int ordinal) {
+        return changed.get(ordinal) ? super.serializedJson(ordinal) : base.serializedJson(ordinal);
+    }
+
+    @Override
+    void cacheSerializedJson(int ordinal, byte[] json) {
+        if (changed.get(ordinal)) {
+            super.cacheSerializedJson(ordinal, json);
+        } else {
+            base.cacheSerializedJson(ordinal, json);
+        }
+    }
+
+    /**
+     * Applies to the editor every change made between an earlier version of this store and this
+     * one; both must share the same base. Changes are told apart by the identity of the movies
+     * they stored, so a movie that was edited and then deleted again is replayed as a deletion.
+     */
+    void replayChangesSince(LayeredMovieStore earlier, Editor editor) {
+        IntArrayList puts = new IntArrayList();
+        for (int ordinal : changedOrdinals) {
+            boolean unchanged = ordinal < earlier.size && earlier.changed.get(ordinal)
+                    && earlier.moviesByOrdinal.get(ordinal) == moviesByOrdinal.get(ordinal)
+                    && earlier.deleted.get(ordinal) == deleted.get(ordinal);
+            if (unchanged) {
+                continue;
+            }
+            if (deleted.get(ordinal)) {
+                editor.delete(id(ordinal));
+            } else {
+                puts.add(ordinal);
+            }
+        }
+        // Deletions first: a deleted movie whose id was created again lives on at its new ordinal
+        for (int i = 0; i < puts.size(); i++) {
+            editor.put(movie(puts.get(i)));
+        }
+    }
+
+    /**
+     * Collects the edits of one batch and builds the store that has them. Not thread-safe; each
+     * writer uses its own editor and publishes the store it builds.
+     */
+    static final class Editor {
+        private final MovieStore previous;
+        private final MovieStore base;
+        private final BitSet changed;
+        private final BitSet deleted;
+        private final LongObjectHashMap<Movie> moviesByOrdinal;
+        private final LongIntHashMap ordinalsById;
+        private final BitSet touched = new BitSet();
+        private int size;
+
+        /**
+         * @param current the store to edit; a layered store keeps its base, any other store becomes the base
+         */
+        Editor(MovieStore current) {
+            this.previous = current;
+            if (current instanceof LayeredMovieStore) {
+                LayeredMovieStore layered = (LayeredMovieStore) current;
+                this.base = layered.base;
+                this.size = layered.size;
+                this.changed = (BitSet) layered.changed.clone();
+                this.deleted = (BitSet) layered.deleted.clone();
+                this.moviesByOrdinal = new LongObjectHashMap<>(layered.moviesByOrdinal.size() + 16);
+                layered.moviesByOrdinal.forEach(moviesByOrdinal::put);
+                this.ordinalsById = new LongIntHashMap(layered.ordinalsById.size() + 16);
+                layered.ordinalsById.forEach(ordinalsById::put);
+            } else {
+                this.base = current;
+                this.size = current.size();
+                this.changed = new BitSet();
+                this.deleted = new BitSet();
+                this.moviesByOrdinal = new LongObjectHashMap<>();
+                this.ordinalsById = new LongIntHashMap();
+            }
+        }
+
+        /**
+         * @return the ordinal of the movie with the id including this batch's edits, or -1 if there is none
+         */
+        int ordinalOf(long id) {
+            int ordinal = ordinalsById.get(id);
+            if (ordinal == LongIntHashMap.MISSING) {
+                ordinal = base.ordinalOf(id);
+            }
+            return ordinal >= 0 && !deleted.get(ordinal) ? ordinal : -1;
+        }
+
+        /**
+         * Replaces the movie with the same id in its slot, or adds the movie after every other one.
+         */
+        void put(Movie movie) {
+            // A movie read from a store would keep that whole store reachable
+            Movie detached = movie.origin() == null ? movie : new Movie(movie.getId(), movie.getMovieName(),
+                    movie.getDirector(), movie.getYear(), movie.getGenre(), movie.getDescription(),
+                    movie.getDuration(), movie.getImdbRating());
+            int ordinal = ordinalOf(movie.getId());
+            if (ordinal < 0) {
+                ordinal = size++;
+            }
+            changed.set(ordinal);
+            moviesByOrdinal.put(ordinal, detached);
+            ordinalsById.put(movie.getId(), ordinal);
+            touched.set(ordinal);
+        }
+
+        /**
+         * @return false if there is no movie with the id
+         */
+        boolean delete(long id) {
+            int ordinal = ordinalOf(id);
+            if (ordinal < 0) {
+                return false;
+            }
+            changed.set(ordinal);
+            deleted.set(ordinal);
+            ordinalsById.put(id, ordinal);
+            touched.set(ordinal);
+            return true;
+        }
+
+        /**
+         * @return ordinals that held a movie before this batch and were updated or deleted by it, ascending
+         */
+        int[] removed() {
+            IntArrayList removed = new IntArrayList();
+            for (int ordinal = touched.nextSetBit(0); ordinal >= 0; ordinal = touched.nextSetBit(ordinal + 1)) {
+                if (previous.contains(ordinal)) {
+                    removed.add(ordinal);
+                }
+            }
+            return removed.toArray();
+        }
+
+        /**
+         * @return ordinals that were created or updated by this batch and still hold a movie, ascending
+         */
+        int[] added() {
+            IntArrayList added = new IntArrayList();
+            for (int ordinal = touched.nextSetBit(0); ordinal >= 0; ordinal = touched.nextSetBit(ordinal + 1)) {
+                if (!deleted.get(ordinal)) {
+                    added.add(ordinal);
+                }
+            }
+            return added.toArray();
+        }
+
+        LayeredMovieStore build() {
+            return new LayeredMovieStore(this);
+        }
+    }
+}
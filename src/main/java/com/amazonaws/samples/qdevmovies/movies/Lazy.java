@@ -0,0 +1,51 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.function.Supplier;
+
+/**
+ * A value computed on first use and kept. Concurrent first callers wait for a single computation
+ * instead of each repeating it.
+ */
+final class Lazy<T> implements Supplier<T> {
+    private Supplier<? extends T> supplier;
+    private volatile T value;
+
+    /**
+     * @param supplier computes the value; must not return null
+     */
+    Lazy(Supplier<? extends T> supplier) {
+        this.supplier = supplier;
+    }
+
+    /**
+     * @return a holder of a value that is already known
+     */
+    static <T> Lazy<T> of(T value) {
+        Lazy<T> lazy = new Lazy<>(null);
+        lazy.value = value;
+        return lazy;
+    }
+
+    @Override
+    public T get() {
+        T result = value;
+        if (result == null) {
+            synchronized (this) {
+                result = value;
+                if (result == null) {
+                    result = supplier.get();
+                    value = result;
+                    supplier = null;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return whether the value has been computed
+     */
+    boolean isDone() {
+        return value != null;
+    }
+}
@@ -0,0 +1,167 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.amazonaws.samples.qdevmovies.movies.MovieSnapshot.ID_ENTRY_WIDTH;
+import static com.amazonaws.samples.qdevmovies.movies.MovieSnapshot.RECORD_DESCRIPTION;
+import static com.amazonaws.samples.qdevmovies.movies.MovieSnapshot.RECORD_DIRECTOR;
+import static com.amazonaws.samples.qdevmovies.movies.MovieSnapshot.RECORD_DURATION;
+import static com.amazonaws.samples.qdevmovies.movies.MovieSnapshot.RECORD_GENRE;
+import static com.amazonaws.samples.qdevmovies.movies.MovieSnapshot.RECORD_ID;
+import static com.amazonaws.samples.qdevmovies.movies.MovieSnapshot.RECORD_NAME;
+import static com.amazonaws.samples.qdevmovies.movies.MovieSnapshot.RECORD_RATING;
+import static com.amazonaws.samples.qdevmovies.movies.MovieSnapshot.RECORD_WIDTH;
+import static com.amazonaws.samples.qdevmovies.movies.MovieSnapshot.RECORD_YEAR;
+
+/**
+ * {@link MovieStore} that reads every attribute from a memory-mapped {@link MovieSnapshot}.
+ * <p>
+ * Only the director and genre dictionaries are decoded up front; names and descriptions are
+ * decoded from the string heap when they are read, and ids are resolved by binary search over
+ * the sorted id table. All reads use absolute positions, so the store is safe to share between
+ * threads.
+ */
+final class MappedMovieStore extends CompactMovieStore {
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int recordsOffset;
+    private final int idTableOffset;
+    private final int heapOffset;
+    private final String[] directors;
+    private final String[] genres;
+
+    MappedMovieStore(ByteBuffer buffer, int size, int recordsOffset, int indexOffset,
+                     int directorCount, int genreCount, int idTableOffset, int heapOffset) {
+        this.buffer = buffer;
+        this.size = size;
+        this.recordsOffset = recordsOffset;
+        this.idTableOffset = idTableOffset;
+        this.heapOffset = heapOffset;
+        this.directors = new String[directorCount];
+        for (int code = 0; code < directorCount; code++) {
+            directors[code] = string(buffer.getInt(indexOffset + 4 * code));
+        }
+        this.genres = new String[genreCount];
+        for (int code = 0; code < genreCount; code++) {
+            genres[code] = string(buffer.getInt(indexOffset + 4 * (directorCount + code)));
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int ordinalOf(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = idTableOffset + mid * ID_ENTRY_WIDTH;
+            long midId = buffer.getLong(entry);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(entry + 8);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long id(int ordinal) {
+        return buffer.getLong(record(ordinal) + RECORD_ID);
+    }
+
+    @Override
+    public String movieName(int ordinal) {
+        return string(buffer.getInt(record(ordinal) + RECORD_NAME));
+    }
+
+    @Override
+    public String director(int ordinal) {
+        return directors[directorCode(ordinal)];
+    }
+
+    @Override
+    public int year(int ordinal) {
+        return buffer.getInt(record(ordinal) + RECORD_YEAR);
+    }
+
+    @Override
+    public String genre(int ordinal) {
+        return genres[genreCode(ordinal)];
+    }
+
+    @Override
+    public String description(int ordinal) {
+        return string(buffer.getInt(record(ordinal) + RECORD_DESCRIPTION));
+    }
+
+    @Override
+    public int duration(int ordinal) {
+        return buffer.getInt(record(ordinal) + RECORD_DURATION);
+    }
+
+    @Override
+    public double imdbRating(int ordinal) {
+        return buffer.getDouble(record(ordinal) + RECORD_RATING);
+    }
+
+    @Override
+    public int directorCount() {
+        return directors.length;
+    }
+
+    @Override
+    public int genreCount() {
+        return genres.length;
+    }
+
+    @Override
+    String directorByCode(int code) {
+        return directors[code];
+    }
+
+    @Override
+    String genreByCode(int code) {
+        return genres[code];
+    }
+
+    @Override
+    int directorCode(int ordinal) {
+        return buffer.getInt(record(ordinal) + RECORD_DIRECTOR);
+    }
+
+    @Override
+    int genreCode(int ordinal) {
+        return buffer.getInt(record(ordinal) + RECORD_GENRE);
+    }
+
+    private int record(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " out of bounds for size " + size);
+        }
+        return recordsOffset + ordinal * RECORD_WIDTH;
+    }
+
+    /**
+     * Decodes the string stored at the heap offset.
+     */
+    private String string(int heapPosition) {
+        int position = heapOffset + heapPosition;
+        int length = heapPosition >= 0 ? buffer.getInt(position) : -1;
+        if (length < 0 || (long) position + 4 + length > buffer.capacity()) {
+            throw new IndexOutOfBoundsException("Corrupt string at heap offset " + heapPosition);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + 4);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -2,6 +2,8 @@ package com.amazonaws.samples.qdevmovies.movies;
 
 import com.amazonaws.samples.qdevmovies.utils.MovieIconUtils;
 
+import java.util.Objects;
+
 public class Movie {
 
     private final long id;
@@ -12,8 +14,19 @@ public class Movie {
     private final String description;
     private final int duration;
     private final double imdbRating;
+    private final MovieStore origin;
+    private final int ordinal;
 
     public Movie(long id, String movieName, String director, int year, String genre, String description, int duration, double imdbRating) {
+        this(id, movieName, director, year, genre, description, duration, imdbRating, null, -1);
+    }
+
+    /**
+     * Creates a movie read from a catalog store, which remembers where it came from so that
+     * per-movie data such as the serialized JSON can be cached in the store.
+     */
+    Movie(long id, String movieName, String director, int year, String genre, String description, int duration,
+          double imdbRating, MovieStore origin, int ordinal) {
         this.id = id;
         this.movieName = movieName;
         this.director = director;
@@ -22,6 +35,8 @@ public class Movie {
         this.description = description;
         this.duration = duration;
         this.imdbRating = imdbRating;
+        this.origin = origin;
+        this.ordinal = ordinal;
     }
 
     public long getId() {
@@ -59,4 +74,42 @@ public class Movie {
     public String getIcon() {
         return MovieIconUtils.getMovieIcon(this.movieName);
     }
+
+    /**
+     * @return the catalog store the movie was read from, or null if it was created directly
+     */
+    MovieStore origin() {
+        return origin;
+    }
+
+    /**
+     * @return the movie's ordinal in {@link #origin()}, or -1 if it was created directly
+     */
+    int ordinal() {
+        return ordinal;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Movie)) {
+            return false;
+        }
+        Movie other = (Movie) o;
+        return id == other.id
+                && year == other.year
+                && duration == other.duration
+                && Double.compare(imdbRating, other.imdbRating) == 0
+                && Objects.equals(movieName, other.movieName)
+                && Objects.equals(director, other.director)
+                && Objects.equals(genre, other.genre)
+                && Objects.equals(description, other.description);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
 }
@@ -0,0 +1,27 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ids to look up in one batch, bound from the {@code ids} request parameter of
+ * {@code GET /movies/batch} (repeated or comma separated) or from the JSON body of
+ * {@code POST /movies/batch}. {@code includeReviews} adds each movie's reviews to the response.
+ */
+public class MovieBatchRequest {
+    private List<Long> ids = new ArrayList<>();
+    private boolean includeReviews;
+
+    public MovieBatchRequest() {}
+
+    public MovieBatchRequest(List<Long> ids, boolean includeReviews) {
+        setIds(ids);
+        this.includeReviews = includeReviews;
+    }
+
+    public List<Long> getIds() { return ids; }
+    public void setIds(List<Long> ids) { this.ids = ids != null ? ids : new ArrayList<>(); }
+
+    public boolean isIncludeReviews() { return includeReviews; }
+    public void setIncludeReviews(boolean includeReviews) { this.includeReviews = includeReviews; }
+}
@@ -0,0 +1,50 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.IContext;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Renders the {@code card} fragment of {@code fragments/movie-card} for one movie, reusing the
+ * cached markup when the movie was already rendered from the current catalog and review versions.
+ * <p>
+ * The movie grid calls {@link #render(Movie)} for every card, so a search page that was never
+ * requested before still only evaluates the template for movies that were never shown.
+ */
+public class MovieCardRenderer {
+    static final String TEMPLATE = "fragments/movie-card";
+    private static final Set<String> CARD_SELECTOR = Collections.singleton("card");
+
+    private final ITemplateEngine templateEngine;
+    private final RenderedPageCache cache;
+    private final long version;
+    private final Function<Movie, IContext> contextFactory;
+
+    /**
+     * @param version version of the data the cards show; cards cached for another version are re-rendered
+     * @param contextFactory builds the template context for a movie, with the movie as {@code movie}
+     */
+    public MovieCardRenderer(ITemplateEngine templateEngine, RenderedPageCache cache, long version,
+                             Function<Movie, IContext> contextFactory) {
+        this.templateEngine = templateEngine;
+        this.cache = cache;
+        this.version = version;
+        this.contextFactory = contextFactory;
+    }
+
+    /**
+     * @return the card markup for the movie
+     */
+    public String render(Movie movie) {
+        String key = Long.toString(movie.getId());
+        String card = cache.getFragment(key, version);
+        if (card == null) {
+            card = templateEngine.process(TEMPLATE, CARD_SELECTOR, contextFactory.apply(movie));
+            cache.putFragment(key, version, card);
+        }
+        return card;
+    }
+}
@@ -0,0 +1,494 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.CompressedBitmap;
+import com.amazonaws.samples.qdevmovies.utils.ContentHash;
+import com.amazonaws.samples.qdevmovies.utils.IntArrayList;
+import com.amazonaws.samples.qdevmovies.utils.TrigramIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * One loaded version of the catalog together with every lookup structure derived from it.
+ * <p>
+ * Instances are immutable once {@link MovieService} publishes them: an index built on first use
+ * is built once, from the catalog's own store, and then kept. A request that reads the current
+ * catalog once therefore sees a consistent store, indexes and review aggregates for its whole
+ * lifetime, even while a newer catalog is being loaded or swapped in.
+ * <p>
+ * Created, updated and deleted movies ({@link #withChanges}) are layered on top of the store the
+ * text indexes were built from instead of rebuilding those indexes. The id map of the
+ * {@link LayeredMovieStore} covers the changed movies, the sort and range indexes have them merged
+ * in, and name, genre and suggestion lookups drop changed movies from the index results and check
+ * the changed movies that still exist one by one. Once the edits pile up, {@link #compact} builds
+ * a fresh catalog without them.
+ * <p>
+ * Only the store and the sort index are ready when a catalog is loaded. The name and genre indexes
+ * come ready from a snapshot; every other index and the review aggregates are built on first use,
+ * so a mapped snapshot serves its first lookups without waiting for indexes it does not need.
+ */
+final class MovieCatalog {
+    private static final Logger logger = LogManager.getLogger(MovieCatalog.class);
+    private static final int[] NO_ORDINALS = new int[0];
+
+    final MovieStore store;
+    final MovieSortIndex sortIndex;
+    private final Lazy<TrigramIndex> nameIndex;
+    private final Lazy<FuzzyNameIndex> fuzzyNameIndex;
+    private final Lazy<SuggestIndex> suggestIndex;
+    private final Lazy<GenreIndex> genreIndex;
+    private final Lazy<DirectorIndex> directorIndex;
+    private final Lazy<RangeIndex> yearIndex;
+    private final Lazy<RangeIndex> durationIndex;
+    private final Lazy<RangeIndex> ratingIndex;
+    private final Lazy<ReviewStats> reviewStats;
+    final long version;
+    final long lastModified;
+    final long loadTimeNanos;
+    /** Highest movie id ever held, so created movies never reuse the id of a deleted one. */
+    final long maxId;
+    /** The store when it has edits on top of the one the text indexes were built from, else null. */
+    private final LayeredMovieStore edits;
+    /** Ordinals of the edited movies that still exist, ascending. */
+    private final int[] changedMovies;
+
+    /**
+     * @param nameIndex the name index read from a snapshot, or null to build it on first use
+     * @param genreIndex the genre index read from a snapshot, or null to build it on first use
+     */
+    private MovieCatalog(MovieStore store, MovieSortIndex sortIndex, TrigramIndex nameIndex, GenreIndex genreIndex,
+                         ReviewService reviewService, long version, long maxId, long start) {
+        this.store = store;
+        this.sortIndex = sortIndex;
+        this.nameIndex = nameIndex != null ? Lazy.of(nameIndex) : new Lazy<>(() -> new TrigramIndex(store.movieNames()));
+        this.fuzzyNameIndex = new Lazy<>(() -> new FuzzyNameIndex(store.movieNames()));
+        this.genreIndex = genreIndex != null ? Lazy.of(genreIndex) : new Lazy<>(() -> new GenreIndex(store.genres()));
+        this.directorIndex = new Lazy<>(() -> new DirectorIndex(store.directors()));
+        this.yearIndex = new Lazy<>(() -> new RangeIndex(store.size(), store::year));
+        this.durationIndex = new Lazy<>(() -> new RangeIndex(store.size(), store::duration));
+        this.ratingIndex = new Lazy<>(() -> new RangeIndex(store.size(), store::imdbRating));
+        this.suggestIndex = new Lazy<>(() -> new SuggestIndex(store.movieNames(),
+                ordinal -> sortIndex.position(MovieSort.RATING, true, ordinal)));
+        this.reviewStats = new Lazy<>(() -> new ReviewStats(store, sortIndex, reviewService));
+        this.version = version;
+        this.maxId = maxId;
+        this.edits = null;
+        this.changedMovies = NO_ORDINALS;
+        this.lastModified = System.currentTimeMillis();
+        this.loadTimeNanos = System.nanoTime() - start;
+    }
+
+    private MovieCatalog(MovieCatalog catalog, ReviewStats reviewStats) {
+        this.store = catalog.store;
+        this.sortIndex = catalog.sortIndex;
+        this.nameIndex = catalog.nameIndex;
+        this.fuzzyNameIndex = catalog.fuzzyNameIndex;
+        this.genreIndex = catalog.genreIndex;
+        this.directorIndex = catalog.directorIndex;
+        this.yearIndex = catalog.yearIndex;
+        this.durationIndex = catalog.durationIndex;
+        this.ratingIndex = catalog.ratingIndex;
+        this.suggestIndex = catalog.suggestIndex;
+        this.reviewStats = Lazy.of(reviewStats);
+        this.version = catalog.version;
+        this.maxId = catalog.maxId;
+        this.edits = catalog.edits;
+        this.changedMovies = catalog.changedMovies;
+        // Pages show the aggregates, so new ones count as a change for conditional requests
+        this.lastModified = System.currentTimeMillis();
+        this.loadTimeNanos = catalog.loadTimeNanos;
+    }
+
+    private MovieCatalog(MovieCatalog previous, LayeredMovieStore.Editor editor, long maxId, long version,
+                         ReviewService reviewService) {
+        LayeredMovieStore edited = editor.build();
+        int[] removed = editor.removed();
+        int[] added = editor.added();
+        this.store = edited;
+        this.edits = edited;
+        IntArrayList live = new IntArrayList();
+        for (int ordinal : edited.changedOrdinals()) {
+            if (edited.contains(ordinal)) {
+                live.add(ordinal);
+            }
+        }
+        this.changedMovies = live.toArray();
+        this.nameIndex = previous.nameIndex;
+        this.fuzzyNameIndex = previous.fuzzyNameIndex;
+        this.genreIndex = previous.genreIndex;
+        this.directorIndex = previous.directorIndex;
+        this.suggestIndex = previous.suggestIndex;
+        this.sortIndex = previous.sortIndex.withChanges(edited, removed, added);
+        this.yearIndex = Lazy.of(previous.yearIndex().withChanges(removed, added, edited::year));
+        this.durationIndex = Lazy.of(previous.durationIndex().withChanges(removed, added, edited::duration));
+        this.ratingIndex = Lazy.of(previous.ratingIndex().withChanges(removed, added, edited::imdbRating));
+        this.reviewStats = Lazy.of(previous.reviewStats().withChanges(edited, sortIndex, removed, added, reviewService));
+        this.version = version;
+        this.maxId = maxId;
+        this.lastModified = System.currentTimeMillis();
+        this.loadTimeNanos = previous.loadTimeNanos;
+    }
+
+    /**
+     * Loads the catalog and its sort index; the other indexes and the review aggregates are built
+     * on first use.
+     *
+     * @param location {@code classpath:<resource>} or a file path. A file written by
+     *                 {@link MovieSnapshotWriter} is memory-mapped instead of parsed.
+     * @param reviewService the reviews to aggregate, or null for none
+     * @throws CatalogLoadException if the catalog is missing or holds an invalid record
+     */
+    static MovieCatalog load(String location, ReviewService reviewService) {
+        long start = System.nanoTime();
+        MovieStore store;
+        MovieSortIndex sortIndex;
+        TrigramIndex nameIndex = null;
+        GenreIndex genreIndex = null;
+        long version;
+        long maxId;
+        if (MovieSnapshot.isSnapshot(location)) {
+            MovieSnapshot snapshot = MovieSnapshot.open(Paths.get(location));
+            store = snapshot.getStore();
+            sortIndex = snapshot.getSortIndex();
+            nameIndex = snapshot.getNameIndex();
+            genreIndex = snapshot.getGenreIndex();
+            version = snapshot.getContentHash();
+            maxId = snapshot.getMaxId();
+            logger.info("Mapped catalog snapshot {}", location);
+        } else {
+            MovieStore.Builder builder = new MovieStore.Builder();
+            new MovieCatalogLoader(location).load(builder::add);
+            store = builder.build();
+            sortIndex = new MovieSortIndex(store);
+            version = store.contentHash();
+            maxId = maxId(store);
+        }
+        MovieCatalog catalog = new MovieCatalog(store, sortIndex, nameIndex, genreIndex, reviewService, version, maxId, start);
+        logger.info("Catalog holds {} movies, {} distinct directors and {} distinct genres, ready in {} ms",
+                store.size(), store.directorCount(), store.genreCount(), TimeUnit.NANOSECONDS.toMillis(catalog.loadTimeNanos));
+        return catalog;
+    }
+
+    private static long maxId(MovieStore store) {
+        long max = 0;
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            max = Math.max(max, store.id(ordinal));
+        }
+        return max;
+    }
+
+    TrigramIndex nameIndex() {
+        return nameIndex.get();
+    }
+
+    FuzzyNameIndex fuzzyNameIndex() {
+        return fuzzyNameIndex.get();
+    }
+
+    SuggestIndex suggestIndex() {
+        return suggestIndex.get();
+    }
+
+    GenreIndex genreIndex() {
+        return genreIndex.get();
+    }
+
+    DirectorIndex directorIndex() {
+        return directorIndex.get();
+    }
+
+    RangeIndex yearIndex() {
+        return yearIndex.get();
+    }
+
+    RangeIndex durationIndex() {
+        return durationIndex.get();
+    }
+
+    RangeIndex ratingIndex() {
+        return ratingIndex.get();
+    }
+
+    /**
+     * @return the review aggregates, computed from the reviews current at first use if this
+     *         catalog was loaded without them
+     */
+    ReviewStats reviewStats() {
+        return reviewStats.get();
+    }
+
+    /**
+     * @return whether the review aggregates reflect the current reviews; aggregates that have not
+     *         been built yet will, since they read the reviews on first use
+     */
+    boolean hasCurrentReviewStats(ReviewService reviewService) {
+        return !reviewStats.isDone() || reviewStats.get().getVersion() == reviewService.getVersion();
+    }
+
+    /**
+     * @return a copy of this catalog with review aggregates recomputed from the current reviews,
+     *         last modified now
+     */
+    MovieCatalog withReviewStats(ReviewService reviewService) {
+        return new MovieCatalog(this, new ReviewStats(store, sortIndex, reviewService));
+    }
+
+    /**
+     * Applies a batch of changes, all or nothing, and returns the catalog that has them. The
+     * text indexes are shared with this catalog; the sort and range indexes and the review
+     * aggregates are merged with the changed movies, each in time linear in the catalog size,
+     * reading only the reviews of the changed movies. This catalog is left unchanged.
+     *
+     * @param reviewService the reviews to aggregate, or null for none
+     * @param written receives the created and updated movies, in the order of the changes
+     * @throws IllegalArgumentException for a malformed change, an invalid movie or creating an id
+     *                                  that already exists
+     * @throws NoSuchElementException for updating or deleting a movie that does not exist
+     */
+    MovieCatalog withChanges(List<MovieChange> changes, ReviewService reviewService, List<Movie> written) {
+        LayeredMovieStore.Editor editor = new LayeredMovieStore.Editor(store);
+        long highestId = maxId;
+        long hash = version;
+        for (MovieChange change : changes) {
+            if (change == null) {
+                throw new IllegalArgumentException("Changes must not be empty");
+            }
+            MovieChange.Action action = change.getActionType();
+            Long id = change.getId();
+            if (action != MovieChange.Action.CREATE && id == null) {
+                throw new IllegalArgumentException(action.getParam() + " needs the id of the movie");
+            }
+            if (action == MovieChange.Action.DELETE) {
+                if (!editor.delete(id)) {
+                    throw new NoSuchElementException("Movie " + id + " does not exist");
+                }
+                hash = ContentHash.add(ContentHash.add(hash, action.getParam()), id);
+                continue;
+            }
+            if (change.getMovie() == null) {
+                throw new IllegalArgumentException(action.getParam() + " needs the movie's fields");
+            }
+            long movieId = id != null ? id : highestId + 1;
+            boolean exists = editor.ordinalOf(movieId) >= 0;
+            if (action == MovieChange.Action.CREATE && exists) {
+                throw new IllegalArgumentException("Movie " + movieId + " already exists");
+            }
+            if (action == MovieChange.Action.UPDATE && !exists) {
+                throw new NoSuchElementException("Movie " + movieId + " does not exist");
+            }
+            Movie movie = change.getMovie().toMovie(movieId);
+            editor.put(movie);
+            written.add(movie);
+            highestId = Math.max(highestId, movieId);
+            hash = hash(ContentHash.add(hash, action.getParam()), movie);
+        }
+        return new MovieCatalog(this, editor, highestId, ContentHash.finish(hash), reviewService);
+    }
+
+    private static long hash(long hash, Movie movie) {
+        hash = ContentHash.add(hash, movie.getId());
+        hash = ContentHash.add(hash, movie.getMovieName());
+        hash = ContentHash.add(hash, movie.getDirector());
+        hash = ContentHash.add(hash, movie.getYear());
+        hash = ContentHash.add(hash, movie.getGenre());
+        hash = ContentHash.add(hash, movie.getDescription());
+        hash = ContentHash.add(hash, movie.getDuration());
+        return ContentHash.add(hash, Double.doubleToLongBits(movie.getImdbRating()));
+    }
+
+    /**
+     * @return the number of movies created, updated or deleted since the text indexes were built
+     */
+    int changeCount() {
+        return edits == null ? 0 : edits.changedOrdinals().length;
+    }
+
+    /**
+     * Builds a catalog with the same movies in the same order and every index built afresh, with no
+     * edits layered on top; ordinals are renumbered to close the gaps left by deleted movies. The
+     * version stays the same because the content does.
+     */
+    MovieCatalog compact(ReviewService reviewService) {
+        long start = System.nanoTime();
+        MovieStore.Builder builder = new MovieStore.Builder();
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            if (store.contains(ordinal)) {
+                builder.add(store.movie(ordinal));
+            }
+        }
+        MovieStore compacted = builder.build();
+        return new MovieCatalog(compacted, new MovieSortIndex(compacted), null, null, reviewService, version, maxId, start);
+    }
+
+    /**
+     * Carries the changes made between {@code snapshot} and {@code latest} over to this catalog,
+     * which was compacted from {@code snapshot}.
+     *
+     * @return the compacted catalog with those changes, or null if {@code latest} does not descend
+     *         from {@code snapshot} because the catalog was reloaded or compacted in between
+     */
+    MovieCatalog withChangesSince(MovieCatalog snapshot, MovieCatalog latest, ReviewService reviewService) {
+        if (snapshot.edits == null || latest.edits == null || latest.edits.base() != snapshot.edits.base()) {
+            return null;
+        }
+        if (latest.store == snapshot.store) {
+            return this;
+        }
+        LayeredMovieStore.Editor editor = new LayeredMovieStore.Editor(store);
+        latest.edits.replayChangesSince(snapshot.edits, editor);
+        return new MovieCatalog(this, editor, Math.max(maxId, latest.maxId), latest.version, reviewService);
+    }
+
+    /**
+     * @return ordinals of the movies whose name contains the query, ascending
+     */
+    int[] searchName(String name) {
+        int[] matches = nameIndex().search(name);
+        if (edits == null) {
+            return matches;
+        }
+        String folded = TrigramIndex.fold(name);
+        return withChangedMovies(matches, ordinal -> TrigramIndex.fold(store.movieName(ordinal)).contains(folded));
+    }
+
+    /**
+     * @return ordinals of the movies whose name matches the query within the distance, fewest edits
+     *         first and in catalog order among equals
+     */
+    int[] searchFuzzyName(String name, int maxDistance) {
+        int[] matches = fuzzyNameIndex().search(name, maxDistance);
+        if (edits == null || FuzzyNameIndex.tokenize(name).isEmpty()) {
+            return matches;
+        }
+        // Rank the indexed and the changed matches together by distance, then ordinal
+        long[] ranked = new long[matches.length + changedMovies.length];
+        int count = 0;
+        for (int ordinal : matches) {
+            if (!edits.isChanged(ordinal)) {
+                ranked[count++] = ((long) FuzzyNameIndex.distance(store.movieName(ordinal), name, maxDistance) << 32) | ordinal;
+            }
+        }
+        for (int ordinal : changedMovies) {
+            int distance = FuzzyNameIndex.distance(store.movieName(ordinal), name, maxDistance);
+            if (distance >= 0) {
+                ranked[count++] = ((long) distance << 32) | ordinal;
+            }
+        }
+        Arrays.sort(ranked, 0, count);
+        int[] ordinals = new int[count];
+        for (int i = 0; i < count; i++) {
+            ordinals[i] = (int) ranked[i];
+        }
+        return ordinals;
+    }
+
+    /**
+     * @return whether the name of the movie matches the query, within the distance if it is not negative
+     */
+    boolean nameMatches(int ordinal, String name, int fuzzyDistance) {
+        if (fuzzyDistance >= 0) {
+            return FuzzyNameIndex.matches(store.movieName(ordinal), name, fuzzyDistance);
+        }
+        return edits != null && edits.isChanged(ordinal)
+                ? TrigramIndex.fold(store.movieName(ordinal)).contains(TrigramIndex.fold(name))
+                : nameIndex().matches(ordinal, name);
+    }
+
+    /**
+     * @return ordinals of the movies matching the genre terms, as {@link GenreIndex#match} does
+     */
+    CompressedBitmap matchGenres(List<String> terms, boolean matchAll) {
+        GenreIndex genreIndex = genreIndex();
+        CompressedBitmap matches = genreIndex.match(terms, matchAll);
+        if (edits == null) {
+            return matches;
+        }
+        int[] ordinals = withChangedMovies(matches.toArray(),
+                ordinal -> genreIndex.matches(store.genre(ordinal), terms, matchAll));
+        return CompressedBitmap.fromSorted(ordinals, ordinals.length);
+    }
+
+    /**
+     * @return ordinals of the movies whose director matches, as {@link DirectorIndex#match} does
+     */
+    int[] matchDirector(String director, boolean exact) {
+        int[] matches = directorIndex().match(director, exact);
+        if (edits == null) {
+            return matches;
+        }
+        String folded = TrigramIndex.fold(director);
+        return withChangedMovies(matches, ordinal -> DirectorIndex.matches(store.director(ordinal), folded, exact));
+    }
+
+    /**
+     * @return ordinals of the best-rated movies with a word starting with the prefix, best first
+     */
+    int[] suggest(String prefix, int limit) {
+        if (edits == null) {
+            return suggestIndex().suggest(prefix, limit);
+        }
+        String key = TrigramIndex.fold(prefix);
+        int count = Math.min(limit, SuggestIndex.MAX_SUGGESTIONS);
+        if (key.isEmpty() || count < 1) {
+            return NO_ORDINALS;
+        }
+        // The index keeps only its best few per prefix, so a changed movie among them may leave a
+        // shorter list until the next compaction
+        int[] indexed = suggestIndex().suggest(prefix, SuggestIndex.MAX_SUGGESTIONS);
+        long[] ranked = new long[indexed.length + changedMovies.length];
+        int candidates = 0;
+        for (int ordinal : indexed) {
+            if (!edits.isChanged(ordinal)) {
+                ranked[candidates++] = ((long) sortIndex.position(MovieSort.RATING, true, ordinal) << 32) | ordinal;
+            }
+        }
+        for (int ordinal : changedMovies) {
+            if (SuggestIndex.matches(TrigramIndex.fold(store.movieName(ordinal)), key)) {
+                ranked[candidates++] = ((long) sortIndex.position(MovieSort.RATING, true, ordinal) << 32) | ordinal;
+            }
+        }
+        Arrays.sort(ranked, 0, candidates);
+        int[] best = new int[Math.min(count, candidates)];
+        for (int i = 0; i < best.length; i++) {
+            best[i] = (int) ranked[i];
+        }
+        return best;
+    }
+
+    /**
+     * Replaces the changed movies in an index result by those of the changed movies that match now.
+     *
+     * @param indexed ordinals found in an index built before the edits, ascending
+     * @return the merged ordinals, ascending
+     */
+    private int[] withChangedMovies(int[] indexed, IntPredicate matchesChanged) {
+        int[] merged = new int[indexed.length + changedMovies.length];
+        int count = 0;
+        int next = 0;
+        for (int ordinal : indexed) {
+            if (edits.isChanged(ordinal)) {
+                continue;
+            }
+            while (next < changedMovies.length && changedMovies[next] < ordinal) {
+                int changed = changedMovies[next++];
+                if (matchesChanged.test(changed)) {
+                    merged[count++] = changed;
+                }
+            }
+            merged[count++] = ordinal;
+        }
+        while (next < changedMovies.length) {
+            int changed = changedMovies[next++];
+            if (matchesChanged.test(changed)) {
+                merged[count++] = changed;
+            }
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+}
@@ -0,0 +1,187 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+
+/**
+ * Streams movies out of a JSON array one record at a time, so memory stays constant no matter
+ * how large the catalog file is. Only the current record's fields are held while parsing.
+ * <p>
+ * The location is either {@code classpath:<resource>} or a file system path. A missing source,
+ * malformed JSON or a record with a missing or mistyped field fails the load with a
+ * {@link CatalogLoadException} naming the record and its position.
+ */
+public class MovieCatalogLoader {
+    private static final Logger logger = LogManager.getLogger(MovieCatalogLoader.class);
+    public static final String CLASSPATH_PREFIX = "classpath:";
+    public static final String DEFAULT_LOCATION = CLASSPATH_PREFIX + "movies.json";
+    private static final int DEFAULT_PROGRESS_INTERVAL = 100_000;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private final String location;
+    private final int progressInterval;
+
+    public MovieCatalogLoader(String location) {
+        this(location, DEFAULT_PROGRESS_INTERVAL);
+    }
+
+    /**
+     * @param location         {@code classpath:<resource>} or a file system path
+     * @param progressInterval number of records between progress log lines
+     */
+    public MovieCatalogLoader(String location, int progressInterval) {
+        this.location = location == null || location.trim().isEmpty() ? DEFAULT_LOCATION : location.trim();
+        this.progressInterval = Math.max(progressInterval, 1);
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Parses every movie in the catalog and hands it to the consumer as soon as it is read.
+     *
+     * @param consumer receives the movies in file order
+     * @return the number of movies loaded
+     * @throws CatalogLoadException if the source is missing, unreadable or holds an invalid record
+     */
+    public int load(Consumer<Movie> consumer) {
+        long start = System.nanoTime();
+        try (InputStream inputStream = open()) {
+            int count = load(inputStream, consumer);
+            logger.info("Loaded {} movies from {} in {} ms", count, location, (System.nanoTime() - start) / 1_000_000);
+            return count;
+        } catch (NoSuchFileException e) {
+            throw new CatalogLoadException("Movie catalog not found: " + location, e);
+        } catch (IOException e) {
+            throw new CatalogLoadException("Failed to read movie catalog " + location + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses a JSON array of movies from the stream. The stream is not closed.
+     */
+    public int load(InputStream inputStream, Consumer<Movie> consumer) throws IOException {
+        int count = 0;
+        try (JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw invalid(parser, count, "expected a JSON array of movies");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw invalid(parser, count, "expected a movie object but found " + token);
+                }
+                consumer.accept(readMovie(parser, count));
+                count++;
+                if (count % progressInterval == 0) {
+                    logger.info("Loaded {} movies from {} ({} bytes read)", count, location,
+                            parser.getCurrentLocation().getByteOffset());
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new CatalogLoadException("Malformed movie catalog " + location + " after record " + count
+                    + ": " + e.getOriginalMessage(), e);
+        }
+        return count;
+    }
+
+    private Movie readMovie(JsonParser parser, int record) throws IOException {
+        Long id = null;
+        String movieName = null;
+        String director = null;
+        Integer year = null;
+        String genre = null;
+        String description = null;
+        Integer duration = null;
+        Double imdbRating = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id": id = readLong(parser, value, record, field); break;
+                case "movieName": movieName = readString(parser, value, record, field); break;
+                case "director": director = readString(parser, value, record, field); break;
+                case "year": year = readInt(parser, value, record, field); break;
+                case "genre": genre = readString(parser, value, record, field); break;
+                case "description": description = readString(parser, value, record, field); break;
+                case "duration": duration = readInt(parser, value, record, field); break;
+                case "imdbRating": imdbRating = readDouble(parser, value, record, field); break;
+                default: parser.skipChildren(); break;
+            }
+        }
+
+        require(parser, record, id, "id");
+        require(parser, record, movieName, "movieName");
+        require(parser, record, director, "director");
+        require(parser, record, year, "year");
+        require(parser, record, genre, "genre");
+        require(parser, record, description, "description");
+        require(parser, record, duration, "duration");
+        require(parser, record, imdbRating, "imdbRating");
+        return new Movie(id, movieName, director, year, genre, description, duration, imdbRating);
+    }
+
+    private InputStream open() throws IOException {
+        if (location.startsWith(CLASSPATH_PREFIX)) {
+            String resource = location.substring(CLASSPATH_PREFIX.length());
+            InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resource);
+            if (inputStream == null) {
+                throw new NoSuchFileException(resource);
+            }
+            return inputStream;
+        }
+        return Files.newInputStream(Paths.get(location));
+    }
+
+    private String readString(JsonParser parser, JsonToken value, int record, String field) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            throw invalid(parser, record, "field '" + field + "' must be a string");
+        }
+        return parser.getText();
+    }
+
+    private long readLong(JsonParser parser, JsonToken value, int record, String field) throws IOException {
+        if (value != JsonToken.VALUE_NUMBER_INT) {
+            throw invalid(parser, record, "field '" + field + "' must be an integer");
+        }
+        return parser.getLongValue();
+    }
+
+    private int readInt(JsonParser parser, JsonToken value, int record, String field) throws IOException {
+        if (value != JsonToken.VALUE_NUMBER_INT) {
+            throw invalid(parser, record, "field '" + field + "' must be an integer");
+        }
+        return parser.getIntValue();
+    }
+
+    private double readDouble(JsonParser parser, JsonToken value, int record, String field) throws IOException {
+        if (value != JsonToken.VALUE_NUMBER_INT && value != JsonToken.VALUE_NUMBER_FLOAT) {
+            throw invalid(parser, record, "field '" + field + "' must be a number");
+        }
+        return parser.getDoubleValue();
+    }
+
+    private void require(JsonParser parser, int record, Object value, String field) {
+        if (value == null) {
+            throw invalid(parser, record, "missing field '" + field + "'");
+        }
+    }
+
+    private CatalogLoadException invalid(JsonParser parser, int record, String reason) {
+        return new CatalogLoadException(String.format("Invalid movie record #%d in %s at line %d: %s",
+                record + 1, location, parser.getCurrentLocation().getLineNr(), reason));
+    }
+}
@@ -0,0 +1,76 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Locale;
+
+/**
+ * One change in a batch sent to {@code POST /admin/movies/batch}, such as
+ * {@code {"action": "update", "id": 7, "movie": {...}}}. {@code create} takes a movie with an
+ * optional id, {@code update} an id and the movie's new fields, and {@code delete} only an id.
+ */
+public class MovieChange {
+    /**
+     * What a change does.
+     */
+    public enum Action {
+        CREATE, UPDATE, DELETE;
+
+        public String getParam() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * @throws IllegalArgumentException for a missing or unknown action
+         */
+        public static Action fromParam(String param) {
+            for (Action action : values()) {
+                if (param != null && action.getParam().equals(param.trim().toLowerCase(Locale.ROOT))) {
+                    return action;
+                }
+            }
+            throw new IllegalArgumentException("Unknown action '" + param + "', expected one of create, update, delete");
+        }
+    }
+
+    private String action;
+    private Long id;
+    private MovieRequest movie;
+
+    public MovieChange() {}
+
+    public MovieChange(Action action, Long id, MovieRequest movie) {
+        this.action = action.getParam();
+        this.id = id;
+        this.movie = movie;
+    }
+
+    public static MovieChange create(MovieRequest movie) {
+        return new MovieChange(Action.CREATE, movie != null ? movie.getId() : null, movie);
+    }
+
+    public static MovieChange update(long id, MovieRequest movie) {
+        return new MovieChange(Action.UPDATE, id, movie);
+    }
+
+    public static MovieChange delete(long id) {
+        return new MovieChange(Action.DELETE, id, null);
+    }
+
+    public String getAction() { return action; }
+    public void setAction(String action) { this.action = action; }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public MovieRequest getMovie() { return movie; }
+    public void setMovie(MovieRequest movie) { this.movie = movie; }
+
+    /**
+     * @throws IllegalArgumentException for a missing or unknown action
+     */
+    @JsonIgnore
+    public Action getActionType() {
+        return Action.fromParam(action);
+    }
+}
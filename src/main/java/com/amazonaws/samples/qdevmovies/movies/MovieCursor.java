@@ -0,0 +1,57 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination cursor. It remembers the sort it was issued for, the id of the last
+ * movie on the page and that movie's position in the sort order. The next page resumes right after
+ * that movie's current position, so pages stay consistent even if the catalog changes in between;
+ * the stored position is only used when the movie no longer exists.
+ */
+public final class MovieCursor {
+    private static final String VERSION = "c1";
+
+    private final MovieSort sort;
+    private final boolean descending;
+    private final long lastId;
+    private final int lastPosition;
+
+    public MovieCursor(MovieSort sort, boolean descending, long lastId, int lastPosition) {
+        this.sort = sort;
+        this.descending = descending;
+        this.lastId = lastId;
+        this.lastPosition = lastPosition;
+    }
+
+    public MovieSort getSort() { return sort; }
+    public boolean isDescending() { return descending; }
+    public long getLastId() { return lastId; }
+    public int getLastPosition() { return lastPosition; }
+
+    public String encode() {
+        String raw = VERSION + ":" + sort.getParam() + ":" + (descending ? "d" : "a") + ":" + lastId + ":" + lastPosition;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded cursor, or null for a blank value
+     * @throws IllegalArgumentException if the value is not a cursor issued by this service
+     */
+    public static MovieCursor decode(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 5 || !VERSION.equals(parts[0]) || !(parts[2].equals("a") || parts[2].equals("d"))) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new MovieCursor(MovieSort.fromParam(parts[1]), parts[2].equals("d"),
+                    Long.parseLong(parts[3]), Integer.parseInt(parts[4]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor '" + value + "'", e);
+        }
+    }
+}
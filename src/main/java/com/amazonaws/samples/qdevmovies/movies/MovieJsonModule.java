@@ -0,0 +1,216 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.RawJson;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Jackson module that writes movies and their reviews from pre-serialized JSON bytes.
+ * <p>
+ * A movie read from the catalog is serialized once, the first time a response includes it, and
+ * the UTF-8 bytes are kept in its {@link MovieStore}; every later response copies them straight
+ * into the output buffer instead of walking the movie's properties again. Reviews are serialized
+ * when the review index is built (see {@link ReviewList}), and a {@link MovieWithReviews} is
+ * spliced together from the two byte arrays.
+ * <p>
+ * The cached bytes are compact JSON without escaping beyond the JSON defaults, so generators that
+ * pretty-print, escape non-ASCII characters, write numbers as strings, serialize a view or are not
+ * writing UTF-8 bytes fall back to regular bean serialization. Spring Boot registers the module
+ * with its {@code ObjectMapper} because it is a bean.
+ */
+@Component
+public class MovieJsonModule extends SimpleModule {
+    private static final long serialVersionUID = 1L;
+    private static final JsonFactory FRAGMENT_FACTORY = new JsonFactory();
+    private static final SerializableString REVIEWS_FIELD = new SerializedString(",\"reviews\":");
+
+    public MovieJsonModule() {
+        super("MovieJsonModule");
+        setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc,
+                                                      JsonSerializer<?> serializer) {
+                if (beanDesc.getBeanClass() == Movie.class) {
+                    return new CachedMovieSerializer((JsonSerializer<Object>) serializer);
+                }
+                if (beanDesc.getBeanClass() == MovieWithReviews.class) {
+                    return new MovieWithReviewsSerializer((JsonSerializer<Object>) serializer);
+                }
+                return serializer;
+            }
+        });
+    }
+
+    /**
+     * @return the movie's JSON object, from the catalog store's cache when it has been serialized before
+     */
+    static byte[] movieJson(Movie movie, JsonSerializer<Object> beanSerializer, SerializerProvider provider)
+            throws IOException {
+        MovieStore origin = movie.origin();
+        byte[] json = origin != null ? origin.serializedJson(movie.ordinal()) : null;
+        if (json == null) {
+            json = render(movie, beanSerializer, provider);
+            if (origin != null) {
+                origin.cacheSerializedJson(movie.ordinal(), json);
+            }
+        }
+        return json;
+    }
+
+    /**
+     * @return whether the generator writes the same bytes as a default compact UTF-8 generator,
+     *         so that cached fragments can be copied into it
+     */
+    static boolean acceptsRawFragments(JsonGenerator gen, SerializerProvider provider) {
+        return gen instanceof UTF8JsonGenerator
+                && gen.getPrettyPrinter() == null
+                && gen.getCharacterEscapes() == null
+                && gen.getHighestEscapedChar() == 0
+                && !gen.isEnabled(JsonWriteFeature.WRITE_NUMBERS_AS_STRINGS.mappedFeature())
+                && provider.getActiveView() == null;
+    }
+
+    private static byte[] render(Object value, JsonSerializer<Object> serializer, SerializerProvider provider)
+            throws IOException {
+        try (ByteArrayBuilder bytes = new ByteArrayBuilder(512);
+             JsonGenerator fragment = FRAGMENT_FACTORY.createGenerator(bytes, JsonEncoding.UTF8)) {
+            if (serializer != null) {
+                serializer.serialize(value, fragment, provider);
+            } else {
+                provider.defaultSerializeValue(value, fragment);
+            }
+            fragment.flush();
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Wraps the bean serializer Jackson built for a type, passing resolution and contextualization
+     * through to it so the wrapped serializer is fully initialized.
+     */
+    private abstract static class WrappingSerializer<T> extends JsonSerializer<T>
+            implements ResolvableSerializer, ContextualSerializer {
+        final JsonSerializer<Object> beanSerializer;
+
+        WrappingSerializer(JsonSerializer<Object> beanSerializer) {
+            this.beanSerializer = beanSerializer;
+        }
+
+        abstract JsonSerializer<T> wrap(JsonSerializer<Object> beanSerializer);
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (beanSerializer instanceof ResolvableSerializer) {
+                ((ResolvableSerializer) beanSerializer).resolve(provider);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property)
+                throws JsonMappingException {
+            if (!(beanSerializer instanceof ContextualSerializer)) {
+                return this;
+            }
+            JsonSerializer<?> contextual = ((ContextualSerializer) beanSerializer).createContextual(provider, property);
+            return contextual == beanSerializer ? this : wrap((JsonSerializer<Object>) contextual);
+        }
+
+        @Override
+        public void serializeWithType(T value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer)
+                throws IOException {
+            beanSerializer.serializeWithType(value, gen, provider, typeSer);
+        }
+
+        @Override
+        public JsonSerializer<T> unwrappingSerializer(NameTransformer unwrapper) {
+            @SuppressWarnings("unchecked")
+            JsonSerializer<T> unwrapping = (JsonSerializer<T>) beanSerializer.unwrappingSerializer(unwrapper);
+            return unwrapping;
+        }
+    }
+
+    private static final class CachedMovieSerializer extends WrappingSerializer<Movie> {
+        CachedMovieSerializer(JsonSerializer<Object> beanSerializer) {
+            super(beanSerializer);
+        }
+
+        @Override
+        JsonSerializer<Movie> wrap(JsonSerializer<Object> beanSerializer) {
+            return new CachedMovieSerializer(beanSerializer);
+        }
+
+        @Override
+        public void serialize(Movie movie, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (!acceptsRawFragments(gen, provider)) {
+                beanSerializer.serialize(movie, gen, provider);
+                return;
+            }
+            gen.writeRawValue(new RawJson(movieJson(movie, beanSerializer, provider)));
+        }
+    }
+
+    /**
+     * Writes the cached movie object without its closing brace, then the {@code reviews} field and
+     * the brace, which is what the unwrapped bean serialization of {@link MovieWithReviews} produces.
+     */
+    private static final class MovieWithReviewsSerializer extends WrappingSerializer<MovieWithReviews> {
+        MovieWithReviewsSerializer(JsonSerializer<Object> beanSerializer) {
+            super(beanSerializer);
+        }
+
+        @Override
+        JsonSerializer<MovieWithReviews> wrap(JsonSerializer<Object> beanSerializer) {
+            return new MovieWithReviewsSerializer(beanSerializer);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void serialize(MovieWithReviews value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (value.getMovie() == null || !acceptsRawFragments(gen, provider)) {
+                beanSerializer.serialize(value, gen, provider);
+                return;
+            }
+            JsonSerializer<?> movieSerializer = provider.findValueSerializer(Movie.class);
+            JsonSerializer<Object> plainMovieSerializer = movieSerializer instanceof CachedMovieSerializer
+                    ? ((CachedMovieSerializer) movieSerializer).beanSerializer
+                    : (JsonSerializer<Object>) movieSerializer;
+            byte[] movie = movieJson(value.getMovie(), plainMovieSerializer, provider);
+            List<Review> reviews = value.getReviews();
+            if (reviews == null) {
+                gen.writeRawValue(new RawJson(movie));
+                return;
+            }
+            byte[] reviewsJson = reviews instanceof ReviewList
+                    ? ((ReviewList) reviews).json()
+                    : render(reviews, null, provider);
+            gen.writeRawValue(new RawJson(movie, movie.length - 1));
+            gen.writeRaw(REVIEWS_FIELD);
+            gen.writeRaw(new RawJson(reviewsJson));
+            gen.writeRaw('}');
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.List;
+
+/**
+ * One page of search results together with the total match count and the cursor of the next page.
+ */
+public class MoviePage {
+    private final List<Movie> movies;
+    private final int totalResults;
+    private final String nextCursor;
+
+    public MoviePage(List<Movie> movies, int totalResults, String nextCursor) {
+        this.movies = movies;
+        this.totalResults = totalResults;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Wraps a complete result list as a single page.
+     */
+    public static MoviePage of(List<Movie> movies) {
+        return new MoviePage(movies, movies.size(), null);
+    }
+
+    public List<Movie> getMovies() { return movies; }
+
+    /**
+     * @return the number of movies matching the query across all pages
+     */
+    public int getTotalResults() { return totalResults; }
+
+    /**
+     * @return the cursor for the next page, or null on the last page
+     */
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean hasNext() { return nextCursor != null; }
+}
@@ -0,0 +1,248 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Search criteria for movies, bound from the request parameters of the search endpoints
+ * and echoed back in API responses.
+ * <p>
+ * {@code genre} may be repeated ({@code genre=Crime&genre=Drama}) or comma separated;
+ * {@code genreMatch} decides whether a movie needs {@code all} of them or {@code any} (default).
+ * {@code director} keeps the movies of directors whose name contains it, ignoring case, or whose
+ * whole name is it when {@code directorMatch} is {@code exact} rather than {@code partial} (default).
+ * Results are ordered by {@code sort} ({@link MovieSort}) in its natural direction unless
+ * {@code order} says {@code asc} or {@code desc}, and paged by {@code limit} and {@code cursor}.
+ * {@code year} keeps the movies released that year; {@code yearFrom}/{@code yearTo}, {@code minRating} and {@code maxDuration} are inclusive range
+ * filters. {@code minUserRating} keeps movies whose average review rating is at least that high;
+ * movies without reviews never match it. {@code top} switches to top-K mode: the {@code top} best-rated matches, highest first.
+ * {@code fuzzy} makes the name search typo-tolerant: each word of {@code name} may be up to
+ * {@code fuzzy} edits away from a word of the movie name, and matches are ranked by distance.
+ */
+public class MovieQuery {
+    public static final String MATCH_ANY = "any";
+    public static final String MATCH_ALL = "all";
+    public static final String MATCH_EXACT = "exact";
+    public static final String MATCH_PARTIAL = "partial";
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 1000;
+
+    private String name;
+    private Long id;
+    private List<String> genre = new ArrayList<>();
+    private String genreMatch = MATCH_ANY;
+    private String director;
+    private String directorMatch = MATCH_PARTIAL;
+    private Integer year;
+    private String sort;
+    private String order;
+    private Integer limit;
+    private String cursor;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private Double minRating;
+    private Integer maxDuration;
+    private Double minUserRating;
+    private Integer top;
+    private Integer fuzzy;
+
+    public MovieQuery() {}
+
+    public MovieQuery(String name, Long id, String genre) {
+        this.name = name;
+        this.id = id;
+        if (genre != null) {
+            this.genre.add(genre);
+        }
+    }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public List<String> getGenre() { return genre; }
+    public void setGenre(List<String> genre) { this.genre = genre != null ? genre : new ArrayList<>(); }
+
+    public String getGenreMatch() { return genreMatch; }
+    public void setGenreMatch(String genreMatch) { this.genreMatch = genreMatch; }
+
+    public String getDirector() { return director; }
+    public void setDirector(String director) { this.director = director; }
+
+    public String getDirectorMatch() { return directorMatch; }
+    public void setDirectorMatch(String directorMatch) { this.directorMatch = directorMatch; }
+
+    public Integer getYear() { return year; }
+    public void setYear(Integer year) { this.year = year; }
+
+    public String getSort() { return sort; }
+    public void setSort(String sort) { this.sort = sort; }
+
+    public String getOrder() { return order; }
+    public void setOrder(String order) { this.order = order; }
+
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+
+    public Integer getYearFrom() { return yearFrom; }
+    public void setYearFrom(Integer yearFrom) { this.yearFrom = yearFrom; }
+
+    public Integer getYearTo() { return yearTo; }
+    public void setYearTo(Integer yearTo) { this.yearTo = yearTo; }
+
+    public Double getMinRating() { return minRating; }
+    public void setMinRating(Double minRating) { this.minRating = minRating; }
+
+    public Integer getMaxDuration() { return maxDuration; }
+    public void setMaxDuration(Integer maxDuration) { this.maxDuration = maxDuration; }
+
+    public Double getMinUserRating() { return minUserRating; }
+    public void setMinUserRating(Double minUserRating) { this.minUserRating = minUserRating; }
+
+    public Integer getTop() { return top; }
+    public void setTop(Integer top) { this.top = top; }
+
+    public Integer getFuzzy() { return fuzzy; }
+    public void setFuzzy(Integer fuzzy) { this.fuzzy = fuzzy; }
+
+    @JsonIgnore
+    public boolean hasName() {
+        return name != null && !name.trim().isEmpty();
+    }
+
+    /**
+     * @return the non-blank genre terms
+     */
+    @JsonIgnore
+    public List<String> getGenreTerms() {
+        if (genre.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> terms = new ArrayList<>(genre.size());
+        for (String term : genre) {
+            if (term != null && !term.trim().isEmpty()) {
+                terms.add(term.trim());
+            }
+        }
+        return terms;
+    }
+
+    @JsonIgnore
+    public boolean isMatchAllGenres() {
+        return MATCH_ALL.equalsIgnoreCase(genreMatch != null ? genreMatch.trim() : null);
+    }
+
+    @JsonIgnore
+    public boolean hasDirector() {
+        return director != null && !director.trim().isEmpty();
+    }
+
+    @JsonIgnore
+    public boolean isExactDirector() {
+        return MATCH_EXACT.equalsIgnoreCase(directorMatch != null ? directorMatch.trim() : null);
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown sort
+     */
+    @JsonIgnore
+    public MovieSort getSortKey() {
+        return MovieSort.fromParam(sort);
+    }
+
+    /**
+     * @return whether results run in descending order: the explicit {@code order}, else the sort's natural direction
+     * @throws IllegalArgumentException for an order other than asc or desc
+     */
+    @JsonIgnore
+    public boolean isDescending() {
+        if (order == null || order.trim().isEmpty()) {
+            return getSortKey().isDefaultDescending();
+        }
+        if ("desc".equalsIgnoreCase(order.trim())) {
+            return true;
+        }
+        if ("asc".equalsIgnoreCase(order.trim())) {
+            return false;
+        }
+        throw new IllegalArgumentException("Unknown order '" + order + "', expected asc or desc");
+    }
+
+    /**
+     * @return the requested page size, {@value #DEFAULT_LIMIT} by default and at most {@value #MAX_LIMIT}
+     * @throws IllegalArgumentException for a limit below one
+     */
+    @JsonIgnore
+    public int getPageSize() {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code yearFrom} is after {@code yearTo} or {@code minRating}
+     *                                  or {@code minUserRating} is not a number
+     */
+    @JsonIgnore
+    public boolean hasRangeFilters() {
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new IllegalArgumentException("yearFrom must not be after yearTo");
+        }
+        if (minRating != null && minRating.isNaN()) {
+            throw new IllegalArgumentException("minRating must be a number");
+        }
+        if (minUserRating != null && minUserRating.isNaN()) {
+            throw new IllegalArgumentException("minUserRating must be a number");
+        }
+        return year != null || yearFrom != null || yearTo != null || minRating != null || maxDuration != null || minUserRating != null;
+    }
+
+    @JsonIgnore
+    public boolean isTopMode() {
+        return top != null;
+    }
+
+    /**
+     * @return the number of best-rated movies requested in top-K mode, at most {@value #MAX_LIMIT}
+     * @throws IllegalArgumentException for a top below one
+     */
+    @JsonIgnore
+    public int getTopCount() {
+        if (top == null || top < 1) {
+            throw new IllegalArgumentException("top must be at least 1");
+        }
+        return Math.min(top, MAX_LIMIT);
+    }
+
+    /**
+     * @return whether the name is matched by edit distance and results are ranked by it
+     */
+    @JsonIgnore
+    public boolean isFuzzyName() {
+        return fuzzy != null && hasName();
+    }
+
+    /**
+     * @return the number of edits allowed per word of the name in fuzzy mode
+     * @throws IllegalArgumentException for a distance below zero or above {@value FuzzyNameIndex#MAX_DISTANCE}
+     */
+    @JsonIgnore
+    public int getFuzzyDistance() {
+        if (fuzzy == null || fuzzy < 0 || fuzzy > FuzzyNameIndex.MAX_DISTANCE) {
+            throw new IllegalArgumentException("fuzzy must be between 0 and " + FuzzyNameIndex.MAX_DISTANCE);
+        }
+        return fuzzy;
+    }
+}
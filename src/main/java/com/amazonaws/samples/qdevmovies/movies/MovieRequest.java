@@ -0,0 +1,101 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * A movie as sent to the write endpoints, bound from a JSON body with the same fields as a movie
+ * in API responses. {@code id} is optional when creating a movie; without one the next free id is
+ * assigned. Every other field except {@code description} is required.
+ */
+public class MovieRequest {
+    /** Earliest release year accepted for a movie. */
+    public static final int MIN_YEAR = 1870;
+    /** Highest IMDb rating a movie can have. */
+    public static final double MAX_RATING = 10.0;
+
+    private Long id;
+    private String movieName;
+    private String director;
+    private Integer year;
+    private String genre;
+    private String description;
+    private Integer duration;
+    private Double imdbRating;
+
+    public MovieRequest() {}
+
+    public MovieRequest(Long id, String movieName, String director, Integer year, String genre,
+                        String description, Integer duration, Double imdbRating) {
+        this.id = id;
+        this.movieName = movieName;
+        this.director = director;
+        this.year = year;
+        this.genre = genre;
+        this.description = description;
+        this.duration = duration;
+        this.imdbRating = imdbRating;
+    }
+
+    /**
+     * @return a request holding every field of the movie
+     */
+    static MovieRequest of(Movie movie) {
+        return new MovieRequest(movie.getId(), movie.getMovieName(), movie.getDirector(), movie.getYear(),
+                movie.getGenre(), movie.getDescription(), movie.getDuration(), movie.getImdbRating());
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getMovieName() { return movieName; }
+    public void setMovieName(String movieName) { this.movieName = movieName; }
+
+    public String getDirector() { return director; }
+    public void setDirector(String director) { this.director = director; }
+
+    public Integer getYear() { return year; }
+    public void setYear(Integer year) { this.year = year; }
+
+    public String getGenre() { return genre; }
+    public void setGenre(String genre) { this.genre = genre; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public Integer getDuration() { return duration; }
+    public void setDuration(Integer duration) { this.duration = duration; }
+
+    public Double getImdbRating() { return imdbRating; }
+    public void setImdbRating(Double imdbRating) { this.imdbRating = imdbRating; }
+
+    /**
+     * Validates the fields and creates the movie; text fields are trimmed.
+     *
+     * @param movieId the id of the movie, which takes precedence over {@link #getId()}
+     * @throws IllegalArgumentException naming the first field that is missing or out of range
+     */
+    Movie toMovie(long movieId) {
+        if (movieId <= 0) {
+            throw new IllegalArgumentException("id must be positive");
+        }
+        if (id != null && id != movieId) {
+            throw new IllegalArgumentException("id " + id + " does not match movie " + movieId);
+        }
+        if (year == null || year < MIN_YEAR) {
+            throw new IllegalArgumentException("year is required and must be at least " + MIN_YEAR);
+        }
+        if (duration == null || duration <= 0) {
+            throw new IllegalArgumentException("duration is required and must be a positive number of minutes");
+        }
+        if (imdbRating == null || !(imdbRating >= 0 && imdbRating <= MAX_RATING)) {
+            throw new IllegalArgumentException("imdbRating is required and must be between 0 and " + MAX_RATING);
+        }
+        return new Movie(movieId, required(movieName, "movieName"), required(director, "director"), year,
+                required(genre, "genre"), description == null ? "" : description.trim(), duration, imdbRating);
+    }
+
+    private static String required(String value, String field) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return value.trim();
+    }
+}
@@ -1,74 +1,704 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.amazonaws.samples.qdevmovies.utils.CompressedBitmap;
+import com.amazonaws.samples.qdevmovies.utils.ParallelScan;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.Scanner;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class MovieService {
     private static final Logger logger = LogManager.getLogger(MovieService.class);
-    private final List<Movie> movies;
-    private final Map<Long, Movie> movieMap;
+    /** Most ids one {@link #getMoviesByIds(List)} call accepts. */
+    public static final int MAX_BATCH_SIZE = 1000;
+    /** Most changes one {@link #applyChanges(List)} call accepts. */
+    public static final int MAX_CHANGES = 1000;
+    /** Edited movies after which the catalog's indexes are rebuilt in the background. */
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 4096;
+    /** Size the write-ahead log may reach before the catalog is checkpointed. */
+    public static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+    /** Suggestions {@link #suggest(String, int)} returns unless asked for a different number. */
+    public static final int DEFAULT_SUGGESTIONS = 10;
+    /** How long {@link #shutdown} waits for background work before closing the write-ahead log. */
+    private static final long SHUTDOWN_WAIT_SECONDS = 30;
+    private static final SearchMetrics LIST_SEARCH_METRICS = new SearchMetrics("list");
+    private static final SearchMetrics PAGE_SEARCH_METRICS = new SearchMetrics("page");
+    private static final SearchMetrics TOP_SEARCH_METRICS = new SearchMetrics("top");
+    private static final SearchMetrics STREAM_SEARCH_METRICS = new SearchMetrics("stream");
+    private static final SearchMetrics SUGGEST_SEARCH_METRICS = new SearchMetrics("suggest");
+    private static final Counter RELOAD_SUCCESSES = reloadCounter("success");
+    private static final Counter RELOAD_FAILURES = reloadCounter("failure");
+    private static final Counter CREATES = writeCounter(MovieChange.Action.CREATE);
+    private static final Counter UPDATES = writeCounter(MovieChange.Action.UPDATE);
+    private static final Counter DELETES = writeCounter(MovieChange.Action.DELETE);
+    private static final Timer COMPACTIONS = Timer.builder("movies.catalog.compactions")
+            .description("Time to rebuild the catalog's indexes with the edited movies folded in")
+            .register(Metrics.globalRegistry);
+    private static final Timer CHECKPOINTS = Timer.builder("movies.catalog.checkpoints")
+            .description("Time to write a checkpoint of the catalog to the data directory")
+            .register(Metrics.globalRegistry);
+
+    private final String catalogLocation;
+    private final ReviewService reviewService;
+    private final AtomicReference<MovieCatalog> loadedCatalog = new AtomicReference<>();
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private final AtomicBoolean rebuildingReviewStats = new AtomicBoolean();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final AtomicBoolean checkpointing = new AtomicBoolean();
+    /** Orders logged writes, reloads and checkpoints when the catalog is kept in a data directory. */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    /** Batches logged but not yet published, oldest first; guarded by the write lock. */
+    private final ArrayDeque<PendingBatch> pendingBatches = new ArrayDeque<>();
+    private final CatalogPersistence persistence;
+    private final CatalogWatcher watcher;
+    /** Runs compactions, checkpoints and review aggregate rebuilds until {@link #shutdown}. */
+    private final ExecutorService background = Executors.newCachedThreadPool(daemonThreads("movie-service-background"));
+    private final Runnable reviewReloadListener = this::rebuildReviewStatsInBackground;
+    private volatile int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
 
     public MovieService() {
-        this.movies = loadMoviesFromJson();
-        this.movieMap = new HashMap<>();
-        for (Movie movie : movies) {
-            movieMap.put(movie.getId(), movie);
+        this(MovieCatalogLoader.DEFAULT_LOCATION);
+    }
+
+    /**
+     * @param catalogLocation where to load the catalog from: {@code classpath:<resource>} or a file path.
+     *                        A file written by {@link MovieSnapshotWriter} is memory-mapped instead of parsed.
+     * @throws CatalogLoadException if the catalog is missing or holds an invalid record
+     */
+    public MovieService(String catalogLocation) {
+        this(catalogLocation, new ReviewService(), false);
+    }
+
+    /**
+     * @param catalogLocation where to load the catalog from: {@code classpath:<resource>} or a file path.
+     *                        A file written by {@link MovieSnapshotWriter} is memory-mapped instead of parsed.
+     * @param reviewService the reviews whose aggregates are shown, sorted and filtered by
+     * @param watchCatalog whether to reload the catalog whenever its file changes; needs a file path
+     * @throws CatalogLoadException if the catalog is missing or holds an invalid record
+     * @throws IllegalStateException if the catalog should be watched but is not a file that can be
+     */
+    public MovieService(String catalogLocation, ReviewService reviewService, boolean watchCatalog) {
+        this(catalogLocation, reviewService, watchCatalog, null, DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    /**
+     * @param catalogLocation where to load the catalog from: {@code classpath:<resource>} or a file path.
+     *                        A file written by {@link MovieSnapshotWriter} is memory-mapped instead of parsed.
+     * @param reviewService the reviews whose aggregates are shown, sorted and filtered by
+     * @param watchCatalog whether to reload the catalog whenever its file changes; needs a file path
+     * @param dataDirectory where to keep the catalog and a write-ahead log of its changes so that
+     *                      they survive a restart; blank to keep changes in memory only. Once the
+     *                      directory holds a checkpoint, startup recovers from it instead of
+     *                      loading {@code catalogLocation}
+     * @param checkpointBytes size of the write-ahead log after which the catalog is checkpointed
+     * @throws CatalogLoadException if the catalog is missing or holds an invalid record, or the data
+     *                              directory cannot be read or is damaged
+     * @throws IllegalStateException if the catalog should be watched but is not a file that can be
+     */
+    @Autowired
+    public MovieService(@Value("${movies.catalog.location:" + MovieCatalogLoader.DEFAULT_LOCATION + "}") String catalogLocation,
+                        ReviewService reviewService,
+                        @Value("${movies.catalog.watch:false}") boolean watchCatalog,
+                        @Value("${movies.catalog.data-dir:}") String dataDirectory,
+                        @Value("${movies.catalog.checkpoint-bytes:" + DEFAULT_CHECKPOINT_BYTES + "}") long checkpointBytes) {
+        this.catalogLocation = catalogLocation;
+        this.reviewService = reviewService;
+        if (dataDirectory == null || dataDirectory.trim().isEmpty()) {
+            this.persistence = null;
+            this.loadedCatalog.set(MovieCatalog.load(catalogLocation, reviewService));
+        } else {
+            this.persistence = new CatalogPersistence(Paths.get(dataDirectory.trim()), checkpointBytes);
+            try {
+                this.loadedCatalog.set(persistence.recover(catalogLocation, reviewService));
+            } catch (IOException e) {
+                throw new CatalogLoadException("Cannot recover the catalog from " + dataDirectory + ": " + e.getMessage(), e);
+            }
+            if (loadedCatalog.get().changeCount() > compactionThreshold) {
+                compactInBackground();
+            }
+        }
+        this.watcher = watchCatalog ? watch(catalogLocation) : null;
+        if (reviewService != null) {
+            reviewService.addReloadListener(reviewReloadListener);
+        }
+
+        Gauge.builder("movies.catalog.size", loadedCatalog, current -> current.get().store.movieCount())
+                .description("Number of movies in the catalog")
+                .baseUnit("movies")
+                .register(Metrics.globalRegistry);
+        TimeGauge.builder("movies.catalog.load.time", loadedCatalog, TimeUnit.NANOSECONDS, current -> current.get().loadTimeNanos)
+                .description("Time to load the current catalog and build its indexes")
+                .register(Metrics.globalRegistry);
+    }
+
+    private CatalogWatcher watch(String location) {
+        if (location == null || location.trim().startsWith(MovieCatalogLoader.CLASSPATH_PREFIX)) {
+            throw new IllegalStateException("Only a catalog file can be watched, not " + location);
+        }
+        try {
+            return new CatalogWatcher(Paths.get(location.trim()), this::reloadQuietly,
+                    CatalogWatcher.DEFAULT_QUIET_PERIOD_MILLIS);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Cannot watch catalog " + location + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stops watching the catalog file, if it is watched.
+     */
+    public void stopWatching() throws IOException {
+        if (watcher != null) {
+            watcher.close();
         }
     }
 
-    private List<Movie> loadMoviesFromJson() {
-        List<Movie> movieList = new ArrayList<>();
+    /**
+     * Stops watching the catalog file, waits for a running compaction, checkpoint or review
+     * aggregate rebuild to finish and closes the write-ahead log, if there is one.
+     */
+    @PreDestroy
+    public void shutdown() throws IOException {
+        stopWatching();
+        if (reviewService != null) {
+            reviewService.removeReloadListener(reviewReloadListener);
+        }
+        background.shutdown();
         try {
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream("movies.json");
-            if (inputStream != null) {
-                Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
-                String jsonContent = scanner.useDelimiter("\\A").next();
-                scanner.close();
-                
-                JSONArray moviesArray = new JSONArray(jsonContent);
-                for (int i = 0; i < moviesArray.length(); i++) {
-                    JSONObject movieObj = moviesArray.getJSONObject(i);
-                    movieList.add(new Movie(
-                        movieObj.getLong("id"),
-                        movieObj.getString("movieName"),
-                        movieObj.getString("director"),
-                        movieObj.getInt("year"),
-                        movieObj.getString("genre"),
-                        movieObj.getString("description"),
-                        movieObj.getInt("duration"),
-                        movieObj.getDouble("imdbRating")
-                    ));
+            if (!background.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Background catalog work still running after {} s; closing anyway", SHUTDOWN_WAIT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (persistence != null) {
+            persistence.close();
+        }
+    }
+
+    /**
+     * Loads the catalog again from its configured location and swaps it in once the store, every
+     * index and the review aggregates are built. Until then readers keep using the previous
+     * catalog; they never wait for the reload and never see part of the new catalog. Only one
+     * reload runs at a time, and a failed reload leaves the previous catalog in place. Movies
+     * created, updated or deleted through the write API are replaced by the reloaded catalog; with
+     * a data directory the reloaded catalog is checkpointed before it is swapped in, so a restart
+     * recovers it rather than the edits it replaced.
+     *
+     * @return false if another reload was already running, in which case nothing was loaded
+     * @throws CatalogLoadException if the catalog is missing or holds an invalid record
+     */
+    public boolean reloadCatalog() {
+        if (!reloading.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            MovieCatalog loaded = MovieCatalog.load(catalogLocation, reviewService);
+            MovieCatalog previous = persistence == null ? loadedCatalog.getAndSet(loaded) : checkpointAndSwap(loaded);
+            RELOAD_SUCCESSES.increment();
+            logger.info("Reloaded catalog from {}: {} movies, previously {}",
+                    catalogLocation, loaded.store.movieCount(), previous.store.movieCount());
+            if (previous.changeCount() > 0) {
+                logger.warn("The reload replaced {} edited movies", previous.changeCount());
+            }
+            return true;
+        } catch (CatalogLoadException e) {
+            RELOAD_FAILURES.increment();
+            logger.error("Catalog reload failed, keeping the current catalog: {}", e.getMessage());
+            throw e;
+        } finally {
+            reloading.set(false);
+        }
+    }
+
+    private MovieCatalog checkpointAndSwap(MovieCatalog loaded) {
+        writeLock.lock();
+        try {
+            persistence.writeCheckpoint(loaded, persistence.roll());
+            // The reloaded catalog replaces the pending batches too; their writers find nothing to publish
+            pendingBatches.clear();
+            return loadedCatalog.getAndSet(loaded);
+        } catch (IOException e) {
+            throw new CatalogLoadException("Cannot checkpoint the reloaded catalog: " + e.getMessage(), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            if (!reloadCatalog()) {
+                logger.info("Catalog file changed during a reload; skipping");
+            }
+        } catch (CatalogLoadException e) {
+            // already logged and counted
+        }
+    }
+
+    /**
+     * Creates a movie.
+     *
+     * @param movie the new movie; without an id the next free id is assigned
+     * @return the created movie
+     * @throws IllegalArgumentException if a field is missing or out of range, or the id is taken
+     */
+    public Movie createMovie(MovieRequest movie) {
+        return applyChanges(Collections.singletonList(MovieChange.create(movie))).get(0);
+    }
+
+    /**
+     * Replaces every field of a movie; the movie keeps its place in catalog order.
+     *
+     * @return the updated movie
+     * @throws IllegalArgumentException if a field is missing or out of range
+     * @throws NoSuchElementException if there is no movie with the id
+     */
+    public Movie updateMovie(long id, MovieRequest movie) {
+        return applyChanges(Collections.singletonList(MovieChange.update(id, movie))).get(0);
+    }
+
+    /**
+     * @throws NoSuchElementException if there is no movie with the id
+     */
+    public void deleteMovie(long id) {
+        applyChanges(Collections.singletonList(MovieChange.delete(id)));
+    }
+
+    /**
+     * Applies a batch of creates, updates and deletes as one change: readers see either none of
+     * them or all of them, and if one change is invalid none is applied. Later changes in the batch
+     * see the earlier ones, so a movie can be created and then updated in the same batch.
+     * <p>
+     * Writers never block readers. Each batch builds a new catalog from the current one, sharing
+     * its text indexes and merging the changed movies into the id map, sort and range indexes, and
+     * publishes it with a compare-and-set; a writer that loses the race to another write or a
+     * reload applies its batch again to the newer catalog. Once more than the compaction threshold
+     * of movies have been edited, the indexes are rebuilt in the background.
+     * <p>
+     * With a data directory, writers take turns to apply their batch on top of the batches logged
+     * before it and log it, with every created movie's id filled in, to the write-ahead log, so the
+     * log holds batches in the order they were applied. Each then waits for the log to reach the
+     * disk, sharing the sync with the writers that logged meanwhile, and publishes its batch along
+     * with any earlier one still pending. Readers only see a batch once it is durable.
+     *
+     * @return the created and updated movies, in the order of the changes
+     * @throws IllegalArgumentException for no changes, too many changes, an unknown action, a
+     *                                  missing or invalid field, or creating an id that is taken
+     * @throws NoSuchElementException for updating or deleting a movie that does not exist
+     * @throws UncheckedIOException if the write-ahead log cannot be written, in which case the batch
+     *                              is not applied, or synced, in which case it is not published and
+     *                              the log accepts no more batches, but it may still be on disk and
+     *                              recovered after a restart
+     */
+    public List<Movie> applyChanges(List<MovieChange> changes) {
+        if (changes == null || changes.isEmpty()) {
+            throw new IllegalArgumentException("At least one change is required");
+        }
+        if (changes.size() > MAX_CHANGES) {
+            throw new IllegalArgumentException("At most " + MAX_CHANGES + " changes can be applied at once, got " + changes.size());
+        }
+        if (persistence != null) {
+            return applyDurably(changes);
+        }
+        while (true) {
+            MovieCatalog current = loadedCatalog.get();
+            List<Movie> written = new ArrayList<>(changes.size());
+            MovieCatalog updated = current.withChanges(changes, reviewService, written);
+            if (loadedCatalog.compareAndSet(current, updated)) {
+                countWrites(changes);
+                logger.info("Applied {} movie changes; {} movies, {} edited since the indexes were built",
+                        changes.size(), updated.store.movieCount(), updated.changeCount());
+                if (updated.changeCount() > compactionThreshold) {
+                    compactInBackground();
                 }
+                return written;
+            }
+        }
+    }
+
+    private List<Movie> applyDurably(List<MovieChange> changes) {
+        List<Movie> written = new ArrayList<>(changes.size());
+        long sequence = logChanges(changes, written);
+        MovieCatalog published;
+        try {
+            published = publishDurable(sequence);
+        } catch (IOException e) {
+            logger.error("Could not sync movie changes to disk, leaving them unpublished: {}", e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+        countWrites(changes);
+        logger.info("Applied {} movie changes as batch {}; {} movies, {} edited since the indexes were built",
+                changes.size(), sequence, published.store.movieCount(), published.changeCount());
+        if (published.changeCount() > compactionThreshold) {
+            compactInBackground();
+        }
+        if (persistence.needsCheckpoint()) {
+            checkpointInBackground();
+        }
+        return written;
+    }
+
+    /**
+     * Applies a batch on top of every batch logged so far and appends it to the write-ahead log,
+     * without publishing it.
+     *
+     * @param written receives the created and updated movies, in the order of the changes
+     * @return the sequence number of the logged batch
+     * @throws UncheckedIOException if the batch cannot be logged, in which case it is dropped
+     */
+    long logChanges(List<MovieChange> changes, List<Movie> written) {
+        writeLock.lock();
+        try {
+            MovieCatalog base = pendingBatches.isEmpty() ? loadedCatalog.get() : pendingBatches.peekLast().catalog;
+            MovieCatalog updated = base.withChanges(changes, reviewService, written);
+            List<MovieChange> logged = withIds(changes, written);
+            long sequence = persistence.log(logged);
+            pendingBatches.addLast(new PendingBatch(sequence, logged, base, updated));
+            return sequence;
+        } catch (IOException e) {
+            logger.error("Could not log movie changes, rejecting them: {}", e.getMessage());
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the batch with the sequence number is on disk, then publishes it along with every
+     * batch logged before it that is still pending.
+     *
+     * @return the catalog published
+     * @throws IOException if the log cannot be synced, in which case nothing is published
+     */
+    MovieCatalog publishDurable(long sequence) throws IOException {
+        persistence.awaitDurable(sequence);
+        writeLock.lock();
+        try {
+            return publishThrough(sequence);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes the pending batches up to the sequence number, which must all be durable. Call it
+     * holding the write lock.
+     *
+     * @return the catalog published, or the current one if a later batch or a checkpoint already
+     *         published them
+     */
+    private MovieCatalog publishThrough(long sequence) {
+        List<PendingBatch> batches = new ArrayList<>();
+        while (!pendingBatches.isEmpty() && pendingBatches.peekFirst().sequence <= sequence) {
+            batches.add(pendingBatches.pollFirst());
+        }
+        if (batches.isEmpty()) {
+            return loadedCatalog.get();
+        }
+        while (true) {
+            MovieCatalog current = loadedCatalog.get();
+            MovieCatalog updated = batches.get(batches.size() - 1).catalog;
+            if (current != batches.get(0).base) {
+                // A compaction or new review aggregates swapped the catalog meanwhile, and neither changes a movie
+                updated = current;
+                for (PendingBatch batch : batches) {
+                    updated = updated.withChanges(batch.changes, reviewService, new ArrayList<>());
+                }
+            }
+            if (loadedCatalog.compareAndSet(current, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * @return the changes with the id of every created or updated movie filled in, so that
+     *         replaying them from the write-ahead log assigns the same ids
+     */
+    private static List<MovieChange> withIds(List<MovieChange> changes, List<Movie> written) {
+        List<MovieChange> resolved = new ArrayList<>(changes.size());
+        int next = 0;
+        for (MovieChange change : changes) {
+            MovieChange.Action action = change.getActionType();
+            if (action == MovieChange.Action.DELETE) {
+                resolved.add(change);
+            } else {
+                Movie movie = written.get(next++);
+                resolved.add(new MovieChange(action, movie.getId(), MovieRequest.of(movie)));
+            }
+        }
+        return resolved;
+    }
+
+    private static void countWrites(List<MovieChange> changes) {
+        for (MovieChange change : changes) {
+            switch (change.getActionType()) {
+                case CREATE: CREATES.increment(); break;
+                case UPDATE: UPDATES.increment(); break;
+                default: DELETES.increment(); break;
+            }
+        }
+    }
+
+    /**
+     * Sets how many edited movies trigger a rebuild of the indexes.
+     */
+    void setCompactionThreshold(int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Runs a task on the background executor unless it is already running.
+     *
+     * @param running set while the task is queued or running
+     * @param failure what to log if the task fails
+     */
+    private void runInBackground(AtomicBoolean running, Runnable task, String failure) {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            background.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.error(failure + ": {}", e.getMessage(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shut down; the work is left for the next start
+            running.set(false);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void compactInBackground() {
+        runInBackground(compacting, this::compact, "Catalog compaction failed, keeping the edited catalog");
+    }
+
+    private void checkpointInBackground() {
+        runInBackground(checkpointing, this::checkpoint, "Catalog checkpoint failed, keeping the write-ahead log");
+    }
+
+    /**
+     * Writes a checkpoint of the current catalog to the data directory and deletes the parts of the
+     * write-ahead log it covers, so recovery replays less. Writers only wait while a new log
+     * segment is started, not while the checkpoint is written.
+     *
+     * @return false if there is no data directory
+     * @throws UncheckedIOException if the checkpoint cannot be written
+     */
+    boolean checkpoint() {
+        if (persistence == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            MovieCatalog catalog;
+            long sequence;
+            writeLock.lock();
+            try {
+                // Rolling syncs every logged batch, so the pending ones can be published and checkpointed
+                sequence = persistence.roll();
+                catalog = publishThrough(sequence);
+            } finally {
+                writeLock.unlock();
+            }
+            persistence.writeCheckpoint(catalog, sequence);
+            CHECKPOINTS.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rebuilds the indexes of the current catalog with its edits folded in, then carries over the
+     * changes written meanwhile and swaps the result in. Writers and readers carry on while it
+     * runs; if the catalog is reloaded meanwhile, the compacted one is thrown away.
+     *
+     * @return whether a compacted catalog was swapped in
+     */
+    boolean compact() {
+        long start = System.nanoTime();
+        MovieCatalog snapshot = loadedCatalog.get();
+        if (snapshot.changeCount() == 0) {
+            return false;
+        }
+        MovieCatalog compacted = snapshot.compact(reviewService);
+        while (true) {
+            MovieCatalog latest = loadedCatalog.get();
+            MovieCatalog rebased = compacted.withChangesSince(snapshot, latest, reviewService);
+            if (rebased == null) {
+                logger.info("Catalog changed underneath the compaction; discarding it");
+                return false;
+            }
+            if (loadedCatalog.compareAndSet(latest, rebased)) {
+                COMPACTIONS.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                logger.info("Compacted {} edited movies into the catalog in {} ms; {} changed meanwhile",
+                        snapshot.changeCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                        rebased.changeCount());
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return a hash of the catalog content; it changes whenever any movie changes
+     */
+    public long getCatalogVersion() {
+        return loadedCatalog.get().version;
+    }
+
+    /**
+     * @return when the current catalog was loaded or last changed, including new review
+     *         aggregates, in milliseconds since the epoch
+     */
+    public long getLastModified() {
+        return loadedCatalog.get().lastModified;
+    }
+
+    /**
+     * Returns a version of everything a page that shows review aggregates is rendered from: the
+     * catalog version and the version of the reviews its aggregates were computed from, both read
+     * from the same catalog. While new aggregates are being computed it stays at the old ones, so
+     * a page rendered meanwhile is never tagged as showing the new reviews.
+     */
+    public long getVersionWithReviewStats() {
+        MovieCatalog catalog = currentCatalog();
+        return 31 * catalog.version + catalog.reviewStats().getVersion();
+    }
+
+    /**
+     * Returns the review aggregates of every movie for the current catalog and reviews.
+     */
+    public ReviewStats getReviewStats() {
+        return currentCatalog().reviewStats();
+    }
+
+    /**
+     * Returns the current catalog. If the reviews have changed since its review aggregates were
+     * computed, they are recomputed on a background thread while callers keep getting the
+     * previous ones.
+     */
+    private MovieCatalog currentCatalog() {
+        MovieCatalog current = loadedCatalog.get();
+        if (reviewService != null && !current.hasCurrentReviewStats(reviewService)) {
+            rebuildReviewStatsInBackground();
+        }
+        return current;
+    }
+
+    private void rebuildReviewStatsInBackground() {
+        runInBackground(rebuildingReviewStats, this::rebuildReviewStats, "Recomputing review aggregates failed, keeping the previous ones");
+    }
+
+    /**
+     * Recomputes the review aggregates of the current catalog from the current reviews and swaps
+     * the result in, starting over if a write, compaction or reload swaps the catalog meanwhile.
+     *
+     * @return whether new aggregates were swapped in; false if they were already up to date
+     */
+    boolean rebuildReviewStats() {
+        while (true) {
+            MovieCatalog current = loadedCatalog.get();
+            if (reviewService.getVersion() == current.reviewStats().getVersion()) {
+                return false;
+            }
+            long start = System.nanoTime();
+            MovieCatalog updated = current.withReviewStats(reviewService);
+            if (loadedCatalog.compareAndSet(current, updated)) {
+                logger.info("Recomputed review aggregates in {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return true;
             }
-        } catch (Exception e) {
-            logger.error("Failed to load movies from JSON: {}", e.getMessage());
         }
-        return movieList;
     }
 
+    /**
+     * @return every movie in catalog order, as an unmodifiable view that creates movies as they are read
+     */
     public List<Movie> getAllMovies() {
-        return movies;
+        return loadedCatalog.get().store.asList();
     }
 
     public Optional<Movie> getMovieById(Long id) {
         if (id == null || id <= 0) {
             return Optional.empty();
         }
-        return Optional.ofNullable(movieMap.get(id));
+        MovieStore store = loadedCatalog.get().store;
+        int ordinal = store.ordinalOf(id);
+        return ordinal >= 0 ? Optional.of(store.movie(ordinal)) : Optional.empty();
+    }
+
+    /**
+     * Looks up many movies at once.
+     *
+     * @param ids the ids to look up; repeated ids are looked up once
+     * @return the movies that exist, in the order their ids were first given
+     * @throws IllegalArgumentException if no ids, a null id or more than {@link #MAX_BATCH_SIZE} ids are given
+     */
+    public List<Movie> getMoviesByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("At least one movie id is required");
+        }
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " movie ids can be requested at once, got " + ids.size());
+        }
+        MovieStore store = loadedCatalog.get().store;
+        int[] ordinals = new int[ids.size()];
+        int count = 0;
+        BitSet seen = new BitSet();
+        for (Long id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("Movie ids must not be empty");
+            }
+            int ordinal = store.ordinalOf(id);
+            if (ordinal >= 0 && !seen.get(ordinal)) {
+                seen.set(ordinal);
+                ordinals[count++] = ordinal;
+            }
+        }
+        return store.movies(Arrays.copyOf(ordinals, count));
     }
 
     /**
@@ -81,45 +711,388 @@ public class MovieService {
      * @return List of movies matching the search criteria
      */
     public List<Movie> searchMovies(String name, Long id, String genre) {
-        logger.info("Ahoy! Searching for movies with name: {}, id: {}, genre: {}", name, id, genre);
-        
-        return movies.stream()
-                .filter(movie -> matchesSearchCriteria(movie, name, id, genre))
-                .collect(Collectors.toList());
+        return searchMovies(new MovieQuery(name, id, genre));
     }
 
     /**
-     * Checks if a movie matches the search criteria, ye scurvy dog!
-     * 
-     * @param movie The movie to check
-     * @param name Name criteria (null or empty means no filter)
-     * @param id ID criteria (null means no filter)
-     * @param genre Genre criteria (null or empty means no filter)
-     * @return true if movie matches all provided criteria
-     */
-    private boolean matchesSearchCriteria(Movie movie, String name, Long id, String genre) {
-        // Check ID match first (exact match required)
-        if (id != null && !movie.getId().equals(id)) {
-            return false;
+     * Searches the catalog with the full set of criteria and returns every match, ordered by the
+     * query's sort. Paging parameters are ignored; see {@link #searchPage(MovieQuery)}. In top-K
+     * mode only the {@code top} best-rated matches are returned, highest rating first. A fuzzy name
+     * search returns its matches fewest edits first instead of in the query's sort.
+     *
+     * @param query the search criteria; unset criteria do not filter
+     * @return List of movies matching all criteria
+     * @throws IllegalArgumentException for an unknown sort or order, an empty year range, a top below
+     *                                  one or a fuzzy distance out of range
+     */
+    public List<Movie> searchMovies(MovieQuery query) {
+        logger.debug("Ahoy! Searching for movies with name: {}, id: {}, genre: {} ({}), director: {} ({}), year: {} ({}-{}), minRating: {}, maxDuration: {}, minUserRating: {}, fuzzy: {}",
+                query.getName(), query.getId(), query.getGenre(), query.getGenreMatch(),
+                query.getDirector(), query.getDirectorMatch(), query.getYear(), query.getYearFrom(), query.getYearTo(), query.getMinRating(), query.getMaxDuration(),
+                query.getMinUserRating(), query.getFuzzy());
+
+        long start = System.nanoTime();
+        List<Movie> results = findMovies(query);
+        (query.isTopMode() ? TOP_SEARCH_METRICS : LIST_SEARCH_METRICS).record(start, results.size());
+        return results;
+    }
+
+    private List<Movie> findMovies(MovieQuery query) {
+        MovieCatalog catalog = currentCatalog();
+        MovieStore store = catalog.store;
+        if (query.isTopMode()) {
+            return store.movies(topRated(catalog, matchOrdinals(catalog, query), query.getTopCount()));
         }
-        
-        // Check name match (case-insensitive partial match)
-        if (name != null && !name.trim().isEmpty()) {
-            if (!movie.getMovieName().toLowerCase().contains(name.trim().toLowerCase())) {
-                return false;
+        MovieSort sort = query.getSortKey();
+        boolean descending = query.isDescending();
+        MovieSortIndex sortIndex = catalog.reviewStats().getSortIndex();
+        int[] matches = matchOrdinals(catalog, query);
+        if (matches == null) {
+            return store.movies(sortIndex.page(sort, descending, -1, store.movieCount()));
+        }
+        if (!query.isFuzzyName()) {
+            sortIndex.sort(matches, sort, descending);
+        }
+        return store.movies(matches);
+    }
+
+    /**
+     * Ahoy! Suggests movies for a search box as the user types: the best-rated movies with a word
+     * in their name that starts with the prefix. Answered from a prefix index with precomputed
+     * rankings, so it costs a couple of binary searches rather than a search.
+     *
+     * @param prefix the start of a word of the movie name; case-insensitive
+     * @param limit the most suggestions to return, at most {@value SuggestIndex#MAX_SUGGESTIONS}
+     * @return suggestions, highest rating first; empty for a blank prefix
+     * @throws IllegalArgumentException for a limit below one
+     */
+    public List<MovieSuggestion> suggest(String prefix, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        long start = System.nanoTime();
+        MovieCatalog catalog = loadedCatalog.get();
+        MovieStore store = catalog.store;
+        int[] ordinals = catalog.suggest(prefix, limit);
+        List<MovieSuggestion> suggestions = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            suggestions.add(new MovieSuggestion(store.id(ordinal), store.movieName(ordinal),
+                    store.year(ordinal), store.imdbRating(ordinal)));
+        }
+        SUGGEST_SEARCH_METRICS.record(start, suggestions.size());
+        return suggestions;
+    }
+
+    /**
+     * Ahoy! Finds every movie matching the query, in the query's sort order, without building the
+     * movies up front. Each movie is created when the returned list is read, so a caller that
+     * streams the results holds only the matching ordinals, and nothing at all for an unfiltered
+     * catalog. Paging parameters are ignored; in top-K mode only the best-rated matches are listed,
+     * and a fuzzy name search lists its matches fewest edits first.
+     *
+     * @param query the search criteria; unset criteria do not filter
+     * @return an unmodifiable list view of the matches
+     * @throws IllegalArgumentException for an unknown sort or order, an empty year range or a top below one
+     */
+    public List<Movie> searchLazily(MovieQuery query) {
+        logger.debug("Ahoy! Streaming movies with name: {}, id: {}, genre: {} ({}), year: {}-{}, minRating: {}, maxDuration: {}, minUserRating: {}, sort: {}",
+                query.getName(), query.getId(), query.getGenre(), query.getGenreMatch(),
+                query.getYearFrom(), query.getYearTo(), query.getMinRating(), query.getMaxDuration(),
+                query.getMinUserRating(), query.getSort());
+
+        long start = System.nanoTime();
+        List<Movie> results = findLazily(query);
+        STREAM_SEARCH_METRICS.record(start, results.size());
+        return results;
+    }
+
+    private List<Movie> findLazily(MovieQuery query) {
+        MovieCatalog catalog = currentCatalog();
+        MovieStore store = catalog.store;
+        MovieSortIndex sortIndex = catalog.reviewStats().getSortIndex();
+        int[] matches = query.isTopMode()
+                ? topRated(catalog, matchOrdinals(catalog, query), query.getTopCount())
+                : matchOrdinals(catalog, query);
+        if (matches == null) {
+            MovieSort sort = query.getSortKey();
+            boolean descending = query.isDescending();
+            return store.moviesView(store.movieCount(), position -> sortIndex.ordinalAt(sort, descending, position));
+        }
+        if (!query.isTopMode() && !query.isFuzzyName()) {
+            sortIndex.sort(matches, query.getSortKey(), query.isDescending());
+        }
+        return store.moviesView(matches.length, index -> matches[index]);
+    }
+
+    /**
+     * Returns one page of search results using keyset pagination. The page holds at most
+     * {@code limit} movies after the query's cursor, in the query's sort order, along with the
+     * total number of matches and a cursor for the next page. In top-K mode the page holds the
+     * {@code top} best-rated matches and there is no next page; a fuzzy name search returns its
+     * {@code limit} closest matches, fewest edits first, and has no next page either.
+     *
+     * @param query the search criteria, sort and paging parameters
+     * @return the requested page
+     * @throws IllegalArgumentException for an unknown sort or order, a bad limit, top or fuzzy
+     *                                  distance, an empty year range, a cursor on a fuzzy search, or
+     *                                  a cursor that is malformed or was issued for a different sort
+     */
+    public MoviePage searchPage(MovieQuery query) {
+        logger.debug("Ahoy! Searching for a page of movies with name: {}, id: {}, genre: {} ({}), year: {}-{}, minRating: {}, maxDuration: {}, minUserRating: {}, sort: {}, limit: {}, top: {}, fuzzy: {}",
+                query.getName(), query.getId(), query.getGenre(), query.getGenreMatch(),
+                query.getYearFrom(), query.getYearTo(), query.getMinRating(), query.getMaxDuration(),
+                query.getMinUserRating(), query.getSort(), query.getLimit(), query.getTop(), query.getFuzzy());
+
+        long start = System.nanoTime();
+        MoviePage page = findPage(query);
+        (query.isTopMode() ? TOP_SEARCH_METRICS : PAGE_SEARCH_METRICS).record(start, page.getTotalResults());
+        return page;
+    }
+
+    private MoviePage findPage(MovieQuery query) {
+        MovieCatalog catalog = currentCatalog();
+        MovieStore store = catalog.store;
+        if (query.isTopMode()) {
+            int[] matches = matchOrdinals(catalog, query);
+            int total = matches == null ? store.movieCount() : matches.length;
+            return new MoviePage(store.movies(topRated(catalog, matches, query.getTopCount())), total, null);
+        }
+        if (query.isFuzzyName()) {
+            return fuzzyPage(catalog, query);
+        }
+        MovieSortIndex sortIndex = catalog.reviewStats().getSortIndex();
+
+        MovieSort sort = query.getSortKey();
+        boolean descending = query.isDescending();
+        int limit = query.getPageSize();
+        MovieCursor cursor = MovieCursor.decode(query.getCursor());
+        if (cursor != null && (cursor.getSort() != sort || cursor.isDescending() != descending)) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort order");
+        }
+        int after = cursor == null ? -1 : resumePosition(store, cursor, sortIndex);
+
+        int[] matches = matchOrdinals(catalog, query);
+        int total = matches == null ? store.movieCount() : matches.length;
+        int[] page = matches == null
+                ? sortIndex.page(sort, descending, after, limit + 1)
+                : sortIndex.page(matches, sort, descending, after, limit + 1);
+
+        String nextCursor = null;
+        if (page.length > limit) {
+            page = Arrays.copyOf(page, limit);
+            int last = page[limit - 1];
+            nextCursor = new MovieCursor(sort, descending, store.id(last), sortIndex.position(sort, descending, last)).encode();
+        }
+        return new MoviePage(store.movies(page), total, nextCursor);
+    }
+
+    /**
+     * Fuzzy matches are ranked by distance rather than by a sort key, so they have no keyset to
+     * resume from: the page holds the {@code limit} closest matches and there is no next page.
+     */
+    private MoviePage fuzzyPage(MovieCatalog catalog, MovieQuery query) {
+        if (query.getCursor() != null && !query.getCursor().trim().isEmpty()) {
+            throw new IllegalArgumentException("Fuzzy results are ranked by distance and cannot be paged with a cursor");
+        }
+        int limit = query.getPageSize();
+        int[] matches = matchOrdinals(catalog, query);
+        int[] page = matches.length > limit ? Arrays.copyOf(matches, limit) : matches;
+        return new MoviePage(catalog.store.movies(page), matches.length, null);
+    }
+
+    private int resumePosition(MovieStore store, MovieCursor cursor, MovieSortIndex sortIndex) {
+        int ordinal = store.ordinalOf(cursor.getLastId());
+        return ordinal >= 0
+                ? sortIndex.position(cursor.getSort(), cursor.isDescending(), ordinal)
+                : cursor.getLastPosition();
+    }
+
+    /**
+     * @param matches ordinals to choose from, or null for the whole catalog
+     * @return ordinals of the {@code count} best-rated matches, highest rating first
+     */
+    private static int[] topRated(MovieCatalog catalog, int[] matches, int count) {
+        return matches == null
+                ? catalog.sortIndex.page(MovieSort.RATING, true, -1, count)
+                : catalog.sortIndex.page(matches, MovieSort.RATING, true, -1, count);
+    }
+
+    /**
+     * Resolves the query's criteria to matching ordinals. Every criterion is answered from an index:
+     * an id goes straight to the id map, a name through the trigram index (or the fuzzy word index
+     * in fuzzy mode), genres through the genre bitmaps, a director through the director hash index
+     * and year, rating, duration and user rating bounds through the sorted range indexes. The most
+     * selective criterion supplies the candidates and the others are checked per candidate, in
+     * parallel when there are many; see {@link ParallelScan}.
+     *
+     * @return ordinals of the matching movies in catalog order, or ranked by edit distance for a
+     *         fuzzy name; null when nothing filters
+     * @throws IllegalArgumentException for a fuzzy distance out of range
+     */
+    private static int[] matchOrdinals(MovieCatalog catalog, MovieQuery query) {
+        MovieStore store = catalog.store;
+        List<String> genreTerms = query.getGenreTerms();
+        CompressedBitmap genreMatches = genreTerms.isEmpty() ? null : catalog.matchGenres(genreTerms, query.isMatchAllGenres());
+        int[] directorMatches = query.hasDirector() ? catalog.matchDirector(query.getDirector(), query.isExactDirector()) : null;
+        List<RangeFilter> ranges = rangeFilters(catalog, query);
+        int fuzzyDistance = query.getFuzzy() != null ? query.getFuzzyDistance() : -1;
+
+        int[] candidates;
+        boolean nameChecked = false;
+        if (query.getId() != null) {
+            int ordinal = store.ordinalOf(query.getId());
+            candidates = ordinal >= 0 ? new int[] {ordinal} : new int[0];
+        } else if (query.hasName()) {
+            candidates = fuzzyDistance >= 0
+                    ? catalog.searchFuzzyName(query.getName(), fuzzyDistance)
+                    : catalog.searchName(query.getName());
+            nameChecked = true;
+        } else if (directorMatches == null && genreMatches == null && ranges.isEmpty()) {
+            return null;
+        } else {
+            RangeFilter narrowest = null;
+            int narrowestCount = Integer.MAX_VALUE;
+            for (RangeFilter range : ranges) {
+                int count = range.index.count(range.min, range.max);
+                if (count < narrowestCount) {
+                    narrowest = range;
+                    narrowestCount = count;
+                }
+            }
+            if (directorMatches != null && directorMatches.length <= narrowestCount
+                    && (genreMatches == null || directorMatches.length <= genreMatches.cardinality())) {
+                candidates = directorMatches;
+            } else if (genreMatches != null && genreMatches.cardinality() <= narrowestCount) {
+                candidates = genreMatches.toArray();
+            } else {
+                candidates = narrowest.index.between(narrowest.min, narrowest.max);
             }
         }
-        
-        // Check genre match (case-insensitive partial match)
-        if (genre != null && !genre.trim().isEmpty()) {
-            if (!movie.getGenre().toLowerCase().contains(genre.trim().toLowerCase())) {
+
+        // Everything the per-candidate check needs is resolved here once, so checking a candidate
+        // is a few array and bitmap reads that large candidate sets can spread over several cores
+        String name = query.hasName() && !nameChecked ? query.getName() : null;
+        CompressedBitmap directorFilter = directorMatches != null && candidates != directorMatches
+                ? CompressedBitmap.fromSorted(directorMatches, directorMatches.length)
+                : null;
+        RangeFilter[] bounds = ranges.toArray(new RangeFilter[0]);
+        return ParallelScan.filter(candidates, ordinal ->
+                (name == null || catalog.nameMatches(ordinal, name, fuzzyDistance))
+                        && (genreMatches == null || genreMatches.contains(ordinal))
+                        && (directorFilter == null || directorFilter.contains(ordinal))
+                        && matchesRanges(ordinal, bounds));
+    }
+
+    private static List<RangeFilter> rangeFilters(MovieCatalog catalog, MovieQuery query) {
+        if (!query.hasRangeFilters()) {
+            return Collections.emptyList();
+        }
+        List<RangeFilter> ranges = new ArrayList<>(4);
+        if (query.getYear() != null || query.getYearFrom() != null || query.getYearTo() != null) {
+            // A year outside yearFrom/yearTo leaves an empty range, which matches nothing
+            double min = query.getYearFrom() != null ? query.getYearFrom() : Double.NEGATIVE_INFINITY;
+            double max = query.getYearTo() != null ? query.getYearTo() : Double.POSITIVE_INFINITY;
+            if (query.getYear() != null) {
+                min = Math.max(min, query.getYear());
+                max = Math.min(max, query.getYear());
+            }
+            ranges.add(new RangeFilter(catalog.yearIndex(), min, max));
+        }
+        if (query.getMinRating() != null) {
+            ranges.add(new RangeFilter(catalog.ratingIndex(), query.getMinRating(), Double.POSITIVE_INFINITY));
+        }
+        if (query.getMaxDuration() != null) {
+            ranges.add(new RangeFilter(catalog.durationIndex(), Double.NEGATIVE_INFINITY, query.getMaxDuration()));
+        }
+        if (query.getMinUserRating() != null) {
+            // Movies without reviews are keyed below zero, so they never reach a minimum
+            ranges.add(new RangeFilter(catalog.reviewStats().getMeanIndex(), Math.max(query.getMinUserRating(), 0),
+                    Double.POSITIVE_INFINITY));
+        }
+        return ranges;
+    }
+
+    private static boolean matchesRanges(int ordinal, RangeFilter[] ranges) {
+        for (int i = 0; i < ranges.length; i++) {
+            RangeFilter range = ranges[i];
+            if (!range.index.contains(ordinal, range.min, range.max)) {
                 return false;
             }
         }
-        
         return true;
     }
 
+    private static Counter writeCounter(MovieChange.Action action) {
+        return Counter.builder("movies.catalog.writes")
+                .description("Movies created, updated or deleted through the write API")
+                .tag("action", action.getParam())
+                .register(Metrics.globalRegistry);
+    }
+
+    private static Counter reloadCounter(String outcome) {
+        return Counter.builder("movies.catalog.reloads")
+                .description("Catalog reloads by outcome")
+                .tag("outcome", outcome)
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Latency and match-count distribution of one kind of search.
+     */
+    private static final class SearchMetrics {
+        private final Timer latency;
+        private final DistributionSummary matches;
+
+        private SearchMetrics(String mode) {
+            this.latency = Timer.builder("movies.search")
+                    .description("Time to answer a catalog search")
+                    .tag("mode", mode)
+                    .register(Metrics.globalRegistry);
+            this.matches = DistributionSummary.builder("movies.search.results")
+                    .description("Number of movies matching a search")
+                    .baseUnit("movies")
+                    .tag("mode", mode)
+                    .register(Metrics.globalRegistry);
+        }
+
+        void record(long startNanos, int matchCount) {
+            latency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            matches.record(matchCount);
+        }
+    }
+
+    /**
+     * A logged batch waiting for its sync, with the catalogs before and after it.
+     */
+    private static final class PendingBatch {
+        private final long sequence;
+        private final List<MovieChange> changes;
+        private final MovieCatalog base;
+        private final MovieCatalog catalog;
+
+        private PendingBatch(long sequence, List<MovieChange> changes, MovieCatalog base, MovieCatalog catalog) {
+            this.sequence = sequence;
+            this.changes = changes;
+            this.base = base;
+            this.catalog = catalog;
+        }
+    }
+
+    /**
+     * An inclusive bound on one indexed attribute.
+     */
+    private static final class RangeFilter {
+        private final RangeIndex index;
+        private final double min;
+        private final double max;
+
+        private RangeFilter(RangeIndex index, double min, double max) {
+            this.index = index;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
     /**
      * Searches movies by name only, perfect for when ye know what treasure ye seek!
      * 
@@ -0,0 +1,250 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.TrigramIndex;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Binary, memory-mapped snapshot of the movie catalog, its sort orders and its name and genre
+ * indexes.
+ * <p>
+ * A snapshot is written offline by {@link MovieSnapshotWriter} and opened with {@link #open(Path)},
+ * which maps the file through {@link FileChannel#map} instead of parsing it. Movie attributes and
+ * name trigram postings are then read straight from the mapping and genre bitmaps are copied out
+ * in bulk, so opening skips building those indexes. The header records the content hash and the
+ * highest movie id, so opening does not scan the records for them either. The sort positions are
+ * still restored at load; the remaining indexes are built on first use.
+ * <p>
+ * Layout, all numbers big-endian:
+ * <pre>
+ * header   88 bytes   magic, version, movie/director/genre counts, record width,
+ *                     offsets of the record, index and string heap sections, file length,
+ *                     highest movie id ever held (0 if not recorded), offsets of the trigram
+ *                     and genre sections, content hash ({@link MovieStore#contentHash})
+ * records  n * 40     id (long), name and description heap offsets, director and genre codes,
+ *                     year, duration (ints), rating (double)
+ * index               director and genre dictionary heap offsets, (id, ordinal) pairs sorted by
+ *                     id, then the ordinals of every stored sort in its natural direction
+ * trigrams            name trigram postings, see {@link TrigramIndex#writeTo}
+ * genres              genre token bitmaps, see {@link GenreIndex#writeTo}
+ * heap                strings as a byte length (int) followed by UTF-8 bytes
+ * </pre>
+ * Version 2 snapshots have an 80-byte header without the content hash, which is computed at load.
+ * Version 1 snapshots also have a 64-byte header and no trigram or genre section; their indexes
+ * are built at load. The file must stay below 2 GB.
+ */
+public final class MovieSnapshot {
+    static final int MAGIC = 0x514D5653;
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 88;
+    private static final int VERSION_2_HEADER_SIZE = 80;
+    private static final int VERSION_1_HEADER_SIZE = 64;
+    static final int RECORD_WIDTH = 40;
+    static final int ID_ENTRY_WIDTH = 12;
+
+    static final int RECORD_ID = 0;
+    static final int RECORD_NAME = 8;
+    static final int RECORD_DESCRIPTION = 12;
+    static final int RECORD_DIRECTOR = 16;
+    static final int RECORD_GENRE = 20;
+    static final int RECORD_YEAR = 24;
+    static final int RECORD_DURATION = 28;
+    static final int RECORD_RATING = 32;
+
+    /** Sorts whose orderings are stored in the index section, in file order. */
+    static final MovieSort[] STORED_SORTS = {MovieSort.RATING, MovieSort.YEAR, MovieSort.DURATION, MovieSort.NAME};
+
+    private final MovieStore store;
+    private final MovieSortIndex sortIndex;
+    private final long maxId;
+    private final long contentHash;
+    private final TrigramIndex nameIndex;
+    private final GenreIndex genreIndex;
+
+    private MovieSnapshot(Path path, ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC) {
+            throw invalid(path, "not a catalog snapshot");
+        }
+        int version = buffer.getInt(4);
+        if (version < 1 || version > VERSION) {
+            throw invalid(path, "unsupported version " + version);
+        }
+        boolean hasIndexes = version >= 2;
+        boolean hasContentHash = version >= 3;
+        int headerSize = hasContentHash ? HEADER_SIZE : hasIndexes ? VERSION_2_HEADER_SIZE : VERSION_1_HEADER_SIZE;
+        if (buffer.capacity() < headerSize) {
+            throw invalid(path, "file is too short");
+        }
+        int size = buffer.getInt(8);
+        int directorCount = buffer.getInt(12);
+        int genreCount = buffer.getInt(16);
+        long recordsOffset = buffer.getLong(24);
+        long indexOffset = buffer.getLong(32);
+        long heapOffset = buffer.getLong(40);
+        long fileLength = buffer.getLong(48);
+        long headerMaxId = buffer.getLong(56);
+        long idTableOffset = indexOffset + 4L * directorCount + 4L * genreCount;
+        long sortsOffset = idTableOffset + (long) ID_ENTRY_WIDTH * size;
+        long sortsEnd = sortsOffset + 4L * size * STORED_SORTS.length;
+        long trigramOffset = hasIndexes ? buffer.getLong(64) : sortsEnd;
+        long genreOffset = hasIndexes ? buffer.getLong(72) : sortsEnd;
+        if (size < 0 || directorCount < 0 || genreCount < 0
+                || buffer.getInt(20) != RECORD_WIDTH
+                || fileLength != buffer.capacity()
+                || recordsOffset != headerSize
+                || indexOffset < recordsOffset + (long) RECORD_WIDTH * size
+                || trigramOffset != sortsEnd
+                || genreOffset < trigramOffset
+                || heapOffset < genreOffset
+                || heapOffset > fileLength) {
+            throw invalid(path, "inconsistent header");
+        }
+
+        try {
+            MappedMovieStore mapped = new MappedMovieStore(buffer, size, (int) recordsOffset, (int) indexOffset,
+                    directorCount, genreCount, (int) idTableOffset, (int) heapOffset);
+            Map<MovieSort, int[]> orderings = new EnumMap<>(MovieSort.class);
+            for (int i = 0; i < STORED_SORTS.length; i++) {
+                ByteBuffer section = buffer.duplicate();
+                section.position((int) sortsOffset + 4 * size * i);
+                IntBuffer ints = section.slice().asIntBuffer();
+                int[] ordinals = new int[size];
+                ints.get(ordinals);
+                orderings.put(STORED_SORTS[i], ordinals);
+            }
+            this.store = mapped;
+            this.sortIndex = new MovieSortIndex(size, orderings);
+            // Older writers recorded neither, or only the max id of a catalog that had been edited
+            this.contentHash = hasContentHash ? buffer.getLong(80) : mapped.contentHash();
+            this.maxId = hasContentHash ? headerMaxId : Math.max(headerMaxId, highestId(mapped));
+            if (hasIndexes) {
+                this.nameIndex = TrigramIndex.map(section(buffer, trigramOffset, genreOffset), mapped.movieNames());
+                this.genreIndex = GenreIndex.readFrom(section(buffer, genreOffset, heapOffset));
+            } else {
+                this.nameIndex = null;
+                this.genreIndex = null;
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new CatalogLoadException("Invalid catalog snapshot " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static long highestId(MovieStore store) {
+        long max = 0;
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            max = Math.max(max, store.id(ordinal));
+        }
+        return max;
+    }
+
+    private static ByteBuffer section(ByteBuffer buffer, long from, long to) {
+        ByteBuffer section = buffer.duplicate();
+        section.position((int) from);
+        section.limit((int) to);
+        return section.slice();
+    }
+
+    /**
+     * Memory-maps a snapshot file.
+     *
+     * @throws CatalogLoadException if the file cannot be read or is not a valid snapshot
+     */
+    public static MovieSnapshot open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw invalid(path, "files over 2 GB are not supported");
+            }
+            if (length < VERSION_1_HEADER_SIZE) {
+                throw invalid(path, "file is too short");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            return new MovieSnapshot(path, buffer);
+        } catch (IOException e) {
+            throw new CatalogLoadException("Could not map catalog snapshot " + path, e);
+        }
+    }
+
+    /**
+     * @return whether the catalog location names a file that starts with the snapshot magic number;
+     *         classpath locations are never snapshots because they cannot be mapped
+     */
+    public static boolean isSnapshot(String location) {
+        if (location == null || location.startsWith(MovieCatalogLoader.CLASSPATH_PREFIX)) {
+            return false;
+        }
+        Path path = Paths.get(location);
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // keep reading until the magic number is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the catalog, read from the mapped file
+     */
+    public MovieStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return the sort index restored from the stored orderings
+     */
+    public MovieSortIndex getSortIndex() {
+        return sortIndex;
+    }
+
+    /**
+     * @return the name index read from the mapped trigram postings, or null for a version 1
+     *         snapshot, which does not store it
+     */
+    public TrigramIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * @return the genre index read from the stored bitmaps, or null for a version 1 snapshot,
+     *         which does not store it
+     */
+    public GenreIndex getGenreIndex() {
+        return genreIndex;
+    }
+
+    /**
+     * @return the highest movie id the catalog ever held, including deleted movies
+     */
+    public long getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * @return the content hash of the catalog, read from the header or, for snapshots written
+     *         before it was recorded, computed from the mapped records
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    private static CatalogLoadException invalid(Path path, String reason) {
+        return new CatalogLoadException("Invalid catalog snapshot " + path + ": " + reason);
+    }
+}
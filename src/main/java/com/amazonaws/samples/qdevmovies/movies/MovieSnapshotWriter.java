@@ -0,0 +1,198 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.IntSorter;
+import com.amazonaws.samples.qdevmovies.utils.TrigramIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Offline converter from a JSON catalog to a {@link MovieSnapshot} file.
+ * <p>
+ * Run it with the catalog location and the snapshot file to write:
+ * <pre>
+ * java -cp sample-qdev-movies.jar -Dloader.main=com.amazonaws.samples.qdevmovies.movies.MovieSnapshotWriter \
+ *      org.springframework.boot.loader.PropertiesLauncher movies.json movies.snapshot
+ * </pre>
+ * The snapshot is written to a temporary file next to the target, synced to disk and moved into
+ * place, so a running instance never maps a half-written file and a crash never leaves one behind.
+ */
+public final class MovieSnapshotWriter {
+    private static final Logger logger = LogManager.getLogger(MovieSnapshotWriter.class);
+
+    private MovieSnapshotWriter() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: MovieSnapshotWriter <catalog location> <snapshot file>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        MovieStore.Builder builder = new MovieStore.Builder();
+        new MovieCatalogLoader(args[0]).load(builder::add);
+        CompactMovieStore store = builder.build();
+        Path target = Paths.get(args[1]);
+        write(store, new MovieSortIndex(store), target);
+        logger.info("Wrote snapshot of {} movies to {} ({} bytes) in {} ms",
+                store.size(), target, Files.size(target), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes the catalog, its sort orders and its name and genre indexes as a snapshot, replacing
+     * the target file.
+     *
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the catalog is too large for the snapshot format
+     */
+    public static void write(CompactMovieStore store, MovieSortIndex sortIndex, Path target) throws IOException {
+        write(store, sortIndex, 0, target);
+    }
+
+    /**
+     * Writes the catalog, its sort orders and its name and genre indexes as a snapshot, replacing
+     * the target file.
+     *
+     * @param maxId the highest movie id the catalog ever held, so ids of deleted movies are not
+     *              handed out again after the snapshot is loaded; 0 if unknown
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the catalog is too large for the snapshot format
+     */
+    public static void write(CompactMovieStore store, MovieSortIndex sortIndex, long maxId, Path target) throws IOException {
+        int size = store.size();
+        int directorCount = store.directorCount();
+        int genreCount = store.genreCount();
+
+        StringHeap heap = new StringHeap();
+        int[] nameOffsets = new int[size];
+        int[] descriptionOffsets = new int[size];
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            nameOffsets[ordinal] = heap.append(store.movieName(ordinal));
+            descriptionOffsets[ordinal] = heap.append(store.description(ordinal));
+        }
+        int[] directorOffsets = new int[directorCount];
+        for (int code = 0; code < directorCount; code++) {
+            directorOffsets[code] = heap.append(store.directorByCode(code));
+        }
+        int[] genreOffsets = new int[genreCount];
+        for (int code = 0; code < genreCount; code++) {
+            genreOffsets[code] = heap.append(store.genreByCode(code));
+        }
+
+        int[] byId = new int[size];
+        long highestId = maxId;
+        for (int i = 0; i < size; i++) {
+            byId[i] = i;
+            highestId = Math.max(highestId, store.id(i));
+        }
+        IntSorter.sort(byId, (a, b) -> Long.compare(store.id(a), store.id(b)));
+
+        long recordsOffset = MovieSnapshot.HEADER_SIZE;
+        long indexOffset = recordsOffset + (long) MovieSnapshot.RECORD_WIDTH * size;
+        TrigramIndex nameIndex = new TrigramIndex(store.movieNames());
+        GenreIndex genreIndex = new GenreIndex(store.genres());
+        long trigramOffset = indexOffset + 4L * directorCount + 4L * genreCount
+                + (long) MovieSnapshot.ID_ENTRY_WIDTH * size + 4L * size * MovieSnapshot.STORED_SORTS.length;
+        long genreOffset = trigramOffset + nameIndex.serializedSize();
+        long heapOffset = genreOffset + genreIndex.serializedSize();
+        long fileLength = heapOffset + heap.size();
+        if (fileLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Catalog of " + size + " movies needs " + fileLength
+                    + " bytes, more than the 2 GB a snapshot can hold");
+        }
+
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MovieSnapshot.MAGIC);
+                out.writeInt(MovieSnapshot.VERSION);
+                out.writeInt(size);
+                out.writeInt(directorCount);
+                out.writeInt(genreCount);
+                out.writeInt(MovieSnapshot.RECORD_WIDTH);
+                out.writeLong(recordsOffset);
+                out.writeLong(indexOffset);
+                out.writeLong(heapOffset);
+                out.writeLong(fileLength);
+                out.writeLong(highestId);
+                out.writeLong(trigramOffset);
+                out.writeLong(genreOffset);
+                out.writeLong(store.contentHash());
+                out.write(new byte[MovieSnapshot.HEADER_SIZE - out.size()]);
+
+                for (int ordinal = 0; ordinal < size; ordinal++) {
+                    out.writeLong(store.id(ordinal));
+                    out.writeInt(nameOffsets[ordinal]);
+                    out.writeInt(descriptionOffsets[ordinal]);
+                    out.writeInt(store.directorCode(ordinal));
+                    out.writeInt(store.genreCode(ordinal));
+                    out.writeInt(store.year(ordinal));
+                    out.writeInt(store.duration(ordinal));
+                    out.writeDouble(store.imdbRating(ordinal));
+                }
+
+                for (int offset : directorOffsets) {
+                    out.writeInt(offset);
+                }
+                for (int offset : genreOffsets) {
+                    out.writeInt(offset);
+                }
+                for (int ordinal : byId) {
+                    out.writeLong(store.id(ordinal));
+                    out.writeInt(ordinal);
+                }
+                for (MovieSort sort : MovieSnapshot.STORED_SORTS) {
+                    for (int ordinal : sortIndex.sortedOrdinals(sort)) {
+                        out.writeInt(ordinal);
+                    }
+                }
+                nameIndex.writeTo(out);
+                genreIndex.writeTo(out);
+
+                heap.writeTo(out);
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            WriteAheadLog.syncDirectory(directory);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Length-prefixed UTF-8 strings laid out back to back.
+     */
+    private static final class StringHeap {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        int append(String value) throws IOException {
+            int offset = bytes.size();
+            byte[] encoded = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+            out.writeInt(encoded.length);
+            out.write(encoded);
+            return offset;
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            bytes.writeTo(target);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Locale;
+
+/**
+ * Sort orders supported by the search endpoints, each with its natural direction.
+ */
+public enum MovieSort {
+    /** Order of the movies in the catalog file. */
+    CATALOG("catalog", false),
+    /** Highest IMDb rating first. */
+    RATING("rating", true),
+    /** Newest first. */
+    YEAR("year", true),
+    /** Shortest first. */
+    DURATION("duration", false),
+    /** Alphabetical, ignoring case. */
+    NAME("name", false),
+    /** Highest average user review rating first; movies without reviews last. */
+    USER_RATING("userRating", true);
+
+    private final String param;
+    private final boolean defaultDescending;
+
+    MovieSort(String param, boolean defaultDescending) {
+        this.param = param;
+        this.defaultDescending = defaultDescending;
+    }
+
+    public boolean isDefaultDescending() {
+        return defaultDescending;
+    }
+
+    /**
+     * @return whether the order comes from the reviews rather than the catalog, so it is computed
+     *         by {@link ReviewStats} whenever the reviews change instead of once with the catalog
+     */
+    public boolean isReviewBased() {
+        return this == USER_RATING;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    /**
+     * Parses a {@code sort} request parameter; blank means {@link #CATALOG}.
+     *
+     * @throws IllegalArgumentException for an unknown sort
+     */
+    public static MovieSort fromParam(String param) {
+        if (param == null || param.trim().isEmpty()) {
+            return CATALOG;
+        }
+        for (MovieSort sort : values()) {
+            if (sort.getParam().toLowerCase(Locale.ROOT).equals(param.trim().toLowerCase(Locale.ROOT))) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort '" + param + "', expected one of catalog, rating, year, duration, name, userRating");
+    }
+}
@@ -0,0 +1,263 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.BoundedIntHeap;
+import com.amazonaws.samples.qdevmovies.utils.IntSorter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Pre-sorted ordinal arrays for every {@link MovieSort}, built once when the catalog loads.
+ * <p>
+ * For each sort the index keeps the ordinals in the sort's natural direction and the inverse
+ * mapping from ordinal to position. Pages of the full catalog are slices of the sorted array;
+ * pages of a filtered result only order the matches by their precomputed positions, never by
+ * comparing movie attributes per request. Ties keep catalog order. Review-based sorts are not
+ * part of the catalog's index; {@link ReviewStats} adds them with {@link #withOrdering}.
+ * Edits to the catalog are merged into a copy of the index by {@link #withChanges}. Catalog order
+ * is the ordinal itself unless movies have been deleted; then it is kept like any other sort.
+ */
+public class MovieSortIndex {
+    private final int size;
+    private final int ordinalCount;
+    private final Map<MovieSort, int[]> sortedOrdinals = new EnumMap<>(MovieSort.class);
+    private final Map<MovieSort, int[]> positions = new EnumMap<>(MovieSort.class);
+
+    public MovieSortIndex(MovieStore store) {
+        this.size = store.size();
+        this.ordinalCount = size;
+        for (MovieSort sort : MovieSort.values()) {
+            if (sort == MovieSort.CATALOG || sort.isReviewBased()) {
+                continue;
+            }
+            int[] ordinals = new int[size];
+            for (int i = 0; i < size; i++) {
+                ordinals[i] = i;
+            }
+            IntSorter.sort(ordinals, comparator(store, sort));
+            put(sort, ordinals);
+        }
+    }
+
+    /**
+     * Restores an index from previously sorted ordinal arrays, e.g. those stored in a catalog
+     * snapshot; only the inverse positions are recomputed.
+     *
+     * @param sortedOrdinals the ordinals in each catalog sort's natural direction
+     */
+    MovieSortIndex(int size, Map<MovieSort, int[]> sortedOrdinals) {
+        this.size = size;
+        this.ordinalCount = size;
+        for (MovieSort sort : MovieSort.values()) {
+            if (sort == MovieSort.CATALOG || sort.isReviewBased()) {
+                continue;
+            }
+            int[] ordinals = sortedOrdinals.get(sort);
+            if (ordinals == null || !isOrdering(ordinals)) {
+                throw new IllegalArgumentException("Missing or invalid ordering for sort " + sort.getParam());
+            }
+            put(sort, ordinals);
+        }
+    }
+
+    private MovieSortIndex(MovieSortIndex base) {
+        this.size = base.size;
+        this.ordinalCount = base.ordinalCount;
+        this.sortedOrdinals.putAll(base.sortedOrdinals);
+        this.positions.putAll(base.positions);
+    }
+
+    private MovieSortIndex(int size, int ordinalCount) {
+        this.size = size;
+        this.ordinalCount = ordinalCount;
+    }
+
+    /**
+     * Returns the index of a catalog that differs from this one's in a few movies, without sorting
+     * the catalog again: for each sort the unchanged movies keep their relative order and the
+     * created or updated ones are merged in at their place, in time linear in the catalog size.
+     * Review-based sorts are not carried over. This index is left unchanged.
+     *
+     * @param store the changed catalog
+     * @param removed ordinals that held a movie in this index's catalog and were updated or deleted
+     * @param added ordinals that were created or updated and hold a movie in {@code store}
+     */
+    MovieSortIndex withChanges(MovieStore store, int[] removed, int[] added) {
+        MovieSortIndex changed = new MovieSortIndex(store.movieCount(), store.size());
+        BitSet gone = new BitSet(ordinalCount);
+        for (int ordinal : removed) {
+            gone.set(ordinal);
+        }
+        for (MovieSort sort : MovieSort.values()) {
+            if (sort.isReviewBased() || (sort == MovieSort.CATALOG && store.movieCount() == store.size())) {
+                continue;
+            }
+            IntSorter.IntComparator comparator = comparator(store, sort);
+            IntSorter.IntComparator inCatalogOrder = (a, b) -> {
+                int byKey = comparator.compare(a, b);
+                return byKey != 0 ? byKey : Integer.compare(a, b);
+            };
+            int[] insertions = added.clone();
+            IntSorter.sort(insertions, inCatalogOrder);
+
+            int[] merged = new int[changed.size];
+            int count = 0;
+            int next = 0;
+            for (int position = 0; position < size; position++) {
+                int ordinal = ordinalAt(sort, sort.isDefaultDescending(), position);
+                if (gone.get(ordinal)) {
+                    continue;
+                }
+                while (next < insertions.length && inCatalogOrder.compare(insertions[next], ordinal) < 0) {
+                    merged[count++] = insertions[next++];
+                }
+                merged[count++] = ordinal;
+            }
+            while (next < insertions.length) {
+                merged[count++] = insertions[next++];
+            }
+            changed.put(sort, merged);
+        }
+        return changed;
+    }
+
+    /**
+     * Returns a copy of this index that also orders by a sort computed outside the catalog;
+     * the arrays of the other sorts are shared and this index is left unchanged.
+     *
+     * @param ordinals every ordinal, in the sort's natural direction
+     */
+    MovieSortIndex withOrdering(MovieSort sort, int[] ordinals) {
+        if (sort == MovieSort.CATALOG || !isOrdering(ordinals)) {
+            throw new IllegalArgumentException("Missing or invalid ordering for sort " + sort.getParam());
+        }
+        MovieSortIndex extended = new MovieSortIndex(this);
+        extended.put(sort, ordinals);
+        return extended;
+    }
+
+    /**
+     * @return the ordinals in the sort's natural direction; not to be modified
+     */
+    int[] sortedOrdinals(MovieSort sort) {
+        return sortedOrdinals.get(sort);
+    }
+
+    /**
+     * @return whether the ordinals hold every movie of the catalog exactly once
+     */
+    private boolean isOrdering(int[] ordinals) {
+        if (ordinals.length != size) {
+            return false;
+        }
+        int[] catalogPositions = positions.get(MovieSort.CATALOG);
+        boolean[] seen = new boolean[ordinalCount];
+        for (int ordinal : ordinals) {
+            if (ordinal < 0 || ordinal >= ordinalCount || seen[ordinal]
+                    || (catalogPositions != null && catalogPositions[ordinal] < 0)) {
+                return false;
+            }
+            seen[ordinal] = true;
+        }
+        return true;
+    }
+
+    private void put(MovieSort sort, int[] ordinals) {
+        int[] positionOf = new int[ordinalCount];
+        if (ordinalCount != size) {
+            Arrays.fill(positionOf, -1);
+        }
+        for (int position = 0; position < size; position++) {
+            positionOf[ordinals[position]] = position;
+        }
+        sortedOrdinals.put(sort, ordinals);
+        positions.put(sort, positionOf);
+    }
+
+    /**
+     * @return the position of the ordinal when the catalog is ordered by the sort in the given direction
+     */
+    public int position(MovieSort sort, boolean descending, int ordinal) {
+        int[] positionOf = positions.get(sort);
+        int natural = positionOf == null ? ordinal : positionOf[ordinal];
+        return descending == sort.isDefaultDescending() ? natural : size - 1 - natural;
+    }
+
+    /**
+     * @return the ordinal at the position when the catalog is ordered by the sort in the given direction
+     */
+    public int ordinalAt(MovieSort sort, boolean descending, int position) {
+        int natural = descending == sort.isDefaultDescending() ? position : size - 1 - position;
+        int[] ordinals = sortedOrdinals.get(sort);
+        return ordinals == null ? natural : ordinals[natural];
+    }
+
+    /**
+     * Returns the next page of the whole catalog.
+     *
+     * @param after position of the last movie already returned, or -1 for the first page
+     */
+    public int[] page(MovieSort sort, boolean descending, int after, int limit) {
+        int from = Math.max(after + 1, 0);
+        int to = (int) Math.min((long) from + limit, size);
+        int[] page = new int[Math.max(to - from, 0)];
+        for (int i = 0; i < page.length; i++) {
+            page[i] = ordinalAt(sort, descending, from + i);
+        }
+        return page;
+    }
+
+    /**
+     * Returns the next page of a filtered result: the matches positioned after {@code after},
+     * ordered by the sort, at most {@code limit} of them. The page is selected with a bounded heap
+     * of positions, so the cost grows with log(limit) per match rather than sorting every match.
+     *
+     * @param matches ordinals of all matching movies, in any order
+     * @param after position of the last movie already returned, or -1 for the first page
+     */
+    public int[] page(int[] matches, MovieSort sort, boolean descending, int after, int limit) {
+        BoundedIntHeap heap = new BoundedIntHeap(Math.min(matches.length, limit));
+        for (int ordinal : matches) {
+            int position = position(sort, descending, ordinal);
+            if (position > after) {
+                heap.offer(position);
+            }
+        }
+        int[] page = heap.toSortedArray();
+        for (int i = 0; i < page.length; i++) {
+            page[i] = ordinalAt(sort, descending, page[i]);
+        }
+        return page;
+    }
+
+    /**
+     * Orders ordinals by the sort in place.
+     */
+    public void sort(int[] ordinals, MovieSort sort, boolean descending) {
+        long[] keyed = new long[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            keyed[i] = ((long) position(sort, descending, ordinals[i]) << 32) | ordinals[i];
+        }
+        Arrays.sort(keyed);
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = (int) keyed[i];
+        }
+    }
+
+    private static IntSorter.IntComparator comparator(MovieStore store, MovieSort sort) {
+        switch (sort) {
+            case RATING:
+                return (a, b) -> Double.compare(store.imdbRating(b), store.imdbRating(a));
+            case YEAR:
+                return (a, b) -> Integer.compare(store.year(b), store.year(a));
+            case DURATION:
+                return (a, b) -> Integer.compare(store.duration(a), store.duration(b));
+            case NAME:
+                return (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(store.movieName(a), store.movieName(b));
+            default:
+                return (a, b) -> Integer.compare(a, b);
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.ContentHash;
+import com.amazonaws.samples.qdevmovies.utils.LongIntHashMap;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Columnar, immutable storage for the movie catalog.
+ * <p>
+ * Each attribute is addressed by the movie's ordinal (its position in the catalog) and
+ * {@link Movie} objects are only created on demand when a caller asks for one. The in-memory
+ * store built by {@link Builder} keeps each attribute in its own array: primitive arrays for id,
+ * year, duration and rating, and dictionary codes for the highly repetitive director and genre
+ * strings, with ids mapped to ordinals through a primitive hash map. A store opened from a binary
+ * snapshot ({@link MovieSnapshot}) reads the same attributes straight from the mapped file.
+ */
+public abstract class MovieStore {
+    private final List<Movie> movieList = new MovieListView();
+    private volatile AtomicReferenceArray<byte[]> serializedJson;
+
+    MovieStore() {}
+
+    public static MovieStore of(List<Movie> movies) {
+        Builder builder = new Builder();
+        for (Movie movie : movies) {
+            builder.add(movie);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the number of ordinals; equal to {@link #movieCount()} unless movies have been deleted
+     */
+    public abstract int size();
+
+    /**
+     * @return the number of movies in the store
+     */
+    public int movieCount() {
+        return size();
+    }
+
+    /**
+     * @return whether a movie lives at the ordinal; only a store with deleted movies has gaps
+     */
+    public boolean contains(int ordinal) {
+        return ordinal >= 0 && ordinal < size();
+    }
+
+    /**
+     * @return the ordinal of the movie with the id, or -1 if there is none
+     */
+    public abstract int ordinalOf(long id);
+
+    public abstract long id(int ordinal);
+
+    public abstract String movieName(int ordinal);
+
+    public abstract String director(int ordinal);
+
+    public abstract int year(int ordinal);
+
+    public abstract String genre(int ordinal);
+
+    public abstract String description(int ordinal);
+
+    public abstract int duration(int ordinal);
+
+    public abstract double imdbRating(int ordinal);
+
+    /**
+     * @return the number of distinct directors
+     */
+    public abstract int directorCount();
+
+    /**
+     * @return the number of distinct genres
+     */
+    public abstract int genreCount();
+
+    /**
+     * Hashes every attribute of every movie in catalog order, so two stores with the same content
+     * have the same hash. Used as the catalog version for HTTP caching, not for security.
+     *
+     * @return a 64-bit content hash
+     */
+    public long contentHash() {
+        long hash = ContentHash.START;
+        for (int ordinal = 0; ordinal < size(); ordinal++) {
+            if (!contains(ordinal)) {
+                continue;
+            }
+            hash = ContentHash.add(hash, id(ordinal));
+            hash = ContentHash.add(hash, movieName(ordinal));
+            hash = ContentHash.add(hash, director(ordinal));
+            hash = ContentHash.add(hash, year(ordinal));
+            hash = ContentHash.add(hash, genre(ordinal));
+            hash = ContentHash.add(hash, description(ordinal));
+            hash = ContentHash.add(hash, duration(ordinal));
+            hash = ContentHash.add(hash, Double.doubleToLongBits(imdbRating(ordinal)));
+        }
+        return ContentHash.finish(ContentHash.add(hash, movieCount()));
+    }
+
+    /**
+     * Creates a {@link Movie} for the ordinal.
+     */
+    public Movie movie(int ordinal) {
+        return new Movie(id(ordinal), movieName(ordinal), director(ordinal), year(ordinal), genre(ordinal),
+                description(ordinal), duration(ordinal), imdbRating(ordinal), this, ordinal);
+    }
+
+    /**
+     * @return the movie's JSON as cached by {@link #cacheSerializedJson}, or null if it has not been
+     *         serialized yet
+     */
+    byte[] serializedJson(int ordinal) {
+        AtomicReferenceArray<byte[]> cache = serializedJson;
+        return cache != null ? cache.get(ordinal) : null;
+    }
+
+    /**
+     * Keeps the movie's serialized JSON for as long as the store is in use. The store is immutable,
+     * so the bytes never go stale; a reloaded catalog is a new store with an empty cache.
+     */
+    void cacheSerializedJson(int ordinal, byte[] json) {
+        AtomicReferenceArray<byte[]> cache = serializedJson;
+        if (cache == null) {
+            synchronized (this) {
+                cache = serializedJson;
+                if (cache == null) {
+                    cache = new AtomicReferenceArray<>(size());
+                    serializedJson = cache;
+                }
+            }
+        }
+        cache.set(ordinal, json);
+    }
+
+    /**
+     * @return a new list of the movies at the ordinals, in the given order
+     */
+    public List<Movie> movies(int[] ordinals) {
+        List<Movie> movies = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            movies.add(movie(ordinal));
+        }
+        return movies;
+    }
+
+    /**
+     * @param size number of elements in the view
+     * @param ordinalAt ordinal of the movie at each index of the view
+     * @return an unmodifiable list view whose element {@code i} is the movie at {@code ordinalAt(i)},
+     *         created when it is read
+     */
+    public List<Movie> moviesView(int size, IntUnaryOperator ordinalAt) {
+        return new AbstractList<Movie>() {
+            @Override
+            public Movie get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+                }
+                return movie(ordinalAt.applyAsInt(index));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @return an unmodifiable list view of the catalog that creates each movie when it is read
+     */
+    public List<Movie> asList() {
+        return movieList;
+    }
+
+    /**
+     * @return the movie names by ordinal, as an unmodifiable view
+     */
+    public List<String> movieNames() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int ordinal) {
+                return movieName(ordinal);
+            }
+
+            @Override
+            public int size() {
+                return MovieStore.this.size();
+            }
+        };
+    }
+
+    /**
+     * @return the directors by ordinal, as an unmodifiable view
+     */
+    public List<String> directors() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int ordinal) {
+                return director(ordinal);
+            }
+
+            @Override
+            public int size() {
+                return MovieStore.this.size();
+            }
+        };
+    }
+
+    /**
+     * @return the genres by ordinal, as an unmodifiable view
+     */
+    public List<String> genres() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int ordinal) {
+                return genre(ordinal);
+            }
+
+            @Override
+            public int size() {
+                return MovieStore.this.size();
+            }
+        };
+    }
+
+    private final class MovieListView extends AbstractList<Movie> implements RandomAccess {
+        @Override
+        public Movie get(int ordinal) {
+            if (ordinal < 0 || ordinal >= size()) {
+                throw new IndexOutOfBoundsException("Ordinal " + ordinal + " out of bounds for size " + size());
+            }
+            return movie(ordinal);
+        }
+
+        @Override
+        public int size() {
+            return MovieStore.this.size();
+        }
+    }
+
+    /**
+     * The in-memory store: one array per attribute.
+     */
+    private static final class ArrayStore extends CompactMovieStore {
+        private final int size;
+        private final long[] ids;
+        private final String[] movieNames;
+        private final int[] directorCodes;
+        private final String[] directorDictionary;
+        private final int[] years;
+        private final int[] genreCodes;
+        private final String[] genreDictionary;
+        private final String[] descriptions;
+        private final int[] durations;
+        private final double[] imdbRatings;
+        private final LongIntHashMap ordinalsById;
+
+        private ArrayStore(Builder builder) {
+            this.size = builder.size;
+            this.ids = Arrays.copyOf(builder.ids, size);
+            this.movieNames = Arrays.copyOf(builder.movieNames, size);
+            this.directorCodes = Arrays.copyOf(builder.directorCodes, size);
+            this.directorDictionary = builder.directors.toArray();
+            this.years = Arrays.copyOf(builder.years, size);
+            this.genreCodes = Arrays.copyOf(builder.genreCodes, size);
+            this.genreDictionary = builder.genres.toArray();
+            this.descriptions = Arrays.copyOf(builder.descriptions, size);
+            this.durations = Arrays.copyOf(builder.durations, size);
+            this.imdbRatings = Arrays.copyOf(builder.imdbRatings, size);
+            this.ordinalsById = new LongIntHashMap(size);
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                ordinalsById.put(ids[ordinal], ordinal);
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int ordinalOf(long id) {
+            return ordinalsById.get(id);
+        }
+
+        @Override
+        public long id(int ordinal) {
+            return ids[ordinal];
+        }
+
+        @Override
+        public String movieName(int ordinal) {
+            return movieNames[ordinal];
+        }
+
+        @Override
+        public String director(int ordinal) {
+            return directorDictionary[directorCodes[ordinal]];
+        }
+
+        @Override
+        public int year(int ordinal) {
+            return years[ordinal];
+        }
+
+        @Override
+        public String genre(int ordinal) {
+            return genreDictionary[genreCodes[ordinal]];
+        }
+
+        @Override
+        public String description(int ordinal) {
+            return descriptions[ordinal];
+        }
+
+        @Override
+        public int duration(int ordinal) {
+            return durations[ordinal];
+        }
+
+        @Override
+        public double imdbRating(int ordinal) {
+            return imdbRatings[ordinal];
+        }
+
+        @Override
+        public int directorCount() {
+            return directorDictionary.length;
+        }
+
+        @Override
+        public int genreCount() {
+            return genreDictionary.length;
+        }
+
+        @Override
+        String directorByCode(int code) {
+            return directorDictionary[code];
+        }
+
+        @Override
+        String genreByCode(int code) {
+            return genreDictionary[code];
+        }
+
+        @Override
+        int directorCode(int ordinal) {
+            return directorCodes[ordinal];
+        }
+
+        @Override
+        int genreCode(int ordinal) {
+            return genreCodes[ordinal];
+        }
+    }
+
+    /**
+     * Appends movies column by column; used by the streaming catalog loader so no intermediate
+     * list of {@link Movie} objects is kept.
+     */
+    public static class Builder {
+        private int size;
+        private long[] ids = new long[16];
+        private String[] movieNames = new String[16];
+        private int[] directorCodes = new int[16];
+        private int[] years = new int[16];
+        private int[] genreCodes = new int[16];
+        private String[] descriptions = new String[16];
+        private int[] durations = new int[16];
+        private double[] imdbRatings = new double[16];
+        private final Dictionary directors = new Dictionary();
+        private final Dictionary genres = new Dictionary();
+
+        public Builder add(Movie movie) {
+            if (size == ids.length) {
+                grow();
+            }
+            ids[size] = movie.getId();
+            movieNames[size] = movie.getMovieName();
+            directorCodes[size] = directors.encode(movie.getDirector());
+            years[size] = movie.getYear();
+            genreCodes[size] = genres.encode(movie.getGenre());
+            descriptions[size] = movie.getDescription();
+            durations[size] = movie.getDuration();
+            imdbRatings[size] = movie.getImdbRating();
+            size++;
+            return this;
+        }
+
+        public CompactMovieStore build() {
+            return new ArrayStore(this);
+        }
+
+        private void grow() {
+            int capacity = size + (size >> 1) + 1;
+            ids = Arrays.copyOf(ids, capacity);
+            movieNames = Arrays.copyOf(movieNames, capacity);
+            directorCodes = Arrays.copyOf(directorCodes, capacity);
+            years = Arrays.copyOf(years, capacity);
+            genreCodes = Arrays.copyOf(genreCodes, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            imdbRatings = Arrays.copyOf(imdbRatings, capacity);
+        }
+    }
+
+    /**
+     * Assigns dense codes to distinct strings in order of first appearance.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[8];
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = codes.size();
+                if (code == values.length) {
+                    values = Arrays.copyOf(values, code * 2);
+                }
+                values[code] = value;
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(values, codes.size());
+        }
+    }
+}
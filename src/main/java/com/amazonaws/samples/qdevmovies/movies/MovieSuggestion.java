@@ -0,0 +1,26 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * One autocomplete suggestion: just enough of a movie to show it in a dropdown and link to it.
+ */
+public class MovieSuggestion {
+    private final long id;
+    private final String movieName;
+    private final int year;
+    private final double imdbRating;
+
+    public MovieSuggestion(long id, String movieName, int year, double imdbRating) {
+        this.id = id;
+        this.movieName = movieName;
+        this.year = year;
+        this.imdbRating = imdbRating;
+    }
+
+    public long getId() { return id; }
+
+    public String getMovieName() { return movieName; }
+
+    public int getYear() { return year; }
+
+    public double getImdbRating() { return imdbRating; }
+}
@@ -0,0 +1,29 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import java.util.List;
+
+/**
+ * A movie serialized with its fields at the top level followed by a {@code reviews} array, which
+ * is left out when the reviews were not requested.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovieWithReviews {
+    private final Movie movie;
+    private final List<Review> reviews;
+
+    /**
+     * @param reviews the movie's reviews, or null to leave them out
+     */
+    public MovieWithReviews(Movie movie, List<Review> reviews) {
+        this.movie = movie;
+        this.reviews = reviews;
+    }
+
+    @JsonUnwrapped
+    public Movie getMovie() { return movie; }
+
+    public List<Review> getReviews() { return reviews; }
+}
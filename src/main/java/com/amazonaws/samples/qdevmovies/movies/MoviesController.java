@@ -1,22 +1,46 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
 import com.amazonaws.samples.qdevmovies.utils.MovieIconUtils;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import reactor.core.publisher.Flux;
 
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 public class MoviesController {
     private static final Logger logger = LogManager.getLogger(MoviesController.class);
+    private static final String CONTROLLER_TIMER = "movies.controller.requests";
+    private static final MediaType NDJSON_UTF8 = new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
 
     @Autowired
     private MovieService movieService;
@@ -24,16 +48,39 @@ public class MoviesController {
     @Autowired
     private ReviewService reviewService;
 
+    /** Whether the /admin endpoints that reload and edit the catalog are served; they have no authentication. */
+    @Value("${movies.admin.enabled:false}")
+    private boolean adminEnabled;
+
+    /**
+     * Lists the catalog one page at a time.
+     *
+     * @param query sort, order, limit and cursor of the page to show
+     * @param model Spring model for template rendering
+     * @return Template name for the movie grid
+     */
     @GetMapping("/movies")
-    public String getMovies(org.springframework.ui.Model model) {
-        logger.info("Fetching movies");
-        model.addAttribute("movies", movieService.getAllMovies());
-        return "movies";
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "getMovies"}, histogram = true)
+    public String getMovies(MovieQuery query, org.springframework.ui.Model model) {
+        logger.debug("Fetching movies");
+        try {
+            MoviePage page = movieService.searchPage(query);
+            model.addAttribute("movies", page.getMovies());
+            model.addAttribute("reviewStats", movieService.getReviewStats());
+            addPagingAttributes(model, "/movies", query, page);
+            return "movies";
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid movie listing request: {}", e.getMessage());
+            model.addAttribute("title", "Invalid Request");
+            model.addAttribute("message", e.getMessage());
+            return "error";
+        }
     }
 
     @GetMapping("/movies/{id}/details")
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "getMovieDetails"}, histogram = true)
     public String getMovieDetails(@PathVariable("id") Long movieId, org.springframework.ui.Model model) {
-        logger.info("Fetching details for movie ID: {}", movieId);
+        logger.debug("Fetching details for movie ID: {}", movieId);
         
         Optional<Movie> movieOpt = movieService.getMovieById(movieId);
         if (!movieOpt.isPresent()) {
@@ -47,6 +94,7 @@ public class MoviesController {
         model.addAttribute("movie", movie);
         model.addAttribute("movieIcon", MovieIconUtils.getMovieIcon(movie.getMovieName()));
         model.addAttribute("allReviews", reviewService.getReviewsForMovie(movie.getId()));
+        model.addAttribute("reviewSummary", movieService.getReviewStats().summary(movie.getId()));
         
         return "movie-details";
     }
@@ -55,43 +103,57 @@ public class MoviesController {
      * Ahoy matey! This endpoint searches through our treasure chest of movies
      * Returns HTML page with search results, perfect for landlubbers using browsers!
      * 
-     * @param name Movie name to search for (optional)
-     * @param id Movie ID to search for (optional)
-     * @param genre Movie genre to search for (optional)
+     * @param query Search criteria bound from the request: name, id, one or more genre values,
+     *              genreMatch ("any" or "all"), director, directorMatch ("partial" or "exact"),
+     *              year, yearFrom, yearTo, minRating, maxDuration,
+     *              minUserRating, top, fuzzy, sort, order, limit and cursor, all optional
      * @param model Spring model for template rendering
      * @return Template name for search results
      */
     @GetMapping("/movies/search")
-    public String searchMovies(
-            @RequestParam(value = "name", required = false) String name,
-            @RequestParam(value = "id", required = false) Long id,
-            @RequestParam(value = "genre", required = false) String genre,
-            org.springframework.ui.Model model) {
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "searchMovies"}, histogram = true)
+    public String searchMovies(MovieQuery query, org.springframework.ui.Model model) {
         
-        logger.info("Ahoy! Searching for movies with name: {}, id: {}, genre: {}", name, id, genre);
+        logger.debug("Ahoy! Searching for movies with name: {}, id: {}, genre: {}",
+                query.getName(), query.getId(), query.getGenre());
         
         try {
-            List<Movie> searchResults = movieService.searchMovies(name, id, genre);
+            MoviePage page = movieService.searchPage(query);
+            List<Movie> searchResults = page.getMovies();
+            int totalResults = page.getTotalResults();
             
             model.addAttribute("movies", searchResults);
-            model.addAttribute("searchName", name != null ? name : "");
-            model.addAttribute("searchId", id != null ? id.toString() : "");
-            model.addAttribute("searchGenre", genre != null ? genre : "");
+            model.addAttribute("reviewStats", movieService.getReviewStats());
+            model.addAttribute("searchName", query.getName() != null ? query.getName() : "");
+            model.addAttribute("searchId", query.getId() != null ? query.getId().toString() : "");
+            model.addAttribute("searchGenre", String.join(", ", query.getGenreTerms()));
+            model.addAttribute("searchGenreMatch", query.isMatchAllGenres() ? MovieQuery.MATCH_ALL : MovieQuery.MATCH_ANY);
+            model.addAttribute("searchDirector", query.getDirector() != null ? query.getDirector() : "");
+            model.addAttribute("searchDirectorMatch", query.isExactDirector() ? MovieQuery.MATCH_EXACT : MovieQuery.MATCH_PARTIAL);
+            model.addAttribute("searchYear", query.getYear() != null ? query.getYear().toString() : "");
+            model.addAttribute("searchFuzzy", query.getFuzzy() != null ? query.getFuzzy().toString() : "");
+            model.addAttribute("searchMinUserRating", query.getMinUserRating() != null ? query.getMinUserRating().toString() : "");
             model.addAttribute("searchPerformed", true);
-            model.addAttribute("resultCount", searchResults.size());
+            model.addAttribute("resultCount", totalResults);
+            addPagingAttributes(model, "/movies/search", query, page);
             
-            if (searchResults.isEmpty()) {
+            if (totalResults == 0) {
                 model.addAttribute("noResults", true);
                 model.addAttribute("searchMessage", "Arrr! No treasure found matching yer search criteria, matey!");
             } else {
                 model.addAttribute("searchMessage", 
-                    "Ahoy! Found " + searchResults.size() + " movie" + 
-                    (searchResults.size() == 1 ? "" : "s") + " in our treasure chest!");
+                    "Ahoy! Found " + totalResults + " movie" + 
+                    (totalResults == 1 ? "" : "s") + " in our treasure chest!");
             }
             
-            logger.info("Search completed successfully, found {} movies", searchResults.size());
+            logger.debug("Search completed successfully, found {} movies", totalResults);
             return "movies";
             
+        } catch (IllegalArgumentException e) {
+            logger.warn("Arrr! Invalid search request: {}", e.getMessage());
+            model.addAttribute("title", "Invalid Search");
+            model.addAttribute("message", e.getMessage());
+            return "error";
         } catch (Exception e) {
             logger.error("Arrr! Search failed with error: {}", e.getMessage(), e);
             model.addAttribute("title", "Search Failed");
@@ -104,38 +166,50 @@ public class MoviesController {
      * Ahoy! This endpoint returns search results as JSON for ye API-savvy pirates!
      * Perfect for when ye need raw data without the fancy HTML decorations.
      * 
-     * @param name Movie name to search for (optional)
-     * @param id Movie ID to search for (optional)
-     * @param genre Movie genre to search for (optional)
-     * @return ResponseEntity with search results as JSON
+     * @param query Search criteria bound from the request: name, id, one or more genre values,
+     *              genreMatch ("any" or "all"), director, directorMatch ("partial" or "exact"),
+     *              year, yearFrom, yearTo, minRating, maxDuration,
+     *              minUserRating, top, fuzzy, sort, order, limit and cursor, all optional
+     * @return ResponseEntity with one page of search results as JSON
      */
     @GetMapping("/movies/search/api")
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "searchMoviesApi"}, histogram = true)
     @ResponseBody
-    public ResponseEntity<MovieSearchResponse> searchMoviesApi(
-            @RequestParam(value = "name", required = false) String name,
-            @RequestParam(value = "id", required = false) Long id,
-            @RequestParam(value = "genre", required = false) String genre) {
+    public ResponseEntity<MovieSearchResponse> searchMoviesApi(MovieQuery query) {
         
-        logger.info("Ahoy! API search for movies with name: {}, id: {}, genre: {}", name, id, genre);
+        logger.debug("Ahoy! API search for movies with name: {}, id: {}, genre: {}",
+                query.getName(), query.getId(), query.getGenre());
         
         try {
-            List<Movie> searchResults = movieService.searchMovies(name, id, genre);
+            MoviePage page = movieService.searchPage(query);
+            int totalResults = page.getTotalResults();
             
             MovieSearchResponse response = new MovieSearchResponse();
-            response.setMovies(searchResults);
-            response.setTotalResults(searchResults.size());
-            response.setSearchCriteria(new SearchCriteria(name, id, genre));
+            response.setMovies(page.getMovies());
+            response.setTotalResults(totalResults);
+            response.setNextCursor(page.getNextCursor());
+            response.setSearchCriteria(query);
             
-            if (searchResults.isEmpty()) {
+            if (totalResults == 0) {
                 response.setMessage("Arrr! No treasure found matching yer search criteria, matey!");
             } else {
-                response.setMessage("Ahoy! Found " + searchResults.size() + " movie" + 
-                    (searchResults.size() == 1 ? "" : "s") + " in our treasure chest!");
+                response.setMessage("Ahoy! Found " + totalResults + " movie" + 
+                    (totalResults == 1 ? "" : "s") + " in our treasure chest!");
             }
             
-            logger.info("API search completed successfully, found {} movies", searchResults.size());
+            logger.debug("API search completed successfully, found {} movies", totalResults);
             return ResponseEntity.ok(response);
             
+        } catch (IllegalArgumentException e) {
+            logger.warn("Arrr! Invalid API search request: {}", e.getMessage());
+            
+            MovieSearchResponse errorResponse = new MovieSearchResponse();
+            errorResponse.setMovies(new ArrayList<>());
+            errorResponse.setTotalResults(0);
+            errorResponse.setMessage(e.getMessage());
+            errorResponse.setError(true);
+            
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             logger.error("Arrr! API search failed with error: {}", e.getMessage(), e);
             
@@ -149,14 +223,479 @@ public class MoviesController {
         }
     }
 
+    /**
+     * Arrr! Streams every matching movie as newline-delimited JSON, one movie per line, for crews
+     * hauling in the whole treasure chest. Movies are built and written one at a time as the client
+     * reads them, so the first line goes out right after matching and memory stays flat however
+     * large the result. {@code /movies/stream} without criteria streams the whole catalog.
+     *
+     * @param query Search criteria bound from the request as for {@code /movies/search/api}, plus
+     *              sort and order; limit and cursor are ignored
+     * @return the matching movies as an NDJSON stream, or a single error line with status 400
+     */
+    @GetMapping(value = {"/movies/stream", "/movies/search/stream"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "streamMovies"}, histogram = true)
+    @ResponseBody
+    public ResponseEntity<Flux<Object>> streamMovies(MovieQuery query) {
+        logger.debug("Ahoy! Streaming movies with name: {}, id: {}, genre: {}",
+                query.getName(), query.getId(), query.getGenre());
+
+        try {
+            return ResponseEntity.ok(Flux.<Object>fromIterable(movieService.searchLazily(query)));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Arrr! Invalid stream request: {}", e.getMessage());
+
+            MovieSearchResponse errorResponse = new MovieSearchResponse();
+            errorResponse.setMovies(new ArrayList<>());
+            errorResponse.setTotalResults(0);
+            errorResponse.setMessage(e.getMessage());
+            errorResponse.setError(true);
+
+            return ResponseEntity.badRequest().body(Flux.just(errorResponse));
+        }
+    }
+
+    /**
+     * Arrr! Suggests movie titles for the search box as a landlubber types, best-rated first.
+     * Cheap enough to call on every keystroke.
+     *
+     * @param prefix the start of any word of the movie name; case-insensitive
+     * @param limit the most suggestions to return, 10 by default and at most 20
+     * @return the suggestions, empty for a blank prefix; 400 for a limit below one
+     */
+    @GetMapping("/movies/suggest")
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "suggestMovies"}, histogram = true)
+    @ResponseBody
+    public ResponseEntity<MovieSuggestResponse> suggestMovies(
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        MovieSuggestResponse response = new MovieSuggestResponse();
+        response.setPrefix(prefix);
+        try {
+            response.setSuggestions(movieService.suggest(prefix, limit != null ? limit : MovieService.DEFAULT_SUGGESTIONS));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Arrr! Invalid suggest request: {}", e.getMessage());
+            response.setSuggestions(new ArrayList<>());
+            response.setMessage(e.getMessage());
+            response.setError(true);
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * Looks up many movies in one request, for pages that show dozens of movies at once.
+     *
+     * @param request ids as a repeated or comma separated {@code ids} parameter, and includeReviews
+     * @return the movies found in request order, with their reviews if requested, and the ids
+     *         that were not found; 400 when no ids or too many ids are given
+     */
+    @GetMapping("/movies/batch")
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "getMoviesBatch"}, histogram = true)
+    @ResponseBody
+    public ResponseEntity<MovieBatchResponse> getMoviesBatch(MovieBatchRequest request) {
+        return batch(request);
+    }
+
+    /**
+     * Looks up many movies in one request, for id lists too long for a URL.
+     *
+     * @param request JSON body such as {@code {"ids": [1, 2, 3], "includeReviews": true}}
+     * @return the same response as {@link #getMoviesBatch(MovieBatchRequest)}
+     */
+    @PostMapping(value = "/movies/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "postMoviesBatch"}, histogram = true)
+    @ResponseBody
+    public ResponseEntity<MovieBatchResponse> postMoviesBatch(@RequestBody MovieBatchRequest request) {
+        return batch(request);
+    }
+
+    private ResponseEntity<MovieBatchResponse> batch(MovieBatchRequest request) {
+        logger.debug("Batch lookup of {} movies (reviews: {})", request.getIds().size(), request.isIncludeReviews());
+
+        MovieBatchResponse response = new MovieBatchResponse();
+        try {
+            List<Movie> movies = movieService.getMoviesByIds(request.getIds());
+            List<MovieWithReviews> results = new ArrayList<>(movies.size());
+            Set<Long> found = new HashSet<>();
+            for (Movie movie : movies) {
+                results.add(new MovieWithReviews(movie,
+                        request.isIncludeReviews() ? reviewService.getReviewsForMovie(movie.getId()) : null));
+                found.add(movie.getId());
+            }
+            Set<Long> notFound = new LinkedHashSet<>(request.getIds());
+            notFound.removeAll(found);
+
+            response.setMovies(results);
+            response.setNotFoundIds(new ArrayList<>(notFound));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid batch request: {}", e.getMessage());
+            response.setMovies(new ArrayList<>());
+            response.setNotFoundIds(new ArrayList<>());
+            response.setMessage(e.getMessage());
+            response.setError(true);
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * Exports the whole catalog with every movie's reviews as JSON Lines, one movie per line, for
+     * downstream indexers. The dump is written to the response as it is produced and sent chunked,
+     * gzip-compressed when the client accepts it, so it needs no more memory for a large catalog
+     * than for a small one.
+     *
+     * @param acceptEncoding the request's Accept-Encoding header, if any
+     * @return the streaming export
+     */
+    @GetMapping("/movies/export")
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "exportCatalog"}, histogram = true)
+    public ResponseEntity<StreamingResponseBody> exportCatalog(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        logger.debug("Exporting catalog (gzip: {})", gzip);
+
+        CatalogExporter exporter = new CatalogExporter(movieService, reviewService);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(NDJSON_UTF8)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"movies.jsonl\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(out -> {
+            long start = System.nanoTime();
+            int count = exporter.export(out, gzip);
+            logger.info("Exported {} movies in {} ms", count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * @return whether the Accept-Encoding header lists gzip without a zero or malformed quality
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].replace(" ", "");
+                    if (parameter.startsWith("q=") && !isPositiveQuality(parameter.substring(2))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPositiveQuality(String quality) {
+        try {
+            return Double.parseDouble(quality) > 0;
+        } catch (NumberFormatException e) {
+            // A client that sends an unreadable quality gets the identity encoding every client understands
+            return false;
+        }
+    }
+
+    /**
+     * Adds the sort and paging state the movies template needs for its sort selector and next-page link.
+     */
+    private void addPagingAttributes(org.springframework.ui.Model model, String path, MovieQuery query, MoviePage page) {
+        model.addAttribute("totalResults", page.getTotalResults());
+        model.addAttribute("searchSort", query.getSortKey().getParam());
+        model.addAttribute("searchOrder", query.getOrder() != null ? query.getOrder() : "");
+        model.addAttribute("nextPageUrl", page.hasNext() ? nextPageUrl(path, query, page.getNextCursor()) : null);
+    }
+
+    private String nextPageUrl(String path, MovieQuery query, String nextCursor) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromPath(path);
+        if (query.hasName()) {
+            builder.queryParam("name", query.getName());
+        }
+        if (query.getId() != null) {
+            builder.queryParam("id", query.getId());
+        }
+        for (String genre : query.getGenreTerms()) {
+            builder.queryParam("genre", genre);
+        }
+        if (query.isMatchAllGenres()) {
+            builder.queryParam("genreMatch", MovieQuery.MATCH_ALL);
+        }
+        if (query.hasDirector()) {
+            builder.queryParam("director", query.getDirector());
+        }
+        if (query.isExactDirector()) {
+            builder.queryParam("directorMatch", MovieQuery.MATCH_EXACT);
+        }
+        if (query.getYear() != null) {
+            builder.queryParam("year", query.getYear());
+        }
+        if (query.getYearFrom() != null) {
+            builder.queryParam("yearFrom", query.getYearFrom());
+        }
+        if (query.getYearTo() != null) {
+            builder.queryParam("yearTo", query.getYearTo());
+        }
+        if (query.getMinRating() != null) {
+            builder.queryParam("minRating", query.getMinRating());
+        }
+        if (query.getMaxDuration() != null) {
+            builder.queryParam("maxDuration", query.getMaxDuration());
+        }
+        if (query.getMinUserRating() != null) {
+            builder.queryParam("minUserRating", query.getMinUserRating());
+        }
+        if (query.getSort() != null && !query.getSort().trim().isEmpty()) {
+            builder.queryParam("sort", query.getSort());
+        }
+        if (query.getOrder() != null && !query.getOrder().trim().isEmpty()) {
+            builder.queryParam("order", query.getOrder());
+        }
+        if (query.getLimit() != null) {
+            builder.queryParam("limit", query.getLimit());
+        }
+        builder.queryParam("cursor", nextCursor);
+        return builder.encode().build().toUriString();
+    }
+
+    /**
+     * Reloads the catalog from its configured location without a restart. Requests keep being
+     * answered from the current catalog while the new one loads, and switch over once it is ready.
+     *
+     * @return the size and version of the catalog now served; 409 if a reload is already running,
+     *         500 if the catalog could not be loaded, in which case the previous one stays in service;
+     *         404 unless {@code movies.admin.enabled} is true
+     */
+    @PostMapping("/admin/catalog/reload")
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "reloadCatalog"}, histogram = true)
+    @ResponseBody
+    public ResponseEntity<CatalogReloadResponse> reloadCatalog() {
+        if (!adminEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        CatalogReloadResponse response = new CatalogReloadResponse();
+        HttpStatus status = HttpStatus.OK;
+        try {
+            if (movieService.reloadCatalog()) {
+                response.setMessage("Catalog reloaded");
+            } else {
+                status = HttpStatus.CONFLICT;
+                response.setMessage("A catalog reload is already running");
+                response.setError(true);
+            }
+        } catch (CatalogLoadException e) {
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+            response.setMessage(e.getMessage());
+            response.setError(true);
+        }
+        response.setMovieCount(movieService.getAllMovies().size());
+        response.setCatalogVersion(Long.toHexString(movieService.getCatalogVersion()));
+        return ResponseEntity.status(status).body(response);
+    }
+
+    /**
+     * Creates a movie.
+     *
+     * @param movie JSON body with the movie's fields; without an id the next free id is assigned
+     * @return 201 with the created movie; 400 if a field is missing or invalid or the id is taken
+     */
+    @PostMapping(value = "/admin/movies", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "createMovie"}, histogram = true)
+    @ResponseBody
+    public ResponseEntity<MovieWriteResponse> createMovie(@RequestBody MovieRequest movie) {
+        return write(Collections.singletonList(MovieChange.create(movie)), HttpStatus.CREATED);
+    }
+
+    /**
+     * Replaces every field of a movie.
+     *
+     * @param id the movie to update; an id in the body must match it
+     * @param movie JSON body with the movie's new fields
+     * @return the updated movie; 400 if a field is missing or invalid, 404 if there is no such movie
+     */
+    @PutMapping(value = "/admin/movies/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "updateMovie"}, histogram = true)
+    @ResponseBody
+    public ResponseEntity<MovieWriteResponse> updateMovie(@PathVariable Long id, @RequestBody MovieRequest movie) {
+        return write(Collections.singletonList(MovieChange.update(id, movie)), HttpStatus.OK);
+    }
+
+    /**
+     * Deletes a movie.
+     *
+     * @return the deleted id; 404 if there is no such movie
+     */
+    @DeleteMapping("/admin/movies/{id}")
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "deleteMovie"}, histogram = true)
+    @ResponseBody
+    public ResponseEntity<MovieWriteResponse> deleteMovie(@PathVariable Long id) {
+        return write(Collections.singletonList(MovieChange.delete(id)), HttpStatus.OK);
+    }
+
+    /**
+     * Applies many creates, updates and deletes as one change that readers see all at once.
+     *
+     * @param changes JSON array such as
+     *                {@code [{"action": "create", "movie": {...}}, {"action": "delete", "id": 7}]}
+     * @return the created and updated movies and the deleted ids; 400 or 404 if any change is
+     *         invalid, in which case none is applied; 500 if the changes could not be saved to the
+     *         data directory
+     */
+    @PostMapping(value = "/admin/movies/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Timed(value = CONTROLLER_TIMER, extraTags = {"handler", "applyMovieChanges"}, histogram = true)
+    @ResponseBody
+    public ResponseEntity<MovieWriteResponse> applyMovieChanges(@RequestBody List<MovieChange> changes) {
+        return write(changes, HttpStatus.OK);
+    }
+
+    /**
+     * Applies the changes; every write endpoint answers 404 unless {@code movies.admin.enabled} is true.
+     */
+    private ResponseEntity<MovieWriteResponse> write(List<MovieChange> changes, HttpStatus success) {
+        if (!adminEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        MovieWriteResponse response = new MovieWriteResponse();
+        HttpStatus status = success;
+        try {
+            response.setMovies(movieService.applyChanges(changes));
+            List<Long> deletedIds = new ArrayList<>();
+            for (MovieChange change : changes) {
+                if (change.getActionType() == MovieChange.Action.DELETE) {
+                    deletedIds.add(change.getId());
+                }
+            }
+            response.setDeletedIds(deletedIds);
+            response.setMessage("Applied " + changes.size() + (changes.size() == 1 ? " change" : " changes"));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected movie changes: {}", e.getMessage());
+            status = HttpStatus.BAD_REQUEST;
+            response.setMessage(e.getMessage());
+            response.setError(true);
+        } catch (NoSuchElementException e) {
+            logger.warn("Rejected movie changes: {}", e.getMessage());
+            status = HttpStatus.NOT_FOUND;
+            response.setMessage(e.getMessage());
+            response.setError(true);
+        } catch (UncheckedIOException e) {
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+            response.setMessage("Changes could not be saved: " + e.getCause().getMessage());
+            response.setError(true);
+        }
+        response.setMovieCount(movieService.getAllMovies().size());
+        response.setCatalogVersion(Long.toHexString(movieService.getCatalogVersion()));
+        return ResponseEntity.status(status).body(response);
+    }
+
+    /**
+     * Response class for movie writes.
+     */
+    public static class MovieWriteResponse {
+        private List<Movie> movies = new ArrayList<>();
+        private List<Long> deletedIds = new ArrayList<>();
+        private int movieCount;
+        private String catalogVersion;
+        private String message;
+        private boolean error = false;
+
+        public List<Movie> getMovies() { return movies; }
+        public void setMovies(List<Movie> movies) { this.movies = movies; }
+
+        public List<Long> getDeletedIds() { return deletedIds; }
+        public void setDeletedIds(List<Long> deletedIds) { this.deletedIds = deletedIds; }
+
+        public int getMovieCount() { return movieCount; }
+        public void setMovieCount(int movieCount) { this.movieCount = movieCount; }
+
+        public String getCatalogVersion() { return catalogVersion; }
+        public void setCatalogVersion(String catalogVersion) { this.catalogVersion = catalogVersion; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+
+        public boolean isError() { return error; }
+        public void setError(boolean error) { this.error = error; }
+    }
+
+    /**
+     * Response class for autocomplete suggestions.
+     */
+    public static class MovieSuggestResponse {
+        private String prefix;
+        private List<MovieSuggestion> suggestions;
+        private String message;
+        private boolean error = false;
+
+        public String getPrefix() { return prefix; }
+        public void setPrefix(String prefix) { this.prefix = prefix; }
+
+        public List<MovieSuggestion> getSuggestions() { return suggestions; }
+        public void setSuggestions(List<MovieSuggestion> suggestions) { this.suggestions = suggestions; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+
+        public boolean isError() { return error; }
+        public void setError(boolean error) { this.error = error; }
+    }
+
+    /**
+     * Response class for catalog reloads.
+     */
+    public static class CatalogReloadResponse {
+        private int movieCount;
+        private String catalogVersion;
+        private String message;
+        private boolean error = false;
+
+        public int getMovieCount() { return movieCount; }
+        public void setMovieCount(int movieCount) { this.movieCount = movieCount; }
+
+        public String getCatalogVersion() { return catalogVersion; }
+        public void setCatalogVersion(String catalogVersion) { this.catalogVersion = catalogVersion; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+
+        public boolean isError() { return error; }
+        public void setError(boolean error) { this.error = error; }
+    }
+
+    /**
+     * Response class for batch lookups.
+     */
+    public static class MovieBatchResponse {
+        private List<MovieWithReviews> movies;
+        private List<Long> notFoundIds;
+        private String message;
+        private boolean error = false;
+
+        public List<MovieWithReviews> getMovies() { return movies; }
+        public void setMovies(List<MovieWithReviews> movies) { this.movies = movies; }
+
+        public List<Long> getNotFoundIds() { return notFoundIds; }
+        public void setNotFoundIds(List<Long> notFoundIds) { this.notFoundIds = notFoundIds; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+
+        public boolean isError() { return error; }
+        public void setError(boolean error) { this.error = error; }
+    }
+
     /**
      * Response class for API search results, ship-shape and organized!
      */
     public static class MovieSearchResponse {
         private List<Movie> movies;
         private int totalResults;
+        private String nextCursor;
         private String message;
-        private SearchCriteria searchCriteria;
+        private MovieQuery searchCriteria;
         private boolean error = false;
 
         // Getters and setters for our treasure map data
@@ -166,40 +705,16 @@ public class MoviesController {
         public int getTotalResults() { return totalResults; }
         public void setTotalResults(int totalResults) { this.totalResults = totalResults; }
         
+        public String getNextCursor() { return nextCursor; }
+        public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+        
         public String getMessage() { return message; }
         public void setMessage(String message) { this.message = message; }
         
-        public SearchCriteria getSearchCriteria() { return searchCriteria; }
-        public void setSearchCriteria(SearchCriteria searchCriteria) { this.searchCriteria = searchCriteria; }
+        public MovieQuery getSearchCriteria() { return searchCriteria; }
+        public void setSearchCriteria(MovieQuery searchCriteria) { this.searchCriteria = searchCriteria; }
         
         public boolean isError() { return error; }
         public void setError(boolean error) { this.error = error; }
     }
-
-    /**
-     * Search criteria class to keep track of what the user searched for
-     */
-    public static class SearchCriteria {
-        private String name;
-        private Long id;
-        private String genre;
-
-        public SearchCriteria() {}
-        
-        public SearchCriteria(String name, Long id, String genre) {
-            this.name = name;
-            this.id = id;
-            this.genre = genre;
-        }
-
-        // Getters and setters for search parameters
-        public String getName() { return name; }
-        public void setName(String name) { this.name = name; }
-        
-        public Long getId() { return id; }
-        public void setId(Long id) { this.id = id; }
-        
-        public String getGenre() { return genre; }
-        public void setGenre(String genre) { this.genre = genre; }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.thymeleaf.spring5.ISpringTemplateEngine;
+import org.thymeleaf.spring5.view.ThymeleafViewResolver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Spring MVC configuration for the movie endpoints.
+ */
+@Configuration
+public class MoviesWebConfig implements WebMvcConfigurer {
+    private final MovieService movieService;
+    private final ReviewService reviewService;
+    private final ThymeleafViewResolver viewResolver;
+    private final ISpringTemplateEngine templateEngine;
+    private final RenderedPageCache renderedPageCache;
+
+    /**
+     * @param renderCacheEnabled whether rendered pages and cards are cached; turn it off while editing templates
+     * @param renderCachePageBytes byte budget for cached pages
+     * @param renderCacheFragmentBytes byte budget for cached movie cards
+     */
+    @Autowired
+    public MoviesWebConfig(MovieService movieService, ReviewService reviewService,
+                           ThymeleafViewResolver viewResolver, ISpringTemplateEngine templateEngine,
+                           @Value("${movies.render-cache.enabled:true}") boolean renderCacheEnabled,
+                           @Value("${movies.render-cache.page-bytes:16777216}") long renderCachePageBytes,
+                           @Value("${movies.render-cache.fragment-bytes:4194304}") long renderCacheFragmentBytes) {
+        this.movieService = movieService;
+        this.reviewService = reviewService;
+        this.viewResolver = viewResolver;
+        this.templateEngine = templateEngine;
+        this.renderedPageCache = renderCacheEnabled
+                ? new RenderedPageCache(renderCachePageBytes, renderCacheFragmentBytes)
+                : null;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ConditionalGetInterceptor(movieService, null))
+                .addPathPatterns("/movies/suggest");
+        registry.addInterceptor(new ConditionalGetInterceptor(movieService, reviewService))
+                .addPathPatterns("/movies", "/movies/search/api", "/movies/*/details");
+        if (renderedPageCache != null) {
+            registry.addInterceptor(new RenderedPageInterceptor(renderedPageCache, movieService, reviewService,
+                            viewResolver, templateEngine, new HashSet<>(Arrays.asList("movies"))))
+                    .addPathPatterns("/movies", "/movies/search");
+            registry.addInterceptor(new RenderedPageInterceptor(renderedPageCache, movieService, reviewService,
+                            viewResolver, templateEngine, Collections.singleton("movie-details")))
+                    .addPathPatterns("/movies/*/details");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.IntSorter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Sorted secondary index over one numeric movie attribute such as year, duration or rating.
+ * <p>
+ * The ordinals are kept in ascending key order next to their keys, so the movies within a range
+ * form one contiguous slice that is found with two binary searches. Counting a range is therefore
+ * O(log n), which lets the search pick the most selective criterion before touching any movie.
+ */
+public class RangeIndex {
+    private final IntToDoubleFunction key;
+    private final double[] keys;
+    private final int[] ordinals;
+
+    /**
+     * @param size number of movies in the catalog
+     * @param key the indexed attribute of the movie with the given ordinal
+     */
+    public RangeIndex(int size, IntToDoubleFunction key) {
+        this(sortedByKey(size, key), key);
+    }
+
+    /**
+     * Builds the index from ordinals that are already in ascending key order, skipping the sort.
+     */
+    RangeIndex(int[] sortedOrdinals, IntToDoubleFunction key) {
+        this.key = key;
+        this.ordinals = sortedOrdinals;
+        this.keys = new double[sortedOrdinals.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key.applyAsDouble(sortedOrdinals[i]);
+        }
+    }
+
+    /**
+     * Returns the index of a catalog that differs from this one's in a few movies: the unchanged
+     * movies keep their place and the created or updated ones are merged in, in time linear in the
+     * catalog size rather than sorting again. This index is left unchanged.
+     *
+     * @param removed ordinals that were updated or deleted
+     * @param added ordinals that were created or updated
+     * @param key the indexed attribute in the changed catalog
+     */
+    RangeIndex withChanges(int[] removed, int[] added, IntToDoubleFunction key) {
+        BitSet gone = new BitSet();
+        for (int ordinal : removed) {
+            gone.set(ordinal);
+        }
+        int[] insertions = added.clone();
+        IntSorter.sort(insertions, (a, b) -> Double.compare(key.applyAsDouble(a), key.applyAsDouble(b)));
+
+        int[] merged = new int[ordinals.length - removed.length + added.length];
+        int count = 0;
+        int next = 0;
+        for (int i = 0; i < ordinals.length; i++) {
+            if (gone.get(ordinals[i])) {
+                continue;
+            }
+            while (next < insertions.length && key.applyAsDouble(insertions[next]) < keys[i]) {
+                merged[count++] = insertions[next++];
+            }
+            merged[count++] = ordinals[i];
+        }
+        while (next < insertions.length) {
+            merged[count++] = insertions[next++];
+        }
+        return new RangeIndex(merged, key);
+    }
+
+    private static int[] sortedByKey(int size, IntToDoubleFunction key) {
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = i;
+        }
+        IntSorter.sort(sorted, (a, b) -> Double.compare(key.applyAsDouble(a), key.applyAsDouble(b)));
+        return sorted;
+    }
+
+    /**
+     * @return the number of movies whose key lies within {@code [min, max]}
+     */
+    public int count(double min, double max) {
+        return Math.max(upperBound(max) - lowerBound(min), 0);
+    }
+
+    /**
+     * @return ordinals of the movies whose key lies within {@code [min, max]}, in catalog order
+     */
+    public int[] between(double min, double max) {
+        int from = lowerBound(min);
+        int to = upperBound(max);
+        if (to <= from) {
+            return new int[0];
+        }
+        int[] matches = Arrays.copyOfRange(ordinals, from, to);
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    /**
+     * @return whether the key of the movie with the given ordinal lies within {@code [min, max]}
+     */
+    public boolean contains(int ordinal, double min, double max) {
+        double value = key.applyAsDouble(ordinal);
+        return value >= min && value <= max;
+    }
+
+    /**
+     * @return index of the first key that is at least {@code min}
+     */
+    private int lowerBound(double min) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < min) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return index of the first key that is greater than {@code max}
+     */
+    private int upperBound(double max) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] <= max) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
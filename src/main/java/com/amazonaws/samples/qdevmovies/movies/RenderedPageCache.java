@@ -0,0 +1,170 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded cache of rendered HTML: whole pages as UTF-8 bytes ready to be written to a response,
+ * and movie card fragments as strings ready to be inlined into a page.
+ * <p>
+ * Every entry remembers the data version it was rendered from, the catalog version or a mix of
+ * the catalog and reviews versions, and a lookup with any other version is a miss. Entries are
+ * therefore never served stale and are replaced the first time a page is requested after a reload.
+ * Each region evicts its least recently used entries once its byte budget is exceeded.
+ */
+public class RenderedPageCache {
+    private final Region<Page> pages;
+    private final Region<String> fragments;
+
+    /**
+     * @param maxPageBytes byte budget for whole pages
+     * @param maxFragmentBytes byte budget for fragments, counted as two bytes per character
+     */
+    public RenderedPageCache(long maxPageBytes, long maxFragmentBytes) {
+        this.pages = new Region<>("page", maxPageBytes, page -> page.body.length);
+        this.fragments = new Region<>("fragment", maxFragmentBytes, fragment -> 2 * fragment.length());
+    }
+
+    /**
+     * @return the page rendered for the key from the given version, or null
+     */
+    public Page getPage(String key, long version) {
+        return pages.get(key, version);
+    }
+
+    public void putPage(String key, long version, Page page) {
+        pages.put(key, version, page);
+    }
+
+    /**
+     * @return the fragment rendered for the key from the given version, or null
+     */
+    public String getFragment(String key, long version) {
+        return fragments.get(key, version);
+    }
+
+    public void putFragment(String key, long version, String fragment) {
+        fragments.put(key, version, fragment);
+    }
+
+    /**
+     * @return bytes held by cached pages
+     */
+    public long pageBytes() {
+        return pages.bytes();
+    }
+
+    /**
+     * @return bytes held by cached fragments
+     */
+    public long fragmentBytes() {
+        return fragments.bytes();
+    }
+
+    /**
+     * A rendered page: its content type and encoded body.
+     */
+    public static final class Page {
+        private final String contentType;
+        private final byte[] body;
+
+        public Page(String contentType, byte[] body) {
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public static Page html(String html) {
+            return new Page("text/html;charset=UTF-8", html.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final long version;
+        private final V value;
+        private final int weight;
+
+        private Entry(long version, V value, int weight) {
+            this.version = version;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * One LRU map with its own budget and hit and miss counters.
+     */
+    private static final class Region<V> {
+        private final long maxBytes;
+        private final ToIntFunction<V> weigher;
+        private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private final Counter hits;
+        private final Counter misses;
+        private long bytes;
+
+        private Region(String name, long maxBytes, ToIntFunction<V> weigher) {
+            this.maxBytes = maxBytes;
+            this.weigher = weigher;
+            this.hits = counter(name, "hit");
+            this.misses = counter(name, "miss");
+            Gauge.builder("movies.render.cache.size", this, Region::bytes)
+                    .description("Bytes held by the rendered output cache")
+                    .tag("cache", name)
+                    .baseUnit("bytes")
+                    .register(Metrics.globalRegistry);
+        }
+
+        private static Counter counter(String name, String result) {
+            return Counter.builder("movies.render.cache.requests")
+                    .description("Lookups in the rendered output cache")
+                    .tag("cache", name)
+                    .tag("result", result)
+                    .register(Metrics.globalRegistry);
+        }
+
+        synchronized V get(String key, long version) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null || entry.version != version) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+
+        synchronized void put(String key, long version, V value) {
+            int weight = weigher.applyAsInt(value) + key.length();
+            if (weight > maxBytes) {
+                return;
+            }
+            Entry<V> previous = entries.put(key, new Entry<>(version, value, weight));
+            if (previous != null) {
+                bytes -= previous.weight;
+            }
+            bytes += weight;
+            Iterator<Map.Entry<String, Entry<V>>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().weight;
+                eldest.remove();
+            }
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+    }
+}
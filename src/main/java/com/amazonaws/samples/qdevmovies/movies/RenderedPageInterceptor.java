@@ -0,0 +1,149 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring5.ISpringTemplateEngine;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.ViewResolver;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serves catalog pages from the {@link RenderedPageCache}.
+ * <p>
+ * A page is keyed by its URL and tagged with the data version it was rendered from. When a GET
+ * finds its page, the cached bytes are written straight to the response and neither the
+ * controller nor Thymeleaf runs. Otherwise the controller runs as usual, its view is rendered
+ * into a buffer that is cached and then copied to the response, and the movie grid gets a
+ * {@link MovieCardRenderer} so that cards already rendered for other pages are reused.
+ * Only successful renders of the given views are cached; error pages always render.
+ */
+public class RenderedPageInterceptor implements HandlerInterceptor {
+    static final String CARD_RENDERER_ATTRIBUTE = "movieCards";
+    private static final String KEY_ATTRIBUTE = RenderedPageInterceptor.class.getName() + ".key";
+    private static final String VERSION_ATTRIBUTE = RenderedPageInterceptor.class.getName() + ".version";
+
+    private final RenderedPageCache cache;
+    private final MovieService movieService;
+    private final ReviewService reviewService;
+    private final ViewResolver viewResolver;
+    private final ISpringTemplateEngine templateEngine;
+    private final Set<String> cachedViews;
+
+    /**
+     * @param reviewService the review service for pages that show reviews or their aggregates, or null
+     *                      for pages that do not
+     * @param cachedViews names of the views whose output may be cached
+     */
+    public RenderedPageInterceptor(RenderedPageCache cache, MovieService movieService, ReviewService reviewService,
+                                   ViewResolver viewResolver, ISpringTemplateEngine templateEngine,
+                                   Set<String> cachedViews) {
+        this.cache = cache;
+        this.movieService = movieService;
+        this.reviewService = reviewService;
+        this.viewResolver = viewResolver;
+        this.templateEngine = templateEngine;
+        this.cachedViews = Collections.unmodifiableSet(cachedViews);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        String key = pageKey(request);
+        long version = version();
+        RenderedPageCache.Page page = cache.getPage(key, version);
+        if (page == null) {
+            request.setAttribute(KEY_ATTRIBUTE, key);
+            request.setAttribute(VERSION_ATTRIBUTE, version);
+            return true;
+        }
+        response.setContentType(page.getContentType());
+        response.setContentLength(page.getBody().length);
+        response.getOutputStream().write(page.getBody());
+        return false;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) throws Exception {
+        String key = (String) request.getAttribute(KEY_ATTRIBUTE);
+        if (key == null || modelAndView == null || !cachedViews.contains(modelAndView.getViewName())) {
+            return;
+        }
+        long version = (Long) request.getAttribute(VERSION_ATTRIBUTE);
+        View view = viewResolver.resolveViewName(modelAndView.getViewName(), RequestContextUtils.getLocale(request));
+        if (view == null) {
+            return;
+        }
+        ReviewStats reviewStats = movieService.getReviewStats();
+        modelAndView.addObject(CARD_RENDERER_ATTRIBUTE, new MovieCardRenderer(templateEngine, cache, version,
+                movie -> cardContext(request, response, movie, reviewStats)));
+        modelAndView.setView(new CachingView(view, key, version));
+    }
+
+    private WebContext cardContext(HttpServletRequest request, HttpServletResponse response, Movie movie,
+                                   ReviewStats reviewStats) {
+        WebContext context = new WebContext(request, response, request.getServletContext(),
+                RequestContextUtils.getLocale(request));
+        context.setVariable("movie", movie);
+        context.setVariable("reviewStats", reviewStats);
+        return context;
+    }
+
+    private static String pageKey(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return query != null ? request.getRequestURI() + '?' + query : request.getRequestURI();
+    }
+
+    /**
+     * @return the version of the catalog, plus the review aggregates the page is rendered from and
+     *         the reviews if they are shown; the aggregates lag behind changed reviews until they
+     *         are recomputed
+     */
+    private long version() {
+        if (reviewService == null) {
+            return movieService.getCatalogVersion();
+        }
+        return 31 * movieService.getVersionWithReviewStats() + reviewService.getVersion();
+    }
+
+    /**
+     * Renders the delegate into a buffer, caches a successful result and copies it to the response.
+     */
+    private final class CachingView implements View {
+        private final View delegate;
+        private final String key;
+        private final long version;
+
+        private CachingView(View delegate, String key, long version) {
+            this.delegate = delegate;
+            this.key = key;
+            this.version = version;
+        }
+
+        @Override
+        public String getContentType() {
+            return delegate.getContentType();
+        }
+
+        @Override
+        public void render(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response) throws Exception {
+            ContentCachingResponseWrapper buffer = new ContentCachingResponseWrapper(response);
+            delegate.render(model, request, buffer);
+            if (buffer.getStatus() == HttpServletResponse.SC_OK && buffer.getContentType() != null) {
+                cache.putPage(key, version, new RenderedPageCache.Page(buffer.getContentType(), buffer.getContentAsByteArray()));
+            }
+            buffer.copyBodyToResponse();
+        }
+    }
+}
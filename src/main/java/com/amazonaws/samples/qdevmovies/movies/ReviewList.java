@@ -0,0 +1,39 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Unmodifiable list of one movie's reviews that also holds the list already serialized as a JSON
+ * array, so {@link MovieJsonModule} can copy the bytes instead of serializing every review again.
+ */
+final class ReviewList extends AbstractList<Review> implements RandomAccess {
+    private final Review[] reviews;
+    private final byte[] json;
+
+    /**
+     * @param json the reviews as a UTF-8 JSON array; it must not be modified afterwards
+     */
+    ReviewList(List<Review> reviews, byte[] json) {
+        this.reviews = reviews.toArray(new Review[0]);
+        this.json = json;
+    }
+
+    @Override
+    public Review get(int index) {
+        return reviews[index];
+    }
+
+    @Override
+    public int size() {
+        return reviews.length;
+    }
+
+    /**
+     * @return the reviews as a UTF-8 JSON array
+     */
+    byte[] json() {
+        return json;
+    }
+}
@@ -1,47 +1,288 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import com.amazonaws.samples.qdevmovies.utils.ContentHash;
+import com.amazonaws.samples.qdevmovies.utils.LongObjectHashMap;
+import com.amazonaws.samples.qdevmovies.utils.VirtualThreads;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Serves movie reviews from an in-memory index built from {@code mock-reviews.json}.
+ * The file is parsed once; when its backing file changes on disk a new index is built
+ * and swapped in atomically, so readers never parse and never see a half-built index.
+ * Each movie's reviews are also serialized to JSON while the index is built, so API responses
+ * copy the bytes instead of serializing the reviews on every request.
+ */
 @Service
 public class ReviewService {
     private static final Logger logger = LogManager.getLogger(ReviewService.class);
+    private static final String REVIEWS_RESOURCE = "mock-reviews.json";
+    private static final long RELOAD_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final Timer LOAD_TIMER = Timer.builder("movies.reviews.load")
+            .description("Time to parse the reviews file and build the review index")
+            .register(Metrics.globalRegistry);
+    private static final ObjectWriter REVIEWS_WRITER = new ObjectMapper().writerFor(new TypeReference<List<Review>>() {});
+
+    private final File reviewsFile;
+    private final AtomicReference<ReviewIndex> index = new AtomicReference<>();
+    private final AtomicLong nextReloadCheck = new AtomicLong();
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private final boolean reloadOnVirtualThread;
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+
+    public ReviewService() {
+        this(null);
+    }
+
+    /**
+     * @param reviewsPath optional file system path to the reviews JSON; when blank the
+     *                    classpath resource is used
+     */
+    public ReviewService(String reviewsPath) {
+        this(reviewsPath, false);
+    }
 
+    /**
+     * @param reviewsPath optional file system path to the reviews JSON; when blank the
+     *                    classpath resource is used
+     * @param virtualThreads whether changed files are reloaded on a virtual thread while requests
+     *                       keep reading the current index, instead of on the request thread
+     *                       that notices the change
+     */
+    @Autowired
+    public ReviewService(@Value("${movies.reviews.path:}") String reviewsPath,
+                         @Value("${movies.threads.virtual:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            VirtualThreads.requireSupported();
+        }
+        this.reloadOnVirtualThread = virtualThreads;
+        this.reviewsFile = reviewsPath != null && !reviewsPath.trim().isEmpty()
+                ? new File(reviewsPath.trim())
+                : resolveClasspathFile();
+        ReviewIndex loaded = loadIndex();
+        this.index.set(loaded != null ? loaded : ReviewIndex.EMPTY);
+        this.nextReloadCheck.set(System.nanoTime() + RELOAD_CHECK_INTERVAL_NANOS);
+
+        Gauge.builder("movies.reviews.movies", index, current -> current.get().reviews.size())
+                .description("Number of movies with reviews")
+                .baseUnit("movies")
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Returns the cached, unmodifiable reviews for a movie.
+     *
+     * @param movieId the movie id
+     * @return reviews for the movie, or an empty list if it has none
+     */
     public List<Review> getReviewsForMovie(long movieId) {
-        List<Review> reviews = new ArrayList<>();
+        reloadIfChanged();
+        List<Review> reviews = index.get().reviews.get(movieId);
+        return reviews != null ? reviews : Collections.<Review>emptyList();
+    }
+
+    /**
+     * @return a hash of the current reviews content; it changes whenever the reviews file changes
+     */
+    public long getVersion() {
+        reloadIfChanged();
+        return index.get().version;
+    }
+
+    /**
+     * Visits the reviews of every movie that has any, from one index, without checking the
+     * file for changes.
+     *
+     * @return the version of the reviews that were visited
+     */
+    long forEachMovie(LongObjectHashMap.EntryConsumer<List<Review>> consumer) {
+        ReviewIndex current = index.get();
+        current.reviews.forEach(consumer);
+        return current.version;
+    }
+
+    /**
+     * @return when the current reviews were loaded, in milliseconds since the epoch
+     */
+    public long getLastModified() {
+        reloadIfChanged();
+        return index.get().loadedAt;
+    }
+
+    /**
+     * Registers a listener that runs on the reloading thread each time changed reviews are swapped
+     * in. It should hand any lengthy work to another thread.
+     */
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    public void removeReloadListener(Runnable listener) {
+        reloadListeners.remove(listener);
+    }
+
+    /**
+     * Makes the next call check the reviews file for changes, however recently it was checked.
+     */
+    void checkForChangesNow() {
+        nextReloadCheck.set(System.nanoTime());
+    }
+
+    /**
+     * Rebuilds the index if the backing file changed since it was last loaded.
+     * At most one caller per check interval stats the file and at most one rebuild runs at a time;
+     * everyone else reads the current index. With virtual threads the rebuild runs in the background.
+     */
+    private void reloadIfChanged() {
+        if (reviewsFile == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long due = nextReloadCheck.get();
+        if (now - due < 0 || !nextReloadCheck.compareAndSet(due, now + RELOAD_CHECK_INTERVAL_NANOS)) {
+            return;
+        }
+        ReviewIndex current = index.get();
+        if (reviewsFile.lastModified() == current.lastModified && reviewsFile.length() == current.length) {
+            return;
+        }
+        if (!reloading.compareAndSet(false, true)) {
+            return;
+        }
+        if (reloadOnVirtualThread) {
+            VirtualThreads.start(this::reload);
+        } else {
+            reload();
+        }
+    }
+
+    private void reload() {
         try {
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream("mock-reviews.json");
-            if (inputStream != null) {
-                Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
-                String jsonContent = scanner.useDelimiter("\\A").next();
-                scanner.close();
-                
-                JSONObject reviewsData = new JSONObject(jsonContent);
-                if (reviewsData.has(String.valueOf(movieId))) {
-                    JSONArray movieReviews = reviewsData.getJSONArray(String.valueOf(movieId));
-                    for (int i = 0; i < movieReviews.length(); i++) {
-                        JSONObject reviewObj = movieReviews.getJSONObject(i);
-                        reviews.add(new Review(
-                            reviewObj.getString("userName"),
-                            reviewObj.getString("avatarEmoji"),
-                            reviewObj.getDouble("rating"),
-                            reviewObj.getString("comment")
-                        ));
-                    }
+            ReviewIndex reloaded = loadIndex();
+            if (reloaded != null) {
+                index.set(reloaded);
+                logger.info("Reloaded reviews for {} movies from {}", reloaded.reviews.size(), reviewsFile);
+                for (Runnable listener : reloadListeners) {
+                    listener.run();
+                }
+            }
+        } finally {
+            reloading.set(false);
+        }
+    }
+
+    private ReviewIndex loadIndex() {
+        long start = System.nanoTime();
+        ReviewIndex loaded = parseIndex();
+        if (loaded != null) {
+            LOAD_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return loaded;
+    }
+
+    private ReviewIndex parseIndex() {
+        long lastModified = reviewsFile != null ? reviewsFile.lastModified() : 0L;
+        long length = reviewsFile != null ? reviewsFile.length() : 0L;
+        try (InputStream inputStream = openReviews()) {
+            if (inputStream == null) {
+                logger.warn("Reviews source {} not found", reviewsFile != null ? reviewsFile : REVIEWS_RESOURCE);
+                return null;
+            }
+            Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
+            String jsonContent = scanner.useDelimiter("\\A").next();
+
+            JSONObject reviewsData = new JSONObject(jsonContent);
+            LongObjectHashMap<List<Review>> reviews = new LongObjectHashMap<>(reviewsData.length());
+            for (String key : reviewsData.keySet()) {
+                JSONArray movieReviews = reviewsData.getJSONArray(key);
+                List<Review> movieReviewList = new ArrayList<>(movieReviews.length());
+                for (int i = 0; i < movieReviews.length(); i++) {
+                    JSONObject reviewObj = movieReviews.getJSONObject(i);
+                    movieReviewList.add(new Review(
+                        reviewObj.getString("userName"),
+                        reviewObj.getString("avatarEmoji"),
+                        reviewObj.getDouble("rating"),
+                        reviewObj.getString("comment")
+                    ));
                 }
+                reviews.put(Long.parseLong(key), new ReviewList(movieReviewList, REVIEWS_WRITER.writeValueAsBytes(movieReviewList)));
             }
+            return new ReviewIndex(reviews, lastModified, length, ContentHash.finish(ContentHash.add(ContentHash.START, jsonContent)));
         } catch (Exception e) {
-            logger.error("Failed to load reviews for movie {}: {}", movieId, e.getMessage());
+            logger.error("Failed to load reviews: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private InputStream openReviews() throws IOException {
+        if (reviewsFile != null) {
+            return reviewsFile.isFile() ? new FileInputStream(reviewsFile) : null;
+        }
+        return getClass().getClassLoader().getResourceAsStream(REVIEWS_RESOURCE);
+    }
+
+    /**
+     * Returns the file behind the classpath resource when it lives on the file system
+     * (exploded builds, IDE runs); resources packed in a jar cannot change and are not watched.
+     */
+    private File resolveClasspathFile() {
+        URL url = getClass().getClassLoader().getResource(REVIEWS_RESOURCE);
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Immutable snapshot of all reviews keyed by movie id, stamped with the source file state,
+     * a hash of its content and the time it was loaded.
+     */
+    private static final class ReviewIndex {
+        static final ReviewIndex EMPTY = new ReviewIndex(new LongObjectHashMap<List<Review>>(), 0L, 0L, 0L);
+
+        final LongObjectHashMap<List<Review>> reviews;
+        final long lastModified;
+        final long length;
+        final long version;
+        final long loadedAt = System.currentTimeMillis();
+
+        ReviewIndex(LongObjectHashMap<List<Review>> reviews, long lastModified, long length, long version) {
+            this.reviews = reviews;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.version = version;
         }
-        return reviews;
     }
 }
@@ -0,0 +1,250 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.IntArrayList;
+import com.amazonaws.samples.qdevmovies.utils.IntSorter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Review aggregates of every movie: review count, mean rating and a histogram of ratings by star,
+ * kept in primitive arrays indexed by catalog ordinal.
+ * <p>
+ * The aggregates are computed in one pass over the review index whenever the reviews change, so
+ * pages and searches that show, sort or filter by user rating never read a review. Besides the
+ * arrays an instance holds the {@link MovieSort#USER_RATING} ordering, added to the catalog's
+ * {@link MovieSortIndex}, and a {@link RangeIndex} over the means for {@code minUserRating}.
+ * Movies without reviews have no mean: they sort after every reviewed movie and never reach a
+ * minimum. Instances are immutable once built and safe to share between threads.
+ */
+public class ReviewStats {
+    /** Number of histogram buckets; a rating counts towards the nearest whole star from 1 to 5. */
+    public static final int STARS = 5;
+    /** Range index key of movies without reviews, below every possible mean. */
+    static final double NO_RATING = -1;
+
+    private final MovieStore store;
+    private final long version;
+    private final int[] counts;
+    private final double[] means;
+    private final int[] histograms;
+    private final MovieSortIndex sortIndex;
+    private final RangeIndex meanIndex;
+
+    /**
+     * Aggregates the current reviews of every catalog movie; reviews of movies that are not in
+     * the catalog are ignored.
+     *
+     * @param catalogSortIndex the catalog's sort index, extended with the user-rating ordering
+     * @param reviewService the reviews to aggregate, or null for none
+     */
+    ReviewStats(MovieStore store, MovieSortIndex catalogSortIndex, ReviewService reviewService) {
+        int size = store.size();
+        int[] reviewCounts = new int[size];
+        double[] sums = new double[size];
+        int[] starCounts = new int[size * STARS];
+        this.store = store;
+        this.version = reviewService == null ? 0L : reviewService.forEachMovie((movieId, reviews) -> {
+            int ordinal = store.ordinalOf(movieId);
+            if (ordinal < 0) {
+                return;
+            }
+            for (Review review : reviews) {
+                reviewCounts[ordinal]++;
+                sums[ordinal] += review.getRating();
+                starCounts[ordinal * STARS + bucket(review.getRating())]++;
+            }
+        });
+        this.counts = reviewCounts;
+        this.histograms = starCounts;
+        this.means = sums;
+        int[] ordering = ordering(store, reviewCounts, sums);
+        this.sortIndex = catalogSortIndex.withOrdering(MovieSort.USER_RATING, ordering);
+        this.meanIndex = meanIndex(ordering, means);
+    }
+
+    private ReviewStats(MovieStore store, long version, int[] counts, double[] means, int[] histograms,
+                        int[] ordering, MovieSortIndex catalogSortIndex) {
+        this.store = store;
+        this.version = version;
+        this.counts = counts;
+        this.means = means;
+        this.histograms = histograms;
+        this.sortIndex = catalogSortIndex.withOrdering(MovieSort.USER_RATING, ordering);
+        this.meanIndex = meanIndex(ordering, means);
+    }
+
+    /**
+     * Turns the sums into means in place and orders the movies by them.
+     *
+     * @return the {@link MovieSort#USER_RATING} ordering in its natural direction
+     */
+    private static int[] ordering(MovieStore store, int[] reviewCounts, double[] means) {
+        int size = store.size();
+        IntArrayList reviewed = new IntArrayList();
+        IntArrayList unreviewed = new IntArrayList();
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (!store.contains(ordinal)) {
+                means[ordinal] = NO_RATING;
+            } else if (reviewCounts[ordinal] > 0) {
+                means[ordinal] = means[ordinal] / reviewCounts[ordinal];
+                reviewed.add(ordinal);
+            } else {
+                means[ordinal] = NO_RATING;
+                unreviewed.add(ordinal);
+            }
+        }
+
+        // Natural order: best mean first, ties and unreviewed movies in catalog order
+        int[] best = reviewed.toArray();
+        IntSorter.sort(best, (a, b) -> Double.compare(means[b], means[a]));
+        int[] ordering = new int[best.length + unreviewed.size()];
+        System.arraycopy(best, 0, ordering, 0, best.length);
+        System.arraycopy(unreviewed.toArray(), 0, ordering, best.length, unreviewed.size());
+        return ordering;
+    }
+
+    private static RangeIndex meanIndex(int[] ordering, double[] means) {
+        int[] ascending = new int[ordering.length];
+        for (int i = 0; i < ordering.length; i++) {
+            ascending[i] = ordering[ordering.length - 1 - i];
+        }
+        return new RangeIndex(ascending, ordinal -> means[ordinal]);
+    }
+
+    /**
+     * Returns the aggregates of a catalog that differs from this one's in a few movies. Only the
+     * reviews of the created and updated movies are read; the other movies keep their aggregates
+     * and their place in the user-rating ordering, which the changed movies are merged into in time
+     * linear in the catalog size. This instance is left unchanged.
+     *
+     * @param changedStore the changed catalog
+     * @param catalogSortIndex the changed catalog's sort index, extended with the user-rating ordering
+     * @param removed ordinals that were updated or deleted
+     * @param added ordinals that were created or updated
+     * @param reviewService the reviews to aggregate, or null for none
+     */
+    ReviewStats withChanges(MovieStore changedStore, MovieSortIndex catalogSortIndex, int[] removed, int[] added,
+                            ReviewService reviewService) {
+        int size = changedStore.size();
+        int[] reviewCounts = Arrays.copyOf(counts, size);
+        double[] changedMeans = Arrays.copyOf(means, size);
+        int[] starCounts = Arrays.copyOf(histograms, size * STARS);
+        for (int ordinal : removed) {
+            reviewCounts[ordinal] = 0;
+            changedMeans[ordinal] = NO_RATING;
+            Arrays.fill(starCounts, ordinal * STARS, (ordinal + 1) * STARS, 0);
+        }
+        for (int ordinal : added) {
+            // An update keeps the id, so it finds the same reviews; a created movie may have some too
+            List<Review> reviews = reviewService == null
+                    ? Collections.<Review>emptyList()
+                    : reviewService.getReviewsForMovie(changedStore.id(ordinal));
+            double sum = 0;
+            Arrays.fill(starCounts, ordinal * STARS, (ordinal + 1) * STARS, 0);
+            for (Review review : reviews) {
+                sum += review.getRating();
+                starCounts[ordinal * STARS + bucket(review.getRating())]++;
+            }
+            reviewCounts[ordinal] = reviews.size();
+            changedMeans[ordinal] = reviews.isEmpty() ? NO_RATING : sum / reviews.size();
+        }
+
+        IntSorter.IntComparator byMean = (a, b) -> {
+            boolean aReviewed = reviewCounts[a] > 0;
+            boolean bReviewed = reviewCounts[b] > 0;
+            if (aReviewed != bReviewed) {
+                return aReviewed ? -1 : 1;
+            }
+            int byRating = aReviewed ? Double.compare(changedMeans[b], changedMeans[a]) : 0;
+            return byRating != 0 ? byRating : Integer.compare(a, b);
+        };
+        BitSet gone = new BitSet(size);
+        for (int ordinal : removed) {
+            gone.set(ordinal);
+        }
+        int[] insertions = added.clone();
+        IntSorter.sort(insertions, byMean);
+        int[] previous = sortIndex.sortedOrdinals(MovieSort.USER_RATING);
+        int[] ordering = new int[changedStore.movieCount()];
+        int count = 0;
+        int next = 0;
+        for (int ordinal : previous) {
+            if (gone.get(ordinal)) {
+                continue;
+            }
+            while (next < insertions.length && byMean.compare(insertions[next], ordinal) < 0) {
+                ordering[count++] = insertions[next++];
+            }
+            ordering[count++] = ordinal;
+        }
+        while (next < insertions.length) {
+            ordering[count++] = insertions[next++];
+        }
+        return new ReviewStats(changedStore, version, reviewCounts, changedMeans, starCounts, ordering, catalogSortIndex);
+    }
+
+    /**
+     * @return the version of the reviews the aggregates were computed from
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the catalog's sort index including {@link MovieSort#USER_RATING}
+     */
+    public MovieSortIndex getSortIndex() {
+        return sortIndex;
+    }
+
+    /**
+     * @return range index over the mean rating of each movie, {@link #NO_RATING} for movies without reviews
+     */
+    RangeIndex getMeanIndex() {
+        return meanIndex;
+    }
+
+    public int reviewCount(int ordinal) {
+        return counts[ordinal];
+    }
+
+    /**
+     * @return the mean review rating of the movie, or {@link Double#NaN} if it has no reviews
+     */
+    public double averageRating(int ordinal) {
+        return counts[ordinal] > 0 ? means[ordinal] : Double.NaN;
+    }
+
+    /**
+     * @param star from 1 to {@value #STARS}
+     * @return the number of the movie's reviews rated closest to that many stars
+     */
+    public int starCount(int ordinal, int star) {
+        return histograms[ordinal * STARS + star - 1];
+    }
+
+    /**
+     * @return the aggregates of the movie with the given id; empty for movies without reviews or
+     *         that are not in the catalog
+     */
+    public ReviewSummary summary(long movieId) {
+        int ordinal = store.ordinalOf(movieId);
+        if (ordinal < 0 || counts[ordinal] == 0) {
+            return ReviewSummary.NONE;
+        }
+        int[] stars = new int[STARS];
+        System.arraycopy(histograms, ordinal * STARS, stars, 0, STARS);
+        return new ReviewSummary(counts[ordinal], means[ordinal], stars);
+    }
+
+    /**
+     * @return the histogram bucket of a rating: the nearest whole star, clamped to 1 to {@value #STARS}, minus one
+     */
+    static int bucket(double rating) {
+        long star = Math.round(rating);
+        return (int) Math.max(0, Math.min(STARS - 1, star - 1));
+    }
+}
@@ -0,0 +1,49 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * Review aggregates of one movie as shown on the movie grid and details pages.
+ */
+public class ReviewSummary {
+    static final ReviewSummary NONE = new ReviewSummary(0, Double.NaN, new int[ReviewStats.STARS]);
+
+    private final int reviewCount;
+    private final double averageRating;
+    private final int[] starCounts;
+
+    ReviewSummary(int reviewCount, double averageRating, int[] starCounts) {
+        this.reviewCount = reviewCount;
+        this.averageRating = averageRating;
+        this.starCounts = starCounts;
+    }
+
+    public boolean hasReviews() {
+        return reviewCount > 0;
+    }
+
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    /**
+     * @return the mean review rating, or {@link Double#NaN} without reviews
+     */
+    public double getAverageRating() {
+        return averageRating;
+    }
+
+    /**
+     * @param star from 1 to {@value ReviewStats#STARS}
+     * @return the number of reviews rated closest to that many stars
+     */
+    public int getStarCount(int star) {
+        return starCounts[star - 1];
+    }
+
+    /**
+     * @param star from 1 to {@value ReviewStats#STARS}
+     * @return the share of reviews rated closest to that many stars, as a whole percentage
+     */
+    public int getStarPercent(int star) {
+        return reviewCount > 0 ? Math.round(100f * starCounts[star - 1] / reviewCount) : 0;
+    }
+}
@@ -0,0 +1,255 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.IntArrayList;
+import com.amazonaws.samples.qdevmovies.utils.IntSorter;
+import com.amazonaws.samples.qdevmovies.utils.LongObjectHashMap;
+import com.amazonaws.samples.qdevmovies.utils.TrigramIndex;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Prefix index answering "the best-ranked movies whose name has a word starting with this prefix"
+ * for autocomplete.
+ * <p>
+ * Every word start of every folded name is an entry, so "esc" finds "The Prison Escape". The
+ * entries are kept as (ordinal, offset) pairs sorted by the name text from the offset, which makes
+ * the entries for any prefix one contiguous range found by two binary searches. That sorted array
+ * is a flattened trie: each trie node is a range. Nodes holding more than {@value #SCAN_THRESHOLD}
+ * entries store their best {@value #MAX_SUGGESTIONS} movies, computed bottom-up at build time;
+ * smaller nodes are ranked on the fly from their few entries. Nodes are keyed by their range, so a
+ * chain of prefixes that select the same entries shares one list.
+ * Instances are immutable once built and safe to share between threads.
+ */
+public class SuggestIndex {
+    /** Most suggestions one lookup returns. */
+    public static final int MAX_SUGGESTIONS = 20;
+    /** Ranges up to this many entries are ranked on each lookup instead of storing their best movies. */
+    static final int SCAN_THRESHOLD = 64;
+
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private final String[] folded;
+    private final int[] entryOrdinals;
+    private final int[] entryOffsets;
+    private final IntUnaryOperator rank;
+    private final LongObjectHashMap<int[]> bestByRange = new LongObjectHashMap<>();
+
+    /**
+     * Builds the index; the ordinal of each name is its position in the list.
+     *
+     * @param rank position of each ordinal in the suggestion order; lower is better and every
+     *             ordinal has a distinct position
+     */
+    public SuggestIndex(List<String> names, IntUnaryOperator rank) {
+        this.rank = rank;
+        this.folded = new String[names.size()];
+        IntArrayList ordinals = new IntArrayList(names.size() * 3);
+        IntArrayList offsets = new IntArrayList(names.size() * 3);
+        for (int ordinal = 0; ordinal < folded.length; ordinal++) {
+            String name = TrigramIndex.fold(names.get(ordinal));
+            folded[ordinal] = name;
+            for (int offset = 0; offset < name.length(); offset++) {
+                if (isWordStart(name, offset)) {
+                    ordinals.add(ordinal);
+                    offsets.add(offset);
+                }
+            }
+        }
+
+        int[] order = new int[ordinals.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        int[] unsortedOrdinals = ordinals.toArray();
+        int[] unsortedOffsets = offsets.toArray();
+        IntSorter.sort(order, (a, b) -> compareSuffixes(
+                folded[unsortedOrdinals[a]], unsortedOffsets[a], folded[unsortedOrdinals[b]], unsortedOffsets[b]));
+        this.entryOrdinals = new int[order.length];
+        this.entryOffsets = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            entryOrdinals[i] = unsortedOrdinals[order[i]];
+            entryOffsets[i] = unsortedOffsets[order[i]];
+        }
+
+        if (entryOrdinals.length > SCAN_THRESHOLD) {
+            buildNode(0, entryOrdinals.length, 0);
+        }
+    }
+
+    /**
+     * @param prefix the start of a word of the name; case-insensitive, leading and trailing
+     *               whitespace is ignored
+     * @param limit the most suggestions to return, at most {@value #MAX_SUGGESTIONS}
+     * @return ordinals of the best-ranked matching movies, best first; empty for a blank prefix
+     */
+    public int[] suggest(String prefix, int limit) {
+        String key = TrigramIndex.fold(prefix);
+        int count = Math.min(limit, MAX_SUGGESTIONS);
+        if (key.isEmpty() || count < 1) {
+            return NO_ORDINALS;
+        }
+        int from = lowerBound(key);
+        int to = upperBound(key, from);
+        int[] best = to - from > SCAN_THRESHOLD ? bestByRange.get(rangeKey(from, to)) : rankRange(from, to);
+        return best.length > count ? Arrays.copyOf(best, count) : best;
+    }
+
+    /**
+     * Checks one folded name the way a lookup of the prefix would find it; used for movies changed
+     * since the index was built.
+     *
+     * @return whether a word of the name starts with the folded prefix
+     */
+    static boolean matches(String foldedName, String foldedPrefix) {
+        for (int offset = 0; offset < foldedName.length(); offset++) {
+            if (isWordStart(foldedName, offset) && foldedName.startsWith(foldedPrefix, offset)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWordStart(String name, int offset) {
+        return Character.isLetterOrDigit(name.charAt(offset))
+                && (offset == 0 || !Character.isLetterOrDigit(name.charAt(offset - 1)));
+    }
+
+    /**
+     * @return the number of word-start entries in the index
+     */
+    public int size() {
+        return entryOrdinals.length;
+    }
+
+    /**
+     * Stores the best movies of the node covering entries {@code [from, to)}, whose keys share
+     * their first {@code depth} characters, after building its children. Called only for nodes
+     * with more than {@value #SCAN_THRESHOLD} entries.
+     */
+    private int[] buildNode(int from, int to, int depth) {
+        long key = rangeKey(from, to);
+        int[] stored = bestByRange.get(key);
+        if (stored != null) {
+            return stored;
+        }
+        // Entries whose key ends at this depth sort first; the rest split by their next character
+        int start = from;
+        while (start < to && entryOffsets[start] + depth >= folded[entryOrdinals[start]].length()) {
+            start++;
+        }
+        int[] best = rankRange(from, start);
+        for (int child = start; child < to; ) {
+            char c = charAt(child, depth);
+            int end = child + 1;
+            while (end < to && charAt(end, depth) == c) {
+                end++;
+            }
+            int[] childBest = end - child > SCAN_THRESHOLD ? buildNode(child, end, depth + 1) : rankRange(child, end);
+            best = merge(best, childBest);
+            child = end;
+        }
+        bestByRange.put(key, best);
+        return best;
+    }
+
+    /**
+     * @return the best {@value #MAX_SUGGESTIONS} distinct movies among entries {@code [from, to)}, best first
+     */
+    private int[] rankRange(int from, int to) {
+        int[] ordinals = Arrays.copyOfRange(entryOrdinals, from, to);
+        IntSorter.sort(ordinals, (a, b) -> Integer.compare(rank.applyAsInt(a), rank.applyAsInt(b)));
+        int count = 0;
+        for (int i = 0; i < ordinals.length && count < MAX_SUGGESTIONS; i++) {
+            if (count == 0 || ordinals[count - 1] != ordinals[i]) {
+                ordinals[count++] = ordinals[i];
+            }
+        }
+        return count == ordinals.length ? ordinals : Arrays.copyOf(ordinals, count);
+    }
+
+    /**
+     * Merges two best-first lists, dropping movies already taken from the other list.
+     */
+    private int[] merge(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        if (a.length == 0) {
+            return b;
+        }
+        int[] merged = new int[Math.min(a.length + b.length, MAX_SUGGESTIONS)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (count < merged.length && (i < a.length || j < b.length)) {
+            int next;
+            if (j >= b.length || (i < a.length && rank.applyAsInt(a[i]) <= rank.applyAsInt(b[j]))) {
+                next = a[i++];
+            } else {
+                next = b[j++];
+            }
+            if (count == 0 || merged[count - 1] != next) {
+                merged[count++] = next;
+            }
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+
+    /**
+     * @return index of the first entry whose key is not before the prefix
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = entryOrdinals.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareSuffixes(folded[entryOrdinals[mid]], entryOffsets[mid], prefix, 0) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return index of the first entry at or after {@code from} whose key does not start with the prefix
+     */
+    private int upperBound(String prefix, int from) {
+        int low = from;
+        int high = entryOrdinals.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (folded[entryOrdinals[mid]].startsWith(prefix, entryOffsets[mid])) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private char charAt(int entry, int depth) {
+        return folded[entryOrdinals[entry]].charAt(entryOffsets[entry] + depth);
+    }
+
+    private static int compareSuffixes(String a, int aOffset, String b, int bOffset) {
+        int aLength = a.length() - aOffset;
+        int bLength = b.length() - bOffset;
+        int length = Math.min(aLength, bLength);
+        for (int i = 0; i < length; i++) {
+            char ca = a.charAt(aOffset + i);
+            char cb = b.charAt(bOffset + i);
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    private static long rangeKey(int from, int to) {
+        return ((long) from << 32) | to;
+    }
+}
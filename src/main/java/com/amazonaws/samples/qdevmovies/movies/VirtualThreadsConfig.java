@@ -0,0 +1,40 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.VirtualThreads;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs servlet requests on virtual threads when {@code movies.threads.virtual} is true.
+ * <p>
+ * Tomcat's bounded worker pool is replaced by an executor that starts one virtual thread per
+ * request, so connections that wait on slow clients or blocking I/O no longer hold one of a
+ * fixed number of platform threads. Needs Java 21; startup fails on older JVMs. When the
+ * property is false, the default, Tomcat keeps its classic pool sized by
+ * {@code server.tomcat.threads.max}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "movies.threads.virtual", havingValue = "true")
+public class VirtualThreadsConfig {
+    private static final Logger logger = LogManager.getLogger(VirtualThreadsConfig.class);
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadRequestExecutor() {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor();
+        logger.info("Serving requests on virtual threads");
+        return executor;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(
+            ExecutorService virtualThreadRequestExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadRequestExecutor);
+    }
+}
@@ -0,0 +1,547 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, checksummed log of the batches of movie changes applied to the catalog, so that
+ * edits survive a restart or a crash.
+ * <p>
+ * The log is a series of segment files, each named after the sequence number of its first record
+ * ({@code wal-00000000000000000001.log}). Every batch is one record. Layout, all numbers big-endian:
+ * <pre>
+ * segment  8 bytes    magic, version, then records back to back
+ * record   16 bytes   length of sequence number and payload (int), CRC-32 of both (int),
+ *                     sequence number (long), then the payload
+ * payload             change count (int), then per change the action (byte), the movie id (long)
+ *                     and, except for a delete, name, director, year, genre, description, duration
+ *                     and rating; strings as a byte length (int) followed by UTF-8 bytes
+ * </pre>
+ * {@link #append} writes a record to the operating system's page cache and {@link #awaitDurable}
+ * waits until it is on disk. Syncing is a group commit: one caller forces the file while others
+ * keep appending, and each {@code fsync} covers every record written before it started, so
+ * concurrent writers share the cost of a sync instead of queueing for one each.
+ * <p>
+ * Opening a log reads every segment. A record cut short or failing its checksum at the end of the
+ * last segment is left by a crash in the middle of a write that was never acknowledged, so the
+ * segment is truncated to the last good record. Damage anywhere else fails the open.
+ */
+final class WriteAheadLog implements Closeable {
+    private static final Logger logger = LogManager.getLogger(WriteAheadLog.class);
+    static final int MAGIC = 0x514D574C;
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 16;
+    /** Largest record accepted when reading, far above what {@link MovieService#MAX_CHANGES} changes need. */
+    static final int MAX_RECORD_SIZE = 64 << 20;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final Timer SYNCS = Timer.builder("movies.catalog.wal.syncs")
+            .description("Time to force the write-ahead log to disk")
+            .register(Metrics.globalRegistry);
+    private static final DistributionSummary SYNC_RECORDS = DistributionSummary.builder("movies.catalog.wal.sync.records")
+            .description("Batches of changes made durable by one sync of the write-ahead log")
+            .baseUnit("batches")
+            .register(Metrics.globalRegistry);
+
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition synced = lock.newCondition();
+    private FileChannel channel;
+    private long segmentStart;
+    private long lastSequence;
+    private long durableSequence;
+    private long size;
+    private boolean syncing;
+    private IOException failure;
+
+    private WriteAheadLog(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the log in a directory, replays the batches logged after a checkpoint and readies the
+     * log for appending.
+     *
+     * @param checkpoint sequence number of the last batch already contained in the catalog being
+     *                   recovered; batches up to it are skipped
+     * @param replay receives every later batch, in order
+     * @throws IOException if a segment cannot be read, truncated or created
+     * @throws CatalogLoadException if the log is damaged other than at its very end, or batches
+     *                              after the checkpoint are missing
+     */
+    static WriteAheadLog open(Path directory, long checkpoint, Consumer<List<MovieChange>> replay) throws IOException {
+        Files.createDirectories(directory);
+        WriteAheadLog log = new WriteAheadLog(directory);
+        TreeMap<Long, Path> segments = segments(directory);
+        long last = checkpoint;
+        long expected = checkpoint + 1;
+        long tailLast = 0;
+        for (Path segment : segments.values()) {
+            long[] scanned = scan(segment, segment.equals(segments.lastEntry().getValue()), expected, replay);
+            tailLast = scanned[0];
+            last = Math.max(last, tailLast);
+            expected = last + 1;
+            log.size += scanned[1];
+        }
+        log.lastSequence = last;
+        log.durableSequence = last;
+
+        if (!segments.isEmpty()) {
+            Path tail = segments.lastEntry().getValue();
+            boolean continues = tailLast != 0 ? tailLast == last : segments.lastKey() == last + 1;
+            if (continues) {
+                log.segmentStart = segments.lastKey();
+                log.channel = FileChannel.open(tail, StandardOpenOption.WRITE);
+                log.channel.position(log.channel.size());
+                return log;
+            }
+            if (tailLast == 0) {
+                // Nothing was appended to the newest segment; start it again after the checkpoint
+                log.size -= Files.size(tail);
+                Files.delete(tail);
+            }
+        }
+        log.startSegment(last + 1);
+        return log;
+    }
+
+    private static TreeMap<Long, Path> segments(Path directory) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring {} in the write-ahead log directory", file);
+                }
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Reads one segment, replaying the batches from {@code expected} on.
+     *
+     * @return the sequence number of the segment's last good record (0 if it has none), and the
+     *         segment's length after any truncation
+     */
+    private static long[] scan(Path segment, boolean isLast, long expected, Consumer<List<MovieChange>> replay) throws IOException {
+        long last = 0;
+        long position = 0;
+        String damage = null;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long length = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            if (length < SEGMENT_HEADER_SIZE) {
+                damage = "segment header is cut short";
+            } else {
+                readFully(channel, header, 0, SEGMENT_HEADER_SIZE);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw damaged(segment, 0, "not a write-ahead log segment");
+                }
+                position = SEGMENT_HEADER_SIZE;
+            }
+            while (damage == null && position < length) {
+                if (length - position < RECORD_HEADER_SIZE) {
+                    damage = "record header is cut short";
+                    break;
+                }
+                readFully(channel, header, position, RECORD_HEADER_SIZE);
+                int recordLength = header.getInt(0);
+                if (recordLength < 8 || recordLength > MAX_RECORD_SIZE) {
+                    damage = "invalid record length " + recordLength;
+                    break;
+                }
+                if (position + 8 + recordLength > length) {
+                    damage = "record is cut short";
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.allocate(recordLength);
+                readFully(channel, record, position + 8, recordLength);
+                CRC32 crc = new CRC32();
+                crc.update(record.array(), 0, recordLength);
+                if ((int) crc.getValue() != header.getInt(4)) {
+                    damage = "checksum mismatch";
+                    break;
+                }
+                long sequence = record.getLong(0);
+                if (last != 0 && sequence != last + 1) {
+                    throw damaged(segment, position, "sequence " + sequence + " follows " + last);
+                }
+                if (sequence >= expected) {
+                    if (sequence != expected) {
+                        throw damaged(segment, position, "batches " + expected + " to " + (sequence - 1) + " are missing");
+                    }
+                    replay.accept(decode(record.array(), 8, recordLength - 8, segment, position));
+                    expected++;
+                }
+                last = sequence;
+                position += 8 + recordLength;
+            }
+        }
+        if (damage == null) {
+            return new long[] {last, position};
+        }
+        if (!isLast) {
+            throw damaged(segment, position, damage);
+        }
+        logger.warn("Truncating write-ahead log {} at byte {}: {}; the batch being written when the service stopped was lost",
+                segment, position, damage);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            if (position == 0) {
+                ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                position = SEGMENT_HEADER_SIZE;
+            }
+            channel.truncate(position);
+            channel.force(true);
+        }
+        return new long[] {last, position};
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    private static CatalogLoadException damaged(Path segment, long position, String reason) {
+        return new CatalogLoadException("Damaged write-ahead log " + segment + " at byte " + position + ": " + reason);
+    }
+
+    /**
+     * @return the sequence number of the last batch appended
+     */
+    long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return bytes held by every segment of the log
+     */
+    long size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a batch of changes. The batch is not durable until {@link #awaitDurable} returns for
+     * its sequence number. Once an append or a sync has failed, every later call fails too, since
+     * records after a damaged one would be lost on recovery.
+     *
+     * @param changes changes whose ids are all set, so that replaying them gives the same result
+     * @return the batch's sequence number
+     * @throws IOException if the record cannot be written
+     */
+    long append(List<MovieChange> changes) throws IOException {
+        byte[] payload = encode(changes);
+        lock.lock();
+        try {
+            checkUsable();
+            long sequence = lastSequence + 1;
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+            record.putInt(8 + payload.length).putInt(0).putLong(sequence).put(payload);
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 8, 8 + payload.length);
+            record.putInt(4, (int) crc.getValue());
+            record.flip();
+            try {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            lastSequence = sequence;
+            size += record.limit();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the batch with the sequence number, and every batch before it, is on disk. If no
+     * sync is running the caller forces the log itself; otherwise it waits for the running sync and,
+     * if that one started before its batch was written, for the next.
+     *
+     * @throws IOException if the log cannot be forced to disk
+     */
+    void awaitDurable(long sequence) throws IOException {
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                checkUsable();
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long target = lastSequence;
+                long previous = durableSequence;
+                FileChannel segment = channel;
+                lock.unlock();
+                long start = System.nanoTime();
+                IOException error = null;
+                try {
+                    segment.force(false);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                    syncing = false;
+                    synced.signalAll();
+                }
+                if (error != null) {
+                    failure = error;
+                    throw error;
+                }
+                SYNCS.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                SYNC_RECORDS.record(target - previous);
+                durableSequence = Math.max(durableSequence, target);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes every appended batch durable and starts a new segment for the following ones, so that a
+     * checkpoint of the catalog up to the returned sequence number lets {@link #deleteThrough}
+     * drop every earlier segment. Does nothing but return the sequence number if nothing was
+     * appended to the current segment.
+     *
+     * @return the sequence number of the last batch before the new segment
+     * @throws IOException if the log cannot be forced or the segment cannot be created
+     */
+    long roll() throws IOException {
+        lock.lock();
+        try {
+            checkUsable();
+            while (syncing) {
+                synced.awaitUninterruptibly();
+            }
+            if (lastSequence >= segmentStart) {
+                try {
+                    channel.force(false);
+                    channel.close();
+                    durableSequence = lastSequence;
+                    startSegment(lastSequence + 1);
+                } catch (IOException e) {
+                    failure = e;
+                    throw e;
+                } finally {
+                    synced.signalAll();
+                }
+            }
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments that hold only batches up to the sequence number, once a checkpoint
+     * contains them. The segment being appended to is always kept.
+     *
+     * @throws IOException if a segment cannot be deleted
+     */
+    void deleteThrough(long sequence) throws IOException {
+        lock.lock();
+        try {
+            TreeMap<Long, Path> segments = segments(directory);
+            List<Path> obsolete = new ArrayList<>();
+            Long next = null;
+            for (Long start : segments.descendingKeySet()) {
+                if (start != segmentStart && next != null && next - 1 <= sequence) {
+                    obsolete.add(segments.get(start));
+                }
+                next = start;
+            }
+            for (Path segment : obsolete) {
+                size -= Files.size(segment);
+                Files.delete(segment);
+            }
+            if (!obsolete.isEmpty()) {
+                syncDirectory(directory);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the log to disk and closes it; later appends fail.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (channel.isOpen()) {
+                while (syncing) {
+                    synced.awaitUninterruptibly();
+                }
+                channel.force(false);
+                channel.close();
+                durableSequence = lastSequence;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkUsable() throws IOException {
+        if (failure != null) {
+            throw new IOException("The write-ahead log failed earlier and accepts no more batches: " + failure.getMessage(), failure);
+        }
+        if (!channel.isOpen()) {
+            throw new IOException("The write-ahead log is closed");
+        }
+    }
+
+    private void startSegment(long start) throws IOException {
+        Path segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, start, SEGMENT_SUFFIX));
+        FileChannel created = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            created.write(header);
+        }
+        created.force(true);
+        syncDirectory(directory);
+        channel = created;
+        segmentStart = start;
+        size += SEGMENT_HEADER_SIZE;
+    }
+
+    /**
+     * Forces a directory's entries to disk, so that files created, renamed or deleted in it stay
+     * that way after a crash. File systems that cannot sync a directory are skipped.
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Cannot sync directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    static byte[] encode(List<MovieChange> changes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * changes.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(changes.size());
+            for (MovieChange change : changes) {
+                MovieChange.Action action = change.getActionType();
+                out.writeByte(action.ordinal());
+                out.writeLong(change.getId());
+                if (action != MovieChange.Action.DELETE) {
+                    MovieRequest movie = change.getMovie();
+                    writeString(out, movie.getMovieName());
+                    writeString(out, movie.getDirector());
+                    out.writeInt(movie.getYear());
+                    writeString(out, movie.getGenre());
+                    writeString(out, movie.getDescription());
+                    out.writeInt(movie.getDuration());
+                    out.writeDouble(movie.getImdbRating());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode changes in memory", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] encoded = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    private static List<MovieChange> decode(byte[] record, int offset, int length, Path segment, long position) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, offset, length))) {
+            int count = in.readInt();
+            if (count < 0 || count > length) {
+                throw damaged(segment, position, "invalid change count " + count);
+            }
+            List<MovieChange> changes = new ArrayList<>(count);
+            MovieChange.Action[] actions = MovieChange.Action.values();
+            for (int i = 0; i < count; i++) {
+                int action = in.readByte();
+                if (action < 0 || action >= actions.length) {
+                    throw damaged(segment, position, "unknown action " + action);
+                }
+                long id = in.readLong();
+                if (actions[action] == MovieChange.Action.DELETE) {
+                    changes.add(MovieChange.delete(id));
+                    continue;
+                }
+                String name = readString(in);
+                String director = readString(in);
+                int year = in.readInt();
+                String genre = readString(in);
+                String description = readString(in);
+                int duration = in.readInt();
+                double rating = in.readDouble();
+                changes.add(new MovieChange(actions[action], id,
+                        new MovieRequest(id, name, director, year, genre, description, duration, rating)));
+            }
+            return changes;
+        } catch (IOException e) {
+            throw damaged(segment, position, "record does not hold valid changes");
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,135 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Burkhard-Keller tree over a fixed set of words under the Levenshtein distance, answering
+ * "every word within {@code k} edits of the query" without comparing the query to every word.
+ * <p>
+ * Each child hangs off its parent at the distance between the two words, so by the triangle
+ * inequality a search only descends into children whose edge lies within {@code k} of the
+ * query's distance to the parent. For small {@code k} that visits a small fraction of the tree.
+ * Instances are immutable once built and safe to share between threads.
+ */
+public class BkTree {
+    private final String[] words;
+    private final Node root;
+
+    /**
+     * Builds the tree; the index of each word is its position in the list. Words must be distinct.
+     */
+    public BkTree(List<String> words) {
+        this.words = words.toArray(new String[0]);
+        Node tree = null;
+        for (int index = 0; index < this.words.length; index++) {
+            if (tree == null) {
+                tree = new Node(index);
+            } else {
+                insert(tree, index);
+            }
+        }
+        this.root = tree;
+    }
+
+    /**
+     * Receives one word found by {@link #search}.
+     */
+    public interface MatchConsumer {
+        void accept(int wordIndex, int distance);
+    }
+
+    /**
+     * Finds every word within {@code maxDistance} edits of the query, in no particular order.
+     */
+    public void search(String query, int maxDistance, MatchConsumer consumer) {
+        if (root == null) {
+            return;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(query, words[node.wordIndex]);
+            if (distance <= maxDistance) {
+                consumer.accept(node.wordIndex, distance);
+            }
+            Node[] children = node.children;
+            int from = Math.max(distance - maxDistance, 1);
+            int to = Math.min(distance + maxDistance, children.length - 1);
+            for (int edge = from; edge <= to; edge++) {
+                if (children[edge] != null) {
+                    pending.push(children[edge]);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return words.length;
+    }
+
+    /**
+     * @return the Levenshtein distance between the strings: the fewest single-character
+     *         insertions, deletions and substitutions that turn one into the other
+     */
+    public static int distance(String a, String b) {
+        if (a.length() < b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private void insert(Node tree, int index) {
+        Node node = tree;
+        while (true) {
+            int distance = distance(words[index], words[node.wordIndex]);
+            if (distance == 0) {
+                throw new IllegalArgumentException("Duplicate word '" + words[index] + "'");
+            }
+            if (distance >= node.children.length) {
+                node.children = Arrays.copyOf(node.children, distance + 1);
+            }
+            Node child = node.children[distance];
+            if (child == null) {
+                node.children[distance] = new Node(index);
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * One word and its children, indexed by their distance to it.
+     */
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        final int wordIndex;
+        Node[] children = NO_CHILDREN;
+
+        Node(int wordIndex) {
+            this.wordIndex = wordIndex;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the {@code capacity} smallest ints offered to it, using a max-heap so each offer costs
+ * O(log capacity) and the whole input never has to be sorted. Used for top-K selection.
+ */
+public class BoundedIntHeap {
+    private final int[] heap;
+    private int size;
+
+    public BoundedIntHeap(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+        this.heap = new int[capacity];
+    }
+
+    /**
+     * Adds the value if the heap is not full yet or the value is smaller than the largest kept value.
+     */
+    public void offer(int value) {
+        if (size < heap.length) {
+            heap[size] = value;
+            siftUp(size++);
+        } else if (size > 0 && value < heap[0]) {
+            heap[0] = value;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the kept values in ascending order
+     */
+    public int[] toSortedArray() {
+        int[] values = Arrays.copyOf(heap, size);
+        Arrays.sort(values);
+        return values;
+    }
+
+    private void siftUp(int index) {
+        int value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] >= value) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private void siftDown(int index) {
+        int value = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (value >= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+}
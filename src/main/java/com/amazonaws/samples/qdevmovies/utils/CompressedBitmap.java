@@ -0,0 +1,408 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable compressed bitmap of non-negative ints, organized like a roaring bitmap.
+ * <p>
+ * Values are partitioned by their high 16 bits into chunks. Each chunk stores its low 16 bits
+ * either as a sorted {@code char[]} (sparse, up to {@value #ARRAY_MAX} values) or as a
+ * 65536-bit {@code long[]} bitset (dense). Set operations work chunk by chunk and pick the
+ * cheaper representation for each result chunk.
+ * <p>
+ * {@link #writeTo} stores a bitmap as its chunk count and cardinality (ints) followed by each
+ * chunk's key and value count (ints, a count of -1 marking a bitset) and its {@code char} values
+ * or bitset words, so {@link #readFrom} rebuilds it with bulk copies instead of re-adding values.
+ */
+public final class CompressedBitmap {
+    static final int ARRAY_MAX = 4096;
+    private static final int BITSET_WORDS = 1024;
+
+    private static final CompressedBitmap EMPTY = new CompressedBitmap(new char[0], new Object[0], 0);
+
+    private final char[] keys;
+    private final Object[] containers;
+    private final int cardinality;
+
+    private CompressedBitmap(char[] keys, Object[] containers, int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    public static CompressedBitmap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds a bitmap from the first {@code length} values of an ascending, duplicate-free array.
+     */
+    public static CompressedBitmap fromSorted(int[] values, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        char[] keys = new char[(values[length - 1] >>> 16) - (values[0] >>> 16) + 1];
+        Object[] containers = new Object[keys.length];
+        int chunkCount = 0;
+        int start = 0;
+        while (start < length) {
+            int key = values[start] >>> 16;
+            int end = start;
+            while (end < length && (values[end] >>> 16) == key) {
+                end++;
+            }
+            int count = end - start;
+            if (count <= ARRAY_MAX) {
+                char[] lows = new char[count];
+                for (int i = 0; i < count; i++) {
+                    lows[i] = (char) values[start + i];
+                }
+                containers[chunkCount] = lows;
+            } else {
+                long[] bits = new long[BITSET_WORDS];
+                for (int i = start; i < end; i++) {
+                    int low = values[i] & 0xFFFF;
+                    bits[low >>> 6] |= 1L << low;
+                }
+                containers[chunkCount] = bits;
+            }
+            keys[chunkCount++] = (char) key;
+            start = end;
+        }
+        return new CompressedBitmap(Arrays.copyOf(keys, chunkCount), Arrays.copyOf(containers, chunkCount), length);
+    }
+
+    public static CompressedBitmap of(int... sortedValues) {
+        return fromSorted(sortedValues, sortedValues.length);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int value) {
+        int k = Arrays.binarySearch(keys, (char) (value >>> 16));
+        if (k < 0) {
+            return false;
+        }
+        Object container = containers[k];
+        char low = (char) value;
+        if (container instanceof char[]) {
+            return Arrays.binarySearch((char[]) container, low) >= 0;
+        }
+        return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+    }
+
+    /**
+     * @return all values in ascending order
+     */
+    public int[] toArray() {
+        int[] values = new int[cardinality];
+        int n = 0;
+        for (int k = 0; k < keys.length; k++) {
+            int high = keys[k] << 16;
+            Object container = containers[k];
+            if (container instanceof char[]) {
+                for (char low : (char[]) container) {
+                    values[n++] = high | low;
+                }
+            } else {
+                long[] bits = (long[]) container;
+                for (int w = 0; w < bits.length; w++) {
+                    long word = bits[w];
+                    while (word != 0) {
+                        values[n++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return the number of bytes {@link #writeTo} writes
+     */
+    public int serializedSize() {
+        int bytes = 8;
+        for (Object container : containers) {
+            bytes += 8 + (container instanceof char[] ? 2 * ((char[]) container).length : 8 * BITSET_WORDS);
+        }
+        return bytes;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(keys.length);
+        out.writeInt(cardinality);
+        for (int k = 0; k < keys.length; k++) {
+            out.writeInt(keys[k]);
+            Object container = containers[k];
+            if (container instanceof char[]) {
+                char[] lows = (char[]) container;
+                out.writeInt(lows.length);
+                for (char low : lows) {
+                    out.writeChar(low);
+                }
+            } else {
+                out.writeInt(-1);
+                for (long word : (long[]) container) {
+                    out.writeLong(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a bitmap written by {@link #writeTo}, starting at the buffer's position and leaving
+     * the position after it.
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid bitmap
+     * @throws java.nio.BufferUnderflowException if the buffer ends inside the bitmap
+     */
+    public static CompressedBitmap readFrom(ByteBuffer buffer) {
+        int chunkCount = buffer.getInt();
+        int cardinality = buffer.getInt();
+        if (chunkCount < 0 || chunkCount > 1 << 16 || cardinality < 0) {
+            throw new IllegalArgumentException("Invalid bitmap header");
+        }
+        char[] keys = new char[chunkCount];
+        Object[] containers = new Object[chunkCount];
+        int total = 0;
+        for (int k = 0; k < chunkCount; k++) {
+            int key = buffer.getInt();
+            int count = buffer.getInt();
+            if (key < 0 || key > 0xFFFF || (k > 0 && key <= keys[k - 1]) || count < -1 || count > 1 << 16) {
+                throw new IllegalArgumentException("Invalid bitmap chunk " + k);
+            }
+            keys[k] = (char) key;
+            if (count >= 0) {
+                char[] lows = new char[count];
+                buffer.asCharBuffer().get(lows);
+                buffer.position(buffer.position() + 2 * count);
+                containers[k] = lows;
+            } else {
+                long[] bits = new long[BITSET_WORDS];
+                buffer.asLongBuffer().get(bits);
+                buffer.position(buffer.position() + 8 * BITSET_WORDS);
+                containers[k] = bits;
+            }
+            total += containerCardinality(containers[k]);
+        }
+        if (total != cardinality) {
+            throw new IllegalArgumentException("Bitmap holds " + total + " values, expected " + cardinality);
+        }
+        return chunkCount == 0 ? EMPTY : new CompressedBitmap(keys, containers, cardinality);
+    }
+
+    public CompressedBitmap and(CompressedBitmap other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        int capacity = Math.min(keys.length, other.keys.length);
+        char[] resultKeys = new char[capacity];
+        Object[] resultContainers = new Object[capacity];
+        int chunkCount = 0;
+        int total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object container = andContainers(containers[i], other.containers[j]);
+                int count = containerCardinality(container);
+                if (count > 0) {
+                    resultKeys[chunkCount] = keys[i];
+                    resultContainers[chunkCount++] = container;
+                    total += count;
+                }
+                i++;
+                j++;
+            }
+        }
+        return total == 0 ? EMPTY
+                : new CompressedBitmap(Arrays.copyOf(resultKeys, chunkCount), Arrays.copyOf(resultContainers, chunkCount), total);
+    }
+
+    public CompressedBitmap or(CompressedBitmap other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        int capacity = keys.length + other.keys.length;
+        char[] resultKeys = new char[capacity];
+        Object[] resultContainers = new Object[capacity];
+        int chunkCount = 0;
+        int total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            Object container;
+            char key;
+            if (j >= other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                key = keys[i];
+                container = containers[i++];
+            } else if (i >= keys.length || keys[i] > other.keys[j]) {
+                key = other.keys[j];
+                container = other.containers[j++];
+            } else {
+                key = keys[i];
+                container = orContainers(containers[i++], other.containers[j++]);
+            }
+            resultKeys[chunkCount] = key;
+            resultContainers[chunkCount++] = container;
+            total += containerCardinality(container);
+        }
+        return new CompressedBitmap(Arrays.copyOf(resultKeys, chunkCount), Arrays.copyOf(resultContainers, chunkCount), total);
+    }
+
+    /**
+     * Intersects all bitmaps, smallest first; an empty list yields an empty bitmap.
+     */
+    public static CompressedBitmap and(List<CompressedBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return EMPTY;
+        }
+        CompressedBitmap[] sorted = bitmaps.toArray(new CompressedBitmap[0]);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.cardinality, b.cardinality));
+        CompressedBitmap result = sorted[0];
+        for (int i = 1; i < sorted.length && !result.isEmpty(); i++) {
+            result = result.and(sorted[i]);
+        }
+        return result;
+    }
+
+    public static CompressedBitmap or(List<CompressedBitmap> bitmaps) {
+        CompressedBitmap result = EMPTY;
+        for (CompressedBitmap bitmap : bitmaps) {
+            result = result.or(bitmap);
+        }
+        return result;
+    }
+
+    private static Object andContainers(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a;
+            char[] y = (char[]) b;
+            char[] out = new char[Math.min(x.length, y.length)];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < x.length && j < y.length) {
+                if (x[i] < y[j]) {
+                    i++;
+                } else if (x[i] > y[j]) {
+                    j++;
+                } else {
+                    out[n++] = x[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+        if (a instanceof char[] || b instanceof char[]) {
+            char[] array = (char[]) (a instanceof char[] ? a : b);
+            long[] bits = (long[]) (a instanceof char[] ? b : a);
+            char[] out = new char[array.length];
+            int n = 0;
+            for (char low : array) {
+                if ((bits[low >>> 6] & (1L << low)) != 0) {
+                    out[n++] = low;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+        long[] x = (long[]) a;
+        long[] y = (long[]) b;
+        long[] out = new long[BITSET_WORDS];
+        int count = 0;
+        for (int w = 0; w < BITSET_WORDS; w++) {
+            out[w] = x[w] & y[w];
+            count += Long.bitCount(out[w]);
+        }
+        return count <= ARRAY_MAX ? toArrayContainer(out, count) : out;
+    }
+
+    private static Object orContainers(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a;
+            char[] y = (char[]) b;
+            char[] out = new char[x.length + y.length];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < x.length || j < y.length) {
+                if (j >= y.length || (i < x.length && x[i] < y[j])) {
+                    out[n++] = x[i++];
+                } else if (i >= x.length || x[i] > y[j]) {
+                    out[n++] = y[j++];
+                } else {
+                    out[n++] = x[i++];
+                    j++;
+                }
+            }
+            return n <= ARRAY_MAX ? Arrays.copyOf(out, n) : toBitsetContainer(out, n);
+        }
+        long[] out;
+        if (a instanceof char[] || b instanceof char[]) {
+            char[] array = (char[]) (a instanceof char[] ? a : b);
+            out = ((long[]) (a instanceof char[] ? b : a)).clone();
+            for (char low : array) {
+                out[low >>> 6] |= 1L << low;
+            }
+        } else {
+            long[] x = (long[]) a;
+            long[] y = (long[]) b;
+            out = new long[BITSET_WORDS];
+            for (int w = 0; w < BITSET_WORDS; w++) {
+                out[w] = x[w] | y[w];
+            }
+        }
+        return out;
+    }
+
+    private static char[] toArrayContainer(long[] bits, int count) {
+        char[] out = new char[count];
+        int n = 0;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                out[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return out;
+    }
+
+    private static long[] toBitsetContainer(char[] lows, int count) {
+        long[] bits = new long[BITSET_WORDS];
+        for (int i = 0; i < count; i++) {
+            bits[lows[i] >>> 6] |= 1L << lows[i];
+        }
+        return bits;
+    }
+
+    private static int containerCardinality(Object container) {
+        if (container instanceof char[]) {
+            return ((char[]) container).length;
+        }
+        int count = 0;
+        for (long word : (long[]) container) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
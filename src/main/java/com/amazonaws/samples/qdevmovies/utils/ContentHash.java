@@ -0,0 +1,51 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+/**
+ * Fast, allocation-free 64-bit content hashing in the FNV-1a style, with a MurmurHash3 finalizer
+ * to spread the bits. Meant for content versions such as HTTP entity tags, not for security.
+ * <pre>
+ * long hash = ContentHash.START;
+ * hash = ContentHash.add(hash, id);
+ * hash = ContentHash.add(hash, name);
+ * long version = ContentHash.finish(hash);
+ * </pre>
+ */
+public final class ContentHash {
+    public static final long START = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private ContentHash() {}
+
+    /**
+     * Folds a value into the hash as one 64-bit word.
+     */
+    public static long add(long hash, long value) {
+        return (hash ^ value) * PRIME;
+    }
+
+    /**
+     * Folds a string into the hash one char at a time, followed by its length so that adjacent
+     * strings cannot run into each other; null hashes differently from the empty string.
+     */
+    public static long add(long hash, String value) {
+        if (value == null) {
+            return add(hash, -1L);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = add(hash, value.charAt(i));
+        }
+        return add(hash, value.length());
+    }
+
+    /**
+     * @return the finished hash, with its bits spread by the MurmurHash3 finalizer
+     */
+    public static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
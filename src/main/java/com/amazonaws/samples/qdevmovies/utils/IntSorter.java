@@ -0,0 +1,62 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+/**
+ * Stable merge sort for {@code int[]} with a primitive comparator, so ordinal arrays can be ordered
+ * by an attribute without boxing every element into an {@code Integer}.
+ */
+public final class IntSorter {
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private IntSorter() {}
+
+    /**
+     * Compares two ints; same contract as {@link java.util.Comparator#compare}.
+     */
+    public interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Sorts the array in place; elements that compare equal keep their relative order.
+     */
+    public static void sort(int[] values, IntComparator comparator) {
+        if (values.length < 2) {
+            return;
+        }
+        int[] buffer = values.clone();
+        mergeSort(buffer, values, 0, values.length, comparator);
+    }
+
+    /**
+     * Sorts {@code src[from, to)} into {@code dest[from, to)}; both ranges start with equal contents.
+     */
+    private static void mergeSort(int[] src, int[] dest, int from, int to, IntComparator comparator) {
+        int length = to - from;
+        if (length <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int value = dest[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(dest[j], value) > 0) {
+                    dest[j + 1] = dest[j];
+                    j--;
+                }
+                dest[j + 1] = value;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(dest, src, from, mid, comparator);
+        mergeSort(dest, src, mid, to, comparator);
+        if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, from, dest, from, length);
+            return;
+        }
+        for (int i = from, p = from, q = mid; i < to; i++) {
+            if (q >= to || (p < mid && comparator.compare(src[p], src[q]) <= 0)) {
+                dest[i] = src[p++];
+            } else {
+                dest[i] = src[q++];
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to non-negative {@code int} values,
+ * typically ids to ordinals. Neither keys nor values are boxed; {@link #get(long)} returns -1 for
+ * a missing key. Not thread-safe for writers; publish a fully built instance safely and only read
+ * from it afterwards.
+ */
+public class LongIntHashMap {
+    public static final int MISSING = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public LongIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = LongObjectHashMap.tableSizeFor(Math.max(expectedSize, 1) * 2);
+        this.keys = new long[capacity];
+        this.values = newValues(capacity);
+    }
+
+    /**
+     * Associates a non-negative value with the key, replacing any previous value.
+     *
+     * @return the previous value, or {@link #MISSING}
+     */
+    public int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative: " + value);
+        }
+        int mask = keys.length - 1;
+        int i = LongObjectHashMap.hash(key) & mask;
+        while (values[i] != MISSING) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        return MISSING;
+    }
+
+    /**
+     * @return the value for the key, or {@link #MISSING}
+     */
+    public int get(long key) {
+        int mask = keys.length - 1;
+        int i = LongObjectHashMap.hash(key) & mask;
+        int value;
+        while ((value = values[i]) != MISSING) {
+            if (keys[i] == key) {
+                return value;
+            }
+            i = (i + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != MISSING;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visits every entry in table order.
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != MISSING) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private void resize(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[newCapacity];
+        values = newValues(newCapacity);
+        int mask = newCapacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != MISSING) {
+                int i = LongObjectHashMap.hash(oldKeys[j]) & mask;
+                while (values[i] != MISSING) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int[] newValues(int capacity) {
+        int[] values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        return values;
+    }
+
+    /**
+     * Callback for {@link #forEach(EntryConsumer)} that receives the primitive key and value.
+     */
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+}
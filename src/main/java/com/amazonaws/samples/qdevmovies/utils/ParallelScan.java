@@ -0,0 +1,147 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Filters ordinals with a predicate, splitting large inputs into chunks that run on the common
+ * {@link ForkJoinPool} and keeping small ones on the calling thread, where splitting would cost
+ * more than it saves. Results keep the input order, so ordinals stay ascending, and the only
+ * allocations are one small array per chunk plus the result.
+ * <p>
+ * The predicate is called from several threads at once and must only read shared state.
+ */
+public final class ParallelScan {
+    /** Inputs smaller than this are scanned sequentially. */
+    public static final int PARALLEL_THRESHOLD = 1 << 15;
+    private static final int MIN_CHUNK_SIZE = 1 << 13;
+
+    private ParallelScan() {}
+
+    /**
+     * Keeps the ordinals that match, compacting them to the front of the array in place.
+     *
+     * @return the matching ordinals in input order: {@code ordinals} itself if all match, else a trimmed copy
+     */
+    public static int[] filter(int[] ordinals, IntPredicate matches) {
+        return filter(ordinals, matches, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * @param parallelism number of threads to split the work for
+     */
+    static int[] filter(int[] ordinals, IntPredicate matches, int parallelism) {
+        int count;
+        int chunkSize = chunkSize(ordinals.length, parallelism);
+        if (chunkSize == 0) {
+            count = compact(ordinals, 0, ordinals.length, matches);
+        } else {
+            int[] counts = new int[(ordinals.length + chunkSize - 1) / chunkSize];
+            new ChunkTask(0, counts.length, chunk -> {
+                int from = chunk * chunkSize;
+                counts[chunk] = compact(ordinals, from, Math.min(from + chunkSize, ordinals.length), matches);
+            }).invoke();
+            count = counts[0];
+            for (int chunk = 1; chunk < counts.length; chunk++) {
+                System.arraycopy(ordinals, chunk * chunkSize, ordinals, count, counts[chunk]);
+                count += counts[chunk];
+            }
+        }
+        return count == ordinals.length ? ordinals : Arrays.copyOf(ordinals, count);
+    }
+
+    /**
+     * @return the ordinals in {@code [0, size)} that match, ascending
+     */
+    public static int[] range(int size, IntPredicate matches) {
+        return range(size, matches, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * @param parallelism number of threads to split the work for
+     */
+    static int[] range(int size, IntPredicate matches, int parallelism) {
+        int chunkSize = chunkSize(size, parallelism);
+        if (chunkSize == 0) {
+            return scan(0, size, matches);
+        }
+        int[][] parts = new int[(size + chunkSize - 1) / chunkSize][];
+        new ChunkTask(0, parts.length, chunk -> {
+            int from = chunk * chunkSize;
+            parts[chunk] = scan(from, Math.min(from + chunkSize, size), matches);
+        }).invoke();
+        int total = 0;
+        for (int[] part : parts) {
+            total += part.length;
+        }
+        int[] ordinals = new int[total];
+        int count = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, ordinals, count, part.length);
+            count += part.length;
+        }
+        return ordinals;
+    }
+
+    /**
+     * @return the chunk size to split an input of this size into, or 0 to scan it sequentially
+     */
+    private static int chunkSize(int size, int parallelism) {
+        if (size < PARALLEL_THRESHOLD || parallelism < 2) {
+            return 0;
+        }
+        // A few chunks per worker so that one slow chunk does not hold up the rest
+        return Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4) + 1);
+    }
+
+    private static int compact(int[] ordinals, int from, int to, IntPredicate matches) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int ordinal = ordinals[i];
+            if (matches.test(ordinal)) {
+                ordinals[from + count++] = ordinal;
+            }
+        }
+        return count;
+    }
+
+    private static int[] scan(int from, int to, IntPredicate matches) {
+        IntArrayList found = new IntArrayList();
+        for (int ordinal = from; ordinal < to; ordinal++) {
+            if (matches.test(ordinal)) {
+                found.add(ordinal);
+            }
+        }
+        return found.toArray();
+    }
+
+    /**
+     * Runs one action per chunk index, halving the range until a single chunk is left.
+     */
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        private ChunkTask(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkTask(from, mid, action), new ChunkTask(mid, to, action));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import com.fasterxml.jackson.core.SerializableString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Already-encoded UTF-8 JSON that a {@link com.fasterxml.jackson.core.JsonGenerator} copies to its
+ * output as is, through {@code writeRaw} or {@code writeRawValue}.
+ * <p>
+ * Byte-oriented generators, which Spring MVC uses for every JSON response, copy the bytes without
+ * decoding or re-encoding them. Character-oriented generators fall back to {@link #getValue()}.
+ * The quoted forms are not supported: the content is JSON, never a string to be quoted.
+ */
+public final class RawJson implements SerializableString {
+    private final byte[] utf8;
+    private final int length;
+
+    /**
+     * @param utf8 the encoded JSON; the array is used as is and must not be modified afterwards
+     */
+    public RawJson(byte[] utf8) {
+        this(utf8, utf8.length);
+    }
+
+    /**
+     * @param utf8 the encoded JSON; the array is used as is and must not be modified afterwards
+     * @param length number of leading bytes of the array to write
+     */
+    public RawJson(byte[] utf8, int length) {
+        if (length < 0 || length > utf8.length) {
+            throw new IllegalArgumentException("Length " + length + " out of bounds for " + utf8.length + " bytes");
+        }
+        this.utf8 = utf8;
+        this.length = length;
+    }
+
+    @Override
+    public String getValue() {
+        return new String(utf8, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int charLength() {
+        return getValue().length();
+    }
+
+    @Override
+    public byte[] asUnquotedUTF8() {
+        return length == utf8.length ? utf8 : Arrays.copyOf(utf8, length);
+    }
+
+    @Override
+    public int appendUnquotedUTF8(byte[] buffer, int offset) {
+        if (offset + length > buffer.length) {
+            return -1;
+        }
+        System.arraycopy(utf8, 0, buffer, offset, length);
+        return length;
+    }
+
+    @Override
+    public int appendUnquoted(char[] buffer, int offset) {
+        String value = getValue();
+        if (offset + value.length() > buffer.length) {
+            return -1;
+        }
+        value.getChars(0, value.length(), buffer, offset);
+        return value.length();
+    }
+
+    @Override
+    public int writeUnquotedUTF8(OutputStream out) throws IOException {
+        out.write(utf8, 0, length);
+        return length;
+    }
+
+    @Override
+    public int putUnquotedUTF8(ByteBuffer buffer) {
+        if (length > buffer.remaining()) {
+            return -1;
+        }
+        buffer.put(utf8, 0, length);
+        return length;
+    }
+
+    @Override
+    public char[] asQuotedChars() {
+        throw quotingNotSupported();
+    }
+
+    @Override
+    public byte[] asQuotedUTF8() {
+        throw quotingNotSupported();
+    }
+
+    @Override
+    public int appendQuotedUTF8(byte[] buffer, int offset) {
+        throw quotingNotSupported();
+    }
+
+    @Override
+    public int appendQuoted(char[] buffer, int offset) {
+        throw quotingNotSupported();
+    }
+
+    @Override
+    public int writeQuotedUTF8(OutputStream out) {
+        throw quotingNotSupported();
+    }
+
+    @Override
+    public int putQuotedUTF8(ByteBuffer buffer) {
+        throw quotingNotSupported();
+    }
+
+    @Override
+    public String toString() {
+        return getValue();
+    }
+
+    private static UnsupportedOperationException quotingNotSupported() {
+        return new UnsupportedOperationException("Raw JSON cannot be written as a quoted string");
+    }
+}
@@ -0,0 +1,323 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Inverted index from character trigrams to the ordinals of the values containing them,
+ * answering case-insensitive substring queries.
+ * <p>
+ * A query of three or more characters intersects the posting lists of its trigrams and only
+ * verifies the surviving candidates with {@link String#contains}. Shorter queries have no
+ * trigram to look up and fall back to a {@link ParallelScan} over the pre-folded values.
+ * Instances are immutable once built and safe to share between threads.
+ * <p>
+ * {@link #writeTo} saves the posting lists as the trigram count and total posting length (ints),
+ * the trigrams in ascending order (longs), the start of each trigram's list plus the end of the
+ * last (ints) and the lists themselves (ints). {@link #map} reads such a section in place: a query
+ * binary-searches the trigrams and copies out only the lists it needs, so opening the index costs
+ * nothing per value. A mapped index folds the values when a short query first scans them.
+ */
+public class TrigramIndex {
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private final int size;
+    /** The values of a mapped index, folded on demand; null once built in memory. */
+    private final List<String> values;
+    private volatile String[] foldedValues;
+    /** Posting lists by trigram when built in memory, else null. */
+    private final LongObjectHashMap<int[]> postings;
+    /** Sorted trigrams, list starts and lists of a mapped index, else null. */
+    private final LongBuffer mappedTrigrams;
+    private final IntBuffer mappedStarts;
+    private final IntBuffer mappedPostings;
+
+    /**
+     * Builds the index; the ordinal of each value is its position in the list.
+     */
+    public TrigramIndex(List<String> values) {
+        this.size = values.size();
+        // Every value is folded up front, so the values themselves are not kept
+        this.values = null;
+        String[] foldedValues = new String[values.size()];
+        LongObjectHashMap<IntArrayList> builders = new LongObjectHashMap<>(values.size() * 8);
+        for (int ordinal = 0; ordinal < foldedValues.length; ordinal++) {
+            String folded = fold(values.get(ordinal));
+            foldedValues[ordinal] = folded;
+            for (int i = 0; i + 3 <= folded.length(); i++) {
+                long key = trigram(folded, i);
+                IntArrayList posting = builders.get(key);
+                if (posting == null) {
+                    posting = new IntArrayList(4);
+                    builders.put(key, posting);
+                }
+                // Ordinals arrive in ascending order, so a repeat trigram only needs a last-element check
+                if (posting.last() != ordinal) {
+                    posting.add(ordinal);
+                }
+            }
+        }
+        this.foldedValues = foldedValues;
+        this.postings = new LongObjectHashMap<>(builders.size());
+        builders.forEach((key, posting) -> postings.put(key, posting.toArray()));
+        this.mappedTrigrams = null;
+        this.mappedStarts = null;
+        this.mappedPostings = null;
+    }
+
+    private TrigramIndex(List<String> values, LongBuffer trigrams, IntBuffer starts, IntBuffer postings) {
+        this.size = values.size();
+        this.values = values;
+        this.postings = null;
+        this.mappedTrigrams = trigrams;
+        this.mappedStarts = starts;
+        this.mappedPostings = postings;
+    }
+
+    /**
+     * Opens posting lists written by {@link #writeTo} in place, starting at the buffer's position.
+     *
+     * @param values the values the index was built from, in the same order
+     * @throws IllegalArgumentException if the section is malformed or shorter than it claims
+     */
+    public static TrigramIndex map(ByteBuffer section, List<String> values) {
+        ByteBuffer buffer = section.slice();
+        int trigramCount = buffer.getInt(0);
+        int postingCount = buffer.getInt(4);
+        if (trigramCount < 0 || postingCount < 0
+                || buffer.capacity() < 8 + 8L * trigramCount + 4L * (trigramCount + 1) + 4L * postingCount) {
+            throw new IllegalArgumentException("Invalid trigram section");
+        }
+        LongBuffer trigrams = slice(buffer, 8, 8 * trigramCount).asLongBuffer();
+        IntBuffer starts = slice(buffer, 8 + 8 * trigramCount, 4 * (trigramCount + 1)).asIntBuffer();
+        IntBuffer postings = slice(buffer, 8 + 12 * trigramCount + 4, 4 * postingCount).asIntBuffer();
+        for (int i = 0; i < trigramCount; i++) {
+            if ((i > 0 && trigrams.get(i) <= trigrams.get(i - 1)) || starts.get(i) < 0 || starts.get(i) > starts.get(i + 1)) {
+                throw new IllegalArgumentException("Trigram section is not sorted at entry " + i);
+            }
+        }
+        if (starts.get(trigramCount) != postingCount) {
+            throw new IllegalArgumentException("Trigram section lists " + starts.get(trigramCount)
+                    + " postings, expected " + postingCount);
+        }
+        return new TrigramIndex(values, trigrams, starts, postings);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer section = buffer.duplicate();
+        section.position(offset);
+        section.limit(offset + length);
+        return section.slice();
+    }
+
+    /**
+     * @return the number of bytes {@link #writeTo} writes
+     */
+    public long serializedSize() {
+        long[] trigrams = trigrams();
+        long bytes = 8 + 12L * trigrams.length + 4;
+        for (long trigram : trigrams) {
+            bytes += 4L * posting(trigram).length;
+        }
+        return bytes;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        long[] trigrams = trigrams();
+        int[][] lists = new int[trigrams.length][];
+        int postingCount = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            lists[i] = posting(trigrams[i]);
+            postingCount += lists[i].length;
+        }
+        out.writeInt(trigrams.length);
+        out.writeInt(postingCount);
+        for (long trigram : trigrams) {
+            out.writeLong(trigram);
+        }
+        int start = 0;
+        for (int[] list : lists) {
+            out.writeInt(start);
+            start += list.length;
+        }
+        out.writeInt(start);
+        for (int[] list : lists) {
+            for (int ordinal : list) {
+                out.writeInt(ordinal);
+            }
+        }
+    }
+
+    /**
+     * @return every indexed trigram in ascending order
+     */
+    private long[] trigrams() {
+        if (postings == null) {
+            long[] trigrams = new long[mappedTrigrams.limit()];
+            mappedTrigrams.duplicate().get(trigrams);
+            return trigrams;
+        }
+        long[] trigrams = new long[postings.size()];
+        int[] count = {0};
+        postings.forEach((key, posting) -> trigrams[count[0]++] = key);
+        Arrays.sort(trigrams);
+        return trigrams;
+    }
+
+    /**
+     * @return the ordinals of the values containing the trigram, or null if none do; a mapped
+     *         index returns a fresh copy
+     */
+    private int[] posting(long trigram) {
+        if (postings != null) {
+            return postings.get(trigram);
+        }
+        int low = 0;
+        int high = mappedTrigrams.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long key = mappedTrigrams.get(mid);
+            if (key < trigram) {
+                low = mid + 1;
+            } else if (key > trigram) {
+                high = mid - 1;
+            } else {
+                int start = mappedStarts.get(mid);
+                int[] posting = new int[mappedStarts.get(mid + 1) - start];
+                IntBuffer ordinals = mappedPostings.duplicate();
+                ordinals.position(start);
+                ordinals.get(posting);
+                return posting;
+            }
+        }
+        return null;
+    }
+
+    private String[] foldedValues() {
+        String[] folded = foldedValues;
+        if (folded == null) {
+            folded = new String[size];
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                folded[ordinal] = fold(values.get(ordinal));
+            }
+            foldedValues = folded;
+        }
+        return folded;
+    }
+
+    private String folded(int ordinal) {
+        String[] folded = foldedValues;
+        return folded != null ? folded[ordinal] : fold(values.get(ordinal));
+    }
+
+    /**
+     * Returns the ordinals, in ascending order, of all values that contain the query.
+     *
+     * @param query the substring to look for; case-insensitive
+     * @return matching ordinals; empty if none match
+     */
+    public int[] search(String query) {
+        String folded = fold(query);
+        if (folded.isEmpty()) {
+            return allOrdinals();
+        }
+        if (folded.length() < 3) {
+            return scan(folded);
+        }
+
+        int trigramCount = folded.length() - 2;
+        int[][] lists = new int[trigramCount][];
+        for (int i = 0; i < trigramCount; i++) {
+            int[] posting = posting(trigram(folded, i));
+            if (posting == null) {
+                return NO_ORDINALS;
+            }
+            lists[i] = posting;
+        }
+        // Intersect the rarest lists first so the candidate set shrinks as fast as possible
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+
+        int[] candidates = lists[0];
+        int candidateCount = candidates.length;
+        if (trigramCount > 1) {
+            // Lists read from a mapping are already copies; in-memory ones are shared
+            if (postings != null) {
+                candidates = candidates.clone();
+            }
+            for (int l = 1; l < lists.length && candidateCount > 0; l++) {
+                candidateCount = intersect(candidates, candidateCount, lists[l]);
+            }
+        }
+
+        int[] matches = new int[candidateCount];
+        int matchCount = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            int ordinal = candidates[i];
+            if (trigramCount == 1 || folded(ordinal).contains(folded)) {
+                matches[matchCount++] = ordinal;
+            }
+        }
+        return matchCount == matches.length ? matches : Arrays.copyOf(matches, matchCount);
+    }
+
+    /**
+     * @return whether the value at the ordinal contains the query; case-insensitive
+     */
+    public boolean matches(int ordinal, String query) {
+        return folded(ordinal).contains(fold(query));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public static String fold(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private int[] scan(String folded) {
+        String[] foldedValues = foldedValues();
+        return ParallelScan.range(foldedValues.length, ordinal -> foldedValues[ordinal].contains(folded));
+    }
+
+    private int[] allOrdinals() {
+        int[] ordinals = new int[size];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = i;
+        }
+        return ordinals;
+    }
+
+    /**
+     * Intersects the first {@code count} entries of {@code target} with {@code other} in place.
+     * Both inputs are sorted ascending.
+     *
+     * @return the number of entries left in {@code target}
+     */
+    private static int intersect(int[] target, int count, int[] other) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < other.length; i++) {
+            int value = target[i];
+            while (j < other.length && other[j] < value) {
+                j++;
+            }
+            if (j < other.length && other[j] == value) {
+                target[kept++] = value;
+                j++;
+            }
+        }
+        return kept;
+    }
+
+    private static long trigram(String s, int offset) {
+        return ((long) s.charAt(offset) << 32) | ((long) s.charAt(offset + 1) << 16) | s.charAt(offset + 2);
+    }
+}
@@ -0,0 +1,69 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to Java 21 virtual threads from code that is compiled for Java 8.
+ * <p>
+ * The methods are looked up reflectively, so the same build runs on any JVM and only the
+ * virtual-thread execution mode needs Java 21. Callers check {@link #isSupported()} or let
+ * {@link #requireSupported()} fail startup with a clear message.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {}
+
+    /**
+     * @return whether the running JVM can start virtual threads
+     */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the running JVM has no virtual threads
+     */
+    public static void requireSupported() {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, but this JVM is "
+                    + System.getProperty("java.version"));
+        }
+    }
+
+    /**
+     * @return an executor that starts a new virtual thread for every task
+     * @throws IllegalStateException if the running JVM has no virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        requireSupported();
+        return (ExecutorService) invoke(Executors.class, "newVirtualThreadPerTaskExecutor", new Class<?>[0]);
+    }
+
+    /**
+     * Starts the task on a new virtual thread.
+     *
+     * @throws IllegalStateException if the running JVM has no virtual threads
+     */
+    public static Thread start(Runnable task) {
+        requireSupported();
+        return (Thread) invoke(Thread.class, "startVirtualThread", new Class<?>[] {Runnable.class}, task);
+    }
+
+    private static Object invoke(Class<?> type, String method, Class<?>[] parameterTypes, Object... args) {
+        try {
+            return type.getMethod(method, parameterTypes).invoke(null, args);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Could not use virtual threads: " + e.getCause(), e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not use virtual threads", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+// Fills the movie name field's suggestion list from /movies/suggest while the user types.
+(function () {
+    var input = document.getElementById('name');
+    var list = document.getElementById('name-suggestions');
+    if (!input || !list || !window.fetch) {
+        return;
+    }
+    var timer = null;
+    var latest = 0;
+
+    input.addEventListener('input', function () {
+        clearTimeout(timer);
+        timer = setTimeout(function () {
+            var prefix = input.value.trim();
+            var request = ++latest;
+            if (!prefix) {
+                list.innerHTML = '';
+                return;
+            }
+            fetch('/movies/suggest?prefix=' + encodeURIComponent(prefix))
+                .then(function (response) { return response.ok ? response.json() : { suggestions: [] }; })
+                .then(function (body) {
+                    if (request !== latest) {
+                        return;
+                    }
+                    list.innerHTML = '';
+                    body.suggestions.forEach(function (suggestion) {
+                        var option = document.createElement('option');
+                        option.value = suggestion.movieName;
+                        list.appendChild(option);
+                    });
+                })
+                .catch(function () { /* suggestions are optional */ });
+        }, 100);
+    });
+})();
@@ -0,0 +1,194 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for keeping the catalog and its edits in a data directory across restarts.
+ */
+public class CatalogPersistenceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MovieService movieService;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (movieService != null) {
+            movieService.shutdown();
+        }
+    }
+
+    private String writeCatalog(int size) throws Exception {
+        return Files.write(tempDir.resolve("movies.json"), TestCatalogs.json(size).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private MovieService start(String location, long checkpointBytes) throws Exception {
+        if (movieService != null) {
+            movieService.shutdown();
+        }
+        movieService = new MovieService(location, null, false, tempDir.resolve("data").toString(), checkpointBytes);
+        return movieService;
+    }
+
+    private List<String> dataFiles() throws Exception {
+        try (Stream<Path> files = Files.list(tempDir.resolve("data"))) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static MovieRequest movie(String name) {
+        return new MovieRequest(null, name, "Director", 2010, "Comedy", "Plot", 95, 3.5);
+    }
+
+    @Test
+    @DisplayName("Should recover created, updated and deleted movies after a restart")
+    public void testEditsSurviveRestart() throws Exception {
+        String location = writeCatalog(3);
+        start(location, MovieService.DEFAULT_CHECKPOINT_BYTES);
+        movieService.createMovie(movie("Created"));
+        movieService.updateMovie(1L, movie("Updated"));
+        movieService.deleteMovie(2L);
+        movieService.deleteMovie(4L);
+        List<Movie> before = movieService.getAllMovies();
+
+        // The data directory now takes precedence over the catalog file
+        writeCatalog(10);
+        start(location, MovieService.DEFAULT_CHECKPOINT_BYTES);
+
+        assertEquals(before, movieService.getAllMovies());
+        assertEquals("Updated", movieService.getMovieById(1L).get().getMovieName());
+        assertFalse(movieService.getMovieById(2L).isPresent());
+        assertEquals(1, movieService.searchMovies(null, null, "comedy").size());
+        // Id 4 was deleted before the restart and is not handed out again
+        assertEquals(5L, movieService.createMovie(movie("After Restart")).getId());
+    }
+
+    @Test
+    @DisplayName("Should checkpoint the catalog and drop the log it covers")
+    public void testCheckpoint() throws Exception {
+        String location = writeCatalog(3);
+        start(location, MovieService.DEFAULT_CHECKPOINT_BYTES);
+        for (int i = 0; i < 5; i++) {
+            movieService.createMovie(movie("Movie " + (10 + i)));
+        }
+        movieService.deleteMovie(3L);
+        assertTrue(movieService.checkpoint());
+        movieService.updateMovie(1L, movie("After Checkpoint"));
+
+        List<String> files = dataFiles();
+        assertEquals(1, files.stream().filter(name -> name.endsWith(".snapshot")).count(), files.toString());
+        assertEquals(1, files.stream().filter(name -> name.endsWith(".log")).count(), files.toString());
+        List<Movie> before = movieService.getAllMovies();
+
+        start(location, MovieService.DEFAULT_CHECKPOINT_BYTES);
+
+        assertEquals(before, movieService.getAllMovies());
+        assertEquals(7, movieService.getAllMovies().size());
+        assertEquals("After Checkpoint", movieService.getMovieById(1L).get().getMovieName());
+    }
+
+    @Test
+    @DisplayName("Should checkpoint in the background once the log grows past its limit")
+    public void testCheckpointsInBackground() throws Exception {
+        start(writeCatalog(3), 1);
+        movieService.createMovie(movie("Trigger"));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (dataFiles().stream().noneMatch(name -> name.endsWith("0001.snapshot")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(dataFiles().contains("catalog-00000000000000000001.snapshot"), dataFiles().toString());
+    }
+
+    @Test
+    @DisplayName("Should keep a reloaded catalog instead of the edits it replaced")
+    public void testReloadIsCheckpointed() throws Exception {
+        String location = writeCatalog(3);
+        start(location, MovieService.DEFAULT_CHECKPOINT_BYTES);
+        movieService.deleteMovie(1L);
+        writeCatalog(4);
+        assertTrue(movieService.reloadCatalog());
+        movieService.createMovie(movie("After Reload"));
+
+        start(location, MovieService.DEFAULT_CHECKPOINT_BYTES);
+
+        assertEquals(5, movieService.getAllMovies().size());
+        assertTrue(movieService.getMovieById(1L).isPresent());
+        assertEquals("After Reload", movieService.getMovieById(5L).get().getMovieName());
+    }
+
+    @Test
+    @DisplayName("Should publish a logged batch only once it is durable, together with the batches before it")
+    public void testPublishesOnlyDurableBatches() throws Exception {
+        start(writeCatalog(3), MovieService.DEFAULT_CHECKPOINT_BYTES);
+        long version = movieService.getCatalogVersion();
+
+        long first = movieService.logChanges(Collections.singletonList(MovieChange.create(movie("First"))), new ArrayList<>());
+        long second = movieService.logChanges(Collections.singletonList(MovieChange.create(movie("Second"))), new ArrayList<>());
+
+        // Logged but not yet synced: readers still see the catalog before both batches
+        assertEquals(version, movieService.getCatalogVersion());
+        assertFalse(movieService.getMovieById(4L).isPresent());
+
+        MovieCatalog published = movieService.publishDurable(second);
+
+        assertEquals(5, published.store.movieCount());
+        assertEquals("First", movieService.getMovieById(4L).get().getMovieName());
+        assertEquals("Second", movieService.getMovieById(5L).get().getMovieName());
+        // The sync of the second batch covered the first, which has nothing left to publish
+        assertSame(published, movieService.publishDurable(first));
+    }
+
+    @Test
+    @DisplayName("Should publish the pending batches that a checkpoint makes durable")
+    public void testCheckpointPublishesPendingBatches() throws Exception {
+        String location = writeCatalog(3);
+        start(location, MovieService.DEFAULT_CHECKPOINT_BYTES);
+        movieService.logChanges(Collections.singletonList(MovieChange.create(movie("Pending"))), new ArrayList<>());
+        assertFalse(movieService.getMovieById(4L).isPresent());
+
+        assertTrue(movieService.checkpoint());
+
+        assertEquals("Pending", movieService.getMovieById(4L).get().getMovieName());
+        start(location, MovieService.DEFAULT_CHECKPOINT_BYTES);
+        assertEquals("Pending", movieService.getMovieById(4L).get().getMovieName());
+    }
+
+    @Test
+    @DisplayName("Should recover every acknowledged write after a crash that left a torn record")
+    public void testCrashRecovery() throws Exception {
+        String location = writeCatalog(3);
+        MovieService crashed = new MovieService(location, null, false, tempDir.resolve("data").toString(),
+                MovieService.DEFAULT_CHECKPOINT_BYTES);
+        crashed.createMovie(movie("Acknowledged"));
+        crashed.deleteMovie(2L);
+        // A crash while the next record was being written leaves part of it behind
+        Path segment = tempDir.resolve("data").resolve(dataFiles().stream()
+                .filter(name -> name.endsWith(".log")).findFirst().get());
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        start(location, MovieService.DEFAULT_CHECKPOINT_BYTES);
+
+        assertEquals("Acknowledged", movieService.getMovieById(4L).get().getMovieName());
+        assertFalse(movieService.getMovieById(2L).isPresent());
+        movieService.createMovie(movie("After Crash"));
+        start(location, MovieService.DEFAULT_CHECKPOINT_BYTES);
+        assertEquals("After Crash", movieService.getMovieById(5L).get().getMovieName());
+    }
+}
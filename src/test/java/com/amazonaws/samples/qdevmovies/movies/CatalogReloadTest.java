@@ -0,0 +1,92 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for reloading the catalog while the service keeps answering.
+ */
+public class CatalogReloadTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MovieService movieService;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (movieService != null) {
+            movieService.stopWatching();
+        }
+    }
+
+    private Path writeCatalog(String name, String json) throws Exception {
+        return Files.write(tempDir.resolve(name), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should swap in a reloaded catalog and keep earlier results intact")
+    public void testReloadCatalog() throws Exception {
+        Path file = writeCatalog("movies.json", TestCatalogs.json(2));
+        movieService = new MovieService(file.toString(), new ReviewService(), false);
+        List<Movie> before = movieService.getAllMovies();
+        long version = movieService.getCatalogVersion();
+
+        writeCatalog("movies.json", TestCatalogs.json(3));
+        assertTrue(movieService.reloadCatalog());
+
+        assertEquals(3, movieService.getAllMovies().size());
+        assertEquals(3, movieService.searchMovies("movie", null, null).size());
+        assertTrue(movieService.getMovieById(3L).isPresent());
+        assertNotEquals(version, movieService.getCatalogVersion());
+        assertEquals(2, before.size());
+        assertEquals("Movie 2", before.get(1).getMovieName());
+    }
+
+    @Test
+    @DisplayName("Should keep the current catalog when a reload fails")
+    public void testFailedReloadKeepsCatalog() throws Exception {
+        Path file = writeCatalog("movies.json", TestCatalogs.json(2));
+        movieService = new MovieService(file.toString(), new ReviewService(), false);
+
+        writeCatalog("movies.json", "[{\"id\": \"not a number\"}]");
+
+        assertThrows(CatalogLoadException.class, () -> movieService.reloadCatalog());
+        assertEquals(2, movieService.getAllMovies().size());
+        assertTrue(movieService.getMovieById(1L).isPresent());
+    }
+
+    @Test
+    @DisplayName("Should reload when the watched catalog file is replaced")
+    public void testWatchedCatalogReloads() throws Exception {
+        Path file = writeCatalog("movies.json", TestCatalogs.json(2));
+        movieService = new MovieService(file.toString(), new ReviewService(), true);
+
+        Path replacement = writeCatalog("movies.json.tmp", TestCatalogs.json(4));
+        Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (movieService.getAllMovies().size() != 4 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(4, movieService.getAllMovies().size());
+    }
+
+    @Test
+    @DisplayName("Should refuse to watch a classpath catalog")
+    public void testWatchNeedsFile() {
+        assertThrows(IllegalStateException.class,
+            () -> new MovieService(MovieCatalogLoader.DEFAULT_LOCATION, new ReviewService(), true));
+    }
+}
@@ -0,0 +1,91 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ETag and Last-Modified handling of catalog pages.
+ */
+public class ConditionalGetInterceptorTest {
+
+    private MovieService movieService;
+    private ReviewService reviewService;
+
+    @BeforeEach
+    public void setUp() {
+        movieService = new MovieService();
+        reviewService = new ReviewService();
+    }
+
+    @Test
+    @DisplayName("Should set ETag and Last-Modified on a first request")
+    public void testFirstRequestProceeds() {
+        ConditionalGetInterceptor interceptor = new ConditionalGetInterceptor(movieService, null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("GET", "/movies"), response, null));
+        assertEquals(interceptor.entityTag(), response.getHeader(HttpHeaders.ETAG));
+        assertNotNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should answer 304 when If-None-Match matches the catalog version")
+    public void testMatchingEntityTag() {
+        ConditionalGetInterceptor interceptor = new ConditionalGetInterceptor(movieService, null);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, interceptor.entityTag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(request, response, null));
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should proceed when If-None-Match names an older version")
+    public void testStaleEntityTag() {
+        ConditionalGetInterceptor interceptor = new ConditionalGetInterceptor(movieService, null);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"0\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, null));
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should ignore requests that are not GET or HEAD")
+    public void testOtherMethodsProceed() {
+        ConditionalGetInterceptor interceptor = new ConditionalGetInterceptor(movieService, null);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/movies");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, interceptor.entityTag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, null));
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @DisplayName("Should include the review aggregates and reviews versions in the details ETag")
+    public void testDetailsEntityTag() {
+        String catalogTag = new ConditionalGetInterceptor(movieService, null).entityTag();
+        String detailsTag = new ConditionalGetInterceptor(movieService, reviewService).entityTag();
+
+        assertNotEquals(catalogTag, detailsTag);
+        assertEquals("\"" + Long.toHexString(movieService.getVersionWithReviewStats()) + "-"
+                + Long.toHexString(reviewService.getVersion()) + "\"", detailsTag);
+    }
+
+    @Test
+    @DisplayName("Should derive the catalog version from the catalog contents")
+    public void testCatalogVersionIsStable() {
+        assertEquals(movieService.getCatalogVersion(), new MovieService().getCatalogVersion());
+        assertNotEquals(0L, movieService.getCatalogVersion());
+    }
+}
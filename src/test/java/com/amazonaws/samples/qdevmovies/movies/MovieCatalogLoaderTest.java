@@ -0,0 +1,112 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming movie catalog loader.
+ */
+public class MovieCatalogLoaderTest {
+
+    private static final String MOVIE = "{\"id\": 7, \"movieName\": \"Test Movie\", \"director\": \"Test Director\", "
+        + "\"year\": 2001, \"genre\": \"Drama\", \"description\": \"Test description\", \"duration\": 100, \"imdbRating\": 4}";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should stream every movie from the classpath catalog")
+    public void testLoadFromClasspath() {
+        List<Movie> movies = new ArrayList<>();
+
+        int count = new MovieCatalogLoader(MovieCatalogLoader.DEFAULT_LOCATION).load(movies::add);
+
+        assertEquals(12, count);
+        assertEquals(count, movies.size());
+        assertEquals("The Prison Escape", movies.get(0).getMovieName());
+    }
+
+    @Test
+    @DisplayName("Should load movies from a file path and skip unknown fields")
+    public void testLoadFromFile() throws Exception {
+        Path file = tempDir.resolve("movies.json");
+        String withExtras = MOVIE.replace("}", ", \"tags\": [\"a\", {\"b\": 1}], \"extra\": null}");
+        Files.write(file, ("[" + withExtras + "]").getBytes(StandardCharsets.UTF_8));
+        List<Movie> movies = new ArrayList<>();
+
+        new MovieCatalogLoader(file.toString()).load(movies::add);
+
+        assertEquals(1, movies.size());
+        Movie movie = movies.get(0);
+        assertEquals(7L, movie.getId());
+        assertEquals("Test Director", movie.getDirector());
+        assertEquals(2001, movie.getYear());
+        assertEquals(4.0, movie.getImdbRating());
+    }
+
+    @Test
+    @DisplayName("Should report progress without changing the result")
+    public void testLoadWithProgressInterval() throws Exception {
+        List<Movie> movies = new ArrayList<>();
+
+        int count = new MovieCatalogLoader("test", 1).load(stream("[" + MOVIE + "," + MOVIE + "]"), movies::add);
+
+        assertEquals(2, count);
+    }
+
+    @Test
+    @DisplayName("Should fail on a record with a missing field")
+    public void testLoadFailsOnMissingField() {
+        String broken = MOVIE.replace("\"year\": 2001, ", "");
+
+        CatalogLoadException e = assertThrows(CatalogLoadException.class,
+            () -> new MovieCatalogLoader("test").load(stream("[" + MOVIE + "," + broken + "]"), movie -> { }));
+
+        assertTrue(e.getMessage().contains("record #2"));
+        assertTrue(e.getMessage().contains("'year'"));
+    }
+
+    @Test
+    @DisplayName("Should fail on a field of the wrong type")
+    public void testLoadFailsOnWrongType() {
+        String broken = MOVIE.replace("\"duration\": 100", "\"duration\": \"long\"");
+
+        CatalogLoadException e = assertThrows(CatalogLoadException.class,
+            () -> new MovieCatalogLoader("test").load(stream("[" + broken + "]"), movie -> { }));
+
+        assertTrue(e.getMessage().contains("'duration' must be an integer"));
+    }
+
+    @Test
+    @DisplayName("Should fail on malformed JSON")
+    public void testLoadFailsOnMalformedJson() {
+        assertThrows(CatalogLoadException.class,
+            () -> new MovieCatalogLoader("test").load(stream("[" + MOVIE + ", {\"id\": "), movie -> { }));
+        assertThrows(CatalogLoadException.class,
+            () -> new MovieCatalogLoader("test").load(stream("{\"movies\": []}"), movie -> { }));
+    }
+
+    @Test
+    @DisplayName("Should fail when the catalog does not exist")
+    public void testLoadFailsOnMissingSource() {
+        assertThrows(CatalogLoadException.class,
+            () -> new MovieCatalogLoader(tempDir.resolve("missing.json").toString()).load(movie -> { }));
+        assertThrows(CatalogLoadException.class,
+            () -> new MovieCatalogLoader("classpath:missing.json").load(movie -> { }));
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,95 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for serializing movies and reviews from pre-serialized JSON.
+ */
+public class MovieJsonModuleTest {
+
+    private final ObjectMapper plain = new ObjectMapper();
+    private final ObjectMapper cached = new ObjectMapper().registerModule(new MovieJsonModule());
+    private final MovieStore store = MovieStore.of(Arrays.asList(
+        new Movie(1L, "The \"Quoted\" Movie", "Director Ä", 1994, "Drama", "Line\nbreak 🎬", 142, 5.0),
+        new Movie(2L, "Second", "Director B", 2000, "Crime/Drama", "Two", 120, 3.5)));
+    private final List<Review> reviews = reviewList(
+        new Review("Tester", "🙂", 4.0, "Fine"), new Review("Critic", "🤓", 2.5, "Meh"));
+
+    private static List<Review> reviewList(Review... reviews) {
+        try {
+            return new ReviewList(Arrays.asList(reviews), new ObjectMapper().writeValueAsBytes(Arrays.asList(reviews)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String json(ObjectMapper mapper, Object value) throws Exception {
+        return new String(mapper.writeValueAsBytes(value), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Should write catalog and standalone movies exactly like bean serialization")
+    public void testMoviesMatchBeanSerialization() throws Exception {
+        List<Movie> movies = Arrays.asList(store.movie(0), store.movie(1),
+            new Movie(3L, "Standalone", "Director C", 2010, "Action", "Three", 90, 4.0));
+
+        assertEquals(json(plain, movies), json(cached, movies));
+        assertEquals(json(plain, movies), json(cached, movies));
+        assertEquals(json(plain, store.movie(0)), json(cached, store.movie(0)));
+    }
+
+    @Test
+    @DisplayName("Should cache the JSON of catalog movies in their store")
+    public void testCachesCatalogMovies() throws Exception {
+        assertNull(store.serializedJson(0));
+
+        cached.writeValueAsBytes(store.movie(0));
+
+        byte[] json = store.serializedJson(0);
+        assertNotNull(json);
+        assertNull(store.serializedJson(1));
+        cached.writeValueAsBytes(store.movie(0));
+        assertSame(json, store.serializedJson(0));
+    }
+
+    @Test
+    @DisplayName("Should splice movies and reviews exactly like unwrapped bean serialization")
+    public void testMovieWithReviewsMatchesBeanSerialization() throws Exception {
+        List<MovieWithReviews> values = Arrays.asList(
+            new MovieWithReviews(store.movie(0), reviews),
+            new MovieWithReviews(store.movie(1), null),
+            new MovieWithReviews(store.movie(1), Collections.<Review>emptyList()),
+            new MovieWithReviews(new Movie(3L, "Standalone", "Director C", 2010, "Action", "Three", 90, 4.0),
+                Collections.singletonList(new Review("Solo", "😎", 3.0, "Ok"))),
+            new MovieWithReviews(store.movie(0), reviewList(new Review("Solo", "😎", 3.0, "Ok"))));
+
+        for (MovieWithReviews value : values) {
+            assertEquals(json(plain, value), json(cached, value));
+        }
+        assertEquals(json(plain, values), json(cached, values));
+    }
+
+    @Test
+    @DisplayName("Should fall back to bean serialization for pretty-printed, character and tree output")
+    public void testFallsBackForOtherGenerators() throws Exception {
+        ObjectMapper plainIndented = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        ObjectMapper cachedIndented = new ObjectMapper().registerModule(new MovieJsonModule())
+            .enable(SerializationFeature.INDENT_OUTPUT);
+        MovieWithReviews value = new MovieWithReviews(store.movie(0), reviews);
+
+        assertEquals(plainIndented.writeValueAsString(value), cachedIndented.writeValueAsString(value));
+        assertEquals(plain.writeValueAsString(value), cached.writeValueAsString(value));
+        assertEquals(plain.valueToTree(value), cached.valueToTree(value));
+    }
+}
@@ -1,11 +1,20 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import com.amazonaws.samples.qdevmovies.utils.LongObjectHashMap;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -238,4 +247,454 @@ public class MovieServiceTest {
         
         assertFalse(result.isPresent());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should match any of several genres by default")
+    public void testSearchMoviesByAnyGenre() {
+        MovieQuery query = new MovieQuery();
+        query.setGenre(Arrays.asList("action", "adventure"));
+
+        List<Movie> results = movieService.searchMovies(query);
+
+        assertFalse(results.isEmpty());
+        assertTrue(results.stream().allMatch(movie ->
+            movie.getGenre().toLowerCase().contains("action") || movie.getGenre().toLowerCase().contains("adventure")));
+        assertEquals(countGenre("action") + countGenre("adventure") - countGenres("action", "adventure"), results.size());
+    }
+
+    @Test
+    @DisplayName("Should require every genre when genreMatch is all")
+    public void testSearchMoviesByAllGenres() {
+        MovieQuery query = new MovieQuery();
+        query.setGenre(Arrays.asList("Crime", "Drama"));
+        query.setGenreMatch("all");
+
+        List<Movie> results = movieService.searchMovies(query);
+
+        assertEquals(countGenres("crime", "drama"), results.size());
+        assertTrue(results.stream().anyMatch(movie -> movie.getGenre().equals("Crime/Drama")));
+        assertTrue(results.stream().noneMatch(movie -> movie.getGenre().equals("Drama")));
+    }
+
+    @Test
+    @DisplayName("Should treat a compound genre term as all of its parts")
+    public void testSearchMoviesByCompoundGenre() {
+        List<Movie> results = movieService.searchMovies(null, null, "drama/crime");
+
+        assertEquals(countGenres("crime", "drama"), results.size());
+    }
+
+    @Test
+    @DisplayName("Should intersect genre bitmaps with name and id criteria")
+    public void testSearchMoviesGenreWithNameAndId() {
+        assertEquals(1, movieService.searchMovies("family", 2L, "crime").size());
+        assertTrue(movieService.searchMovies("family", 2L, "sci-fi").isEmpty());
+        assertTrue(movieService.searchMovies("prison", 2L, "drama").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should return movies in catalog order for genre-only searches")
+    public void testSearchMoviesByGenreKeepsCatalogOrder() {
+        List<Movie> results = movieService.searchMovies(null, null, "drama");
+
+        for (int i = 1; i < results.size(); i++) {
+            assertTrue(movieService.getAllMovies().indexOf(results.get(i - 1))
+                < movieService.getAllMovies().indexOf(results.get(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should walk every page of the catalog exactly once")
+    public void testSearchPageCoversCatalog() {
+        MovieQuery query = new MovieQuery();
+        query.setSort("rating");
+        query.setLimit(5);
+
+        List<Movie> seen = new ArrayList<>();
+        MoviePage page;
+        do {
+            page = movieService.searchPage(query);
+            assertEquals(movieService.getAllMovies().size(), page.getTotalResults());
+            assertTrue(page.getMovies().size() <= 5);
+            seen.addAll(page.getMovies());
+            query.setCursor(page.getNextCursor());
+        } while (page.hasNext());
+
+        assertEquals(movieService.getAllMovies().size(), seen.size());
+        assertEquals(new HashSet<>(movieService.getAllMovies()), new HashSet<>(seen));
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i - 1).getImdbRating() >= seen.get(i).getImdbRating());
+        }
+    }
+
+    @Test
+    @DisplayName("Should page filtered results in the requested order")
+    public void testSearchPageFilteredAndSorted() {
+        MovieQuery query = new MovieQuery(null, null, "drama");
+        query.setSort("year");
+        query.setOrder("asc");
+        query.setLimit(2);
+
+        List<Movie> seen = new ArrayList<>();
+        MoviePage page;
+        do {
+            page = movieService.searchPage(query);
+            assertEquals(countGenre("drama"), page.getTotalResults());
+            seen.addAll(page.getMovies());
+            query.setCursor(page.getNextCursor());
+        } while (page.hasNext());
+
+        assertEquals(countGenre("drama"), seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i - 1).getYear() <= seen.get(i).getYear());
+        }
+    }
+
+    @Test
+    @DisplayName("Should sort by name ignoring case")
+    public void testSearchMoviesSortedByName() {
+        MovieQuery query = new MovieQuery();
+        query.setSort("name");
+
+        List<Movie> results = movieService.searchMovies(query);
+
+        for (int i = 1; i < results.size(); i++) {
+            assertTrue(results.get(i - 1).getMovieName().compareToIgnoreCase(results.get(i).getMovieName()) <= 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a cursor issued for a different sort")
+    public void testSearchPageRejectsMismatchedCursor() {
+        MovieQuery query = new MovieQuery();
+        query.setSort("rating");
+        query.setLimit(1);
+        String cursor = movieService.searchPage(query).getNextCursor();
+
+        query.setSort("year");
+        query.setCursor(cursor);
+
+        assertThrows(IllegalArgumentException.class, () -> movieService.searchPage(query));
+    }
+
+    @Test
+    @DisplayName("Should reject unknown sorts, orders and garbage cursors")
+    public void testSearchPageRejectsInvalidParameters() {
+        MovieQuery badSort = new MovieQuery();
+        badSort.setSort("popularity");
+        MovieQuery badOrder = new MovieQuery();
+        badOrder.setOrder("sideways");
+        MovieQuery badCursor = new MovieQuery();
+        badCursor.setCursor("not-a-cursor");
+
+        assertThrows(IllegalArgumentException.class, () -> movieService.searchPage(badSort));
+        assertThrows(IllegalArgumentException.class, () -> movieService.searchPage(badOrder));
+        assertThrows(IllegalArgumentException.class, () -> movieService.searchPage(badCursor));
+    }
+
+    @Test
+    @DisplayName("Should filter by year, rating and duration ranges")
+    public void testSearchMoviesByRanges() {
+        MovieQuery query = new MovieQuery(null, null, "drama");
+        query.setYearFrom(1990);
+        query.setYearTo(2000);
+        query.setMinRating(4.5);
+
+        List<Movie> results = movieService.searchMovies(query);
+
+        long expected = movieService.getAllMovies().stream()
+            .filter(movie -> movie.getGenre().toLowerCase().contains("drama"))
+            .filter(movie -> movie.getYear() >= 1990 && movie.getYear() <= 2000 && movie.getImdbRating() >= 4.5)
+            .count();
+        assertFalse(results.isEmpty());
+        assertEquals(expected, results.size());
+    }
+
+    @Test
+    @DisplayName("Should apply a maximum duration on its own")
+    public void testSearchMoviesByMaxDuration() {
+        MovieQuery query = new MovieQuery();
+        query.setMaxDuration(130);
+
+        List<Movie> results = movieService.searchMovies(query);
+
+        long expected = movieService.getAllMovies().stream().filter(movie -> movie.getDuration() <= 130).count();
+        assertEquals(expected, results.size());
+        assertTrue(results.stream().allMatch(movie -> movie.getDuration() <= 130));
+    }
+
+    @Test
+    @DisplayName("Should reject a year range that ends before it starts")
+    public void testSearchMoviesRejectsInvertedYearRange() {
+        MovieQuery query = new MovieQuery();
+        query.setYearFrom(2000);
+        query.setYearTo(1990);
+
+        assertThrows(IllegalArgumentException.class, () -> movieService.searchMovies(query));
+    }
+
+    @Test
+    @DisplayName("Should find movies by part of the director's name, ignoring case")
+    public void testSearchMoviesByPartialDirector() {
+        MovieQuery query = new MovieQuery();
+        query.setDirector("moviemaker");
+
+        List<Movie> results = movieService.searchMovies(query);
+
+        assertEquals(Arrays.asList(3L, 6L, 9L, 12L), results.stream().map(Movie::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Should match the whole director's name in exact mode")
+    public void testSearchMoviesByExactDirector() {
+        MovieQuery query = new MovieQuery();
+        query.setDirector("chris moviemaker");
+        query.setDirectorMatch("exact");
+
+        List<Movie> results = movieService.searchMovies(query);
+
+        assertEquals(Arrays.asList(3L, 6L), results.stream().map(Movie::getId).collect(Collectors.toList()));
+        query.setDirector("Moviemaker");
+        assertTrue(movieService.searchMovies(query).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should filter by a single release year and combine it with other criteria")
+    public void testSearchMoviesByYear() {
+        MovieQuery query = new MovieQuery();
+        query.setYear(1994);
+
+        assertEquals(Arrays.asList(1L, 4L, 5L),
+            movieService.searchMovies(query).stream().map(Movie::getId).collect(Collectors.toList()));
+
+        query.setDirector("director");
+        assertEquals(Arrays.asList(1L, 4L),
+            movieService.searchMovies(query).stream().map(Movie::getId).collect(Collectors.toList()));
+
+        query.setGenre(Arrays.asList("romance"));
+        assertTrue(movieService.searchMovies(query).isEmpty());
+
+        // A year outside the range matches nothing instead of being rejected
+        MovieQuery outside = new MovieQuery();
+        outside.setYear(1994);
+        outside.setYearFrom(2000);
+        assertTrue(movieService.searchMovies(outside).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should return the best-rated matches in top-K mode")
+    public void testSearchMoviesTopRated() {
+        MovieQuery query = new MovieQuery(null, null, "drama");
+        query.setTop(3);
+
+        MoviePage page = movieService.searchPage(query);
+
+        List<Movie> expected = new ArrayList<>(movieService.searchMovies(null, null, "drama"));
+        expected.sort((a, b) -> Double.compare(b.getImdbRating(), a.getImdbRating()));
+        assertEquals(expected.subList(0, 3), page.getMovies());
+        assertEquals(expected.size(), page.getTotalResults());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    @DisplayName("Should look up many ids at once in request order")
+    public void testGetMoviesByIds() {
+        List<Movie> movies = movieService.getMoviesByIds(Arrays.asList(5L, 999L, 2L, 5L));
+
+        assertEquals(2, movies.size());
+        assertEquals(5L, movies.get(0).getId());
+        assertEquals(2L, movies.get(1).getId());
+        assertEquals(movieService.getMovieById(5L).get(), movies.get(0));
+    }
+
+    @Test
+    @DisplayName("Should reject empty and oversized id batches")
+    public void testGetMoviesByIdsRejectsInvalidBatches() {
+        List<Long> tooMany = new ArrayList<>();
+        for (long id = 1; id <= MovieService.MAX_BATCH_SIZE + 1; id++) {
+            tooMany.add(id);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> movieService.getMoviesByIds(new ArrayList<>()));
+        assertThrows(IllegalArgumentException.class, () -> movieService.getMoviesByIds(Arrays.asList(1L, null)));
+        assertThrows(IllegalArgumentException.class, () -> movieService.getMoviesByIds(tooMany));
+    }
+
+    @Test
+    @DisplayName("Should list the same movies lazily as a full search")
+    public void testSearchLazily() {
+        MovieQuery drama = new MovieQuery(null, null, "drama");
+        drama.setSort("year");
+        MovieQuery catalog = new MovieQuery();
+        catalog.setSort("name");
+        catalog.setOrder("desc");
+        MovieQuery top = new MovieQuery();
+        top.setTop(4);
+
+        assertEquals(movieService.searchMovies(drama), new ArrayList<>(movieService.searchLazily(drama)));
+        assertEquals(movieService.searchMovies(catalog), new ArrayList<>(movieService.searchLazily(catalog)));
+        assertEquals(movieService.searchMovies(top), new ArrayList<>(movieService.searchLazily(top)));
+        assertThrows(UnsupportedOperationException.class, () -> movieService.searchLazily(drama).clear());
+    }
+
+    @Test
+    @DisplayName("Should record search latency and result counts per search mode")
+    public void testSearchMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            MovieQuery top = new MovieQuery();
+            top.setTop(3);
+
+            movieService.searchPage(new MovieQuery(null, null, "drama"));
+            movieService.searchPage(top);
+
+            assertEquals(1, registry.get("movies.search").tag("mode", "page").timer().count());
+            assertEquals(countGenre("drama"), (long) registry.get("movies.search.results").tag("mode", "page").summary().totalAmount());
+            assertEquals(1, registry.get("movies.search").tag("mode", "top").timer().count());
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+
+    @Test
+    @DisplayName("Should find misspelled names in fuzzy mode, closest first")
+    public void testFuzzyNameSearch() {
+        MovieQuery query = new MovieQuery("Dreem Heist", null, null);
+        assertTrue(movieService.searchMovies(query).isEmpty());
+
+        query.setFuzzy(1);
+        List<Movie> results = movieService.searchMovies(query);
+
+        assertEquals(1, results.size());
+        assertEquals("Dream Heist", results.get(0).getMovieName());
+
+        MovieQuery ranked = new MovieQuery("the prizon", null, null);
+        ranked.setFuzzy(2);
+        ranked.setSort("rating");
+        List<Movie> rankedResults = movieService.searchMovies(ranked);
+        assertEquals("The Prison Escape", rankedResults.get(0).getMovieName());
+        assertEquals(rankedResults, movieService.searchLazily(ranked));
+        assertEquals(rankedResults.subList(0, 1), movieService.searchPage(ranked).getMovies().subList(0, 1));
+    }
+
+    @Test
+    @DisplayName("Should combine fuzzy names with other filters and reject bad distances and cursors")
+    public void testFuzzyNameSearchValidation() {
+        MovieQuery query = new MovieQuery("Dreem Heist", null, "comedy");
+        query.setFuzzy(1);
+        assertTrue(movieService.searchMovies(query).isEmpty());
+
+        MovieQuery byId = new MovieQuery("Dreem", 6L, null);
+        byId.setFuzzy(1);
+        assertEquals(1, movieService.searchMovies(byId).size());
+        byId.setFuzzy(0);
+        assertTrue(movieService.searchMovies(byId).isEmpty());
+
+        MovieQuery tooFuzzy = new MovieQuery("Dreem", null, null);
+        tooFuzzy.setFuzzy(FuzzyNameIndex.MAX_DISTANCE + 1);
+        assertThrows(IllegalArgumentException.class, () -> movieService.searchMovies(tooFuzzy));
+
+        MovieQuery paged = new MovieQuery("Dreem", null, null);
+        paged.setFuzzy(1);
+        paged.setCursor("abc");
+        assertThrows(IllegalArgumentException.class, () -> movieService.searchPage(paged));
+    }
+
+    @Test
+    @DisplayName("Should suggest movies by word prefix, best-rated first")
+    public void testSuggest() {
+        List<MovieSuggestion> suggestions = movieService.suggest("the", 3);
+
+        assertEquals(3, suggestions.size());
+        for (int i = 1; i < suggestions.size(); i++) {
+            assertTrue(suggestions.get(i - 1).getImdbRating() >= suggestions.get(i).getImdbRating());
+        }
+        for (MovieSuggestion suggestion : suggestions) {
+            assertTrue(suggestion.getMovieName().toLowerCase().matches("(.*\\W)?the.*"));
+        }
+        assertEquals("Dream Heist", movieService.suggest("hei", 10).get(0).getMovieName());
+        assertTrue(movieService.suggest("", 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> movieService.suggest("the", 0));
+    }
+
+    @Test
+    @DisplayName("Should recompute review aggregates in the background and keep serving the previous ones meanwhile")
+    public void testReviewStatsRebuiltInBackground() throws Exception {
+        AtomicLong version = new AtomicLong(1L);
+        ReviewService reviews = new ReviewService() {
+            @Override
+            public long getVersion() {
+                return version.get();
+            }
+
+            @Override
+            long forEachMovie(LongObjectHashMap.EntryConsumer<List<Review>> consumer) {
+                super.forEachMovie(consumer);
+                return version.get();
+            }
+        };
+        MovieService service = new MovieService(MovieCatalogLoader.DEFAULT_LOCATION, reviews, false);
+        ReviewStats previous = service.getReviewStats();
+        assertEquals(1L, previous.getVersion());
+
+        version.set(2L);
+        // The caller that notices the change does not wait for the new aggregates
+        assertSame(previous, service.getReviewStats());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (service.getReviewStats().getVersion() != 2L && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(2L, service.getReviewStats().getVersion());
+        assertEquals(previous.summary(1L).getReviewCount(), service.getReviewStats().summary(1L).getReviewCount());
+        assertFalse(service.rebuildReviewStats());
+
+        // Once shut down, changed reviews no longer start a rebuild
+        service.shutdown();
+        version.set(3L);
+        assertEquals(2L, service.getReviewStats().getVersion());
+        Thread.sleep(50);
+        assertEquals(2L, service.getReviewStats().getVersion());
+    }
+
+    @Test
+    @DisplayName("Should filter and page by average user rating without loading reviews per movie")
+    public void testUserRatingFilterAndSort() {
+        MovieQuery query = new MovieQuery();
+        query.setMinUserRating(4.8);
+        List<Movie> results = movieService.searchMovies(query);
+        assertEquals(Arrays.asList(1L, 2L, 3L), results.stream().map(Movie::getId).collect(Collectors.toList()));
+
+        ReviewStats stats = movieService.getReviewStats();
+        MovieQuery sorted = new MovieQuery();
+        sorted.setSort("userRating");
+        sorted.setLimit(2);
+        MoviePage first = movieService.searchPage(sorted);
+        assertEquals(Arrays.asList(1L, 2L), first.getMovies().stream().map(Movie::getId).collect(Collectors.toList()));
+        sorted.setCursor(first.getNextCursor());
+        sorted.setLimit(100);
+        List<Movie> rest = movieService.searchPage(sorted).getMovies();
+        double previous = stats.summary(2L).getAverageRating();
+        for (Movie movie : rest) {
+            double average = stats.summary(movie.getId()).getAverageRating();
+            assertTrue(average <= previous);
+            previous = average;
+        }
+        assertEquals(movieService.getAllMovies().size() - 2, rest.size());
+
+        MovieQuery invalid = new MovieQuery();
+        invalid.setMinUserRating(Double.NaN);
+        assertThrows(IllegalArgumentException.class, () -> movieService.searchMovies(invalid));
+    }
+
+    private long countGenre(String genre) {
+        return countGenres(genre);
+    }
+
+    private long countGenres(String... genres) {
+        return movieService.getAllMovies().stream()
+            .filter(movie -> Arrays.stream(genres).allMatch(genre -> movie.getGenre().toLowerCase().contains(genre)))
+            .count();
+    }
+}
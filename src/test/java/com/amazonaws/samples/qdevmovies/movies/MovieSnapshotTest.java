@@ -0,0 +1,222 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.amazonaws.samples.qdevmovies.utils.LongObjectHashMap;
+import com.amazonaws.samples.qdevmovies.utils.TrigramIndex;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for writing and memory-mapping binary catalog snapshots.
+ */
+public class MovieSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CompactMovieStore source;
+    private MovieSortIndex sourceSortIndex;
+    private Path snapshotFile;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MovieStore.Builder builder = new MovieStore.Builder();
+        new MovieCatalogLoader(MovieCatalogLoader.DEFAULT_LOCATION).load(builder::add);
+        source = builder.build();
+        sourceSortIndex = new MovieSortIndex(source);
+        snapshotFile = tempDir.resolve("movies.snapshot");
+        MovieSnapshotWriter.write(source, sourceSortIndex, snapshotFile);
+    }
+
+    @Test
+    @DisplayName("Should read back every movie from the mapped snapshot")
+    public void testRoundTrip() {
+        MovieStore mapped = MovieSnapshot.open(snapshotFile).getStore();
+
+        assertEquals(source.size(), mapped.size());
+        assertEquals(source.asList(), mapped.asList());
+        assertEquals(source.directorCount(), mapped.directorCount());
+        assertEquals(source.genreCount(), mapped.genreCount());
+    }
+
+    @Test
+    @DisplayName("Should resolve ids through the stored id table")
+    public void testOrdinalOf() {
+        MovieStore mapped = MovieSnapshot.open(snapshotFile).getStore();
+
+        for (int ordinal = 0; ordinal < source.size(); ordinal++) {
+            assertEquals(ordinal, mapped.ordinalOf(source.id(ordinal)));
+        }
+        assertEquals(-1, mapped.ordinalOf(999L));
+    }
+
+    @Test
+    @DisplayName("Should restore the stored sort orders")
+    public void testSortIndexRestored() {
+        MovieSortIndex restored = MovieSnapshot.open(snapshotFile).getSortIndex();
+
+        for (MovieSort sort : MovieSort.values()) {
+            if (sort.isReviewBased()) {
+                continue;
+            }
+            int[] expected = sourceSortIndex.page(sort, sort.isDefaultDescending(), -1, source.size());
+            assertArrayEquals(expected, restored.page(sort, sort.isDefaultDescending(), -1, source.size()), sort.getParam());
+        }
+    }
+
+    @Test
+    @DisplayName("Should map the stored name and genre indexes instead of building them")
+    public void testIndexesRestored() {
+        MovieSnapshot snapshot = MovieSnapshot.open(snapshotFile);
+        TrigramIndex builtNames = new TrigramIndex(source.movieNames());
+        GenreIndex builtGenres = new GenreIndex(source.genres());
+
+        for (String query : new String[] {"the", "prison", "es", "zzz", ""}) {
+            assertArrayEquals(builtNames.search(query), snapshot.getNameIndex().search(query), query);
+        }
+        assertEquals(builtGenres.getTokens(), snapshot.getGenreIndex().getTokens());
+        for (String token : builtGenres.getTokens()) {
+            assertArrayEquals(builtGenres.matchTerm(token).toArray(), snapshot.getGenreIndex().matchTerm(token).toArray(), token);
+        }
+    }
+
+    @Test
+    @DisplayName("Should still open version 1 snapshots, which have no stored indexes")
+    public void testOpensVersion1() throws Exception {
+        ByteBuffer current = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+        int shift = MovieSnapshot.HEADER_SIZE - 64;
+        int trigramOffset = (int) current.getLong(64);
+        int heapOffset = (int) current.getLong(40);
+        int length = current.capacity() - shift - (heapOffset - trigramOffset);
+        // Drop the index sections and the header fields that point at them
+        ByteBuffer old = ByteBuffer.allocate(length);
+        old.put(Arrays.copyOf(current.array(), 64));
+        old.put(current.array(), MovieSnapshot.HEADER_SIZE, trigramOffset - MovieSnapshot.HEADER_SIZE);
+        old.put(current.array(), heapOffset, current.capacity() - heapOffset);
+        old.putInt(4, 1);
+        old.putLong(24, 64);
+        old.putLong(32, current.getLong(32) - shift);
+        old.putLong(40, trigramOffset - shift);
+        old.putLong(48, length);
+        Path version1 = tempDir.resolve("version1.snapshot");
+        Files.write(version1, old.array());
+
+        MovieSnapshot snapshot = MovieSnapshot.open(version1);
+
+        assertEquals(source.asList(), snapshot.getStore().asList());
+        assertNull(snapshot.getNameIndex());
+        assertNull(snapshot.getGenreIndex());
+        assertEquals(new MovieService().searchMovies("the", null, "drama"),
+                new MovieService(version1.toString()).searchMovies("the", null, "drama"));
+    }
+
+    @Test
+    @DisplayName("Should still open version 2 snapshots, which do not record the content hash")
+    public void testOpensVersion2() throws Exception {
+        ByteBuffer current = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+        int shift = MovieSnapshot.HEADER_SIZE - 80;
+        ByteBuffer old = ByteBuffer.allocate(current.capacity() - shift);
+        old.put(Arrays.copyOf(current.array(), 80));
+        old.put(current.array(), MovieSnapshot.HEADER_SIZE, current.capacity() - MovieSnapshot.HEADER_SIZE);
+        old.putInt(4, 2);
+        for (int offset : new int[] {24, 32, 40, 48, 64, 72}) {
+            old.putLong(offset, current.getLong(offset) - shift);
+        }
+        Path version2 = tempDir.resolve("version2.snapshot");
+        Files.write(version2, old.array());
+
+        MovieSnapshot snapshot = MovieSnapshot.open(version2);
+
+        assertEquals(source.asList(), snapshot.getStore().asList());
+        assertNotNull(snapshot.getNameIndex());
+        assertEquals(source.contentHash(), snapshot.getContentHash());
+    }
+
+    @Test
+    @DisplayName("Should read the catalog version and highest id from the header")
+    public void testHeaderVersion() {
+        MovieSnapshot snapshot = MovieSnapshot.open(snapshotFile);
+        long highestId = 0;
+        for (Movie movie : source.asList()) {
+            highestId = Math.max(highestId, movie.getId());
+        }
+
+        assertEquals(source.contentHash(), snapshot.getContentHash());
+        assertEquals(highestId, snapshot.getMaxId());
+        MovieCatalog mapped = MovieCatalog.load(snapshotFile.toString(), null);
+        MovieCatalog parsed = MovieCatalog.load(MovieCatalogLoader.DEFAULT_LOCATION, null);
+        assertEquals(parsed.version, mapped.version);
+        assertEquals(parsed.maxId, mapped.maxId);
+    }
+
+    @Test
+    @DisplayName("Should aggregate reviews on first use rather than when the snapshot is loaded")
+    public void testReviewStatsBuiltOnFirstUse() {
+        AtomicInteger scans = new AtomicInteger();
+        ReviewService reviewService = new ReviewService() {
+            @Override
+            long forEachMovie(LongObjectHashMap.EntryConsumer<List<Review>> consumer) {
+                scans.incrementAndGet();
+                return super.forEachMovie(consumer);
+            }
+        };
+
+        MovieCatalog catalog = MovieCatalog.load(snapshotFile.toString(), reviewService);
+        assertEquals(0, scans.get());
+
+        ReviewStats stats = catalog.reviewStats();
+        assertEquals(1, scans.get());
+        assertSame(stats, catalog.reviewStats());
+        assertEquals(1, scans.get());
+        assertEquals(reviewService.getVersion(), stats.getVersion());
+    }
+
+    @Test
+    @DisplayName("Should tell snapshots apart from JSON catalogs")
+    public void testIsSnapshot() throws Exception {
+        Path json = tempDir.resolve("movies.json");
+        Files.write(json, "[]".getBytes());
+
+        assertTrue(MovieSnapshot.isSnapshot(snapshotFile.toString()));
+        assertFalse(MovieSnapshot.isSnapshot(json.toString()));
+        assertFalse(MovieSnapshot.isSnapshot(tempDir.resolve("missing.snapshot").toString()));
+        assertFalse(MovieSnapshot.isSnapshot(MovieCatalogLoader.DEFAULT_LOCATION));
+    }
+
+    @Test
+    @DisplayName("Should reject truncated or foreign files")
+    public void testRejectsInvalidFiles() throws Exception {
+        byte[] bytes = Files.readAllBytes(snapshotFile);
+        Path truncated = tempDir.resolve("truncated.snapshot");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 10));
+        Path foreign = tempDir.resolve("foreign.snapshot");
+        byte[] garbage = bytes.clone();
+        garbage[0] = 'X';
+        Files.write(foreign, garbage);
+
+        assertThrows(CatalogLoadException.class, () -> MovieSnapshot.open(truncated));
+        assertThrows(CatalogLoadException.class, () -> MovieSnapshot.open(foreign));
+    }
+
+    @Test
+    @DisplayName("Should search a mapped catalog like a parsed one")
+    public void testMovieServiceFromSnapshot() {
+        MovieService fromJson = new MovieService();
+        MovieService fromSnapshot = new MovieService(snapshotFile.toString());
+
+        assertEquals(fromJson.getAllMovies(), fromSnapshot.getAllMovies());
+        assertEquals(fromJson.searchMovies("the", null, "drama"), fromSnapshot.searchMovies("the", null, "drama"));
+        assertEquals(fromJson.getMovieById(5L), fromSnapshot.getMovieById(5L));
+    }
+}
@@ -0,0 +1,84 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the columnar movie store.
+ */
+public class MovieStoreTest {
+
+    private final List<Movie> movies = Arrays.asList(
+        new Movie(10L, "First", "Director A", 1990, "Drama", "One", 100, 4.5),
+        new Movie(20L, "Second", "Director B", 2000, "Crime/Drama", "Two", 120, 3.5),
+        new Movie(30L, "Third", "Director A", 2010, "Drama", "Three", 90, 5.0));
+
+    private final MovieStore store = MovieStore.of(movies);
+
+    @Test
+    @DisplayName("Should recreate equal movies from the columns")
+    public void testMovieRoundTrip() {
+        assertEquals(3, store.size());
+        for (int ordinal = 0; ordinal < movies.size(); ordinal++) {
+            assertEquals(movies.get(ordinal), store.movie(ordinal));
+        }
+        assertEquals(movies, store.asList());
+    }
+
+    @Test
+    @DisplayName("Should map ids to ordinals without a HashMap")
+    public void testOrdinalOf() {
+        assertEquals(0, store.ordinalOf(10L));
+        assertEquals(2, store.ordinalOf(30L));
+        assertEquals(-1, store.ordinalOf(40L));
+    }
+
+    @Test
+    @DisplayName("Should dictionary-encode directors and genres")
+    public void testDictionaryEncoding() {
+        assertEquals(2, store.directorCount());
+        assertEquals(2, store.genreCount());
+        assertEquals("Director A", store.director(2));
+        assertEquals("Crime/Drama", store.genre(1));
+        assertEquals(Arrays.asList("Drama", "Crime/Drama", "Drama"), store.genres());
+    }
+
+    @Test
+    @DisplayName("Should read primitive columns by ordinal")
+    public void testPrimitiveColumns() {
+        assertEquals(20L, store.id(1));
+        assertEquals(2000, store.year(1));
+        assertEquals(120, store.duration(1));
+        assertEquals(3.5, store.imdbRating(1));
+    }
+
+    @Test
+    @DisplayName("Should return movies for ordinals in the given order")
+    public void testMoviesForOrdinals() {
+        List<Movie> selected = store.movies(new int[] {2, 0});
+
+        assertEquals(Arrays.asList(movies.get(2), movies.get(0)), selected);
+    }
+
+    @Test
+    @DisplayName("Should expose a read-only catalog view")
+    public void testAsListIsUnmodifiable() {
+        assertThrows(UnsupportedOperationException.class, () -> store.asList().add(movies.get(0)));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.asList().get(3));
+    }
+
+    @Test
+    @DisplayName("Should handle an empty catalog")
+    public void testEmptyStore() {
+        MovieStore empty = new MovieStore.Builder().build();
+
+        assertEquals(0, empty.size());
+        assertTrue(empty.asList().isEmpty());
+        assertEquals(-1, empty.ordinalOf(1L));
+    }
+}
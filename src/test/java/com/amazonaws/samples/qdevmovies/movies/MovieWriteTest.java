@@ -0,0 +1,300 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for creating, updating and deleting movies while the catalog keeps serving.
+ */
+public class MovieWriteTest {
+
+    private MovieService movieService;
+
+    @BeforeEach
+    public void setUp() {
+        movieService = new MovieService();
+    }
+
+    private static MovieRequest movie(String name, String genre, int year, double rating) {
+        return new MovieRequest(null, name, "Some Director", year, genre, "Plot", 100, rating);
+    }
+
+    private List<Long> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).collect(Collectors.toList());
+    }
+
+    private MoviePage page(String sort, String cursor, int limit) {
+        MovieQuery query = new MovieQuery();
+        query.setSort(sort);
+        query.setCursor(cursor);
+        query.setLimit(limit);
+        return movieService.searchPage(query);
+    }
+
+    @Test
+    @DisplayName("Should find a created movie by id, name, genre, range, suggestion and sort")
+    public void testCreateMovie() {
+        List<Movie> before = movieService.getAllMovies();
+        Movie created = movieService.createMovie(movie("Harbor Lights", "Noir/Drama", 1948, 4.8));
+
+        assertEquals(13L, created.getId());
+        assertEquals("Harbor Lights", movieService.getMovieById(13L).get().getMovieName());
+        assertEquals(13, movieService.getAllMovies().size());
+        assertEquals(12, before.size());
+        assertEquals(Collections.singletonList(13L), ids(movieService.searchMovies("harbor", null, null)));
+        assertEquals(Collections.singletonList(13L), ids(movieService.searchMovies(null, null, "noir")));
+        assertTrue(ids(movieService.searchMovies(null, null, "drama")).contains(13L));
+
+        MovieQuery old = new MovieQuery();
+        old.setYearTo(1950);
+        assertEquals(Collections.singletonList(13L), ids(movieService.searchMovies(old)));
+
+        MovieQuery fuzzy = new MovieQuery();
+        fuzzy.setName("harbour");
+        fuzzy.setFuzzy(1);
+        assertEquals(Collections.singletonList(13L), ids(movieService.searchMovies(fuzzy)));
+
+        assertEquals(13L, movieService.suggest("harb", 5).get(0).getId());
+        // Rated 4.8: after the three 5.0 movies and before the 4.5 ones
+        assertEquals(13L, page("rating", null, 10).getMovies().get(3).getId());
+        assertEquals(13L, page("catalog", null, 20).getMovies().get(12).getId());
+    }
+
+    @Test
+    @DisplayName("Should update a movie in place and re-rank it")
+    public void testUpdateMovie() {
+        Movie updated = movieService.updateMovie(5L, movie("Life Journey Redux", "Musical", 2020, 1.0));
+
+        assertEquals(5L, updated.getId());
+        assertEquals("Life Journey Redux", movieService.getMovieById(5L).get().getMovieName());
+        assertEquals(12, movieService.getAllMovies().size());
+        assertEquals(5L, movieService.getAllMovies().get(4).getId());
+        assertTrue(movieService.searchMovies(null, null, "romance").isEmpty());
+        assertEquals(Collections.singletonList(5L), ids(movieService.searchMovies(null, null, "musical")));
+        assertEquals(Collections.singletonList(5L), ids(movieService.searchMovies("redux", null, null)));
+        assertEquals(Collections.singletonList(5L), ids(movieService.searchMovies("journey", null, null)));
+        List<Movie> byRating = page("rating", null, 20).getMovies();
+        assertEquals(5L, byRating.get(byRating.size() - 1).getId());
+        assertEquals(5L, page("year", null, 20).getMovies().get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Should find edited movies by director and year before the indexes are rebuilt")
+    public void testDirectorAndYearAfterEdits() {
+        movieService.updateMovie(3L, movie("Renamed", "Drama", 1994, 4.0));
+        movieService.createMovie(new MovieRequest(null, "Sequel", "Chris Moviemaker", 2024, "Drama", "Plot", 100, 4.0));
+        movieService.deleteMovie(6L);
+
+        MovieQuery director = new MovieQuery();
+        director.setDirector("Chris Moviemaker");
+        director.setDirectorMatch("exact");
+        assertEquals(Collections.singletonList(13L), ids(movieService.searchMovies(director)));
+
+        MovieQuery some = new MovieQuery();
+        some.setDirector("some dir");
+        assertEquals(Collections.singletonList(3L), ids(movieService.searchMovies(some)));
+
+        MovieQuery year = new MovieQuery();
+        year.setYear(1994);
+        assertEquals(Arrays.asList(1L, 3L, 4L, 5L), ids(movieService.searchMovies(year)));
+    }
+
+    @Test
+    @DisplayName("Should delete a movie from every lookup and page around the gap")
+    public void testDeleteMovie() {
+        movieService.deleteMovie(2L);
+
+        assertFalse(movieService.getMovieById(2L).isPresent());
+        assertEquals(11, movieService.getAllMovies().size());
+        assertFalse(ids(movieService.getAllMovies()).contains(2L));
+        assertTrue(movieService.searchMovies("family", null, null).isEmpty());
+        assertFalse(ids(movieService.searchMovies(null, null, "crime")).contains(2L));
+        assertTrue(movieService.getMoviesByIds(Arrays.asList(1L, 2L, 3L)).stream().noneMatch(m -> m.getId() == 2L));
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            MoviePage page = page("name", cursor, 4);
+            assertEquals(11, page.getTotalResults());
+            paged.addAll(ids(page.getMovies()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(11, paged.size());
+        assertFalse(paged.contains(2L));
+        assertEquals(11, movieService.searchLazily(new MovieQuery()).size());
+    }
+
+    @Test
+    @DisplayName("Should apply a batch all at once or not at all")
+    public void testBatchIsAtomic() {
+        long version = movieService.getCatalogVersion();
+        List<MovieChange> invalid = Arrays.asList(
+            MovieChange.create(movie("First", "Drama", 2000, 3.0)),
+            MovieChange.delete(999L));
+
+        assertThrows(NoSuchElementException.class, () -> movieService.applyChanges(invalid));
+        assertEquals(version, movieService.getCatalogVersion());
+        assertEquals(12, movieService.getAllMovies().size());
+
+        List<Movie> written = movieService.applyChanges(Arrays.asList(
+            MovieChange.create(new MovieRequest(50L, "First", "Director", 2000, "Drama", "Plot", 90, 3.0)),
+            MovieChange.update(50L, new MovieRequest(null, "First Again", "Director", 2000, "Drama", "Plot", 90, 3.0)),
+            MovieChange.delete(1L)));
+
+        assertEquals(Arrays.asList(50L, 50L), ids(written));
+        assertNotEquals(version, movieService.getCatalogVersion());
+        assertEquals("First Again", movieService.getMovieById(50L).get().getMovieName());
+        assertFalse(movieService.getMovieById(1L).isPresent());
+        assertEquals(51L, movieService.createMovie(movie("Next", "Drama", 2001, 3.0)).getId());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid movies, taken ids and unknown movies")
+    public void testRejectsInvalidChanges() {
+        assertThrows(IllegalArgumentException.class, () -> movieService.createMovie(movie(" ", "Drama", 2000, 3.0)));
+        assertThrows(IllegalArgumentException.class, () -> movieService.createMovie(movie("Name", "Drama", 2000, 11.0)));
+        assertThrows(IllegalArgumentException.class,
+            () -> movieService.createMovie(new MovieRequest(1L, "Name", "Director", 2000, "Drama", "Plot", 90, 3.0)));
+        assertThrows(IllegalArgumentException.class,
+            () -> movieService.updateMovie(1L, new MovieRequest(2L, "Name", "Director", 2000, "Drama", "Plot", 90, 3.0)));
+        assertThrows(NoSuchElementException.class, () -> movieService.updateMovie(999L, movie("Name", "Drama", 2000, 3.0)));
+        assertThrows(NoSuchElementException.class, () -> movieService.deleteMovie(999L));
+        assertThrows(IllegalArgumentException.class, () -> movieService.applyChanges(Collections.emptyList()));
+        MovieChange unknown = new MovieChange();
+        unknown.setAction("rename");
+        assertThrows(IllegalArgumentException.class, () -> movieService.applyChanges(Collections.singletonList(unknown)));
+        assertEquals(12, movieService.getAllMovies().size());
+    }
+
+    @Test
+    @DisplayName("Should keep sort and range indexes identical to freshly built ones after random edits")
+    public void testMergedIndexesMatchRebuilt() {
+        Random random = new Random(42);
+        for (int round = 0; round < 40; round++) {
+            List<Movie> movies = movieService.getAllMovies();
+            long id = movies.get(random.nextInt(movies.size())).getId();
+            MovieRequest request = movie("Movie " + random.nextInt(1000), random.nextBoolean() ? "Drama" : "Action",
+                    1950 + random.nextInt(70), random.nextInt(11) / 2.0);
+            switch (random.nextInt(3)) {
+                case 0: movieService.createMovie(request); break;
+                case 1: movieService.updateMovie(id, request); break;
+                default: movieService.deleteMovie(id); break;
+            }
+        }
+
+        MovieStore store = MovieStore.of(movieService.getAllMovies());
+        MovieSortIndex fresh = new MovieSortIndex(store);
+        for (MovieSort sort : Arrays.asList(MovieSort.CATALOG, MovieSort.RATING, MovieSort.YEAR, MovieSort.NAME)) {
+            List<Long> expected = new ArrayList<>();
+            for (int ordinal : fresh.page(sort, sort.isDefaultDescending(), -1, store.size())) {
+                expected.add(store.id(ordinal));
+            }
+            assertEquals(expected, ids(page(sort.getParam(), null, 1000).getMovies()), sort.getParam());
+        }
+        MovieQuery range = new MovieQuery();
+        range.setYearFrom(1970);
+        range.setYearTo(1999);
+        range.setMinRating(2.0);
+        List<Long> expected = movieService.getAllMovies().stream()
+                .filter(m -> m.getYear() >= 1970 && m.getYear() <= 1999 && m.getImdbRating() >= 2.0)
+                .map(Movie::getId).collect(Collectors.toList());
+        assertEquals(expected, ids(movieService.searchMovies(range)));
+    }
+
+    @Test
+    @DisplayName("Should compact the edits into fresh indexes and keep changes written meanwhile")
+    public void testCompaction() {
+        movieService.setCompactionThreshold(Integer.MAX_VALUE);
+        movieService.createMovie(movie("Harbor Lights", "Noir", 1948, 4.8));
+        movieService.deleteMovie(3L);
+        List<Movie> before = movieService.getAllMovies();
+        long version = movieService.getCatalogVersion();
+
+        assertTrue(movieService.compact());
+
+        assertEquals(before, movieService.getAllMovies());
+        assertEquals(version, movieService.getCatalogVersion());
+        assertEquals(Collections.singletonList(13L), ids(movieService.searchMovies("harbor", null, null)));
+        assertFalse(movieService.compact());
+
+        // Changes written after the compaction started are carried over to the compacted catalog
+        MovieCatalog snapshot = MovieCatalog.load(MovieCatalogLoader.DEFAULT_LOCATION, null)
+                .withChanges(Collections.singletonList(MovieChange.delete(1L)), null, new ArrayList<>());
+        MovieCatalog compacted = snapshot.compact(null);
+        MovieCatalog latest = snapshot.withChanges(Arrays.asList(
+                MovieChange.update(4L, movie("Urban Stories II", "Crime", 1995, 4.0)),
+                MovieChange.create(new MovieRequest(1L, "Reborn", "Director", 2000, "Drama", "Plot", 90, 3.0))),
+                null, new ArrayList<>());
+        MovieCatalog rebased = compacted.withChangesSince(snapshot, latest, null);
+
+        assertEquals(latest.store.asList(), rebased.store.asList());
+        assertTrue(rebased.store.ordinalOf(1L) >= 0);
+        assertEquals(2, rebased.changeCount());
+        assertNull(compacted.withChangesSince(snapshot, MovieCatalog.load(MovieCatalogLoader.DEFAULT_LOCATION, null), null));
+    }
+
+    @Test
+    @DisplayName("Should never stall or break readers while writers race")
+    public void testConcurrentWrites() throws Exception {
+        movieService.setCompactionThreshold(50);
+        int writers = 4;
+        int createsPerWriter = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Future<?>> results = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < createsPerWriter; i++) {
+                    long id = 1000L + writer * createsPerWriter + i;
+                    movieService.applyChanges(Collections.singletonList(MovieChange.create(
+                            new MovieRequest(id, "Writer " + writer + " Movie " + i, "Director", 2000, "Drama", "Plot", 90, 3.0))));
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                while (!done.get()) {
+                    MoviePage page = page("rating", null, 20);
+                    assertTrue(page.getTotalResults() >= 12);
+                    assertTrue(movieService.getMovieById(1L).isPresent());
+                    movieService.searchMovies("writer", null, "drama");
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (int i = 0; i < writers; i++) {
+            results.get(i).get(30, TimeUnit.SECONDS);
+        }
+        done.set(true);
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(12 + writers * createsPerWriter, movieService.getAllMovies().size());
+        assertEquals(writers * createsPerWriter, movieService.searchMovies("writer", null, null).size());
+    }
+}
@@ -3,14 +3,26 @@ package com.amazonaws.samples.qdevmovies.movies;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.ui.Model;
 import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -51,14 +63,16 @@ public class MoviesControllerTest {
             }
 
             @Override
-            public List<Movie> searchMovies(String name, Long id, String genre) {
+            public List<Movie> searchMovies(MovieQuery query) {
+                String name = query.getName();
+                Long id = query.getId();
                 List<Movie> allMovies = getAllMovies();
                 List<Movie> results = new ArrayList<>();
                 
                 for (Movie movie : allMovies) {
                     boolean matches = true;
                     
-                    if (id != null && !movie.getId().equals(id)) {
+                    if (id != null && movie.getId() != id) {
                         matches = false;
                     }
                     
@@ -68,8 +82,8 @@ public class MoviesControllerTest {
                         }
                     }
                     
-                    if (genre != null && !genre.trim().isEmpty()) {
-                        if (!movie.getGenre().toLowerCase().contains(genre.trim().toLowerCase())) {
+                    for (String genre : query.getGenreTerms()) {
+                        if (!movie.getGenre().toLowerCase().contains(genre.toLowerCase())) {
                             matches = false;
                         }
                     }
@@ -82,6 +96,37 @@ public class MoviesControllerTest {
                 return results;
             }
 
+            @Override
+            public MoviePage searchPage(MovieQuery query) {
+                List<Movie> results = searchMovies(query);
+                int limit = query.getPageSize();
+                boolean descending = query.isDescending();
+                if (results.size() <= limit) {
+                    return MoviePage.of(results);
+                }
+                Movie last = results.get(limit - 1);
+                String nextCursor = new MovieCursor(query.getSortKey(), descending, last.getId(), limit - 1).encode();
+                return new MoviePage(results.subList(0, limit), results.size(), nextCursor);
+            }
+
+            @Override
+            public List<Movie> getMoviesByIds(List<Long> ids) {
+                if (ids == null || ids.isEmpty()) {
+                    throw new IllegalArgumentException("At least one movie id is required");
+                }
+                List<Movie> results = new ArrayList<>();
+                for (Long id : ids) {
+                    getMovieById(id).ifPresent(results::add);
+                }
+                return results;
+            }
+
+            @Override
+            public List<Movie> searchLazily(MovieQuery query) {
+                query.getSortKey(); // rejects unknown sorts like the real service
+                return searchMovies(query);
+            }
+
             @Override
             public List<Movie> searchMoviesByName(String name) {
                 if (name == null || name.trim().isEmpty()) {
@@ -102,7 +147,9 @@ public class MoviesControllerTest {
         mockReviewService = new ReviewService() {
             @Override
             public List<Review> getReviewsForMovie(long movieId) {
-                return new ArrayList<>();
+                return movieId == 1L
+                        ? Arrays.asList(new Review("Tester", "🙂", 4.0, "Fine"))
+                        : new ArrayList<>();
             }
         };
         
@@ -115,16 +162,24 @@ public class MoviesControllerTest {
             java.lang.reflect.Field reviewServiceField = MoviesController.class.getDeclaredField("reviewService");
             reviewServiceField.setAccessible(true);
             reviewServiceField.set(moviesController, mockReviewService);
+
+            setAdminEnabled(true);
         } catch (Exception e) {
             throw new RuntimeException("Failed to inject mock services", e);
         }
     }
 
+    private void setAdminEnabled(boolean enabled) throws ReflectiveOperationException {
+        java.lang.reflect.Field adminEnabledField = MoviesController.class.getDeclaredField("adminEnabled");
+        adminEnabledField.setAccessible(true);
+        adminEnabledField.set(moviesController, enabled);
+    }
+
     // Existing tests
     @Test
     @DisplayName("Should return movies template for getMovies")
     public void testGetMovies() {
-        String result = moviesController.getMovies(model);
+        String result = moviesController.getMovies(new MovieQuery(), model);
         assertNotNull(result);
         assertEquals("movies", result);
     }
@@ -157,7 +212,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should return movies template for search with no criteria")
     public void testSearchMoviesNoCriteria() {
-        String result = moviesController.searchMovies(null, null, null, model);
+        String result = moviesController.searchMovies(new MovieQuery(null, null, null), model);
         
         assertNotNull(result);
         assertEquals("movies", result);
@@ -169,7 +224,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should search movies by name successfully")
     public void testSearchMoviesByName() {
-        String result = moviesController.searchMovies("Test", null, null, model);
+        String result = moviesController.searchMovies(new MovieQuery("Test", null, null), model);
         
         assertNotNull(result);
         assertEquals("movies", result);
@@ -182,7 +237,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should search movies by ID successfully")
     public void testSearchMoviesById() {
-        String result = moviesController.searchMovies(null, 1L, null, model);
+        String result = moviesController.searchMovies(new MovieQuery(null, 1L, null), model);
         
         assertNotNull(result);
         assertEquals("movies", result);
@@ -194,7 +249,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should search movies by genre successfully")
     public void testSearchMoviesByGenre() {
-        String result = moviesController.searchMovies(null, null, "Drama", model);
+        String result = moviesController.searchMovies(new MovieQuery(null, null, "Drama"), model);
         
         assertNotNull(result);
         assertEquals("movies", result);
@@ -206,7 +261,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should handle search with no results")
     public void testSearchMoviesNoResults() {
-        String result = moviesController.searchMovies("NonExistent", null, null, model);
+        String result = moviesController.searchMovies(new MovieQuery("NonExistent", null, null), model);
         
         assertNotNull(result);
         assertEquals("movies", result);
@@ -221,7 +276,7 @@ public class MoviesControllerTest {
     @DisplayName("Should return successful API response for search with results")
     public void testSearchMoviesApiWithResults() {
         ResponseEntity<MoviesController.MovieSearchResponse> response = 
-            moviesController.searchMoviesApi("Test", null, null);
+            moviesController.searchMoviesApi(new MovieQuery("Test", null, null));
         
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
@@ -235,7 +290,7 @@ public class MoviesControllerTest {
     @DisplayName("Should return API response with no results")
     public void testSearchMoviesApiNoResults() {
         ResponseEntity<MoviesController.MovieSearchResponse> response = 
-            moviesController.searchMoviesApi("NonExistent", null, null);
+            moviesController.searchMoviesApi(new MovieQuery("NonExistent", null, null));
         
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
@@ -244,4 +299,287 @@ public class MoviesControllerTest {
         assertFalse(response.getBody().isError());
         assertTrue(response.getBody().getMessage().contains("No treasure found"));
     }
+
+    @Test
+    @DisplayName("Should echo multiple genres and the match mode on search")
+    public void testSearchMoviesWithMultipleGenres() {
+        MovieQuery query = new MovieQuery();
+        query.setGenre(Arrays.asList("Drama", "Action"));
+        query.setGenreMatch("all");
+
+        String result = moviesController.searchMovies(query, model);
+
+        assertEquals("movies", result);
+        assertEquals("Drama, Action", model.getAttribute("searchGenre"));
+        assertEquals("all", model.getAttribute("searchGenreMatch"));
+    }
+
+    @Test
+    @DisplayName("Should echo search criteria in API response")
+    public void testSearchMoviesApiEchoesCriteria() {
+        MovieQuery query = new MovieQuery("Test", null, "Drama");
+
+        ResponseEntity<MoviesController.MovieSearchResponse> response = moviesController.searchMoviesApi(query);
+
+        assertSame(query, response.getBody().getSearchCriteria());
+        assertEquals(1, response.getBody().getTotalResults());
+    }
+
+    @Test
+    @DisplayName("Should return the next cursor and total count when results span pages")
+    public void testSearchMoviesApiPaging() {
+        MovieQuery query = new MovieQuery();
+        query.setLimit(1);
+
+        ResponseEntity<MoviesController.MovieSearchResponse> response = moviesController.searchMoviesApi(query);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(1, response.getBody().getMovies().size());
+        assertEquals(2, response.getBody().getTotalResults());
+        assertNotNull(response.getBody().getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown sort with a bad request")
+    public void testSearchMoviesApiUnknownSort() {
+        MovieQuery query = new MovieQuery();
+        query.setSort("popularity");
+
+        ResponseEntity<MoviesController.MovieSearchResponse> response = moviesController.searchMoviesApi(query);
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertTrue(response.getBody().isError());
+    }
+
+    @Test
+    @DisplayName("Should render the error page for an invalid limit")
+    public void testSearchMoviesInvalidLimit() {
+        MovieQuery query = new MovieQuery();
+        query.setLimit(0);
+
+        String result = moviesController.searchMovies(query, model);
+
+        assertEquals("error", result);
+    }
+
+    @Test
+    @DisplayName("Should link to the next page of the catalog")
+    public void testGetMoviesNextPageLink() {
+        MovieQuery query = new MovieQuery();
+        query.setSort("rating");
+        query.setLimit(1);
+
+        String result = moviesController.getMovies(query, model);
+
+        assertEquals("movies", result);
+        String nextPageUrl = (String) model.getAttribute("nextPageUrl");
+        assertNotNull(nextPageUrl);
+        assertTrue(nextPageUrl.startsWith("/movies?sort=rating&limit=1&cursor="));
+    }
+
+    @Test
+    @DisplayName("Should echo the director and year and keep them in the next page link")
+    public void testSearchMoviesDirectorAndYearLink() {
+        MovieQuery query = new MovieQuery();
+        query.setDirector("Nolan");
+        query.setDirectorMatch("exact");
+        query.setYear(2010);
+        query.setLimit(1);
+
+        String result = moviesController.searchMovies(query, model);
+
+        assertEquals("movies", result);
+        assertEquals("Nolan", model.getAttribute("searchDirector"));
+        assertEquals("exact", model.getAttribute("searchDirectorMatch"));
+        assertEquals("2010", model.getAttribute("searchYear"));
+        String nextPageUrl = (String) model.getAttribute("nextPageUrl");
+        assertNotNull(nextPageUrl);
+        assertTrue(nextPageUrl.startsWith("/movies/search?director=Nolan&directorMatch=exact&year=2010&limit=1&cursor="), nextPageUrl);
+    }
+
+    @Test
+    @DisplayName("Should stream matching movies as NDJSON")
+    public void testStreamMovies() {
+        ResponseEntity<Flux<Object>> response = moviesController.streamMovies(new MovieQuery(null, null, "action"));
+
+        assertEquals(200, response.getStatusCodeValue());
+        List<Object> movies = response.getBody().collectList().block();
+        assertEquals(1, movies.size());
+        assertEquals("Action Movie", ((Movie) movies.get(0)).getMovieName());
+    }
+
+    @Test
+    @DisplayName("Should stream a single error line for an invalid query")
+    public void testStreamMoviesInvalidSort() {
+        MovieQuery query = new MovieQuery();
+        query.setSort("bogus");
+
+        ResponseEntity<Flux<Object>> response = moviesController.streamMovies(query);
+
+        assertEquals(400, response.getStatusCodeValue());
+        List<Object> lines = response.getBody().collectList().block();
+        assertEquals(1, lines.size());
+        assertTrue(((MoviesController.MovieSearchResponse) lines.get(0)).isError());
+    }
+
+    @Test
+    @DisplayName("Should export every movie with its reviews as JSON Lines")
+    public void testExportCatalog() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = moviesController.exportCatalog(null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertEquals(1, first.get("id").asLong());
+        assertEquals("Test Movie", first.get("movieName").asText());
+        assertTrue(first.get("reviews").isArray());
+    }
+
+    @Test
+    @DisplayName("Should gzip the export when the client accepts gzip")
+    public void testExportCatalogGzip() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = moviesController.exportCatalog("deflate, gzip;q=0.8");
+
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), StandardCharsets.UTF_8))) {
+            assertEquals(2, reader.lines().count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should only treat gzip with a non-zero quality as accepted")
+    public void testAcceptsGzip() {
+        assertTrue(MoviesController.acceptsGzip("gzip, deflate, br"));
+        assertTrue(MoviesController.acceptsGzip("GZIP;q=0.5"));
+        assertFalse(MoviesController.acceptsGzip("gzip;q=0"));
+        assertFalse(MoviesController.acceptsGzip("identity"));
+        assertFalse(MoviesController.acceptsGzip(null));
+    }
+
+    @Test
+    @DisplayName("Should export uncompressed instead of failing on a malformed gzip quality")
+    public void testAcceptsGzipMalformedQuality() {
+        assertFalse(MoviesController.acceptsGzip("gzip;q=abc"));
+        assertFalse(MoviesController.acceptsGzip("gzip;q="));
+
+        ResponseEntity<StreamingResponseBody> response = moviesController.exportCatalog("gzip;q=abc");
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    @DisplayName("Should return batch results in request order and list missing ids")
+    public void testGetMoviesBatch() {
+        ResponseEntity<MoviesController.MovieBatchResponse> response =
+                moviesController.getMoviesBatch(new MovieBatchRequest(Arrays.asList(2L, 99L, 1L), false));
+
+        assertEquals(200, response.getStatusCodeValue());
+        List<MovieWithReviews> movies = response.getBody().getMovies();
+        assertEquals(2, movies.size());
+        assertEquals(2L, movies.get(0).getMovie().getId());
+        assertEquals(1L, movies.get(1).getMovie().getId());
+        assertNull(movies.get(0).getReviews());
+        assertEquals(Arrays.asList(99L), response.getBody().getNotFoundIds());
+    }
+
+    @Test
+    @DisplayName("Should include reviews in batch results when asked")
+    public void testPostMoviesBatchWithReviews() {
+        ResponseEntity<MoviesController.MovieBatchResponse> response =
+                moviesController.postMoviesBatch(new MovieBatchRequest(Arrays.asList(1L), true));
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("Tester", response.getBody().getMovies().get(0).getReviews().get(0).getUserName());
+        assertTrue(response.getBody().getNotFoundIds().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject a batch without ids")
+    public void testGetMoviesBatchWithoutIds() {
+        ResponseEntity<MoviesController.MovieBatchResponse> response = moviesController.getMoviesBatch(new MovieBatchRequest());
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertTrue(response.getBody().isError());
+    }
+
+    @Test
+    @DisplayName("Should return suggestions for a prefix and reject a bad limit")
+    public void testSuggestMovies() {
+        ResponseEntity<MoviesController.MovieSuggestResponse> response = moviesController.suggestMovies("dre", null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("dre", response.getBody().getPrefix());
+        assertEquals("Dream Heist", response.getBody().getSuggestions().get(0).getMovieName());
+        assertFalse(response.getBody().isError());
+
+        ResponseEntity<MoviesController.MovieSuggestResponse> invalid = moviesController.suggestMovies("dre", 0);
+        assertEquals(400, invalid.getStatusCodeValue());
+        assertTrue(invalid.getBody().isError());
+        assertTrue(invalid.getBody().getSuggestions().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reload the catalog and report what is now served")
+    public void testReloadCatalog() {
+        ResponseEntity<MoviesController.CatalogReloadResponse> response = moviesController.reloadCatalog();
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertFalse(response.getBody().isError());
+        assertEquals(2, response.getBody().getMovieCount());
+        assertEquals(Long.toHexString(mockMovieService.getCatalogVersion()), response.getBody().getCatalogVersion());
+    }
+
+    @Test
+    @DisplayName("Should hide the admin endpoints unless they are enabled")
+    public void testAdminEndpointsDisabled() throws Exception {
+        setAdminEnabled(false);
+        long version = mockMovieService.getCatalogVersion();
+        MovieRequest request = new MovieRequest(null, "New Movie", "New Director", 2024, "Drama", "New description", 95, 3.5);
+
+        assertEquals(404, moviesController.reloadCatalog().getStatusCodeValue());
+        assertEquals(404, moviesController.createMovie(request).getStatusCodeValue());
+        assertEquals(404, moviesController.updateMovie(1L, request).getStatusCodeValue());
+        assertEquals(404, moviesController.deleteMovie(1L).getStatusCodeValue());
+        assertEquals(404, moviesController.applyMovieChanges(Collections.singletonList(MovieChange.delete(1L))).getStatusCodeValue());
+        assertEquals(version, mockMovieService.getCatalogVersion());
+    }
+
+    @Test
+    @DisplayName("Should create, update and delete movies and map rejected changes to 400 and 404")
+    public void testWriteMovies() {
+        MovieRequest request = new MovieRequest(null, "New Movie", "New Director", 2024, "Drama", "New description", 95, 3.5);
+
+        ResponseEntity<MoviesController.MovieWriteResponse> created = moviesController.createMovie(request);
+        assertEquals(201, created.getStatusCodeValue());
+        assertFalse(created.getBody().isError());
+        assertEquals("New Movie", created.getBody().getMovies().get(0).getMovieName());
+        long id = created.getBody().getMovies().get(0).getId();
+
+        request.setMovieName("Renamed Movie");
+        ResponseEntity<MoviesController.MovieWriteResponse> updated = moviesController.updateMovie(id, request);
+        assertEquals(200, updated.getStatusCodeValue());
+        assertEquals("Renamed Movie", updated.getBody().getMovies().get(0).getMovieName());
+
+        ResponseEntity<MoviesController.MovieWriteResponse> deleted = moviesController.deleteMovie(id);
+        assertEquals(200, deleted.getStatusCodeValue());
+        assertEquals(Arrays.asList(id), deleted.getBody().getDeletedIds());
+
+        ResponseEntity<MoviesController.MovieWriteResponse> missing = moviesController.deleteMovie(id);
+        assertEquals(404, missing.getStatusCodeValue());
+        assertTrue(missing.getBody().isError());
+
+        request.setImdbRating(42.0);
+        ResponseEntity<MoviesController.MovieWriteResponse> invalid = moviesController.createMovie(request);
+        assertEquals(400, invalid.getStatusCodeValue());
+        assertTrue(invalid.getBody().getMessage().contains("imdbRating"));
+        assertEquals(Long.toHexString(mockMovieService.getCatalogVersion()), invalid.getBody().getCatalogVersion());
+    }
 }
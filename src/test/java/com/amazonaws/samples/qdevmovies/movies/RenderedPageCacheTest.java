@@ -0,0 +1,223 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.LongObjectHashMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.View;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the rendered page cache and the interceptor that serves from it.
+ */
+public class RenderedPageCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should only return pages rendered from the requested version")
+    public void testVersionedLookup() {
+        RenderedPageCache cache = new RenderedPageCache(1024, 1024);
+        cache.putPage("/movies", 1L, RenderedPageCache.Page.html("<p>v1</p>"));
+
+        assertNotNull(cache.getPage("/movies", 1L));
+        assertNull(cache.getPage("/movies", 2L));
+        assertNull(cache.getPage("/movies?sort=rating", 1L));
+
+        cache.putPage("/movies", 2L, RenderedPageCache.Page.html("<p>v2</p>"));
+        assertEquals("<p>v2</p>", new String(cache.getPage("/movies", 2L).getBody(), StandardCharsets.UTF_8));
+        assertNull(cache.getPage("/movies", 1L));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used pages beyond the byte budget")
+    public void testEviction() {
+        RenderedPageCache cache = new RenderedPageCache(100, 100);
+        cache.putPage("a", 1L, new RenderedPageCache.Page("text/html", new byte[40]));
+        cache.putPage("b", 1L, new RenderedPageCache.Page("text/html", new byte[40]));
+        assertNotNull(cache.getPage("a", 1L));
+        cache.putPage("c", 1L, new RenderedPageCache.Page("text/html", new byte[40]));
+
+        assertNotNull(cache.getPage("a", 1L));
+        assertNull(cache.getPage("b", 1L));
+        assertNotNull(cache.getPage("c", 1L));
+        assertTrue(cache.pageBytes() <= 100);
+    }
+
+    @Test
+    @DisplayName("Should not cache entries larger than the whole budget")
+    public void testOversizedEntry() {
+        RenderedPageCache cache = new RenderedPageCache(10, 10);
+        cache.putPage("a", 1L, new RenderedPageCache.Page("text/html", new byte[64]));
+        cache.putFragment("1", 1L, "a card that is far too long");
+
+        assertNull(cache.getPage("a", 1L));
+        assertNull(cache.getFragment("1", 1L));
+        assertEquals(0, cache.pageBytes());
+        assertEquals(0, cache.fragmentBytes());
+    }
+
+    @Test
+    @DisplayName("Should render a page once and then serve it without running the view")
+    public void testInterceptorServesCachedPage() throws Exception {
+        RenderedPageCache cache = new RenderedPageCache(1 << 20, 1 << 20);
+        AtomicInteger renders = new AtomicInteger();
+        View view = new StubView("<html>grid</html>", renders);
+        RenderedPageInterceptor interceptor = new RenderedPageInterceptor(cache, new MovieService(), null,
+                (viewName, locale) -> view, null, Collections.singleton("movies"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies");
+        request.setQueryString("sort=rating");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(request, response, null));
+        ModelAndView modelAndView = new ModelAndView("movies");
+        interceptor.postHandle(request, response, null, modelAndView);
+        assertNotNull(modelAndView.getModel().get(RenderedPageInterceptor.CARD_RENDERER_ATTRIBUTE));
+        modelAndView.getView().render(modelAndView.getModel(), request, response);
+        assertEquals("<html>grid</html>", response.getContentAsString());
+        assertEquals(1, renders.get());
+
+        MockHttpServletRequest repeat = new MockHttpServletRequest("GET", "/movies");
+        repeat.setQueryString("sort=rating");
+        MockHttpServletResponse cached = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(repeat, cached, null));
+        assertEquals("<html>grid</html>", cached.getContentAsString());
+        assertEquals("text/html;charset=UTF-8", cached.getContentType());
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    @DisplayName("Should not cache views outside the cached set")
+    public void testInterceptorSkipsErrorView() throws Exception {
+        RenderedPageCache cache = new RenderedPageCache(1 << 20, 1 << 20);
+        RenderedPageInterceptor interceptor = new RenderedPageInterceptor(cache, new MovieService(), null,
+                (viewName, locale) -> new StubView("error", new AtomicInteger()), null, Collections.singleton("movies"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(request, response, null));
+        ModelAndView modelAndView = new ModelAndView("error");
+        interceptor.postHandle(request, response, null, modelAndView);
+
+        assertNull(modelAndView.getView());
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("GET", "/movies"), new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    @DisplayName("Should render again and change the ETag once review aggregates catch up with a changed reviews file")
+    public void testReviewChangeInvalidatesPageAndTag() throws Exception {
+        Path reviews = tempDir.resolve("reviews.json");
+        Files.write(reviews, review(4.0).getBytes(StandardCharsets.UTF_8));
+        CountDownLatch rebuildMayRun = new CountDownLatch(1);
+        AtomicBoolean holdRebuilds = new AtomicBoolean();
+        ReviewService reviewService = new ReviewService(reviews.toString()) {
+            @Override
+            long forEachMovie(LongObjectHashMap.EntryConsumer<List<Review>> consumer) {
+                if (holdRebuilds.get()) {
+                    try {
+                        rebuildMayRun.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.forEachMovie(consumer);
+            }
+        };
+        MovieService movieService = new MovieService(MovieCatalogLoader.DEFAULT_LOCATION, reviewService, false);
+        RenderedPageCache cache = new RenderedPageCache(1 << 20, 1 << 20);
+        AtomicInteger renders = new AtomicInteger();
+        View view = new StubView("<html>details</html>", renders);
+        RenderedPageInterceptor pages = new RenderedPageInterceptor(cache, movieService, reviewService,
+                (viewName, locale) -> view, null, Collections.singleton("movie-details"));
+        ConditionalGetInterceptor tags = new ConditionalGetInterceptor(movieService, reviewService);
+
+        // Aggregate the first reviews now, before rebuilds are held
+        movieService.getReviewStats();
+        holdRebuilds.set(true);
+        Files.write(reviews, review(1.0).getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(reviews, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        reviewService.checkForChangesNow();
+        long reviewsVersion = reviewService.getVersion();
+        // The new reviews are loaded but their aggregates are not: this page shows the old ones
+        assertNotEquals(reviewsVersion, movieService.getReviewStats().getVersion());
+        String staleTag = tags.entityTag();
+        assertTrue(render(pages));
+        assertFalse(render(pages));
+
+        rebuildMayRun.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (movieService.getReviewStats().getVersion() != reviewsVersion && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1.0, movieService.getReviewStats().summary(1L).getAverageRating());
+
+        assertNotEquals(staleTag, tags.entityTag());
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/movies/1/details");
+        conditional.addHeader(HttpHeaders.IF_NONE_MATCH, staleTag);
+        assertTrue(tags.preHandle(conditional, new MockHttpServletResponse(), null));
+        assertTrue(render(pages));
+        assertEquals(2, renders.get());
+        movieService.shutdown();
+    }
+
+    private static String review(double rating) {
+        return "{\"1\": [{\"userName\": \"Tester\", \"avatarEmoji\": \"x\", \"rating\": " + rating
+                + ", \"comment\": \"Fine\"}]}";
+    }
+
+    /**
+     * @return whether the page was rendered rather than served from the cache
+     */
+    private static boolean render(RenderedPageInterceptor interceptor) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies/1/details");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        if (!interceptor.preHandle(request, response, null)) {
+            return false;
+        }
+        ModelAndView modelAndView = new ModelAndView("movie-details");
+        interceptor.postHandle(request, response, null, modelAndView);
+        modelAndView.getView().render(modelAndView.getModel(), request, response);
+        return true;
+    }
+
+    private static final class StubView implements View {
+        private final String html;
+        private final AtomicInteger renders;
+
+        private StubView(String html, AtomicInteger renders) {
+            this.html = html;
+            this.renders = renders;
+        }
+
+        @Override
+        public String getContentType() {
+            return "text/html;charset=UTF-8";
+        }
+
+        @Override
+        public void render(Map<String, ?> model, javax.servlet.http.HttpServletRequest request,
+                           javax.servlet.http.HttpServletResponse response) throws Exception {
+            renders.incrementAndGet();
+            response.setContentType(getContentType());
+            response.getWriter().write(html);
+        }
+    }
+}
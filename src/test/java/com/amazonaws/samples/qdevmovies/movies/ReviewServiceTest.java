@@ -0,0 +1,103 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.VirtualThreads;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the indexed, reloadable ReviewService.
+ */
+public class ReviewServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should load reviews for a known movie from the classpath")
+    public void testGetReviewsForKnownMovie() {
+        ReviewService reviewService = new ReviewService();
+
+        List<Review> reviews = reviewService.getReviewsForMovie(1L);
+
+        assertFalse(reviews.isEmpty());
+        assertEquals("MovieBuff87", reviews.get(0).getUserName());
+    }
+
+    @Test
+    @DisplayName("Should return an empty list for a movie without reviews")
+    public void testGetReviewsForUnknownMovie() {
+        ReviewService reviewService = new ReviewService();
+
+        List<Review> reviews = reviewService.getReviewsForMovie(999L);
+
+        assertNotNull(reviews);
+        assertTrue(reviews.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should return the same cached list on repeated calls")
+    public void testGetReviewsIsCached() {
+        ReviewService reviewService = new ReviewService();
+
+        assertSame(reviewService.getReviewsForMovie(2L), reviewService.getReviewsForMovie(2L));
+    }
+
+    @Test
+    @DisplayName("Should return unmodifiable review lists")
+    public void testGetReviewsIsUnmodifiable() {
+        ReviewService reviewService = new ReviewService();
+
+        List<Review> reviews = reviewService.getReviewsForMovie(1L);
+
+        assertThrows(UnsupportedOperationException.class, () -> reviews.clear());
+    }
+
+    @Test
+    @DisplayName("Should load reviews from a configured file path")
+    public void testGetReviewsFromFilePath() throws Exception {
+        File file = writeReviews("{\"7\": [{\"userName\": \"Tester\", \"avatarEmoji\": \"🙂\", \"rating\": 4.0, \"comment\": \"Fine\"}]}");
+        ReviewService reviewService = new ReviewService(file.getAbsolutePath());
+
+        List<Review> reviews = reviewService.getReviewsForMovie(7L);
+
+        assertEquals(1, reviews.size());
+        assertEquals("Tester", reviews.get(0).getUserName());
+        assertEquals(4.0, reviews.get(0).getRating());
+    }
+
+    @Test
+    @DisplayName("Should return no reviews when the configured file is missing")
+    public void testGetReviewsFromMissingFile() {
+        ReviewService reviewService = new ReviewService(tempDir.resolve("missing.json").toString());
+
+        assertTrue(reviewService.getReviewsForMovie(1L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should only accept virtual-thread reloads on JVMs with virtual threads")
+    public void testVirtualThreadReloads() throws Exception {
+        File file = writeReviews("{\"7\": [{\"userName\": \"Tester\", \"avatarEmoji\": \"🙂\", \"rating\": 4.0, \"comment\": \"Fine\"}]}");
+        if (!VirtualThreads.isSupported()) {
+            assertThrows(IllegalStateException.class, () -> new ReviewService(file.getAbsolutePath(), true));
+            return;
+        }
+        ReviewService reviewService = new ReviewService(file.getAbsolutePath(), true);
+
+        assertEquals(1, reviewService.getReviewsForMovie(7L).size());
+    }
+
+    private File writeReviews(String json) throws Exception {
+        Path path = tempDir.resolve("reviews.json");
+        Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+        return path.toFile();
+    }
+}
@@ -0,0 +1,145 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the per-movie review aggregates.
+ */
+public class ReviewStatsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MovieStore store;
+    private ReviewStats stats;
+    private ReviewService reviewService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        store = MovieStore.of(Arrays.asList(
+            new Movie(1L, "One", "Director A", 2001, "Drama", "First", 100, 4.0),
+            new Movie(2L, "Two", "Director B", 2002, "Drama", "Second", 100, 4.0),
+            new Movie(3L, "Three", "Director C", 2003, "Drama", "Third", 100, 4.0),
+            new Movie(4L, "Four", "Director D", 2004, "Drama", "Fourth", 100, 4.0)));
+        Path reviews = tempDir.resolve("reviews.json");
+        Files.write(reviews, ("{"
+            + "\"2\": [" + review(5.0) + "," + review(4.5) + "," + review(1.0) + "],"
+            + "\"3\": [" + review(4.0) + "],"
+            + "\"4\": [" + review(3.5) + "," + review(3.5) + "],"
+            + "\"99\": [" + review(5.0) + "]}").getBytes(StandardCharsets.UTF_8));
+        reviewService = new ReviewService(reviews.toString());
+        stats = new ReviewStats(store, new MovieSortIndex(store), reviewService);
+    }
+
+    private static String review(double rating) {
+        return "{\"userName\": \"u\", \"avatarEmoji\": \"🙂\", \"rating\": " + rating + ", \"comment\": \"c\"}";
+    }
+
+    @Test
+    @DisplayName("Should count, average and bucket the reviews of each movie")
+    public void testAggregates() {
+        assertEquals(0, stats.reviewCount(0));
+        assertTrue(Double.isNaN(stats.averageRating(0)));
+        assertEquals(3, stats.reviewCount(1));
+        assertEquals(3.5, stats.averageRating(1), 1e-9);
+        assertEquals(2, stats.starCount(1, 5));
+        assertEquals(1, stats.starCount(1, 1));
+        assertEquals(2, stats.starCount(3, 4));
+
+        ReviewSummary summary = stats.summary(2L);
+        assertTrue(summary.hasReviews());
+        assertEquals(3, summary.getReviewCount());
+        assertEquals(67, summary.getStarPercent(5));
+        assertFalse(stats.summary(1L).hasReviews());
+        assertFalse(stats.summary(99L).hasReviews());
+    }
+
+    @Test
+    @DisplayName("Should order by mean rating with ties in catalog order and unreviewed movies last")
+    public void testUserRatingOrder() {
+        MovieSortIndex sortIndex = stats.getSortIndex();
+
+        assertArrayEquals(new int[] {2, 1, 3, 0}, sortIndex.page(MovieSort.USER_RATING, true, -1, 10));
+        assertArrayEquals(new int[] {0, 3, 1, 2}, sortIndex.page(MovieSort.USER_RATING, false, -1, 10));
+        assertArrayEquals(new int[] {0, 1, 2, 3}, sortIndex.page(MovieSort.CATALOG, false, -1, 10));
+    }
+
+    @Test
+    @DisplayName("Should filter by minimum mean rating without matching unreviewed movies")
+    public void testMeanIndex() {
+        RangeIndex means = stats.getMeanIndex();
+
+        assertArrayEquals(new int[] {1, 2, 3}, means.between(0, Double.POSITIVE_INFINITY));
+        assertArrayEquals(new int[] {1, 2, 3}, means.between(3.5, Double.POSITIVE_INFINITY));
+        assertArrayEquals(new int[] {2}, means.between(3.6, Double.POSITIVE_INFINITY));
+        assertEquals(1, means.count(4.0, Double.POSITIVE_INFINITY));
+        assertFalse(means.contains(0, 0, Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    @DisplayName("Should patch the aggregates of written movies like a full recomputation would")
+    public void testWithChanges() throws Exception {
+        Path location = Files.write(tempDir.resolve("movies.json"), TestCatalogs.json(4).getBytes(StandardCharsets.UTF_8));
+        MovieCatalog catalog = MovieCatalog.load(location.toString(), reviewService);
+        // Deletes a reviewed movie, updates one and creates the movie the orphaned reviews belong to
+        catalog = catalog.withChanges(Arrays.asList(
+            MovieChange.delete(2L),
+            MovieChange.update(3L, new MovieRequest(3L, "Three", "D", 2003, "Drama", "P", 90, 2.0)),
+            MovieChange.create(new MovieRequest(99L, "Ninety-Nine", "D", 2010, "Drama", "P", 90, 3.0)),
+            MovieChange.create(new MovieRequest(null, "Unreviewed", "D", 2011, "Drama", "P", 90, 3.0))),
+            reviewService, new ArrayList<>());
+
+        ReviewStats patched = catalog.reviewStats();
+        List<Movie> movies = new ArrayList<>();
+        for (int ordinal = 0; ordinal < catalog.store.size(); ordinal++) {
+            if (catalog.store.contains(ordinal)) {
+                movies.add(catalog.store.movie(ordinal));
+            }
+        }
+        MovieStore compact = MovieStore.of(movies);
+        ReviewStats rebuilt = new ReviewStats(compact, new MovieSortIndex(compact), reviewService);
+
+        assertEquals(ids(compact, rebuilt.getSortIndex().page(MovieSort.USER_RATING, true, -1, 10)),
+            ids(catalog.store, patched.getSortIndex().page(MovieSort.USER_RATING, true, -1, 10)));
+        assertEquals(ids(compact, rebuilt.getMeanIndex().between(3.5, 5)),
+            ids(catalog.store, patched.getMeanIndex().between(3.5, 5)));
+        for (Movie movie : movies) {
+            ReviewSummary expected = rebuilt.summary(movie.getId());
+            ReviewSummary actual = patched.summary(movie.getId());
+            assertEquals(expected.getReviewCount(), actual.getReviewCount(), "movie " + movie.getId());
+            assertEquals(expected.getStarCount(5), actual.getStarCount(5), "movie " + movie.getId());
+        }
+        assertEquals(1, patched.summary(99L).getReviewCount());
+        assertFalse(patched.summary(2L).hasReviews());
+    }
+
+    private static List<Long> ids(MovieStore store, int[] ordinals) {
+        List<Long> ids = new ArrayList<>();
+        for (int ordinal : ordinals) {
+            ids.add(store.id(ordinal));
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("Should bucket ratings to the nearest whole star between one and five")
+    public void testBucket() {
+        assertEquals(0, ReviewStats.bucket(0.0));
+        assertEquals(0, ReviewStats.bucket(1.4));
+        assertEquals(3, ReviewStats.bucket(3.5));
+        assertEquals(4, ReviewStats.bucket(5.0));
+        assertEquals(4, ReviewStats.bucket(7.0));
+    }
+}
@@ -0,0 +1,88 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the autocomplete prefix index.
+ */
+public class SuggestIndexTest {
+
+    private static final String[] WORDS = {"the", "dream", "dreamer", "heist", "harbor", "hidden", "tide", "ring", "r2"};
+
+    @Test
+    @DisplayName("Should rank the same movies as a scan over every name")
+    public void testMatchesBruteForce() {
+        Random random = new Random(3);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder name = new StringBuilder();
+            int words = 1 + random.nextInt(4);
+            for (int w = 0; w < words; w++) {
+                name.append(w == 0 ? "" : random.nextBoolean() ? " " : ": ").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            names.add(random.nextInt(10) == 0 ? name.toString().toUpperCase() : name.toString());
+        }
+        int[] rank = shuffledRanks(names.size(), random);
+        SuggestIndex index = new SuggestIndex(names, ordinal -> rank[ordinal]);
+
+        for (String prefix : new String[] {"t", "th", "the", "the d", "dream", "dreame", "h", "hi", "r", "r2", "x", "tide ring", "heist: "}) {
+            for (int limit : new int[] {1, 5, SuggestIndex.MAX_SUGGESTIONS}) {
+                assertArrayEquals(bruteForce(names, rank, prefix, limit), index.suggest(prefix, limit), prefix + " / " + limit);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should match word starts case-insensitively and ignore blank prefixes")
+    public void testWordStarts() {
+        List<String> names = Arrays.asList("The Prison Escape", "Dream Heist", "Space Wars: The Beginning");
+        SuggestIndex index = new SuggestIndex(names, ordinal -> ordinal);
+
+        assertArrayEquals(new int[] {0}, index.suggest("ESC", 10));
+        assertArrayEquals(new int[] {0, 2}, index.suggest("the", 10));
+        assertArrayEquals(new int[] {2}, index.suggest("the beg", 10));
+        assertArrayEquals(new int[0], index.suggest("rison", 10));
+        assertArrayEquals(new int[0], index.suggest("  ", 10));
+        assertArrayEquals(new int[0], index.suggest(null, 10));
+    }
+
+    private static int[] shuffledRanks(int size, Random random) {
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            positions.add(i);
+        }
+        Collections.shuffle(positions, random);
+        int[] rank = new int[size];
+        for (int i = 0; i < size; i++) {
+            rank[i] = positions.get(i);
+        }
+        return rank;
+    }
+
+    private static int[] bruteForce(List<String> names, int[] rank, String prefix, int limit) {
+        String folded = prefix.trim().toLowerCase();
+        List<Integer> matches = new ArrayList<>();
+        for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+            String name = names.get(ordinal).toLowerCase();
+            for (int offset = 0; offset < name.length(); offset++) {
+                boolean wordStart = Character.isLetterOrDigit(name.charAt(offset))
+                    && (offset == 0 || !Character.isLetterOrDigit(name.charAt(offset - 1)));
+                if (wordStart && name.startsWith(folded, offset)) {
+                    matches.add(ordinal);
+                    break;
+                }
+            }
+        }
+        matches.sort((a, b) -> Integer.compare(rank[a], rank[b]));
+        return matches.stream().limit(limit).mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,25 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * Catalog JSON shared by tests that load, reload or persist generated catalogs.
+ */
+final class TestCatalogs {
+
+    private TestCatalogs() {
+    }
+
+    /**
+     * A catalog of movies 1 to {@code size}, named "Movie &lt;id&gt;" and otherwise identical.
+     */
+    static String json(int size) {
+        StringBuilder json = new StringBuilder("[");
+        for (int id = 1; id <= size; id++) {
+            json.append(id > 1 ? "," : "")
+                .append("{\"id\": ").append(id)
+                .append(", \"movieName\": \"Movie ").append(id)
+                .append("\", \"director\": \"Director\", \"year\": 2000, \"genre\": \"Drama\"")
+                .append(", \"description\": \"Plot\", \"duration\": 100, \"imdbRating\": 4.0}");
+        }
+        return json.append(']').toString();
+    }
+}
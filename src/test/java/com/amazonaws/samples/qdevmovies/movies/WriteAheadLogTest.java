@@ -0,0 +1,187 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the write-ahead log of movie changes.
+ */
+public class WriteAheadLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<MovieChange> batch(long id) {
+        return Arrays.asList(
+            MovieChange.create(new MovieRequest(id, "Movie " + id, "Director", 2000, "Drama", "Plot é", 90, 4.5)),
+            MovieChange.delete(id + 1000));
+    }
+
+    private List<List<MovieChange>> replay(long checkpoint) throws IOException {
+        List<List<MovieChange>> batches = new ArrayList<>();
+        WriteAheadLog.open(tempDir, checkpoint, batches::add).close();
+        return batches;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private WriteAheadLog logWithBatches(int count) throws IOException {
+        WriteAheadLog log = WriteAheadLog.open(tempDir, 0, batch -> fail("nothing to replay"));
+        for (int id = 1; id <= count; id++) {
+            log.awaitDurable(log.append(batch(id)));
+        }
+        return log;
+    }
+
+    @Test
+    @DisplayName("Should replay appended batches in order after reopening")
+    public void testReplay() throws IOException {
+        logWithBatches(3).close();
+
+        List<List<MovieChange>> batches = replay(0);
+
+        assertEquals(3, batches.size());
+        MovieChange created = batches.get(2).get(0);
+        assertEquals(MovieChange.Action.CREATE, created.getActionType());
+        assertEquals(3L, created.getId());
+        assertEquals("Movie 3", created.getMovie().getMovieName());
+        assertEquals("Plot é", created.getMovie().getDescription());
+        assertEquals(4.5, created.getMovie().getImdbRating());
+        assertEquals(MovieChange.Action.DELETE, batches.get(2).get(1).getActionType());
+        assertEquals(1003L, batches.get(2).get(1).getId());
+        assertEquals(1, replay(2).size());
+
+        WriteAheadLog reopened = WriteAheadLog.open(tempDir, 0, batch -> {});
+        assertEquals(3, reopened.lastSequence());
+        assertEquals(4, reopened.append(batch(4)));
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Should drop a batch cut short or corrupted at the end of the log and keep appending after it")
+    public void testTruncatesDamagedTail() throws IOException {
+        logWithBatches(3).close();
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        assertEquals(2, replay(0).size());
+        WriteAheadLog log = WriteAheadLog.open(tempDir, 0, batch -> {});
+        assertEquals(3, log.append(batch(3)));
+        log.close();
+        assertEquals(3, replay(0).size());
+
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(file.length() - 3);
+            file.write(0x7F);
+        }
+        assertEquals(2, replay(0).size());
+    }
+
+    @Test
+    @DisplayName("Should refuse a log damaged before its last segment or missing batches")
+    public void testRejectsDamage() throws IOException {
+        WriteAheadLog log = logWithBatches(2);
+        log.roll();
+        log.awaitDurable(log.append(batch(3)));
+        log.close();
+        Path first = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(first.toFile(), "rw")) {
+            file.seek(WriteAheadLog.SEGMENT_HEADER_SIZE + WriteAheadLog.RECORD_HEADER_SIZE + 2);
+            file.write(0x7F);
+        }
+        assertThrows(CatalogLoadException.class, () -> replay(0));
+
+        Files.delete(first);
+        assertThrows(CatalogLoadException.class, () -> replay(0));
+        assertEquals(1, replay(2).size());
+    }
+
+    @Test
+    @DisplayName("Should start a new segment on roll and delete the segments a checkpoint covers")
+    public void testRollAndDelete() throws IOException {
+        WriteAheadLog log = logWithBatches(2);
+        long rolled = log.roll();
+        assertEquals(2, rolled);
+        assertEquals(rolled, log.roll());
+        log.awaitDurable(log.append(batch(3)));
+        assertEquals(2, segments().size());
+
+        long before = log.size();
+        log.deleteThrough(rolled);
+        assertEquals(1, segments().size());
+        assertTrue(log.size() < before);
+        log.close();
+
+        List<List<MovieChange>> batches = replay(rolled);
+        assertEquals(1, batches.size());
+        assertEquals(3L, batches.get(0).get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Should make every concurrent writer's batch durable with shared syncs")
+    public void testGroupCommit() throws Exception {
+        WriteAheadLog log = WriteAheadLog.open(tempDir, 0, batch -> {});
+        int writers = 8;
+        int batchesPerWriter = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> results = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < batchesPerWriter; i++) {
+                    long sequence = log.append(batch(writer * batchesPerWriter + i + 1));
+                    log.awaitDurable(sequence);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(writers * batchesPerWriter, log.lastSequence());
+        log.close();
+
+        List<Long> ids = new ArrayList<>();
+        for (List<MovieChange> batch : replay(0)) {
+            ids.add(batch.get(0).getId());
+        }
+        Collections.sort(ids);
+        assertEquals(writers * batchesPerWriter, ids.size());
+        assertEquals(1L, ids.get(0));
+        assertEquals((long) writers * batchesPerWriter, ids.get(ids.size() - 1));
+    }
+
+    @Test
+    @DisplayName("Should refuse appends once the log is closed")
+    public void testClosed() throws IOException {
+        WriteAheadLog log = logWithBatches(1);
+        log.close();
+
+        assertThrows(IOException.class, () -> log.append(batch(2)));
+    }
+}
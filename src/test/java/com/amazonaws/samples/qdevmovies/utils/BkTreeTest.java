@@ -0,0 +1,71 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BK-tree used by the typo-tolerant name search.
+ */
+public class BkTreeTest {
+
+    @Test
+    @DisplayName("Should compute Levenshtein distances")
+    public void testDistance() {
+        assertEquals(0, BkTree.distance("heist", "heist"));
+        assertEquals(1, BkTree.distance("dreem", "dream"));
+        assertEquals(1, BkTree.distance("heist", "heists"));
+        assertEquals(3, BkTree.distance("kitten", "sitting"));
+        assertEquals(5, BkTree.distance("", "heist"));
+    }
+
+    @Test
+    @DisplayName("Should find the same words as comparing the query with every word")
+    public void testSearchMatchesBruteForce() {
+        Random random = new Random(11);
+        Set<String> unique = new LinkedHashSet<>();
+        while (unique.size() < 2000) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(6);
+            for (int i = 0; i < length; i++) {
+                word.append((char) ('a' + random.nextInt(6)));
+            }
+            unique.add(word.toString());
+        }
+        List<String> words = new ArrayList<>(unique);
+        BkTree tree = new BkTree(words);
+
+        for (String query : new String[] {"abcd", "fedcba", "aaa", "bcadefab"}) {
+            for (int maxDistance = 0; maxDistance <= 2; maxDistance++) {
+                TreeMap<Integer, Integer> expected = new TreeMap<>();
+                for (int i = 0; i < words.size(); i++) {
+                    int distance = BkTree.distance(query, words.get(i));
+                    if (distance <= maxDistance) {
+                        expected.put(i, distance);
+                    }
+                }
+                TreeMap<Integer, Integer> found = new TreeMap<>();
+                tree.search(query, maxDistance, (index, distance) -> assertNull(found.put(index, distance)));
+                assertEquals(expected, found, query + " within " + maxDistance);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject duplicate words")
+    public void testRejectsDuplicates() {
+        List<String> words = new ArrayList<>();
+        words.add("dream");
+        words.add("dream");
+
+        assertThrows(IllegalArgumentException.class, () -> new BkTree(words));
+    }
+}
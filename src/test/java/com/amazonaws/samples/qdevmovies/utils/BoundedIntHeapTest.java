@@ -0,0 +1,52 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the bounded heap used for top-K selection.
+ */
+public class BoundedIntHeapTest {
+
+    @Test
+    @DisplayName("Should keep the smallest values like a full sort would")
+    public void testKeepsSmallestValues() {
+        Random random = new Random(7);
+        int[] values = new int[10000];
+        BoundedIntHeap heap = new BoundedIntHeap(25);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(1000000);
+            heap.offer(values[i]);
+        }
+
+        Arrays.sort(values);
+        assertEquals(25, heap.size());
+        assertArrayEquals(Arrays.copyOf(values, 25), heap.toSortedArray());
+    }
+
+    @Test
+    @DisplayName("Should return everything when fewer values than the capacity are offered")
+    public void testFewerValuesThanCapacity() {
+        BoundedIntHeap heap = new BoundedIntHeap(10);
+        heap.offer(3);
+        heap.offer(1);
+        heap.offer(2);
+
+        assertArrayEquals(new int[] {1, 2, 3}, heap.toSortedArray());
+    }
+
+    @Test
+    @DisplayName("Should keep nothing with a capacity of zero")
+    public void testZeroCapacity() {
+        BoundedIntHeap heap = new BoundedIntHeap(0);
+        heap.offer(1);
+
+        assertEquals(0, heap.size());
+        assertThrows(IllegalArgumentException.class, () -> new BoundedIntHeap(-1));
+    }
+}
@@ -0,0 +1,115 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the roaring-style compressed bitmap, checked against java.util.BitSet.
+ */
+public class CompressedBitmapTest {
+
+    @Test
+    @DisplayName("Should round-trip sparse values across chunks")
+    public void testFromSortedRoundTrip() {
+        int[] values = {0, 5, 65535, 65536, 200000, Integer.MAX_VALUE};
+        CompressedBitmap bitmap = CompressedBitmap.of(values);
+
+        assertEquals(values.length, bitmap.cardinality());
+        assertArrayEquals(values, bitmap.toArray());
+        assertTrue(bitmap.contains(65536));
+        assertFalse(bitmap.contains(65537));
+    }
+
+    @Test
+    @DisplayName("Should intersect and union like a BitSet for sparse and dense chunks")
+    public void testAndOrMatchBitSet() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            BitSet a = randomBits(random, round % 2 == 0 ? 0.01 : 0.5);
+            BitSet b = randomBits(random, round % 3 == 0 ? 0.7 : 0.02);
+            CompressedBitmap x = toBitmap(a);
+            CompressedBitmap y = toBitmap(b);
+
+            BitSet and = (BitSet) a.clone();
+            and.and(b);
+            BitSet or = (BitSet) a.clone();
+            or.or(b);
+
+            assertArrayEquals(and.stream().toArray(), x.and(y).toArray());
+            assertEquals(and.cardinality(), x.and(y).cardinality());
+            assertArrayEquals(or.stream().toArray(), x.or(y).toArray());
+            assertEquals(or.cardinality(), x.or(y).cardinality());
+        }
+    }
+
+    @Test
+    @DisplayName("Should combine lists of bitmaps")
+    public void testAndOrLists() {
+        CompressedBitmap a = CompressedBitmap.of(1, 2, 3, 4);
+        CompressedBitmap b = CompressedBitmap.of(2, 4, 6);
+        CompressedBitmap c = CompressedBitmap.of(4, 5);
+
+        assertArrayEquals(new int[] {4}, CompressedBitmap.and(Arrays.asList(a, b, c)).toArray());
+        assertArrayEquals(new int[] {1, 2, 3, 4, 5, 6}, CompressedBitmap.or(Arrays.asList(a, b, c)).toArray());
+        assertTrue(CompressedBitmap.and(Arrays.asList()).isEmpty());
+        assertTrue(CompressedBitmap.or(Arrays.asList()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should read back written sparse, dense and empty bitmaps")
+    public void testWriteAndRead() throws Exception {
+        Random random = new Random(7);
+        CompressedBitmap[] bitmaps = {
+            CompressedBitmap.empty(),
+            CompressedBitmap.of(0, 5, 65535, 65536, 200000),
+            toBitmap(randomBits(random, 0.5)),
+        };
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int size = 0;
+        for (CompressedBitmap bitmap : bitmaps) {
+            bitmap.writeTo(out);
+            size += bitmap.serializedSize();
+        }
+        assertEquals(size, bytes.size());
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        for (CompressedBitmap bitmap : bitmaps) {
+            CompressedBitmap read = CompressedBitmap.readFrom(buffer);
+            assertArrayEquals(bitmap.toArray(), read.toArray());
+            assertEquals(bitmap.cardinality(), read.cardinality());
+        }
+        assertFalse(buffer.hasRemaining());
+
+        ByteBuffer corrupt = ByteBuffer.wrap(bytes.toByteArray());
+        corrupt.putInt(12, 1);
+        assertThrows(IllegalArgumentException.class, () -> {
+            CompressedBitmap.readFrom(corrupt);
+            CompressedBitmap.readFrom(corrupt);
+        });
+    }
+
+    private static BitSet randomBits(Random random, double density) {
+        BitSet bits = new BitSet();
+        for (int i = 0; i < 3 * 65536; i++) {
+            if (random.nextDouble() < density) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    private static CompressedBitmap toBitmap(BitSet bits) {
+        int[] values = bits.stream().toArray();
+        return CompressedBitmap.fromSorted(values, values.length);
+    }
+}
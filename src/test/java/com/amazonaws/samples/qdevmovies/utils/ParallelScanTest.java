@@ -0,0 +1,58 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the fork/join ordinal scan.
+ */
+public class ParallelScanTest {
+
+    private static int[] expected(int[] ordinals, IntPredicate matches) {
+        return IntStream.of(ordinals).filter(matches).toArray();
+    }
+
+    @Test
+    @DisplayName("Should keep matching ordinals in input order on both sides of the parallel threshold")
+    public void testFilterKeepsOrder() {
+        Random random = new Random(11);
+        for (int size : new int[] {0, 1, 100, ParallelScan.PARALLEL_THRESHOLD - 1, ParallelScan.PARALLEL_THRESHOLD * 7 + 3}) {
+            int[] ordinals = random.ints(size, 0, 1_000_000).toArray();
+            IntPredicate odd = ordinal -> (ordinal & 1) == 1;
+            int[] expected = expected(ordinals, odd);
+
+            assertArrayEquals(expected, ParallelScan.filter(ordinals.clone(), odd), "size " + size);
+            // Split into chunks whatever the number of cores on the build machine
+            assertArrayEquals(expected, ParallelScan.filter(ordinals.clone(), odd, 4), "size " + size);
+        }
+    }
+
+    @Test
+    @DisplayName("Should return the input array itself when every ordinal matches")
+    public void testFilterAllMatch() {
+        int[] ordinals = IntStream.range(0, ParallelScan.PARALLEL_THRESHOLD * 3).toArray();
+
+        assertSame(ordinals, ParallelScan.filter(ordinals, ordinal -> true));
+        assertSame(ordinals, ParallelScan.filter(ordinals, ordinal -> true, 4));
+        assertEquals(0, ParallelScan.filter(ordinals, ordinal -> false).length);
+    }
+
+    @Test
+    @DisplayName("Should scan a range of ordinals into ascending matches")
+    public void testRange() {
+        for (int size : new int[] {0, 50, ParallelScan.PARALLEL_THRESHOLD * 5 + 17}) {
+            IntPredicate sparse = ordinal -> ordinal % 97 == 3;
+
+            int[] expected = expected(IntStream.range(0, size).toArray(), sparse);
+
+            assertArrayEquals(expected, ParallelScan.range(size, sparse), "size " + size);
+            assertArrayEquals(expected, ParallelScan.range(size, sparse, 4), "size " + size);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the trigram substring index.
+ */
+public class TrigramIndexTest {
+
+    private final TrigramIndex index = new TrigramIndex(Arrays.asList(
+        "The Prison Escape", "The Family Boss", "Dream Heist", "Space Wars: The Beginning", "Aaaa"));
+
+    @Test
+    @DisplayName("Should find values containing a long query")
+    public void testSearchLongQuery() {
+        assertArrayEquals(new int[] {0}, index.search("prison escape"));
+    }
+
+    @Test
+    @DisplayName("Should return matches in ascending ordinal order")
+    public void testSearchReturnsSortedOrdinals() {
+        assertArrayEquals(new int[] {0, 1, 3}, index.search("THE"));
+    }
+
+    @Test
+    @DisplayName("Should match queries spanning word boundaries")
+    public void testSearchAcrossWords() {
+        assertArrayEquals(new int[] {2}, index.search("am he"));
+        assertEquals(0, index.search("eam dre").length);
+    }
+
+    @Test
+    @DisplayName("Should scan for queries shorter than a trigram")
+    public void testSearchShortQuery() {
+        assertArrayEquals(new int[] {1}, index.search("ss"));
+        assertArrayEquals(new int[] {0, 1, 2, 3}, index.search("e"));
+    }
+
+    @Test
+    @DisplayName("Should verify candidates whose trigrams all match but the query does not")
+    public void testSearchRejectsFalsePositives() {
+        assertArrayEquals(new int[] {4}, index.search("aaaa"));
+        // every trigram of "aaaaa" is in "Aaaa", yet the value is too short to contain it
+        assertEquals(0, index.search("aaaaa").length);
+    }
+
+    @Test
+    @DisplayName("Should return every ordinal for a blank query")
+    public void testSearchBlankQuery() {
+        assertEquals(5, index.search("  ").length);
+    }
+
+    @Test
+    @DisplayName("Should return nothing when a trigram is unknown")
+    public void testSearchUnknownTrigram() {
+        assertEquals(0, index.search("xyz").length);
+    }
+
+    @Test
+    @DisplayName("Should handle an empty index")
+    public void testEmptyIndex() {
+        List<String> none = Arrays.asList();
+        TrigramIndex empty = new TrigramIndex(none);
+
+        assertEquals(0, empty.search("abc").length);
+        assertEquals(0, empty.search("a").length);
+    }
+
+    @Test
+    @DisplayName("Should answer queries from written and mapped posting lists like the built index")
+    public void testMapWrittenIndex() throws Exception {
+        List<String> values = Arrays.asList(
+            "The Prison Escape", "The Family Boss", "Dream Heist", "Space Wars: The Beginning", "Aaaa");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        assertEquals(index.serializedSize(), bytes.size());
+
+        ByteBuffer section = ByteBuffer.allocate(bytes.size() + 4);
+        section.putInt(-1).put(bytes.toByteArray()).position(4);
+        TrigramIndex mapped = TrigramIndex.map(section, values);
+
+        for (String query : new String[] {"prison escape", "THE", "am he", "eam dre", "xyz", "a", "  ", "aaa"}) {
+            assertArrayEquals(index.search(query), mapped.search(query), query);
+        }
+        assertTrue(mapped.matches(2, "heist"));
+        assertEquals(5, mapped.size());
+
+        ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(bytes.toByteArray(), bytes.size() - 4));
+        assertThrows(IllegalArgumentException.class, () -> TrigramIndex.map(truncated, values));
+    }
+}
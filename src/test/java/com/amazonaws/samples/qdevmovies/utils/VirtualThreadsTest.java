@@ -0,0 +1,49 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the reflective virtual thread access; they adapt to the JVM running the build.
+ */
+public class VirtualThreadsTest {
+
+    @Test
+    @DisplayName("Should report support only on JVMs with Thread.ofVirtual")
+    public void testSupportMatchesJvm() {
+        boolean hasOfVirtual;
+        try {
+            Thread.class.getMethod("ofVirtual");
+            hasOfVirtual = true;
+        } catch (NoSuchMethodException e) {
+            hasOfVirtual = false;
+        }
+        assertEquals(hasOfVirtual, VirtualThreads.isSupported());
+    }
+
+    @Test
+    @DisplayName("Should run tasks on virtual threads, or fail clearly without them")
+    public void testExecutor() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            IllegalStateException e = assertThrows(IllegalStateException.class, VirtualThreads::newThreadPerTaskExecutor);
+            assertTrue(e.getMessage().contains("Java 21"));
+            assertThrows(IllegalStateException.class, () -> VirtualThreads.start(() -> { }));
+            return;
+        }
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor();
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+            assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+        } finally {
+            executor.shutdown();
+        }
+        Thread started = VirtualThreads.start(() -> { });
+        started.join(10_000);
+        assertFalse(started.isAlive());
+    }
+}